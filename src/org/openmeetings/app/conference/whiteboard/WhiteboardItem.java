@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.app.conference.whiteboard;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One object drawn on a whiteboard
+ *
+ * The action object is the list sent by the client: the type is its first
+ * element, the name (OID) the last one, the z-index the 8th and the slide of
+ * the swf the 7th element from the end. The z-index is kept in the
+ * {@link ZIndexTree} of the whiteboard and only written to the action object
+ * when the items are sent to the client.
+ */
+public class WhiteboardItem {
+
+	private final String oid;
+	private final WhiteboardItemType type;
+	@SuppressWarnings("rawtypes")
+	private List actionObject;
+
+	// node of the ZIndexTree, the z-index is relative to the pending shifts
+	// of the parents
+	int zIndex;
+	int shift;
+	int priority;
+	int size;
+	WhiteboardItem left;
+	WhiteboardItem right;
+	WhiteboardItem parent;
+	boolean indexed;
+
+	@SuppressWarnings("rawtypes")
+	WhiteboardItem(List actionObject) {
+		this.actionObject = actionObject;
+		this.oid = getOid(actionObject);
+		this.type = WhiteboardItemType.get(actionObject.get(0).toString());
+	}
+
+	@SuppressWarnings("rawtypes")
+	static String getOid(List actionObject) {
+		return actionObject.get(actionObject.size() - 1).toString();
+	}
+
+	/**
+	 * @return the z-index of the action object, null if the item has no
+	 *         z-index
+	 */
+	@SuppressWarnings("rawtypes")
+	static Integer getZIndex(WhiteboardItemType type, List actionObject) {
+		if (type == null || !type.isZIndexed() || actionObject.size() < 8) {
+			return null;
+		}
+		Object zIndex = actionObject.get(actionObject.size() - 8);
+		if (zIndex instanceof Number) {
+			return ((Number) zIndex).intValue();
+		}
+		return zIndex == null ? null : Integer.valueOf(zIndex.toString());
+	}
+
+	public String getOid() {
+		return oid;
+	}
+
+	/**
+	 * @return the type or null if the client sent an unknown type
+	 */
+	public WhiteboardItemType getType() {
+		return type;
+	}
+
+	@SuppressWarnings("rawtypes")
+	public List getActionObject() {
+		return actionObject;
+	}
+
+	@SuppressWarnings("rawtypes")
+	void setActionObject(List actionObject) {
+		this.actionObject = actionObject;
+	}
+
+	/**
+	 * @return the swf object (name, slide, isVisible) the item is drawn on or
+	 *         null
+	 */
+	@SuppressWarnings("rawtypes")
+	public Map getSwfObject() {
+		if (type == null || !type.isOnSlide() || actionObject.size() < 7) {
+			return null;
+		}
+		Object swfObj = actionObject.get(actionObject.size() - 7);
+		return swfObj instanceof Map ? (Map) swfObj : null;
+	}
+
+	/**
+	 * @return name of the swf the item is drawn on or null
+	 */
+	@SuppressWarnings("rawtypes")
+	public String getSwfName() {
+		Map swfObj = getSwfObject();
+		if (swfObj == null || swfObj.get("name") == null) {
+			return null;
+		}
+		return swfObj.get("name").toString();
+	}
+}
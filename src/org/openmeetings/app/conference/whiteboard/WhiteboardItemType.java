@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.app.conference.whiteboard;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Types of the objects drawn on the whiteboard, the name is the first element
+ * of the action object sent by the client
+ */
+public enum WhiteboardItemType {
+	ELLIPSE("ellipse", true, true)
+	, DRAWARROW("drawarrow", true, true)
+	, LINE("line", true, true)
+	, PAINT("paint", true, true)
+	, RECTANGLE("rectangle", true, true)
+	, ULINE("uline", true, true)
+	, IMAGE("image", true, true)
+	, LETTER("letter", true, true)
+	, CLIPART("clipart", true, true)
+	, SWF("swf", true, false)
+	, MINDMAPNODE("mindmapnode", true, false)
+	, FLV("flv", true, false)
+	, POINTER("pointerWhiteBoard", false, false);
+
+	private static final Map<String, WhiteboardItemType> byName = new HashMap<String, WhiteboardItemType>();
+	static {
+		for (WhiteboardItemType type : values()) {
+			byName.put(type.getName(), type);
+		}
+	}
+
+	private final String name;
+	private final boolean zIndexed;
+	private final boolean onSlide;
+
+	private WhiteboardItemType(String name, boolean zIndexed, boolean onSlide) {
+		this.name = name;
+		this.zIndexed = zIndexed;
+		this.onSlide = onSlide;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return true if the item has a z-index (8th element from the end of the
+	 *         action object), the z-index of the items above are decreased
+	 *         if such an item is removed
+	 */
+	public boolean isZIndexed() {
+		return zIndexed;
+	}
+
+	/**
+	 * @return true if the item can be bound to a slide of a swf document (7th
+	 *         element from the end of the action object)
+	 */
+	public boolean isOnSlide() {
+		return onSlide;
+	}
+
+	/**
+	 * @param name
+	 * @return the type or null if the name is unknown
+	 */
+	public static WhiteboardItemType get(String name) {
+		return byName.get(name);
+	}
+}
@@ -20,9 +20,19 @@ package org.openmeetings.app.conference.whiteboard;
 
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-
+import java.util.Set;
+
+/**
+ * State of one whiteboard
+ * 
+ * The items are stored typed and indexed by name, z-index and the swf they
+ * are drawn on. {@link #getRoomItems()} builds the map of the action objects
+ * sent to the client, sorted by z-index.
+ */
 public class WhiteboardObject {
 
 	private Long whiteBoardId;
@@ -30,8 +40,10 @@ public class WhiteboardObject {
 	private Integer y = 0;
 	private Integer zoom = 100;
 	private Boolean fullFit = true;
-	@SuppressWarnings("rawtypes")
-	private Map<String, List> roomItems = new HashMap<String, List>();
+	private Map<String, WhiteboardItem> items = new HashMap<String, WhiteboardItem>();
+	private ZIndexTree zIndexTree = new ZIndexTree();
+	// names of the items drawn on a swf by the name of the swf
+	private Map<String, Set<String>> swfItems = new HashMap<String, Set<String>>();
 	private Date created = new Date();
 
 	public Long getWhiteBoardId() {
@@ -58,14 +70,140 @@ public class WhiteboardObject {
 		this.y = y;
 	}
 
+	/**
+	 * @return the action objects by the name of the items, the items having
+	 *         a z-index come first from the bottom to the top
+	 */
 	@SuppressWarnings("rawtypes")
-	public Map<String, List> getRoomItems() {
+	public synchronized Map<String, List> getRoomItems() {
+		Map<String, List> roomItems = new LinkedHashMap<String, List>(
+				items.size() * 4 / 3 + 1);
+		for (WhiteboardItem item : zIndexTree.getItems()) {
+			roomItems.put(item.getOid(), item.getActionObject());
+		}
+		for (WhiteboardItem item : items.values()) {
+			if (!item.indexed) {
+				roomItems.put(item.getOid(), item.getActionObject());
+			}
+		}
 		return roomItems;
 	}
 
 	@SuppressWarnings("rawtypes")
-	public void setRoomItems(Map<String, List> roomItems) {
-		this.roomItems = roomItems;
+	public synchronized void setRoomItems(Map<String, List> roomItems) {
+		clearItems();
+		for (List actionObject : roomItems.values()) {
+			putItem(actionObject);
+		}
+	}
+
+	/**
+	 * @return number of items on the whiteboard
+	 */
+	public synchronized int size() {
+		return items.size();
+	}
+
+	public synchronized WhiteboardItem getItem(String oid) {
+		return items.get(oid);
+	}
+
+	/**
+	 * @return the current z-index of the item, null if it does not exist or
+	 *         has no z-index
+	 */
+	public synchronized Integer getZIndex(String oid) {
+		WhiteboardItem item = items.get(oid);
+		if (item == null || !item.indexed) {
+			return null;
+		}
+		return zIndexTree.getZIndex(item);
+	}
+
+	/**
+	 * Adds the item or replaces the item having the same name, the z-index
+	 * is taken from the action object
+	 * 
+	 * @return the previous item or null
+	 */
+	@SuppressWarnings("rawtypes")
+	public synchronized WhiteboardItem putItem(List actionObject) {
+		WhiteboardItem item = new WhiteboardItem(actionObject);
+		WhiteboardItem previous = removeItem(item.getOid());
+		items.put(item.getOid(), item);
+		Integer zIndex = WhiteboardItem.getZIndex(item.getType(), actionObject);
+		if (zIndex != null) {
+			zIndexTree.insert(item, zIndex);
+		}
+		String swfName = item.getSwfName();
+		if (swfName != null) {
+			Set<String> oids = swfItems.get(swfName);
+			if (oids == null) {
+				oids = new HashSet<String>();
+				swfItems.put(swfName, oids);
+			}
+			oids.add(item.getOid());
+		}
+		return previous;
+	}
+
+	/**
+	 * Removes the item, the z-index of the other items is unchanged
+	 * 
+	 * @return the removed item or null
+	 */
+	public synchronized WhiteboardItem removeItem(String oid) {
+		WhiteboardItem item = items.remove(oid);
+		if (item == null) {
+			return null;
+		}
+		zIndexTree.remove(item);
+		String swfName = item.getSwfName();
+		if (swfName != null) {
+			Set<String> oids = swfItems.get(swfName);
+			if (oids != null) {
+				oids.remove(oid);
+				if (oids.isEmpty()) {
+					swfItems.remove(swfName);
+				}
+			}
+		}
+		return item;
+	}
+
+	/**
+	 * Removes the item and moves the items having a z-index greater or equal
+	 * to the given one a layer down
+	 * 
+	 * @return the removed item or null
+	 */
+	public synchronized WhiteboardItem deleteItem(String oid, int zIndex) {
+		WhiteboardItem item = removeItem(oid);
+		zIndexTree.shift(zIndex, -1);
+		return item;
+	}
+
+	public synchronized void clearItems() {
+		items.clear();
+		zIndexTree.clear();
+		swfItems.clear();
+	}
+
+	/**
+	 * Shows the items drawn on the given slide of the swf and hides the items
+	 * of the other slides
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public synchronized void showSlide(String swfName, int slide) {
+		Set<String> oids = swfItems.get(swfName);
+		if (oids == null) {
+			return;
+		}
+		for (String oid : oids) {
+			Map swfObj = items.get(oid).getSwfObject();
+			swfObj.put("isVisible", Integer.valueOf(swfObj.get("slide")
+					.toString()) == slide);
+		}
 	}
 
 	public Date getCreated() {
@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.app.conference.whiteboard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Order statistic tree (treap) of the whiteboard items sorted by z-index
+ *
+ * Shifting the z-index of all items above a given z-index is done by a
+ * pending shift stored in the root of the affected subtree, so insert, remove
+ * and shift are O(log n). Items having the same z-index are kept in
+ * insertion order.
+ *
+ * Not thread safe, the {@link WhiteboardObject} synchronizes the access.
+ */
+class ZIndexTree {
+
+	private final Random random = new Random();
+	private WhiteboardItem root;
+
+	int size() {
+		return size(root);
+	}
+
+	void clear() {
+		root = null;
+	}
+
+	/**
+	 * Adds the item on top of the items having the same z-index
+	 */
+	void insert(WhiteboardItem item, int zIndex) {
+		item.zIndex = zIndex;
+		item.shift = 0;
+		item.priority = random.nextInt();
+		item.left = null;
+		item.right = null;
+		item.parent = null;
+		item.indexed = true;
+		update(item);
+		WhiteboardItem[] parts = split(root, zIndex + 1);
+		setRoot(merge(merge(parts[0], item), parts[1]));
+	}
+
+	/**
+	 * Removes the item, the z-index of the other items is unchanged
+	 */
+	void remove(WhiteboardItem item) {
+		if (!item.indexed) {
+			return;
+		}
+		// apply the pending shifts on the path to the item
+		List<WhiteboardItem> path = new ArrayList<WhiteboardItem>();
+		for (WhiteboardItem n = item; n != null; n = n.parent) {
+			path.add(n);
+		}
+		for (int i = path.size() - 1; i >= 0; --i) {
+			push(path.get(i));
+		}
+		WhiteboardItem parent = item.parent;
+		WhiteboardItem replacement = merge(item.left, item.right);
+		if (parent == null) {
+			setRoot(replacement);
+		} else {
+			if (parent.left == item) {
+				parent.left = replacement;
+			} else {
+				parent.right = replacement;
+			}
+			for (WhiteboardItem n = parent; n != null; n = n.parent) {
+				update(n);
+			}
+		}
+		item.left = null;
+		item.right = null;
+		item.parent = null;
+		item.indexed = false;
+	}
+
+	/**
+	 * Adds delta to the z-index of all items having a z-index greater or
+	 * equal to the given one
+	 */
+	void shift(int zIndex, int delta) {
+		WhiteboardItem[] parts = split(root, zIndex);
+		if (parts[1] != null) {
+			parts[1].zIndex += delta;
+			parts[1].shift += delta;
+		}
+		setRoot(merge(parts[0], parts[1]));
+	}
+
+	int getZIndex(WhiteboardItem item) {
+		int zIndex = item.zIndex;
+		for (WhiteboardItem n = item.parent; n != null; n = n.parent) {
+			zIndex += n.shift;
+		}
+		return zIndex;
+	}
+
+	/**
+	 * @return the number of items below the item
+	 */
+	int getRank(WhiteboardItem item) {
+		int rank = size(item.left);
+		for (WhiteboardItem n = item; n.parent != null; n = n.parent) {
+			if (n.parent.right == n) {
+				rank += size(n.parent.left) + 1;
+			}
+		}
+		return rank;
+	}
+
+	/**
+	 * @return all items from the bottom to the top, the z-index of the
+	 *         action objects is updated
+	 */
+	List<WhiteboardItem> getItems() {
+		List<WhiteboardItem> items = new ArrayList<WhiteboardItem>(size());
+		collect(root, 0, items);
+		return items;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void collect(WhiteboardItem n, int shift, List<WhiteboardItem> items) {
+		while (n != null) {
+			int childShift = shift + n.shift;
+			collect(n.left, childShift, items);
+			n.getActionObject().set(n.getActionObject().size() - 8,
+					n.zIndex + shift);
+			items.add(n);
+			n = n.right;
+			shift = childShift;
+		}
+	}
+
+	private static int size(WhiteboardItem n) {
+		return n == null ? 0 : n.size;
+	}
+
+	private void setRoot(WhiteboardItem n) {
+		root = n;
+		if (n != null) {
+			n.parent = null;
+		}
+	}
+
+	private static void push(WhiteboardItem n) {
+		if (n.shift != 0) {
+			if (n.left != null) {
+				n.left.zIndex += n.shift;
+				n.left.shift += n.shift;
+			}
+			if (n.right != null) {
+				n.right.zIndex += n.shift;
+				n.right.shift += n.shift;
+			}
+			n.shift = 0;
+		}
+	}
+
+	private static void update(WhiteboardItem n) {
+		n.size = 1 + size(n.left) + size(n.right);
+		if (n.left != null) {
+			n.left.parent = n;
+		}
+		if (n.right != null) {
+			n.right.parent = n;
+		}
+	}
+
+	/**
+	 * @return the items having a z-index lower than the given one and the
+	 *         others
+	 */
+	private static WhiteboardItem[] split(WhiteboardItem n, int zIndex) {
+		if (n == null) {
+			return new WhiteboardItem[2];
+		}
+		push(n);
+		WhiteboardItem[] parts;
+		if (n.zIndex < zIndex) {
+			parts = split(n.right, zIndex);
+			n.right = parts[0];
+			update(n);
+			parts[0] = n;
+		} else {
+			parts = split(n.left, zIndex);
+			n.left = parts[1];
+			update(n);
+			parts[1] = n;
+		}
+		return parts;
+	}
+
+	private static WhiteboardItem merge(WhiteboardItem a, WhiteboardItem b) {
+		if (a == null) {
+			return b;
+		}
+		if (b == null) {
+			return a;
+		}
+		if (a.priority > b.priority) {
+			push(a);
+			a.right = merge(a.right, b);
+			update(a);
+			return a;
+		} else {
+			push(b);
+			b.left = merge(a, b.left);
+			update(b);
+			return b;
+		}
+	}
+}
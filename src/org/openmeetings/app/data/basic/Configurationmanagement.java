@@ -19,9 +19,15 @@
 package org.openmeetings.app.data.basic;
 
 import java.lang.reflect.Constructor;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
@@ -36,12 +42,14 @@ import org.openmeetings.app.OpenmeetingsVariables;
 import org.openmeetings.app.data.beans.basic.SearchResult;
 import org.openmeetings.app.data.user.dao.UsersDaoImpl;
 import org.openmeetings.app.persistence.beans.basic.Configuration;
-import org.openmeetings.app.remote.red5.ScopeApplicationAdapter;
 import org.openmeetings.utils.mappings.CastMapToObject;
 import org.red5.logging.Red5LoggerFactory;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Transactional
 public class Configurationmanagement {
@@ -59,7 +67,25 @@ public class Configurationmanagement {
 	private UsersDaoImpl usersDao;
 	@Autowired
 	private AuthLevelmanagement authLevelManagement;
-	private String appName = null;
+
+	// values of all configuration keys, loaded on first use and dropped by
+	// every change of the configuration
+	private volatile ConfValues confValues = null;
+	// incremented by every change, values loaded before are not used
+	private final AtomicLong confGeneration = new AtomicLong();
+	private final ConcurrentHashMap<String, List<ConfigurationListener>> listeners = new ConcurrentHashMap<String, List<ConfigurationListener>>();
+
+	private static class ConfValues {
+		private final long generation;
+		private final Map<String, String> values;
+		// values returned by getConfValue by key, type and default value
+		private final ConcurrentHashMap<String, Object> typedValues = new ConcurrentHashMap<String, Object>();
+
+		ConfValues(long generation, Map<String, String> values) {
+			this.generation = generation;
+			this.values = values;
+		}
+	}
 
 	public Configuration getConfKey(long user_level, String CONF_KEY) {
 		try {
@@ -90,32 +116,51 @@ public class Configurationmanagement {
 	 * 
 	 * Example: Integer my_key = getConfValue("my_key", Integer.class, "15");
 	 * 
+	 * The values are read from a snapshot of the configuration, converted
+	 * values are cached so the type should be immutable
+	 * 
 	 * @param CONF_KEY
 	 * @param typeObject
 	 * @param defaultValue
 	 * @return
 	 */
+	@Transactional(propagation = Propagation.SUPPORTS)
 	public <T> T getConfValue(String CONF_KEY, Class<T> typeObject,
 			String defaultValue) {
 		try {
-			Configuration conf_reminder = getConfKey(3L, CONF_KEY);
+			ConfValues conf = getConfValues();
+			String value = conf.values.get(CONF_KEY);
 
-			if (conf_reminder == null) {
+			if (value == null) {
 				log.warn("Could not find key in configuration CONF_KEY: "
 						+ CONF_KEY);
 			} else {
 				// Use the custom value as default value
-				defaultValue = conf_reminder.getConf_value();
+				defaultValue = value;
+			}
+			if (defaultValue == null) {
+				return null;
+			}
+
+			String cacheKey = CONF_KEY + '\0' + typeObject.getName() + '\0'
+					+ (value == null ? "default:" + defaultValue : "");
+			Object cached = conf.typedValues.get(cacheKey);
+			if (cached != null) {
+				return typeObject.cast(cached);
 			}
 
 			// Either this can be directly assigned or try to find a constructor
 			// that handles it
+			T result;
 			if (typeObject.isAssignableFrom(defaultValue.getClass())) {
-				return typeObject.cast(defaultValue);
+				result = typeObject.cast(defaultValue);
+			} else {
+				Constructor<T> c = typeObject.getConstructor(defaultValue
+						.getClass());
+				result = c.newInstance(defaultValue);
 			}
-			Constructor<T> c = typeObject.getConstructor(defaultValue
-					.getClass());
-			return c.newInstance(defaultValue);
+			conf.typedValues.put(cacheKey, result);
+			return result;
 
 		} catch (Exception err) {
 			log.error(
@@ -125,6 +170,101 @@ public class Configurationmanagement {
 		}
 	}
 
+	/**
+	 * The snapshot of the configuration, values of a reader which loaded them
+	 * before a change has been committed are never used since the generation
+	 * has changed
+	 */
+	private ConfValues getConfValues() {
+		ConfValues snapshot = confValues;
+		long generation = confGeneration.get();
+		if (snapshot == null || snapshot.generation != generation) {
+			TypedQuery<Configuration> query = em
+					.createQuery(
+							"select c from Configuration as c where c.deleted = :deleted order by c.configuration_id",
+							Configuration.class);
+			query.setParameter("deleted", "false");
+
+			Map<String, String> values = new HashMap<String, String>();
+			for (Configuration conf : query.getResultList()) {
+				if (conf.getConf_key() != null && conf.getConf_value() != null
+						&& !values.containsKey(conf.getConf_key())) {
+					values.put(conf.getConf_key(), conf.getConf_value());
+				}
+			}
+			snapshot = new ConfValues(generation,
+					Collections.unmodifiableMap(values));
+			confValues = snapshot;
+		}
+		return snapshot;
+	}
+
+	/**
+	 * The listener is called after every committed change of the given key
+	 */
+	public void addConfigurationListener(String CONF_KEY,
+			ConfigurationListener listener) {
+		List<ConfigurationListener> l = listeners.get(CONF_KEY);
+		if (l == null) {
+			listeners.putIfAbsent(CONF_KEY,
+					new CopyOnWriteArrayList<ConfigurationListener>());
+			l = listeners.get(CONF_KEY);
+		}
+		l.add(listener);
+	}
+
+	public void removeConfigurationListener(String CONF_KEY,
+			ConfigurationListener listener) {
+		List<ConfigurationListener> l = listeners.get(CONF_KEY);
+		if (l != null) {
+			l.remove(listener);
+		}
+	}
+
+	/**
+	 * Drops the cached values and notifies the listeners of the keys, after
+	 * the commit if a transaction is active
+	 */
+	private void configurationChanged(final String... CONF_KEYS) {
+		invalidate();
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			// the values might have been loaded again by another thread
+			// before the commit
+			TransactionSynchronizationManager
+					.registerSynchronization(new TransactionSynchronizationAdapter() {
+						@Override
+						public void afterCommit() {
+							invalidate();
+							notifyListeners(CONF_KEYS);
+						}
+					});
+		} else {
+			notifyListeners(CONF_KEYS);
+		}
+	}
+
+	private void invalidate() {
+		confGeneration.incrementAndGet();
+		confValues = null;
+	}
+
+	private void notifyListeners(String... CONF_KEYS) {
+		for (String key : CONF_KEYS) {
+			List<ConfigurationListener> l = key == null ? null : listeners.get(key);
+			if (l == null) {
+				continue;
+			}
+			String value = getConfValue(key, String.class, null);
+			for (ConfigurationListener listener : l) {
+				try {
+					listener.configurationChanged(key, value);
+				} catch (Exception err) {
+					log.error("[configurationChanged] " + key, err);
+				}
+			}
+		}
+	}
+
 	public Configuration getConfByConfigurationId(long user_level,
 			long configuration_id) {
 		try {
@@ -234,6 +374,7 @@ public class Configurationmanagement {
 				configuration.setUser_id(USER_ID);
 			try {
 				configuration = em.merge(configuration);
+				configurationChanged(CONF_KEY);
 				ret = "Erfolgreich";
 			} catch (Exception ex2) {
 				log.error("[addConfByKey]: ", ex2);
@@ -263,6 +404,8 @@ public class Configurationmanagement {
 							+ conf.getConfiguration_id());
 					Configuration conf2 = this.getConfByConfigurationId(3L,
 							conf.getConfiguration_id());
+					// the old key is changed too if it is renamed
+					configurationChanged(conf2.getConf_key());
 					conf2.setComment(conf.getComment());
 					conf2.setConf_key(conf.getConf_key());
 					conf2.setConf_value(conf.getConf_value());
@@ -284,6 +427,7 @@ public class Configurationmanagement {
 	public Long addConfig(Configuration conf) {
 		try {
 			conf = em.merge(conf);
+			configurationChanged(conf.getConf_key());
 			Long configuration_id = conf.getConfiguration_id();
 			return configuration_id;
 		} catch (Exception ex2) {
@@ -301,11 +445,7 @@ public class Configurationmanagement {
 					conf = em.merge(conf);
 				}
 			}
-			if ("crypt_ClassName".equals(conf.getConf_key())) {
-				ScopeApplicationAdapter.configKeyCryptClassName = conf.getConf_value();
-			} else if ("show.whiteboard.draw.status".equals(conf.getConf_key())) {
-				ScopeApplicationAdapter.whiteboardDrawStatus = "1".equals(conf.getConf_value());
-			}
+			configurationChanged(conf.getConf_key());
 			return conf.getConfiguration_id();
 		} catch (Exception ex2) {
 			log.error("[updateConfByUID]: ", ex2);
@@ -326,6 +466,7 @@ public class Configurationmanagement {
 
 				Configuration conf2 = this.getConfByConfigurationId(3L,
 						conf.getConfiguration_id());
+				configurationChanged(conf2.getConf_key());
 				conf2.setComment(conf.getComment());
 				conf2.setConf_key(conf.getConf_key());
 				conf2.setConf_value(conf.getConf_value());
@@ -346,9 +487,6 @@ public class Configurationmanagement {
 	}
 
 	public String getAppName() {
-		if (appName == null) {
-			appName = getConfValue("application.name", String.class, Configurationmanagement.DEFAULT_APP_NAME);
-		}
-		return appName;
+		return getConfValue("application.name", String.class, Configurationmanagement.DEFAULT_APP_NAME);
 	}
 }
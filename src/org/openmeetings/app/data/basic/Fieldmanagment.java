@@ -18,14 +18,20 @@
  */
 package org.openmeetings.app.data.basic;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
 
+import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
@@ -39,7 +45,10 @@ import org.openmeetings.app.persistence.beans.lang.Fieldvalues;
 import org.red5.logging.Red5LoggerFactory;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * 
@@ -60,7 +69,41 @@ public class Fieldmanagment {
 
 	@Autowired
 	private Configurationmanagement cfgManagement;
-	
+
+	// labels of the languages sent to the clients, built on first use
+	private final ConcurrentHashMap<Long, LabelBundle> labelBundles = new ConcurrentHashMap<Long, LabelBundle>();
+	// incremented by every change of the labels, bundles built before are
+	// not used
+	private final AtomicLong labelsGeneration = new AtomicLong();
+
+	/**
+	 * All labels of a language with the application name replaced, ordered
+	 * by the id of the label. The bundle is never changed, a new one is built
+	 * after the labels of the language have been changed.
+	 */
+	private static class LabelBundle {
+		private final long generation;
+		private final List<Map<String, Object>> labels;
+		private final String version;
+
+		LabelBundle(long generation, List<Map<String, Object>> labels,
+				String version) {
+			this.generation = generation;
+			this.labels = labels;
+			this.version = version;
+		}
+	}
+
+	@PostConstruct
+	public void init() {
+		cfgManagement.addConfigurationListener("application.name",
+				new ConfigurationListener() {
+					public void configurationChanged(String CONF_KEY, String value) {
+						invalidate(null);
+					}
+				});
+	}
+
 	// Reflect the Reverse Order!!
 	public Fieldlanguagesvalues getFieldByIdAndLanguageByNavi(
 			Long fieldvalues_id, Long language_id) {
@@ -188,74 +231,115 @@ public class Fieldmanagment {
 		return null;
 	}
 
+	/**
+	 * The labels are read from the bundle of the language, the database is
+	 * only queried if the labels of the language have been changed
+	 * 
+	 * @param language_id
+	 * @param start
+	 * @param max
+	 * @return
+	 */
+	@Transactional(propagation = Propagation.SUPPORTS)
 	public List<Map<String, Object>> getLabelsByLanguage(Long language_id,
 			int start, int max) {
 		try {
+			List<Map<String, Object>> labels = getLabelBundle(language_id).labels;
+			int from = Math.min(Math.max(0, start), labels.size());
+			int to = max < 0 ? labels.size() : (int) Math.min(
+					(long) from + max, labels.size());
+			return new ArrayList<Map<String, Object>>(labels.subList(from, to));
+		} catch (Exception ex2) {
+			log.error("[getLabelsByLanguage]: ", ex2);
+		}
+		return null;
+	}
 
-			String sql = "select f.fieldvalues.fieldvalues_id, f.value from Fieldlanguagesvalues as f "
-					+ "WHERE f.language_id = :language_id ";
-
-			TypedQuery<Object> query = em.createQuery(sql, Object.class);
-			query.setParameter("language_id", language_id);
-			query.setFirstResult(start);
-			query.setMaxResults(max);
-
-			String appName = cfgManagement.getAppName();
-			List<Map<String, Object>> returnList = new LinkedList<Map<String, Object>>();
-			for (Object fl : query.getResultList()) {
-				Map<String, Object> map = new HashMap<String, Object>();
-				Object[] row = (Object[])fl;
-				map.put("id", (Long)row[0]);
-				map.put("value", performReplace((String)row[1], appName));
-				returnList.add(map);
-			}
-			FieldLanguage fieldLanguage = fieldLanguageDaoImpl
-					.getFieldLanguageById(language_id);
-
-			log.debug("Getting Labels for Language " + fieldLanguage.getName());
-
-			// Check for Right To Left Languages
-			if (fieldLanguage.getRtl()) {
-				log.debug("Language requieres RTL!");
-
-				List<Map<String, Object>> returnRtlList = new LinkedList<Map<String, Object>>();
+	/**
+	 * @param language_id
+	 * @return the version of the labels of the language, it is changed
+	 *         whenever a label or the application name is changed
+	 */
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public String getLabelsVersion(Long language_id) {
+		try {
+			return getLabelBundle(language_id).version;
+		} catch (Exception ex2) {
+			log.error("[getLabelsVersion]: ", ex2);
+		}
+		return null;
+	}
 
-				for (Iterator<Map<String, Object>> iter = returnList.iterator(); iter
-						.hasNext();) {
-					Map<String, Object> remote = iter.next();
+	/**
+	 * A bundle built by a reader which loaded the labels before a change has
+	 * been committed is never used since the generation has changed
+	 */
+	private LabelBundle getLabelBundle(Long language_id) {
+		LabelBundle bundle = labelBundles.get(language_id);
+		long generation = labelsGeneration.get();
+		if (bundle != null && bundle.generation == generation) {
+			return bundle;
+		}
+		String sql = "select f.fieldvalues.fieldvalues_id, f.value from Fieldlanguagesvalues as f "
+				+ "WHERE f.language_id = :language_id "
+				+ "ORDER BY f.fieldvalues.fieldvalues_id";
 
-					Map<String, Object> toAdd = new HashMap<String, Object>();
-					toAdd.put("id", remote.get("id"));
+		TypedQuery<Object> query = em.createQuery(sql, Object.class);
+		query.setParameter("language_id", language_id);
 
-					String value = remote.get("value").toString();
+		String appName = cfgManagement.getAppName();
+		CRC32 crc = new CRC32();
+		List<Map<String, Object>> labels = new ArrayList<Map<String, Object>>();
+		for (Object fl : query.getResultList()) {
+			Object[] row = (Object[]) fl;
+			Long id = (Long) row[0];
+			String value = performReplace((String) row[1], appName);
+			Map<String, Object> map = new HashMap<String, Object>(4);
+			map.put("id", id);
+			map.put("value", value);
+			labels.add(Collections.unmodifiableMap(map));
+
+			crc.update((id + "=" + value + "\n").getBytes());
+		}
+		// The values of right to left languages are sent as they are stored
+		bundle = new LabelBundle(generation, Collections.unmodifiableList(labels),
+				language_id + "-" + labels.size() + "-"
+						+ Long.toHexString(crc.getValue()));
+		log.debug("Built labels of language " + language_id + ": "
+				+ labels.size());
+
+		labelBundles.put(language_id, bundle);
+		return bundle;
+	}
 
-					String[] splitted = value.split(" ");
-					String reverseOrder = "";
-					for (int i = splitted.length - 1; i >= 0; i--) {
-						reverseOrder += splitted[i];
-						if (splitted.length != 1) {
-							reverseOrder += " ";
+	/**
+	 * Drops the bundle of the language, again after the commit as the old
+	 * labels might have been read by another thread in the meantime
+	 */
+	private void labelsChanged(final Long language_id) {
+		invalidate(language_id);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager
+					.registerSynchronization(new TransactionSynchronizationAdapter() {
+						@Override
+						public void afterCommit() {
+							invalidate(language_id);
 						}
-					}
-					log.debug("reverseOrder " + reverseOrder);
-					toAdd.put("value", value);
-
-					returnRtlList.add(toAdd);
-				}
-
-				return returnRtlList;
-			} else {
-				log.debug("Language doesnt requiere RTL!");
-
-				return returnList;
-
-			}
+					});
+		}
+	}
 
-		} catch (Exception ex2) {
-			log.error("[getLabelsByLanguage]: ", ex2);
-			ex2.printStackTrace();
+	/**
+	 * @param language_id
+	 *            the changed language, null for all languages
+	 */
+	private void invalidate(Long language_id) {
+		labelsGeneration.incrementAndGet();
+		if (language_id == null) {
+			labelBundles.clear();
+		} else {
+			labelBundles.remove(language_id);
 		}
-		return null;
 	}
 
 	public List<Fieldlanguagesvalues> getAllFieldsByLanguage(Long language_id,
@@ -333,6 +417,7 @@ public class Fieldmanagment {
 			flv.setDeleted("false");
 
 			flv = em.merge(flv);
+			labelsChanged(language_id);
 			Long fieldlanguagesvaluesId = flv.getFieldlanguagesvalues_id();
 
 			return fieldlanguagesvaluesId;
@@ -344,6 +429,7 @@ public class Fieldmanagment {
 
 	public void updateFieldValueByFieldAndLanguage(Fieldlanguagesvalues flv) {
 		try {
+			labelsChanged(flv.getLanguage_id());
 
 			if (flv.getFieldlanguagesvalues_id() == null) {
 				em.persist(flv);
@@ -435,6 +521,7 @@ public class Fieldmanagment {
 				flv.setUpdatetime(new Date());
 				flv.setValue(value);
 				this.updateFieldLanguagesLabel(flv);
+				labelsChanged(flv.getLanguage_id());
 			}
 			return fieldvalues_id;
 		} catch (Exception ex2) {
@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.app.data.basic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * User ids of the sessions checked by {@link Sessionmanagement#checkSession}
+ * keyed by the session id
+ *
+ * A check only records the time of the request, the refresh times are
+ * written to the database in one transaction by
+ * {@link Sessionmanagement#flushSessionCache()}. Every change of a session
+ * removes it from the cache. If the cache is full the sessions which have
+ * not been used for the longest time are removed, their pending refresh
+ * times are kept until the next flush.
+ */
+public class SessionCache {
+
+	// sessions kept in memory
+	private int maxSize = 10000;
+
+	private final ConcurrentHashMap<String, CachedSession> sessions = new ConcurrentHashMap<String, CachedSession>();
+	// refresh times of removed sessions, not yet written
+	private final ConcurrentHashMap<String, Long> evictedTouches = new ConcurrentHashMap<String, Long>();
+
+	private static class CachedSession {
+		private final long userId;
+		private volatile long refreshTime;
+		private volatile boolean dirty;
+
+		CachedSession(long userId, long refreshTime) {
+			this.userId = userId;
+			this.refreshTime = refreshTime;
+		}
+	}
+
+	public void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public int size() {
+		return sessions.size();
+	}
+
+	/**
+	 * Records a request of the session
+	 *
+	 * @return the user id of the session, 0 if the user is not logged in,
+	 *         null if the session is not cached
+	 */
+	public Long touch(String SID) {
+		CachedSession session = sessions.get(SID);
+		if (session == null) {
+			return null;
+		}
+		session.refreshTime = System.currentTimeMillis();
+		session.dirty = true;
+		return session.userId;
+	}
+
+	/**
+	 * Adds a session loaded from the database and records the request
+	 */
+	public void put(String SID, Long userId) {
+		if (sessions.size() >= maxSize) {
+			evict();
+		}
+		CachedSession session = new CachedSession(userId == null ? 0
+				: userId, System.currentTimeMillis());
+		session.dirty = true;
+		sessions.put(SID, session);
+	}
+
+	/**
+	 * Has to be called for every change of the session in the database, the
+	 * pending refresh time is dropped. Inside of a transaction the session is
+	 * removed again after the transaction completed, a concurrent check might
+	 * have cached the old user id in between.
+	 */
+	public void remove(final String SID) {
+		sessions.remove(SID);
+		evictedTouches.remove(SID);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager
+					.registerSynchronization(new TransactionSynchronizationAdapter() {
+						@Override
+						public void afterCompletion(int status) {
+							sessions.remove(SID);
+						}
+					});
+		}
+	}
+
+	/**
+	 * @return the refresh times recorded since the last call
+	 */
+	public Map<String, Long> drainTouches() {
+		Map<String, Long> touches = new HashMap<String, Long>();
+		for (Iterator<String> it = evictedTouches.keySet().iterator(); it.hasNext();) {
+			String SID = it.next();
+			Long time = evictedTouches.remove(SID);
+			if (time != null) {
+				touches.put(SID, time);
+			}
+		}
+		for (Map.Entry<String, CachedSession> entry : sessions.entrySet()) {
+			CachedSession session = entry.getValue();
+			if (session.dirty) {
+				session.dirty = false;
+				touches.put(entry.getKey(), session.refreshTime);
+			}
+		}
+		return touches;
+	}
+
+	/**
+	 * Removes the sessions which have not been used since the given time
+	 */
+	public void removeOlderThan(long time) {
+		for (Iterator<CachedSession> it = sessions.values().iterator(); it.hasNext();) {
+			CachedSession session = it.next();
+			if (!session.dirty && session.refreshTime < time) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Removes the tenth of the sessions which have not been used for the
+	 * longest time
+	 */
+	private synchronized void evict() {
+		if (sessions.size() < maxSize) {
+			return;
+		}
+		List<Map.Entry<String, CachedSession>> entries = new ArrayList<Map.Entry<String, CachedSession>>(
+				sessions.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<String, CachedSession>>() {
+			public int compare(Map.Entry<String, CachedSession> o1,
+					Map.Entry<String, CachedSession> o2) {
+				long t1 = o1.getValue().refreshTime;
+				long t2 = o2.getValue().refreshTime;
+				return t1 < t2 ? -1 : (t1 == t2 ? 0 : 1);
+			}
+		});
+		int count = Math.max(1, entries.size() / 10);
+		for (int i = 0; i < count; ++i) {
+			String SID = entries.get(i).getKey();
+			CachedSession session = sessions.remove(SID);
+			if (session != null && session.dirty) {
+				evictedTouches.put(SID, session.refreshTime);
+			}
+		}
+	}
+}
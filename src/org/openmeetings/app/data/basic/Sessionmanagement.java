@@ -18,11 +18,13 @@
  */
 package org.openmeetings.app.data.basic;
 
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -40,6 +42,7 @@ import org.openmeetings.utils.crypt.ManageCryptStyle;
 import org.red5.logging.Red5LoggerFactory;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -61,6 +64,8 @@ public class Sessionmanagement {
 	private ManageCryptStyle manageCryptStyle;
 	@Autowired
 	private ClientListManager clientListManager;
+	@Autowired
+	private SessionCache sessionCache;
 
 	/**
 	 * creates a new session-object in the database
@@ -118,18 +123,24 @@ public class Sessionmanagement {
 	}
 
 	/**
+	 * Checks the session, the refresh time is only recorded in the
+	 * {@link SessionCache} and written by {@link #flushSessionCache()}
 	 * 
 	 * @param SID
-	 * @return
+	 * @return the user id of the session, 0 if the session does not exist or
+	 *         the user is not logged in
 	 */
+	@Transactional(propagation = Propagation.SUPPORTS)
 	public Long checkSession(String SID) {
 		try {
+			Long userId = sessionCache.touch(SID);
+			if (userId != null) {
+				return userId;
+			}
 
 			String hql = "select c from Sessiondata as c "
-					+ "where c.session_id LIKE :session_id";
+					+ "where c.session_id = :session_id";
 
-			// log.debug("checkSession User: || "+SID);
-			// session.flush();
 			TypedQuery<Sessiondata> query = em.createQuery(hql, Sessiondata.class);
 			query.setParameter("session_id", SID);
 
@@ -140,19 +151,15 @@ public class Sessionmanagement {
 				sessiondata = sessions.get(0);
 			}
 
-			// if (sessiondata!=null) {
-			// log.debug("checkSession USER_ID: "+sessiondata.getUser_id());
-			// } else {
-			// log.debug("Session IS NULL SID: "+SID);
-			// }
-
-			// Update the Session Object
-			if (sessiondata != null)
-				updatesession(SID);
+			if (sessiondata == null) {
+				return new Long(0);
+			}
+			// The refresh time of the session is updated by the next flush
+			sessionCache.put(SID, sessiondata.getUser_id());
 
 			// Checks if wether the Session or the User Object of that Session
 			// is set yet
-			if (sessiondata == null || sessiondata.getUser_id() == null
+			if (sessiondata.getUser_id() == null
 					|| sessiondata.getUser_id().equals(new Long(0))) {
 				return new Long(0);
 			} else {
@@ -164,6 +171,40 @@ public class Sessionmanagement {
 		return null;
 	}
 
+	/**
+	 * Writes the refresh times recorded by {@link #checkSession(String)}
+	 */
+	public void flushSessionCache() {
+		try {
+			Map<String, Long> touches = sessionCache.drainTouches();
+			if (touches.isEmpty()) {
+				return;
+			}
+			log.debug("flushSessionCache: " + touches.size());
+
+			String hql = "select c from Sessiondata as c "
+					+ "where c.session_id IN :session_ids";
+
+			List<String> SIDs = new ArrayList<String>(touches.keySet());
+			// keep the IN lists short
+			for (int i = 0; i < SIDs.size(); i += 500) {
+				TypedQuery<Sessiondata> query = em.createQuery(hql, Sessiondata.class);
+				query.setParameter("session_ids",
+						SIDs.subList(i, Math.min(SIDs.size(), i + 500)));
+				for (Sessiondata sd : query.getResultList()) {
+					Date refreshTime = new Date(touches.get(sd.getSession_id()));
+					if (sd.getRefresh_time() == null
+							|| sd.getRefresh_time().before(refreshTime)) {
+						sd.setRefresh_time(refreshTime);
+						em.merge(sd);
+					}
+				}
+			}
+		} catch (Exception ex2) {
+			log.error("[flushSessionCache]: ", ex2);
+		}
+	}
+
 	/**
 	 * update the session of a user with a new user id this is needed to see if
 	 * the session is loggedin
@@ -176,7 +217,7 @@ public class Sessionmanagement {
 			log.debug("updateUser User: " + USER_ID + " || " + SID);
 
 			String hql = "select c from Sessiondata as c "
-					+ "where c.session_id LIKE :session_id";
+					+ "where c.session_id = :session_id";
 
 			// log.debug("checkSession User: || "+SID);
 			TypedQuery<Sessiondata> query = em.createQuery(hql, Sessiondata.class);
@@ -196,6 +237,7 @@ public class Sessionmanagement {
 			log.debug("Found session to update: " + sessiondata.getSession_id()
 					+ " userId: " + USER_ID);
 
+			sessionCache.remove(SID);
 			sessiondata.setRefresh_time(new Date());
 			// session.refresh(sd);
 			sessiondata.setUser_id(USER_ID);
@@ -221,7 +263,7 @@ public class Sessionmanagement {
 			log.debug("updateUser User: " + USER_ID + " || " + SID);
 
 			String hql = "select c from Sessiondata as c "
-					+ "where c.session_id LIKE :session_id";
+					+ "where c.session_id = :session_id";
 
 			// log.debug("checkSession User: || "+SID);
 			TypedQuery<Sessiondata> query = em.createQuery(hql, Sessiondata.class);
@@ -241,6 +283,7 @@ public class Sessionmanagement {
 			log.debug("Found session to update: " + sessiondata.getSession_id()
 					+ " userId: " + USER_ID);
 
+			sessionCache.remove(SID);
 			sessiondata.setRefresh_time(new Date());
 			// session.refresh(sd);
 			sessiondata.setUser_id(USER_ID);
@@ -269,7 +312,7 @@ public class Sessionmanagement {
 			log.debug("updateUserOrg User: " + organization_id + " || " + SID);
 
 			String hql = "select c from Sessiondata as c "
-					+ "where c.session_id LIKE :session_id";
+					+ "where c.session_id = :session_id";
 
 			// log.debug("checkSession User: || "+SID);
 			TypedQuery<Sessiondata> query = em.createQuery(hql, Sessiondata.class);
@@ -289,6 +332,7 @@ public class Sessionmanagement {
 			log.debug("Found session to update: " + sessiondata.getSession_id()
 					+ " organisation_id: " + organization_id);
 
+			sessionCache.remove(SID);
 			sessiondata.setRefresh_time(new Date());
 			// session.refresh(sd);
 			sessiondata.setOrganization_id(organization_id);
@@ -312,7 +356,7 @@ public class Sessionmanagement {
 			log.debug("updateUser User: " + USER_ID + " || " + SID);
 
 			String hql = "select c from Sessiondata as c "
-					+ "where c.session_id LIKE :session_id";
+					+ "where c.session_id = :session_id";
 
 			// log.debug("checkSession User: || "+SID);
 			TypedQuery<Sessiondata> query = em.createQuery(hql, Sessiondata.class);
@@ -332,6 +376,7 @@ public class Sessionmanagement {
 			log.debug("Found session to update: " + sessiondata.getSession_id()
 					+ " userId: " + USER_ID);
 
+			sessionCache.remove(SID);
 			sessiondata.setRefresh_time(new Date());
 			// session.refresh(sd);
 			sessiondata.setUser_id(USER_ID);
@@ -374,6 +419,7 @@ public class Sessionmanagement {
 			// log.debug("Found session to update: "+sd.getSession_id()+
 			// " userId: "+USER_ID);
 
+			sessionCache.remove(SID);
 			sd.setRefresh_time(new Date());
 			sd.setSessionXml(sessionXml);
 
@@ -392,46 +438,6 @@ public class Sessionmanagement {
 		return null;
 	}
 
-	/**
-	 * update the session every time a user makes a request
-	 * 
-	 * @param SID
-	 */
-	private void updatesession(String SID) {
-		try {
-			// log.debug("****** updatesession: "+SID);
-			CriteriaBuilder cb = em.getCriteriaBuilder();
-			CriteriaQuery<Sessiondata> cq = cb.createQuery(Sessiondata.class);
-			Root<Sessiondata> c = cq.from(Sessiondata.class);
-			Predicate condition = cb.equal(c.get("session_id"), SID);
-			cq.where(condition);
-
-			TypedQuery<Sessiondata> q = em.createQuery(cq);
-
-			List<Sessiondata> fullList = q.getResultList();
-			if (fullList.size() == 0) {
-				log.error("Found NO session to updateSession: ");
-
-			} else {
-				// log.debug("Found session to updateSession: ");
-				Sessiondata sd = fullList.iterator().next();
-				// log.debug("Found session to updateSession sd "+sd.getUser_id()+" "+sd.getSession_id());
-				sd.setRefresh_time(new Date());
-
-				if (sd.getId() == null) {
-					em.persist(sd);
-				} else {
-					if (!em.contains(sd)) {
-						em.merge(sd);
-					}
-				}
-			}
-
-		} catch (Exception ex2) {
-			log.error("[updatesession]: ", ex2);
-		}
-	}
-
 	/**
 	 * 
 	 * @param date
@@ -466,12 +472,16 @@ public class Sessionmanagement {
 	public void clearSessionTable() {
 		try {
 			log.debug("****** clearSessionTable: ");
+			// the sessions used since the last flush are not outdated
+			flushSessionCache();
 			Calendar rightNow = Calendar.getInstance();
 			rightNow.setTimeInMillis(rightNow.getTimeInMillis() - 1800000);
+			sessionCache.removeOlderThan(rightNow.getTimeInMillis());
 			List<Sessiondata> l = this.getSessionToDelete(rightNow.getTime());
 			log.debug("clearSessionTable: " + l.size());
 			for (Iterator<Sessiondata> it = l.iterator(); it.hasNext();) {
 				Sessiondata sData = it.next();
+				sessionCache.remove(sData.getSession_id());
 				sData = em.find(Sessiondata.class, sData.getId());
 				em.remove(sData);
 			}
@@ -504,6 +514,7 @@ public class Sessionmanagement {
 				String SID = aux.substring(init_pos, end_pos);
 
 				Sessiondata sData = this.getSessionByHash(SID);
+				sessionCache.remove(SID);
 
 				sData = em.find(Sessiondata.class, sData.getId());
 				em.remove(sData);
@@ -37,6 +37,7 @@ import javax.persistence.criteria.Root;
 
 import org.openmeetings.app.OpenmeetingsVariables;
 import org.openmeetings.app.data.basic.dao.OmTimeZoneDaoImpl;
+import org.openmeetings.app.data.calendar.management.AppointmentReminderScheduler;
 import org.openmeetings.app.data.calendar.management.MeetingMemberLogic;
 import org.openmeetings.app.data.conference.Invitationmanagement;
 import org.openmeetings.app.data.user.Usermanagement;
@@ -80,6 +81,8 @@ public class AppointmentDaoImpl {
 	private MeetingMemberLogic meetingMemberLogic;
 	@Autowired
 	private TimezoneUtil timezoneUtil;
+	@Autowired
+	private AppointmentReminderScheduler reminderScheduler;
 
 	/*
 	 * insert, update, delete, select
@@ -184,6 +187,29 @@ public class AppointmentDaoImpl {
 		return null;
 	}
 
+	/**
+	 * @return a page of the appointments which are not deleted, ordered by
+	 *         id, the meeting members are not loaded
+	 */
+	public List<Appointment> getAppointments(int first, int count) {
+		try {
+			String hql = "select a from Appointment a "
+					+ "WHERE a.deleted <> :deleted "
+					+ "ORDER BY a.appointmentId";
+
+			TypedQuery<Appointment> query = em.createQuery(hql,
+					Appointment.class);
+			query.setParameter("deleted", "true");
+			query.setFirstResult(first);
+			query.setMaxResults(count);
+
+			return query.getResultList();
+		} catch (Exception ex2) {
+			log.error("[getAppointments]: ", ex2);
+		}
+		return null;
+	}
+
 	/**
 	 * 
 	 * @param appointmentName
@@ -245,6 +271,7 @@ public class AppointmentDaoImpl {
 			ap.setIsConnectedEvent(isConnectedEvent);
 
 			ap = em.merge(ap);
+			reminderScheduler.appointmentChanged(ap);
 
 			return ap.getAppointmentId();
 		} catch (Exception ex2) {
@@ -259,6 +286,8 @@ public class AppointmentDaoImpl {
 			ap.setStarttime(new Date());
 
 			ap = em.merge(ap);
+			em.flush();
+			reminderScheduler.appointmentChanged(ap);
 
 			return ap.getAppointmentId();
 		} catch (Exception ex2) {
@@ -279,6 +308,7 @@ public class AppointmentDaoImpl {
 						em.merge(appointment);
 					}
 				}
+				reminderScheduler.appointmentChanged(appointment);
 				return appointment.getAppointmentId();
 			} catch (Exception ex2) {
 				log.error("[updateAppointment] ", ex2);
@@ -389,6 +419,7 @@ public class AppointmentDaoImpl {
 							em.merge(appointment);
 						}
 					}
+					reminderScheduler.appointmentChanged(appointment);
 
 				}
 
@@ -472,6 +503,7 @@ public class AppointmentDaoImpl {
 					em.merge(ap);
 				}
 			}
+			reminderScheduler.appointmentChanged(ap);
 
 			// Adding Invitor as Meetingmember
 			Users user = userManagement.getUserById(users_id);
@@ -655,6 +687,7 @@ public class AppointmentDaoImpl {
 					em.merge(ap);
 				}
 			}
+			reminderScheduler.appointmentChanged(ap);
 
 			List<MeetingMember> meetingsRemoteMembers = meetingMemberDao
 					.getMeetingMemberByAppointmentId(ap.getAppointmentId());
@@ -698,6 +731,7 @@ public class AppointmentDaoImpl {
 					em.merge(app);
 				}
 			}
+			reminderScheduler.appointmentDeleted(appointmentId);
 			return appointmentId;
 		} catch (Exception ex2) {
 			log.error("[deleteAppointement]: " + ex2);
@@ -948,6 +982,30 @@ public class AppointmentDaoImpl {
 		}
 	}
 
+	/**
+	 * @return id and start time of the upcoming appointments with a mail
+	 *         reminder which is not sent yet
+	 */
+	public List<Object[]> getAppointmentsForReminder(Date now) {
+		try {
+			String hql = "SELECT a.appointmentId, a.appointmentStarttime FROM Appointment a "
+					+ "WHERE a.deleted <> :deleted "
+					+ "AND a.appointmentStarttime > :now "
+					+ "AND ( a.isReminderEmailSend IS NULL OR a.isReminderEmailSend = :isReminderEmailSend ) "
+					+ "AND a.remind.typId IN (2, 3)";
+
+			TypedQuery<Object[]> query = em.createQuery(hql, Object[].class);
+			query.setParameter("deleted", "true");
+			query.setParameter("now", new Timestamp(now.getTime()));
+			query.setParameter("isReminderEmailSend", false);
+
+			return query.getResultList();
+		} catch (Exception e) {
+			log.error("[getAppointmentsForReminder]", e);
+			return null;
+		}
+	}
+
 	// ---------------------------------------------------------------------------------------------
 
 	public Appointment getAppointmentByRoomId(Long user_id, Long rooms_id) {
@@ -87,6 +87,21 @@ public class MeetingMemberDaoImpl {
 		return null;
 	}
 
+	public List<MeetingMember> getMeetingMembers(int first, int count) {
+		try {
+			String hql = "select app from MeetingMember app ORDER BY app.meetingMemberId";
+			
+			TypedQuery<MeetingMember> query = em.createQuery(hql, MeetingMember.class);
+			query.setFirstResult(first);
+			query.setMaxResults(count);
+
+			return query.getResultList();
+		} catch (Exception ex2) {
+			log.error("[getMeetingMembers]: ", ex2);
+		}
+		return null;
+	}
+
 	public List<MeetingMember> getMeetingMemberByAppointmentId(
 			Long appointmentId) {
 		try {
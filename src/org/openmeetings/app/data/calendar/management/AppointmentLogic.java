@@ -18,6 +18,7 @@
  */
 package org.openmeetings.app.data.calendar.management;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -69,8 +70,11 @@ public class AppointmentLogic {
 	private MeetingMemberLogic meetingMemberLogic;
 	@Autowired
 	private TimezoneUtil timezoneUtil;
+	@Autowired
+	private AppointmentReminderScheduler reminderScheduler;
 
-	private static int DEFAULT_MINUTES_REMINDER_SEND = 15;
+	// members whose invitations are updated in one transaction
+	private static final int REMINDER_BATCH_SIZE = 50;
 
 	public List<Appointment> getAppointmentByRange(Long userId, Date starttime,
 			Date endtime) {
@@ -380,7 +384,8 @@ public class AppointmentLogic {
 	// ----------------------------------------------------------------------------------------------
 
 	/**
-	 * Sending Reminder in Simple mail format 5 minutes before Meeting begins
+	 * Sending Reminder in Simple mail format 5 minutes before Meeting begins,
+	 * the due reminders are taken from the {@link AppointmentReminderScheduler}
 	 */
 	// ----------------------------------------------------------------------------------------------
 	public void doScheduledMeetingReminder() throws Exception {
@@ -388,7 +393,7 @@ public class AppointmentLogic {
 
 		Integer minutesReminderSend = cfgManagement.getConfValue(
 				"number.minutes.reminder.send", Integer.class, ""
-						+ DEFAULT_MINUTES_REMINDER_SEND);
+						+ AppointmentReminderScheduler.DEFAULT_MINUTES_REMINDER_SEND);
 		if (minutesReminderSend == null) {
 			throw new Exception("minutesReminderSend is null!");
 		}
@@ -398,20 +403,15 @@ public class AppointmentLogic {
 			return;
 		}
 
-		long millisecondsToCheck = (minutesReminderSend * 60 * 1000);
-
-		List<Appointment> points = appointmentDao
-				.getAppointmentsForAllUsersByTimeRangeStartingNow(
-						millisecondsToCheck, false);
+		List<Long> points = reminderScheduler.getDueReminders();
 
-		if (points == null || points.size() < 1) {
+		if (points.isEmpty()) {
 			log.debug("doScheduledMeetingReminder : no Appointments in range");
 			return;
 		}
 
-		Long language_id = Long.valueOf(
-				cfgManagement.getConfKey(3, "default_lang_id").getConf_value())
-				.longValue();
+		Long language_id = cfgManagement.getConfValue("default_lang_id",
+				Long.class, "1");
 
 		// Get the required labels one time for all meeting members. The
 		// Language of the email will be the system default language
@@ -421,13 +421,21 @@ public class AppointmentLogic {
 		Fieldlanguagesvalues labelid1154 = fieldmanagment
 				.getFieldByIdAndLanguage(new Long(1154), language_id);
 
-		for (int i = 0; i < points.size(); i++) {
-			Appointment ment = points.get(i);
+		for (Long appointmentId : points) {
+			Appointment ment = appointmentDao.getAppointmentById(appointmentId);
 
 			// Prevent email from being send twice, even if the cycle takes
 			// very long to send each
-			if (ment.getIsReminderEmailSend() != null
-					&& ment.getIsReminderEmailSend()) {
+			if (ment == null
+					|| (ment.getIsReminderEmailSend() != null && ment
+							.getIsReminderEmailSend())) {
+				continue;
+			}
+
+			// the wheel might be behind the appointment, started meetings
+			// are not reminded
+			if (ment.getAppointmentStarttime() == null
+					|| !ment.getAppointmentStarttime().after(new Date())) {
 				continue;
 			}
 
@@ -449,51 +457,65 @@ public class AppointmentLogic {
 					continue;
 				}
 
-				// Iterate through all MeetingMembers
-				for (MeetingMember mm : members) {
+				for (int first = 0; first < members.size(); first += REMINDER_BATCH_SIZE) {
+					sendReminders(members.subList(first, Math.min(first
+							+ REMINDER_BATCH_SIZE, members.size())), ment,
+							language_id, labelid1158, labelid1153, labelid1154);
+				}
+			}
+		}
+	}
 
-					log.debug("doScheduledMeetingReminder : Member "
-							+ mm.getEmail());
+	private void sendReminders(List<MeetingMember> members, Appointment ment,
+			Long language_id, String labelid1158,
+			Fieldlanguagesvalues labelid1153, Fieldlanguagesvalues labelid1154) {
+		List<Invitations> invitations = new ArrayList<Invitations>(members.size());
 
-					Invitations inv = mm.getInvitation();
+		// Iterate through all MeetingMembers
+		for (MeetingMember mm : members) {
 
-					if (inv == null) {
-						log.error("Error retrieving Invitation for member "
-								+ mm.getEmail() + " in Appointment "
-								+ ment.getAppointmentName());
-						continue;
-					}
+			log.debug("doScheduledMeetingReminder : Member "
+					+ mm.getEmail());
 
-					if (inv.getBaseUrl() == null
-							|| inv.getBaseUrl().length() < 1) {
-						log.error("Error retrieving baseUrl from Invitation ID : "
-								+ inv.getInvitations_id());
-						continue;
-					}
+			Invitations inv = mm.getInvitation();
 
-					TimeZone tZone = null;
+			if (inv == null) {
+				log.error("Error retrieving Invitation for member "
+						+ mm.getEmail() + " in Appointment "
+						+ ment.getAppointmentName());
+				continue;
+			}
 
-					if (mm.getOmTimeZone() != null) {
-						tZone = timezoneUtil.getTimezoneByOmTimeZoneId(mm
-								.getOmTimeZone().getOmtimezoneId());
-					} else {
-						tZone = TimeZone.getDefault();
-					}
+			if (inv.getBaseUrl() == null
+					|| inv.getBaseUrl().length() < 1) {
+				log.error("Error retrieving baseUrl from Invitation ID : "
+						+ inv.getInvitations_id());
+				continue;
+			}
 
-					String subject = generateSubject(labelid1158, ment, tZone);
+			TimeZone tZone = null;
 
-					String message = generateMessage(labelid1158, ment,
-							language_id, labelid1153, labelid1154, tZone);
+			if (mm.getOmTimeZone() != null) {
+				tZone = timezoneUtil.getTimezoneByOmTimeZoneId(mm
+						.getOmTimeZone().getOmtimezoneId());
+			} else {
+				tZone = TimeZone.getDefault();
+			}
 
-					invitationManagement.sendInvitationReminderLink(message,
-							inv.getBaseUrl(), mm.getEmail(), subject,
-							inv.getHash());
+			String subject = generateSubject(labelid1158, ment, tZone);
 
-					inv.setUpdatetime(new Date());
-					invitationManagement.updateInvitation(inv);
-				}
-			}
+			String message = generateMessage(labelid1158, ment,
+					language_id, labelid1153, labelid1154, tZone);
+
+			invitationManagement.sendInvitationReminderLink(message,
+					inv.getBaseUrl(), mm.getEmail(), subject,
+					inv.getHash());
+
+			inv.setUpdatetime(new Date());
+			invitations.add(inv);
 		}
+
+		invitationManagement.updateInvitations(invitations);
 	}
 
 	private String generateSubject(String labelid1158,
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.app.data.calendar.management;
+
+import java.util.Date;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+
+import org.openmeetings.app.OpenmeetingsVariables;
+import org.openmeetings.app.data.basic.ConfigurationListener;
+import org.openmeetings.app.data.basic.Configurationmanagement;
+import org.openmeetings.app.data.calendar.daos.AppointmentDaoImpl;
+import org.openmeetings.app.persistence.beans.calendar.Appointment;
+import org.red5.logging.Red5LoggerFactory;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps the upcoming meeting reminders in a {@link ReminderTimeWheel}. The
+ * wheel is filled from the database once, afterwards it is kept up to date by
+ * {@link AppointmentDaoImpl} on every change of an appointment, so looking
+ * for due reminders does not need the database.
+ */
+public class AppointmentReminderScheduler {
+	private static final Logger log = Red5LoggerFactory.getLogger(
+			AppointmentReminderScheduler.class, OpenmeetingsVariables.webAppRootKey);
+
+	public static final int DEFAULT_MINUTES_REMINDER_SEND = 15;
+	private static final long TICK_MILLIS = 60 * 1000;
+	// one round of the wheel is a day
+	private static final int WHEEL_SIZE = 1440;
+
+	@Autowired
+	private AppointmentDaoImpl appointmentDao;
+	@Autowired
+	private Configurationmanagement cfgManagement;
+
+	private final ReminderTimeWheel wheel = new ReminderTimeWheel(
+			TICK_MILLIS, WHEEL_SIZE, System.currentTimeMillis());
+	private boolean loaded = false;
+
+	@PostConstruct
+	public void init() {
+		cfgManagement.addConfigurationListener("number.minutes.reminder.send",
+				new ConfigurationListener() {
+					public void configurationChanged(String CONF_KEY, String value) {
+						// the due times of all reminders are changed
+						synchronized (AppointmentReminderScheduler.this) {
+							loaded = false;
+						}
+					}
+				});
+	}
+
+	/**
+	 * @return the ids of the appointments whose reminder is due
+	 */
+	public synchronized List<Long> getDueReminders() {
+		if (!loaded) {
+			load();
+		}
+		return wheel.advance(System.currentTimeMillis());
+	}
+
+	private void load() {
+		long now = System.currentTimeMillis();
+		wheel.clear(now);
+		List<Object[]> reminders = appointmentDao
+				.getAppointmentsForReminder(new Date(now));
+		if (reminders == null) {
+			// try again with the next tick
+			return;
+		}
+		long reminderMillis = getReminderMillis();
+		for (Object[] reminder : reminders) {
+			wheel.schedule((Long) reminder[0],
+					((Date) reminder[1]).getTime() - reminderMillis);
+		}
+		loaded = true;
+		log.debug("Reminders loaded: " + wheel.size());
+	}
+
+	private long getReminderMillis() {
+		Integer minutesReminderSend = cfgManagement.getConfValue(
+				"number.minutes.reminder.send", Integer.class, ""
+						+ DEFAULT_MINUTES_REMINDER_SEND);
+		return (minutesReminderSend == null ? DEFAULT_MINUTES_REMINDER_SEND
+				: minutesReminderSend) * 60L * 1000;
+	}
+
+	/**
+	 * Schedules, moves or cancels the reminder of the appointment after the
+	 * commit of the running transaction, appointments which already started
+	 * are not reminded
+	 */
+	public void appointmentChanged(Appointment ap) {
+		if (ap == null || ap.getAppointmentId() == null) {
+			return;
+		}
+		final Long appointmentId = ap.getAppointmentId();
+		// only reminder type simple mail is concerned
+		boolean remind = !"true".equals(ap.getDeleted())
+				&& (ap.getIsReminderEmailSend() == null || !ap.getIsReminderEmailSend())
+				&& ap.getAppointmentStarttime() != null
+				&& ap.getRemind() != null
+				&& (ap.getRemind().getTypId() == 2 || ap.getRemind().getTypId() == 3);
+		final long start = remind ? ap.getAppointmentStarttime().getTime() : -1;
+		afterCommit(new Runnable() {
+			public void run() {
+				synchronized (AppointmentReminderScheduler.this) {
+					if (start <= System.currentTimeMillis()) {
+						wheel.cancel(appointmentId);
+					} else {
+						wheel.schedule(appointmentId, start - getReminderMillis());
+					}
+				}
+			}
+		});
+	}
+
+	public void appointmentDeleted(final Long appointmentId) {
+		afterCommit(new Runnable() {
+			public void run() {
+				synchronized (AppointmentReminderScheduler.this) {
+					wheel.cancel(appointmentId);
+				}
+			}
+		});
+	}
+
+	private void afterCommit(final Runnable r) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager
+					.registerSynchronization(new TransactionSynchronizationAdapter() {
+						@Override
+						public void afterCommit() {
+							r.run();
+						}
+					});
+		} else {
+			r.run();
+		}
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.app.data.calendar.management;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hashed time wheel of the appointments waiting for their reminder. The
+ * wheel has a slot per tick, an appointment is kept in the slot of its due
+ * time and stays there for later rounds of the wheel until it is due.
+ * Advancing the wheel only looks at the slots of the passed ticks.
+ * 
+ * Not thread safe, see {@link AppointmentReminderScheduler}
+ */
+public class ReminderTimeWheel {
+	private final long tickMillis;
+	private final List<Map<Long, Long>> slots;
+	// slot of every scheduled appointment
+	private final Map<Long, Integer> slotIndex = new HashMap<Long, Integer>();
+	private long currentTick;
+
+	public ReminderTimeWheel(long tickMillis, int wheelSize, long now) {
+		this.tickMillis = tickMillis;
+		slots = new ArrayList<Map<Long, Long>>(wheelSize);
+		for (int i = 0; i < wheelSize; ++i) {
+			slots.add(new HashMap<Long, Long>());
+		}
+		currentTick = now / tickMillis;
+	}
+
+	/**
+	 * Schedules or moves the reminder of the appointment, reminders due in
+	 * the past are returned by the next {@link #advance(long)}
+	 */
+	public void schedule(Long appointmentId, long due) {
+		cancel(appointmentId);
+		long tick = Math.max(due / tickMillis, currentTick);
+		int slot = (int) (tick % slots.size());
+		slots.get(slot).put(appointmentId, due);
+		slotIndex.put(appointmentId, slot);
+	}
+
+	public void cancel(Long appointmentId) {
+		Integer slot = slotIndex.remove(appointmentId);
+		if (slot != null) {
+			slots.get(slot).remove(appointmentId);
+		}
+	}
+
+	/**
+	 * Removes and returns the appointments due until now
+	 */
+	public List<Long> advance(long now) {
+		List<Long> due = new ArrayList<Long>();
+		long nowTick = now / tickMillis;
+		// a full round visits every slot
+		long ticks = Math.min(nowTick - currentTick, slots.size() - 1);
+		for (long t = 0; t <= ticks; ++t) {
+			Map<Long, Long> slot = slots.get((int) ((currentTick + t) % slots.size()));
+			for (Iterator<Map.Entry<Long, Long>> iter = slot.entrySet()
+					.iterator(); iter.hasNext();) {
+				Map.Entry<Long, Long> entry = iter.next();
+				if (entry.getValue() <= now) {
+					due.add(entry.getKey());
+					slotIndex.remove(entry.getKey());
+					iter.remove();
+				}
+			}
+		}
+		currentTick = Math.max(currentTick, nowTick);
+		return due;
+	}
+
+	public int size() {
+		return slotIndex.size();
+	}
+
+	public void clear(long now) {
+		for (Map<Long, Long> slot : slots) {
+			slot.clear();
+		}
+		slotIndex.clear();
+		currentTick = now / tickMillis;
+	}
+}
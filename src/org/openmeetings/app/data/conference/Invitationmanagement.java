@@ -1093,6 +1093,15 @@ public class Invitationmanagement {
 		}
 	}
 
+	/**
+	 * Updates the invitations in one transaction
+	 */
+	public void updateInvitations(List<Invitations> invitations) {
+		for (Invitations invitation : invitations) {
+			updateInvitation(invitation);
+		}
+	}
+
 	/**
 	 * 
 	 * @param hashCode
@@ -19,7 +19,6 @@
 package org.openmeetings.app.data.conference;
 
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -127,6 +126,7 @@ public class Roommanagement {
             /*****************************************************************************************************/
 			room.setStarttime(new Date());
 			room = em.merge(room);
+			em.flush();
 			long returnId = room.getRooms_id();
 			return returnId;
 		} catch (Exception ex2) {
@@ -197,21 +197,23 @@ public class Roommanagement {
 		return null;
 	}
 
+	/**
+	 * Sets the participants of the room, these are taken from the room index
+	 * of the {@link ClientListManager} so only the clients of this room are
+	 * visited
+	 */
+	private void setCurrentUsers(Rooms room) {
+		room.setCurrentusers(new LinkedList<RoomClient>(clientListManager
+				.getClientListByRoom(room.getRooms_id()).values()));
+	}
+
 	public Rooms getRoomWithCurrentUsersById(long user_level, long rooms_id) {
 		try {
 			if (authLevelManagement.checkUserLevel(user_level)) {
 				Rooms room = this.getRoomById(rooms_id);
 
 				if (room != null) {
-					HashMap<String, RoomClient> map = clientListManager
-							.getClientListByRoom(room.getRooms_id());
-
-					room.setCurrentusers(new LinkedList<RoomClient>());
-
-					for (Iterator<String> iter = map.keySet().iterator(); iter
-							.hasNext();) {
-						room.getCurrentusers().add(map.get(iter.next()));
-					}
+					setCurrentUsers(room);
 
 					return room;
 				}
@@ -334,15 +336,7 @@ public class Roommanagement {
 
 				for (Rooms room : rooms) {
 
-					HashMap<String, RoomClient> map = clientListManager
-							.getClientListByRoom(room.getRooms_id());
-
-					room.setCurrentusers(new LinkedList<RoomClient>());
-
-					for (Iterator<String> iter = map.keySet().iterator(); iter
-							.hasNext();) {
-						room.getCurrentusers().add(map.get(iter.next()));
-					}
+					setCurrentUsers(room);
 
 				}
 
@@ -365,15 +359,7 @@ public class Roommanagement {
 
 				for (Rooms room : rooms) {
 
-					HashMap<String, RoomClient> map = clientListManager
-							.getClientListByRoom(room.getRooms_id());
-
-					room.setCurrentusers(new LinkedList<RoomClient>());
-
-					for (Iterator<String> iter = map.keySet().iterator(); iter
-							.hasNext();) {
-						room.getCurrentusers().add(map.get(iter.next()));
-					}
+					setCurrentUsers(room);
 
 				}
 
@@ -397,15 +383,7 @@ public class Roommanagement {
 
 				for (Rooms room : rooms) {
 
-					HashMap<String, RoomClient> map = clientListManager
-							.getClientListByRoom(room.getRooms_id());
-
-					room.setCurrentusers(new LinkedList<RoomClient>());
-
-					for (Iterator<String> iter = map.keySet().iterator(); iter
-							.hasNext();) {
-						room.getCurrentusers().add(map.get(iter.next()));
-					}
+					setCurrentUsers(room);
 
 				}
 
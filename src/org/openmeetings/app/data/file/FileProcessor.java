@@ -25,10 +25,17 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.openmeetings.app.OpenmeetingsVariables;
 import org.openmeetings.app.data.file.dao.FileExplorerItemDaoImpl;
 import org.openmeetings.app.data.flvrecord.converter.FlvExplorerConverter;
+import org.openmeetings.app.documents.ConversionService;
+import org.openmeetings.app.documents.ConversionService.Conversion;
+import org.openmeetings.app.documents.ConversionService.ConversionCallback;
+import org.openmeetings.app.documents.ConversionService.ConversionJob;
+import org.openmeetings.app.documents.ConversionService.Status;
+import org.openmeetings.app.documents.ConversionService.Tool;
 import org.openmeetings.app.documents.GenerateImage;
 import org.openmeetings.app.documents.GeneratePDF;
 import org.openmeetings.app.documents.GenerateThumbs;
@@ -54,6 +61,10 @@ public class FileProcessor {
 	private GenerateThumbs generateThumbs;
 	@Autowired
 	private GeneratePDF generatePDF;
+	@Autowired
+	private FileUtils fileUtils;
+	@Autowired
+	private ConversionService conversionService;
 
 	private String workingDir = "";
 	private String working_dirppt = "";
@@ -83,10 +94,31 @@ public class FileProcessor {
 		
 	}
 	
+	/**
+	 * Stores the file and waits for its conversion
+	 */
 	public HashMap<String, HashMap<String, String>> processFile(Long userId, Long room_id, 
 			boolean isOwner, InputStream is, Long parentFolderId, String fileSystemName, 
 			String current_dir, Map<String, Object> hs, Long externalFileId, 
 			String externalType) throws Exception {
+		return processFile(userId, room_id, isOwner, is, parentFolderId,
+				fileSystemName, current_dir, hs, externalFileId, externalType,
+				null);
+	}
+
+	/**
+	 * Stores the file and queues its conversion
+	 * 
+	 * @param callback
+	 *            notified once the file is converted, the conversion is
+	 *            awaited if the callback is null
+	 * @return the id of the file explorer item and the id of the conversion
+	 *         job in the returnAttributes
+	 */
+	public HashMap<String, HashMap<String, String>> processFile(Long userId, Long room_id, 
+			boolean isOwner, InputStream is, Long parentFolderId, String fileSystemName, 
+			String current_dir, Map<String, Object> hs, Long externalFileId, 
+			String externalType, final ConversionCallback callback) throws Exception {
 		
 		HashMap<String, HashMap<String, String>> returnError = new HashMap<String, HashMap<String, String>>();
 		
@@ -143,11 +175,11 @@ public class FileProcessor {
         returnAttributes.put("completeName", completeName);
 
         FileOutputStream fos = new FileOutputStream(completeName + newFileExtDot);
-        byte[] buffer = new byte[1024];
+        byte[] buffer = new byte[65536];
         int len = 0;
 
         while (len != (-1)) {
-            len = is.read(buffer, 0, 1024);
+            len = is.read(buffer, 0, buffer.length);
             if (len != (-1))
                 fos.write(buffer, 0, len);
         }
@@ -187,7 +219,7 @@ public class FileProcessor {
             }
         }
 
-        Long fileExplorerItemId = fileExplorerItemDao.add(
+        final Long fileExplorerItemId = fileExplorerItemDao.add(
                 fileSystemName, fileHashName, // The Hashname of the file
                 parentFolderId, ownerId, room_id, userId, false, // isFolder
                 isImage, isPresentation, "", false, isChart, 
@@ -197,42 +229,136 @@ public class FileProcessor {
         
         returnAttributes.put("fileExplorerItemId", "" + fileExplorerItemId);
         
-        log.debug("canBeConverted: " + canBeConverted);
+        Tool tool = Tool.IMAGE;
         if (canBeConverted) {
-            // convert to pdf, thumbs, swf and xml-description
-            returnError = generatePDF.convertPDF(current_dir,
-                    newFileSystemName, newFileExtDot, "files", true,
-                    completeName);
+            tool = Tool.OFFICE;
         } else if (isPdf) {
-            // convert to thumbs, swf and xml-description
-            returnError = generatePDF.convertPDF(current_dir,
-                    newFileSystemName, newFileExtDot, "files", false,
-                    completeName);
-        } else if (isChart) {
-            log.debug("uploaded chart file");
-        } else if (isImage && !isAsIs) {
-            // convert it to JPG
-            log.debug("##### convert it to JPG: ");
-            returnError = generateImage.convertImage(current_dir,
-                    newFileSystemName, newFileExtDot, "files",
-                    newFileSystemName, false);
-        } else if (isAsIs) {
-            HashMap<String, String> processThumb = generateThumbs.generateThumb("_thumb_", current_dir, completeName, 50);
-            returnError.put("processThumb", processThumb);
-        } else if (isVideo) {
-        	List<HashMap<String, String>> returnList = flvExplorerConverter.startConversion(fileExplorerItemId, completeName + newFileExtDot);
-        	
-        	int i=0;
-        	for (HashMap<String, String> returnMap : returnList) {
-        		returnError.put("processFLV "+i, returnMap);
-        	}
-        	
+            tool = Tool.PDF;
+        } else if (isVideo && !isChart && !isImage && !isAsIs) {
+            tool = Tool.VIDEO;
+        }
+        ConversionJob job;
+        try {
+            job = conversionService.submit(tool, userId,
+                    new FileConversion(fileExplorerItemId, current_dir,
+                            newFileSystemName, newFileExtDot, completeName,
+                            storedFile, returnAttributes), new ConversionCallback() {
+                        public void converted(ConversionJob job) {
+                            if (job.getStatus() == Status.CANCELLED) {
+                                fileExplorerItemDao.deleteFileExplorerItem(fileExplorerItemId);
+                            }
+                            if (callback != null) {
+                                callback.converted(job);
+                            }
+                        }
+                    });
+        } catch (RejectedExecutionException err) {
+            // no item is left in the library which is never converted
+            fileExplorerItemDao.deleteFileExplorerItem(fileExplorerItemId);
+            new File(completeName + newFileExtDot).delete();
+            throw err;
+        }
+        
+        if (callback == null) {
+            HashMap<String, HashMap<String, String>> converted = job.await();
+            if (converted != null) {
+                returnError.putAll(converted);
+            }
         }
 		
-        returnError.put("returnAttributes", returnAttributes);
+        HashMap<String, String> attributes = new HashMap<String, String>(returnAttributes);
+        attributes.put("jobId", "" + job.getId());
+        returnError.put("returnAttributes", attributes);
         
 		return returnError;
 		
 	}
+
+	/**
+	 * Converts an uploaded file, runs in a worker of the
+	 * {@link ConversionService}
+	 */
+	private class FileConversion implements Conversion {
+		private final Long fileExplorerItemId;
+		private final String current_dir;
+		private final String newFileSystemName;
+		private final String newFileExtDot;
+		private final String completeName;
+		private final StoredFile storedFile;
+		private final HashMap<String, String> returnAttributes;
+
+		private FileConversion(Long fileExplorerItemId, String current_dir,
+				String newFileSystemName, String newFileExtDot,
+				String completeName, StoredFile storedFile,
+				HashMap<String, String> returnAttributes) {
+			this.fileExplorerItemId = fileExplorerItemId;
+			this.current_dir = current_dir;
+			this.newFileSystemName = newFileSystemName;
+			this.newFileExtDot = newFileExtDot;
+			this.completeName = completeName;
+			this.storedFile = storedFile;
+			this.returnAttributes = returnAttributes;
+		}
+
+		public HashMap<String, HashMap<String, String>> convert() throws Exception {
+			HashMap<String, HashMap<String, String>> returnError = new HashMap<String, HashMap<String, String>>();
+
+			boolean canBeConverted = storedFile.isConvertable();
+			boolean isPdf = storedFile.isPdf();
+			boolean isImage = storedFile.isImage();
+			boolean isChart = storedFile.isChart();
+			boolean isAsIs = storedFile.isAsIs();
+			boolean isVideo = storedFile.isVideo();
+
+			log.debug("canBeConverted: " + canBeConverted);
+			try {
+				if (canBeConverted) {
+					// convert to pdf, thumbs, swf and xml-description
+					returnError = generatePDF.convertPDF(current_dir,
+							newFileSystemName, newFileExtDot, "files", true,
+							completeName);
+				} else if (isPdf) {
+					// convert to thumbs, swf and xml-description
+					returnError = generatePDF.convertPDF(current_dir,
+							newFileSystemName, newFileExtDot, "files", false,
+							completeName);
+				} else if (isChart) {
+					log.debug("uploaded chart file");
+				} else if (isImage && !isAsIs) {
+					// convert it to JPG
+					log.debug("##### convert it to JPG: ");
+					returnError = generateImage.convertImage(current_dir,
+							newFileSystemName, newFileExtDot, "files",
+							newFileSystemName, false);
+				} else if (isAsIs) {
+					HashMap<String, String> processThumb = generateThumbs.generateThumb("_thumb_", current_dir, completeName, 50);
+					returnError.put("processThumb", processThumb);
+				} else if (isVideo) {
+					List<HashMap<String, String>> returnList = flvExplorerConverter.startConversion(fileExplorerItemId, completeName + newFileExtDot);
+
+					int i=0;
+					for (HashMap<String, String> returnMap : returnList) {
+						returnError.put("processFLV "+i, returnMap);
+					}
+
+				}
+			} catch (Exception err) {
+				log.error("[FileConversion.convert]", err);
+				HashMap<String, String> processConversion = new HashMap<String, String>();
+				processConversion.put("process", "convert");
+				processConversion.put("error", err.getMessage());
+				processConversion.put("exitValue", "-1");
+				returnError.put("processConversion", processConversion);
+			}
+
+			// the converted files are in place, store their size for the folders
+			FileExplorerItem storedItem = fileExplorerItemDao.getFileExplorerItemsById(fileExplorerItemId);
+			if (storedItem != null) {
+				fileExplorerItemDao.updateFileSize(fileExplorerItemId, fileUtils.getFileSize(storedItem));
+			}
+			returnError.put("returnAttributes", returnAttributes);
+			return returnError;
+		}
+	}
 	
 }
@@ -44,51 +44,82 @@ public class FileUtils {
 	@Autowired
 	private FileExplorerItemDaoImpl fileExplorerItemDao;
 
-	public long getSizeOfDirectoryAndSubs(FileExplorerItem fileExplorerItem) {
-		try {
+	/**
+	 * Size of the stored files of the item, the folder of a presentation or
+	 * an image and its thumb
+	 * 
+	 * @param fileExplorerItem
+	 * @return
+	 */
+	public long getFileSize(FileExplorerItem fileExplorerItem) {
+		long fileSize = 0;
+
+		File base = new File(new File(ScopeApplicationAdapter.webAppPath, OpenmeetingsVariables.UPLOAD_DIR), "files");
+		if (fileExplorerItem.getIsImage() != null && fileExplorerItem.getIsImage()) {
+
+			File tFile = new File(base, fileExplorerItem.getFileHash());
+			if (tFile.exists()) {
+				fileSize += tFile.length();
+			}
 
-			long fileSize = 0;
+			File thumbFile = new File(base, "_thumb_"
+					+ fileExplorerItem.getFileHash());
+			if (thumbFile.exists()) {
+				fileSize += thumbFile.length();
+			}
 
-			File base = new File(new File(ScopeApplicationAdapter.webAppPath, OpenmeetingsVariables.UPLOAD_DIR), "files");
-			if (fileExplorerItem.getIsImage()) {
+		}
 
-				File tFile = new File(base, fileExplorerItem.getFileHash());
-				if (tFile.exists()) {
-					fileSize += tFile.length();
-				}
+		if (fileExplorerItem.getIsPresentation() != null && fileExplorerItem.getIsPresentation()) {
 
-				File thumbFile = new File(base, "_thumb_"
-						+ fileExplorerItem.getFileHash());
-				if (thumbFile.exists()) {
-					fileSize += thumbFile.length();
-				}
+			File tFolder = new File(base, fileExplorerItem.getFileHash());
 
+			if (tFolder.exists()) {
+				fileSize += getSize(tFolder);
 			}
 
-			if (fileExplorerItem.getIsPresentation()) {
-
-				File tFolder = new File(base, fileExplorerItem.getFileHash());
-
-				if (tFolder.exists()) {
-					fileSize += getSize(tFolder);
-				}
+		}
+		return fileSize;
+	}
 
+	/**
+	 * Size of the item and its children. The total is kept up to date by the
+	 * {@link FileExplorerItemDaoImpl}, it is only computed from the disk for
+	 * items stored before and after changes of moved or deleted items with
+	 * unknown size.
+	 * 
+	 * @param fileExplorerItem
+	 * @return
+	 */
+	public long getSizeOfDirectoryAndSubs(FileExplorerItem fileExplorerItem) {
+		try {
+			if (fileExplorerItem.getTotalSize() != null) {
+				return fileExplorerItem.getTotalSize();
 			}
 
-			log.debug("calling [1] FileExplorerItemDaoImpl.updateFileOrFolder()");
-			fileExplorerItemDao.updateFileOrFolder(fileExplorerItem);
+			long fileSize = 0;
+			if (fileExplorerItem.getIsFolder() == null
+					|| !fileExplorerItem.getIsFolder()) {
+				fileSize = getFileSize(fileExplorerItem);
+			}
+			fileExplorerItem.setFileSize(fileSize);
 
 			FileExplorerItem[] childElements = fileExplorerItemDao
 					.getFileExplorerItemsByParent(fileExplorerItem
 							.getFileExplorerItemId());
 
+			long totalSize = fileSize;
 			for (FileExplorerItem childExplorerItem : childElements) {
 
-				fileSize += this.getSizeOfDirectoryAndSubs(childExplorerItem);
+				totalSize += this.getSizeOfDirectoryAndSubs(childExplorerItem);
 
 			}
 
-			return fileSize;
+			fileExplorerItem.setTotalSize(totalSize);
+			log.debug("calling [1] FileExplorerItemDaoImpl.updateFileOrFolder()");
+			fileExplorerItemDao.updateFileOrFolder(fileExplorerItem);
+
+			return totalSize;
 
 		} catch (Exception err) {
 			log.error("[getSizeOfDirectoryAndSubs] ", err);
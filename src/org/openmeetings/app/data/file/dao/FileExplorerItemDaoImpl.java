@@ -19,11 +19,14 @@
 package org.openmeetings.app.data.file.dao;
 
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 
 import org.openmeetings.app.OpenmeetingsVariables;
@@ -71,6 +74,9 @@ public class FileExplorerItemDaoImpl {
             fileItem.setIsChart(isChart);
             fileItem.setExternalFileId(externalFileId);
             fileItem.setExternalType(externalType);
+            // the size of files is set once they are stored, see updateFileSize
+            fileItem.setFileSize(0L);
+            fileItem.setTotalSize(0L);
 
 			fileItem = em.merge(fileItem);
 			Long fileItemId = fileItem.getFileExplorerItemId();
@@ -87,6 +93,7 @@ public class FileExplorerItemDaoImpl {
         try {
 
 			fileItem = em.merge(fileItem);
+			em.flush();
 			Long fileItemId = fileItem.getFileExplorerItemId();
 
             return fileItemId;
@@ -261,6 +268,23 @@ public class FileExplorerItemDaoImpl {
         return null;
     }    
 
+
+    public List<FileExplorerItem> getFileExplorerItems(int first, int count) {
+        try {
+
+            String hql = "SELECT c FROM FileExplorerItem c ORDER BY c.fileExplorerItemId";
+
+            TypedQuery<FileExplorerItem> query = em.createQuery(hql, FileExplorerItem.class);
+            query.setFirstResult(first);
+            query.setMaxResults(count);
+
+            return query.getResultList();
+        } catch (Exception ex2) {
+            log.error("[getFileExplorerItems]: ", ex2);
+        }
+        return null;
+    }
+
     /**
      * @param fileExplorerItemId
      */
@@ -272,6 +296,8 @@ public class FileExplorerItemDaoImpl {
             FileExplorerItem fId = this
                     .getFileExplorerItemsById(fileExplorerItemId);
 
+            addToParentSizes(fId.getParentFileExplorerItemId(),
+                    negate(fId.getTotalSize()));
             fId.setDeleted("true");
             fId.setUpdated(new Date());
 
@@ -299,6 +325,8 @@ public class FileExplorerItemDaoImpl {
             	throw new Exception("externalFilesid: "+externalFilesid+" and externalType: "+externalType+" Not found");
             }
             
+            addToParentSizes(fId.getParentFileExplorerItemId(),
+                    negate(fId.getTotalSize()));
             fId.setDeleted("true");
             fId.setUpdated(new Date());
 
@@ -358,6 +386,83 @@ public class FileExplorerItemDaoImpl {
         }
     }
 
+    /**
+     * Sets the size of a stored file and adds the difference to the total
+     * size of its folders
+     * 
+     * @param fileExplorerItemId
+     * @param fileSize
+     */
+    public void updateFileSize(Long fileExplorerItemId, long fileSize) {
+        log.debug(".updateFileSize() started");
+        try {
+
+            FileExplorerItem fId = this
+                    .getFileExplorerItemsById(fileExplorerItemId);
+
+            long oldSize = fId.getFileSize() == null ? 0 : fId.getFileSize();
+            em.createQuery("UPDATE FileExplorerItem f SET f.fileSize = :fileSize "
+                    + "WHERE f.fileExplorerItemId = :fileExplorerItemId")
+                    .setParameter("fileSize", fileSize)
+                    .setParameter("fileExplorerItemId", fileExplorerItemId)
+                    .executeUpdate();
+            // the file is its own first total, unknown totals are computed by
+            // FileUtils on the next read
+            addToTotalSizes(fileExplorerItemId, fileSize - oldSize);
+        } catch (Exception ex2) {
+            log.error("[updateFileSize]: ", ex2);
+        }
+    }
+
+    private static Long negate(Long size) {
+        return size == null ? null : -size;
+    }
+
+    private void addToParentSizes(Long parentFileExplorerItemId, Long size) {
+        if (parentFileExplorerItemId != null && parentFileExplorerItemId > 0) {
+            addToTotalSizes(parentFileExplorerItemId, size);
+        }
+    }
+
+    /**
+     * Adds the size to the total size of the item and its parents. A folder
+     * only knows its total size if the total sizes of all its children are
+     * known, so an unknown size resets the totals of the folders and the walk
+     * stops at the first folder without total.<br/>
+     * The totals are changed relative to the stored value, uploads which
+     * finish at the same time in one folder do not lose their sizes.
+     * 
+     * @param fileExplorerItemId
+     * @param size
+     *            the size to add, null if the size is unknown
+     */
+    private void addToTotalSizes(Long fileExplorerItemId, Long size) {
+        if (size != null && size == 0) {
+            return;
+        }
+        Query update = size == null ? em.createQuery(
+                "UPDATE FileExplorerItem f SET f.totalSize = NULL "
+                        + "WHERE f.fileExplorerItemId = :fileExplorerItemId "
+                        + "AND f.totalSize IS NOT NULL") : em.createQuery(
+                "UPDATE FileExplorerItem f SET f.totalSize = f.totalSize + :size "
+                        + "WHERE f.fileExplorerItemId = :fileExplorerItemId "
+                        + "AND f.totalSize IS NOT NULL").setParameter("size", size);
+        TypedQuery<Long> parentQuery = em.createQuery(
+                "SELECT f.parentFileExplorerItemId FROM FileExplorerItem f "
+                        + "WHERE f.fileExplorerItemId = :fileExplorerItemId",
+                Long.class);
+        Set<Long> visited = new HashSet<Long>();
+        Long id = fileExplorerItemId;
+        while (id != null && id > 0 && visited.add(id)) {
+            if (update.setParameter("fileExplorerItemId", id).executeUpdate() == 0) {
+                break;
+            }
+            List<Long> parentIds = parentQuery.setParameter(
+                    "fileExplorerItemId", id).getResultList();
+            id = parentIds.isEmpty() ? null : parentIds.get(0);
+        }
+    }
+
     /**
      * @param fileExplorerItemId
      * @param newParentFileExplorerItemId
@@ -372,6 +477,9 @@ public class FileExplorerItemDaoImpl {
             FileExplorerItem fId = this
                     .getFileExplorerItemsById(fileExplorerItemId);
 
+            addToParentSizes(fId.getParentFileExplorerItemId(),
+                    negate(fId.getTotalSize()));
+            addToParentSizes(parentFileExplorerItemId, fId.getTotalSize());
             fId.setParentFileExplorerItemId(parentFileExplorerItemId);
 
             if (parentFileExplorerItemId == 0) {
@@ -152,6 +152,22 @@ public class FlvRecordingDaoImpl {
 		return null;
 	}
 	
+	public List<FlvRecording> getAllFlvRecordings(int first, int count) {
+		try { 
+			
+			String hql = "SELECT c FROM FlvRecording c ORDER BY c.flvRecordingId";
+			
+			TypedQuery<FlvRecording> query = em.createQuery(hql, FlvRecording.class);
+			query.setFirstResult(first);
+			query.setMaxResults(count);
+			
+			return query.getResultList();
+		} catch (Exception ex2) {
+			log.error("[getFlvRecordings]: ",ex2);
+		}
+		return null;
+	}
+	
 	public List<FlvRecording> getFlvRecordingByExternalRoomType(String externalRoomType) {
 		try { 
 			
@@ -388,6 +404,7 @@ public class FlvRecordingDaoImpl {
 		try { 
 			
 			flvRecording = em.merge(flvRecording);
+			em.flush();
 			Long flvRecordingId = flvRecording.getFlvRecordingId();
 			
 			return flvRecordingId;
@@ -156,6 +156,9 @@ public class FlvRecordingMetaDataDaoImpl {
 			
 			flvRecordingMetaData.setInteriewPodId(interiewPodId);
 			
+			// set to true by the stream writer when the file is complete
+			flvRecordingMetaData.setStreamReaderThreadComplete(false);
+			
 			flvRecordingMetaData = em.merge(flvRecordingMetaData);
 			Long flvRecordingMetaDataId = flvRecordingMetaData.getFlvRecordingMetaDataId();
 			
@@ -220,6 +223,33 @@ public class FlvRecordingMetaDataDaoImpl {
 		return null;
 	}
 
+	/**
+	 * Marks all streams as complete which are not written to disk completely,
+	 * to be used on startup, when there are no stream writers
+	 * 
+	 * @return number of updated streams
+	 */
+	public int completeInterruptedStreams() {
+		try {
+			
+			String hql = "SELECT c FROM FlvRecordingMetaData c " +
+					"WHERE c.streamReaderThreadComplete = false";
+			
+			TypedQuery<FlvRecordingMetaData> query = em.createQuery(hql, FlvRecordingMetaData.class);
+			
+			List<FlvRecordingMetaData> flvRecordingMetaDatas = query.getResultList();
+			for (FlvRecordingMetaData flvRecordingMetaData : flvRecordingMetaDatas) {
+				flvRecordingMetaData.setStreamReaderThreadComplete(true);
+				em.merge(flvRecordingMetaData);
+			}
+			
+			return flvRecordingMetaDatas.size();
+		} catch (Exception ex2) {
+			log.error("[completeInterruptedStreams]: ",ex2);
+		}
+		return 0;
+	}
+
 	public Long updateFlvRecordingMetaData(FlvRecordingMetaData flvRecordingMetaData) {
 		try { 
 			
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.app.data.flvrecord;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.openmeetings.app.OpenmeetingsVariables;
+import org.openmeetings.app.persistence.beans.flvrecord.FlvRecordingMetaDelta;
+import org.red5.logging.Red5LoggerFactory;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Collects the {@link FlvRecordingMetaDelta} of the running recordings in
+ * memory, so the stream writers do not wait for the database.
+ *
+ * The deltas are stored in batches by the scheduled flush, when a stream is
+ * closed and when the application is stopped. If the server is killed the
+ * deltas of the last flush interval are lost, the streams which were
+ * recorded are marked as complete by {@link #recover()} on the next start so
+ * the recordings can still be converted.
+ */
+public class FlvRecordingMetaDeltaBuffer {
+
+	private static final Logger log = Red5LoggerFactory.getLogger(
+			FlvRecordingMetaDeltaBuffer.class,
+			OpenmeetingsVariables.webAppRootKey);
+
+	@Autowired
+	private FlvRecordingMetaDeltaDaoImpl flvRecordingMetaDeltaDao;
+	@Autowired
+	private FlvRecordingMetaDataDaoImpl flvRecordingMetaDataDao;
+
+	// deltas stored in one transaction
+	private int batchSize = 500;
+
+	private final ConcurrentLinkedQueue<FlvRecordingMetaDelta> pending = new ConcurrentLinkedQueue<FlvRecordingMetaDelta>();
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public void add(FlvRecordingMetaDelta flvRecordingMetaDelta) {
+		pending.add(flvRecordingMetaDelta);
+	}
+
+	/**
+	 * Stores all deltas added before the call
+	 */
+	public synchronized void flush() {
+		List<FlvRecordingMetaDelta> batch = new ArrayList<FlvRecordingMetaDelta>();
+		FlvRecordingMetaDelta flvRecordingMetaDelta;
+		while ((flvRecordingMetaDelta = pending.poll()) != null) {
+			batch.add(flvRecordingMetaDelta);
+			if (batch.size() == batchSize) {
+				store(batch);
+				batch = new ArrayList<FlvRecordingMetaDelta>();
+			}
+		}
+		if (!batch.isEmpty()) {
+			store(batch);
+		}
+	}
+
+	private void store(List<FlvRecordingMetaDelta> batch) {
+		try {
+			flvRecordingMetaDeltaDao.addFlvRecordingMetaDeltas(batch);
+			log.debug("[flush] stored " + batch.size() + " deltas");
+		} catch (Exception err) {
+			log.error("[flush] " + batch.size() + " deltas are lost", err);
+		}
+	}
+
+	/**
+	 * Marks the streams, which were recorded when the server was stopped, as
+	 * complete. Their listeners are gone and the converters would wait
+	 * forever otherwise.
+	 */
+	public void recover() {
+		int count = flvRecordingMetaDataDao.completeInterruptedStreams();
+		if (count > 0) {
+			log.warn("[recover] " + count
+					+ " streams were interrupted by a server stop");
+		}
+	}
+}
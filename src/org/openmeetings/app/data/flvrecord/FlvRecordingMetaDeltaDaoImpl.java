@@ -77,6 +77,19 @@ public class FlvRecordingMetaDeltaDaoImpl {
 		return null;
 	}
 	
+	/**
+	 * Stores the deltas in one transaction with a single flush. The ids are
+	 * IDENTITY columns, so the generated key of each insert is read back and
+	 * the inserts are usually not sent as JDBC batches, the batch saves the
+	 * commit per delta.
+	 */
+	public void addFlvRecordingMetaDeltas(List<FlvRecordingMetaDelta> flvRecordingMetaDeltas) {
+		for (FlvRecordingMetaDelta flvRecordingMetaDelta : flvRecordingMetaDeltas) {
+			em.persist(flvRecordingMetaDelta);
+		}
+		em.flush();
+	}
+	
 	public Long updateFlvRecordingMetaDelta(FlvRecordingMetaDelta flvRecordingMetaDelta) {
 		try { 
 			if (flvRecordingMetaDelta.getFlvRecordingMetaDataId() == 0) {
@@ -48,8 +48,8 @@ public abstract class BaseConverter {
 	private FlvRecordingMetaDeltaDaoImpl flvRecordingMetaDeltaDaoImpl;
 
 	protected String getPathToFFMPEG() {
-		String pathToFFMPEG = configurationmanagement.getConfKey(3,
-				"ffmpeg_path").getConf_value();
+		String pathToFFMPEG = configurationmanagement.getConfValue(
+				"ffmpeg_path", String.class, "");
 		if (!pathToFFMPEG.equals("") && !pathToFFMPEG.endsWith(File.separator)) {
 			pathToFFMPEG += File.separator;
 		}
@@ -58,8 +58,8 @@ public abstract class BaseConverter {
 	}
 
 	protected String getPathToSoX() {
-		String pathToSoX = configurationmanagement.getConfKey(3, "sox_path")
-				.getConf_value();
+		String pathToSoX = configurationmanagement.getConfValue(
+				"sox_path", String.class, "");
 		if (!pathToSoX.equals("") && !pathToSoX.endsWith(File.separator)) {
 			pathToSoX += File.separator;
 		}
@@ -68,8 +68,8 @@ public abstract class BaseConverter {
 	}
 
 	protected String getPathToImageMagick() {
-		String pathToImageMagick = this.configurationmanagement.getConfKey(3,
-				"imagemagick_path").getConf_value();
+		String pathToImageMagick = this.configurationmanagement.getConfValue(
+				"imagemagick_path", String.class, "");
 		if (!pathToImageMagick.equals("")
 				&& !pathToImageMagick.endsWith(File.separator)) {
 			pathToImageMagick += File.separator;
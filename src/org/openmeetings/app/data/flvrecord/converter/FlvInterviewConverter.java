@@ -18,12 +18,8 @@
  */
 package org.openmeetings.app.data.flvrecord.converter;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.Date;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -32,10 +28,8 @@ import org.openmeetings.app.OpenmeetingsVariables;
 import org.openmeetings.app.data.flvrecord.FlvRecordingDaoImpl;
 import org.openmeetings.app.data.flvrecord.FlvRecordingLogDaoImpl;
 import org.openmeetings.app.data.flvrecord.FlvRecordingMetaDataDaoImpl;
-import org.openmeetings.app.documents.GenerateThumbs;
 import org.openmeetings.app.persistence.beans.flvrecord.FlvRecording;
 import org.openmeetings.app.persistence.beans.flvrecord.FlvRecordingMetaData;
-import org.openmeetings.app.remote.red5.ScopeApplicationAdapter;
 import org.openmeetings.utils.ProcessHelper;
 import org.red5.logging.Red5LoggerFactory;
 import org.slf4j.Logger;
@@ -58,8 +52,6 @@ public class FlvInterviewConverter extends BaseConverter {
 	private FlvRecordingMetaDataDaoImpl flvRecordingMetaDataDaoImpl = null;
 	@Autowired
 	private FlvRecordingLogDaoImpl flvRecordingLogDaoImpl;
-	@Autowired
-	private GenerateThumbs generateThumbs;
 
 	public void startReConversion(Long flvRecordingId, Integer leftSideLoud,
 			Integer rightSideLoud, Integer leftSideTime, Integer rightSideTime) {
@@ -261,13 +253,8 @@ public class FlvInterviewConverter extends BaseConverter {
 				throw new Exception("defaultInterviewImageFile does not exist!");
 			}
 
-			// Create Folder for the output Image Sequence
-			String outputImageMergedData = streamFolderName + "INTERVIEW_"
-					+ flvRecording.getFlvRecordingId() + File.separatorChar;
-
-			// Merged Image Folder
-			File outputImageMergedDateFolder = new File(outputImageMergedData);
-			outputImageMergedDateFolder.mkdir();
+			// Images of the left and right pod for each frame
+			List<String[]> frames = new ArrayList<String[]>();
 
 			// Generate the Single Image by sequencing
 			boolean jobRunning = true;
@@ -278,14 +265,11 @@ public class FlvInterviewConverter extends BaseConverter {
 
 			log.debug("completeLengthInSeconds :: " + completeLengthInSeconds);
 
-			int sequenceCounter = 0;
-
 			while (jobRunning) {
 
 				// Process one Second of Movie
 				String[] interviewPod1Images = new String[frameRate];
 				String[] interviewPod2Images = new String[frameRate];
-				int[] outputFrameNumbers = new int[frameRate];
 
 				for (FlvRecordingMetaData flvRecordingMetaData : metaDataList) {
 
@@ -367,57 +351,21 @@ public class FlvInterviewConverter extends BaseConverter {
 
 				}
 
-				// Update Sequence Count
-				for (int i = 0; i < frameRate; i++) {
-					outputFrameNumbers[i] = sequenceCounter;
-					sequenceCounter++;
-				}
-
 				// Now we should have found the needed Images to calculate, in
 				// case not we add an empty black screen
 				for (int i = 0; i < frameRate; i++) {
-					String addZeros = "";
-
-					String outputImageName = outputImageMergedData + "image"
-							+ addZeros + outputFrameNumbers[i] + ".png";
-
 					if (interviewPod1Images[i] == null) {
 						interviewPod1Images[i] = defaultInterviewImage;
 					}
 					if (interviewPod2Images[i] == null) {
 						interviewPod2Images[i] = defaultInterviewImage;
 					}
-
-					if (System.getProperty("os.name").toUpperCase()
-							.indexOf("WINDOWS") == -1) {
-						String[] argv_imageMagick = new String[] {
-								this.getPathToImageMagick(), "+append",
-								interviewPod1Images[i], interviewPod2Images[i],
-								outputImageName };
-						returnLog.add(ProcessHelper.executeScript(
-								"generateImageSequence", argv_imageMagick));
-					} else {
-						returnLog.add(processImageWindows(
-								interviewPod1Images[i], interviewPod2Images[i],
-								outputImageName));
-					}
+					frames.add(new String[] { interviewPod1Images[i],
+							interviewPod2Images[i] });
 				}
 
 				currentTimeInMilliSeconds += 1000;
 
-				double cLength = 100 * ((double) currentTimeInMilliSeconds)
-						/ completeLengthInSeconds;
-
-				int progress = Double.valueOf(cLength).intValue();
-
-				log.debug("completeLengthInSeconds|currentTimeInMilliSeconds "
-						+ completeLengthInSeconds + "|"
-						+ currentTimeInMilliSeconds + "|" + progress + "|"
-						+ cLength);
-
-				flvRecordingDaoImpl.updateFlvRecordingProgress(
-						flvRecording.getFlvRecordingId(), progress);
-
 				if (currentTimeInMilliSeconds >= completeLengthInSeconds) {
 
 					jobRunning = false;
@@ -426,9 +374,24 @@ public class FlvInterviewConverter extends BaseConverter {
 
 			}
 
-			// Generate Movie by sequence of Images
-
-			String imagescomplete = outputImageMergedData + "image%d.png";
+			// Generate Movie by sequence of Images, the images are merged in
+			// memory and piped to ffmpeg as raw video
+			final Long flvRecordingId = flvRecording.getFlvRecordingId();
+			final int framesCount = frames.size();
+			final int progressFrames = frameRate;
+			InterviewFrameCompositor compositor = new InterviewFrameCompositor(
+					frames, defaultInterviewImage, 320, 240) {
+				@Override
+				protected void onProgress(int frame) {
+					if (frame % progressFrames == 0 || frame == framesCount) {
+						int progress = (int) (100L * frame / framesCount);
+						log.debug("generateFullBySequenceFLV " + frame + "|"
+								+ framesCount + "|" + progress);
+						flvRecordingDaoImpl.updateFlvRecordingProgress(
+								flvRecordingId, progress);
+					}
+				}
+			};
 
 			String[] argv_generatedMoview = null;
 
@@ -437,8 +400,10 @@ public class FlvInterviewConverter extends BaseConverter {
 					+ ".flv";
 			deleteFileIfExists(inputScreenFullFlv);
 
-			argv_generatedMoview = new String[] { this.getPathToFFMPEG(), "-i",
-					imagescomplete, "-r", "" + frameRate, "-vcodec", "flv",
+			argv_generatedMoview = new String[] { this.getPathToFFMPEG(), "-f",
+					"rawvideo", "-pix_fmt", InterviewFrameCompositor.PIXEL_FORMAT,
+					"-s", compositor.getWidth() + "x" + compositor.getHeight(),
+					"-r", "" + frameRate, "-i", "-", "-vcodec", "flv",
 					"-qmax", "1", "-qmin", "1", inputScreenFullFlv };
 
 			log.debug("START generateFullBySequenceFLV ################# ");
@@ -450,7 +415,8 @@ public class FlvInterviewConverter extends BaseConverter {
 			log.debug("END generateFullBySequenceFLV ################# ");
 
 			returnLog.add(ProcessHelper.executeScript(
-					"generateFullBySequenceFLV", argv_generatedMoview));
+					"generateFullBySequenceFLV", argv_generatedMoview,
+					compositor));
 
 			String hashFileFullNameFlv = "flvRecording_"
 					+ flvRecording.getFlvRecordingId() + ".flv";
@@ -582,8 +548,6 @@ public class FlvInterviewConverter extends BaseConverter {
 				this.deleteDirectory(new File(outputMetaImageFullData));
 			}
 
-			this.deleteDirectory(new File(outputImageMergedData));
-
 		} catch (Exception err) {
 			log.error("[stripAudioFromFLVs]", err);
 		}
@@ -602,85 +566,4 @@ public class FlvInterviewConverter extends BaseConverter {
 		}
 		return (path.delete());
 	}
-
-	public HashMap<String, String> thumbProcessImageWindows(String file1,
-			String file2, String file3) {
-
-		// Init variables
-		String[] cmd = { this.getPathToImageMagick(), file1, file2, "+append",
-				file3 };
-
-		return generateThumbs.processImageWindows(cmd);
-
-		// GenerateSWF.executeScript("mergeWave",cmd);
-
-	}
-
-	public HashMap<String, String> processImageWindows(String file1,
-			String file2, String file3) {
-		HashMap<String, String> returnMap = new HashMap<String, String>();
-		returnMap.put("process", "processImageWindows");
-		try {
-
-			// Init variables
-			String[] cmd;
-			String executable_fileName = "";
-			String pathToIMagick = this.getPathToImageMagick();
-
-			Date tnow = new Date();
-			String runtimeFile = "interviewMerge" + tnow.getTime() + ".bat";
-
-			// String runtimeFile = "interviewMerge.bat";
-			executable_fileName = ScopeApplicationAdapter.batchFileDir
-					+ runtimeFile;
-
-			cmd = new String[1];
-			cmd[0] = executable_fileName;
-
-			// Create the Content of the Converter Script (.bat or .sh File)
-			String fileContent = pathToIMagick + " " + file1 + " " + file2
-					+ " " + "+append" + " " + file3
-					+ ScopeApplicationAdapter.lineSeperator + "";
-
-			File previous = new File(executable_fileName);
-			if (previous.exists()) {
-				previous.delete();
-			}
-
-			// execute the Script
-			FileOutputStream fos = new FileOutputStream(executable_fileName);
-			fos.write(fileContent.getBytes());
-			fos.close();
-
-			File now = new File(executable_fileName);
-			now.setExecutable(true);
-
-			Runtime rt = Runtime.getRuntime();
-			returnMap.put("command", cmd.toString());
-			Process proc = rt.exec(cmd);
-
-			InputStream stderr = proc.getErrorStream();
-			BufferedReader br = new BufferedReader(new InputStreamReader(stderr));
-			String line = null;
-			String error = "";
-			while ((line = br.readLine()) != null) {
-				error += line;
-			}
-			br.close();
-			returnMap.put("error", error);
-			int exitVal = proc.waitFor();
-			returnMap.put("exitValue", "" + exitVal);
-
-			if (now.exists()) {
-				now.delete();
-			}
-
-			return returnMap;
-		} catch (Throwable t) {
-			t.printStackTrace();
-			returnMap.put("error", t.getMessage());
-			returnMap.put("exitValue", "-1");
-			return returnMap;
-		}
-	}
 }
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.app.data.flvrecord.converter;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+
+import org.openmeetings.app.OpenmeetingsVariables;
+import org.openmeetings.utils.ProcessHelper;
+import org.red5.logging.Red5LoggerFactory;
+import org.slf4j.Logger;
+
+/**
+ * Puts the images of the two interview pods side by side and writes the
+ * frames as raw bgr24 video to the standard input of ffmpeg
+ *
+ * The images are decoded and drawn by a fixed pool of workers, the number of
+ * frames in progress and so the number of frame buffers is limited, the
+ * frames are written in order.
+ */
+public class InterviewFrameCompositor implements ProcessHelper.InputWriter {
+
+	private static final Logger log = Red5LoggerFactory.getLogger(
+			InterviewFrameCompositor.class,
+			OpenmeetingsVariables.webAppRootKey);
+
+	public static final String PIXEL_FORMAT = "bgr24";
+
+	private final List<String[]> frames;
+	private final int podWidth;
+	private final int podHeight;
+	private final int threads;
+	private final BufferedImage defaultImage;
+
+	/**
+	 * @param frames
+	 *            image file names of the left and right pod for each frame
+	 * @param defaultImage
+	 *            image file used if an image can not be read
+	 * @param podWidth
+	 * @param podHeight
+	 *            size of a pod, the frames are twice as wide
+	 */
+	public InterviewFrameCompositor(List<String[]> frames, String defaultImage,
+			int podWidth, int podHeight) throws Exception {
+		this.frames = frames;
+		this.podWidth = podWidth;
+		this.podHeight = podHeight;
+		this.threads = Runtime.getRuntime().availableProcessors();
+		this.defaultImage = ImageIO.read(new File(defaultImage));
+		if (this.defaultImage == null) {
+			throw new Exception("Unable to read " + defaultImage);
+		}
+	}
+
+	public int getWidth() {
+		return 2 * podWidth;
+	}
+
+	public int getHeight() {
+		return podHeight;
+	}
+
+	/**
+	 * Called after each written frame
+	 *
+	 * @param frame
+	 *            number of frames written
+	 */
+	protected void onProgress(int frame) {
+	}
+
+	public void write(OutputStream os) throws Exception {
+		int window = 2 * threads;
+		final BlockingQueue<BufferedImage> buffers = new ArrayBlockingQueue<BufferedImage>(
+				window);
+		for (int i = 0; i < window; ++i) {
+			buffers.add(new BufferedImage(getWidth(), getHeight(),
+					BufferedImage.TYPE_3BYTE_BGR));
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		OutputStream out = new BufferedOutputStream(os, getWidth()
+				* getHeight() * 3);
+		try {
+			LinkedList<Future<BufferedImage>> pending = new LinkedList<Future<BufferedImage>>();
+			int written = 0;
+			for (final String[] frame : frames) {
+				if (pending.size() == window) {
+					writeFrame(out, pending.removeFirst().get(), buffers);
+					onProgress(++written);
+				}
+				final BufferedImage buffer = buffers.take();
+				pending.add(pool.submit(new Callable<BufferedImage>() {
+					public BufferedImage call() throws Exception {
+						compose(buffer, frame);
+						return buffer;
+					}
+				}));
+			}
+			while (!pending.isEmpty()) {
+				writeFrame(out, pending.removeFirst().get(), buffers);
+				onProgress(++written);
+			}
+			out.flush();
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private void writeFrame(OutputStream out, BufferedImage buffer,
+			BlockingQueue<BufferedImage> buffers) throws Exception {
+		out.write(((DataBufferByte) buffer.getRaster().getDataBuffer())
+				.getData());
+		buffers.put(buffer);
+	}
+
+	private void compose(BufferedImage buffer, String[] frame) {
+		Graphics2D g = buffer.createGraphics();
+		try {
+			for (int i = 0; i < 2; ++i) {
+				g.drawImage(readImage(frame[i]), i * podWidth, 0, podWidth,
+						podHeight, null);
+			}
+		} finally {
+			g.dispose();
+		}
+	}
+
+	private BufferedImage readImage(String fileName) {
+		if (fileName != null) {
+			try {
+				BufferedImage image = ImageIO.read(new File(fileName));
+				if (image != null) {
+					return image;
+				}
+			} catch (Exception err) {
+				log.debug("[readImage] " + fileName, err);
+			}
+		}
+		return defaultImage;
+	}
+}
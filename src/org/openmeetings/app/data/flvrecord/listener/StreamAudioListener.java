@@ -22,9 +22,10 @@ import java.util.Date;
 
 import org.openmeetings.app.OpenmeetingsVariables;
 import org.openmeetings.app.data.flvrecord.FlvRecordingMetaDataDaoImpl;
-import org.openmeetings.app.data.flvrecord.FlvRecordingMetaDeltaDaoImpl;
+import org.openmeetings.app.data.flvrecord.FlvRecordingMetaDeltaBuffer;
 import org.openmeetings.app.data.flvrecord.listener.async.CachedEvent;
 import org.openmeetings.app.data.flvrecord.listener.async.StreamAudioWriter;
+import org.openmeetings.app.data.flvrecord.listener.async.StreamWriterPool;
 import org.red5.logging.Red5LoggerFactory;
 import org.red5.server.api.scope.IScope;
 import org.red5.server.api.stream.IBroadcastStream;
@@ -41,11 +42,13 @@ public class StreamAudioListener extends BaseStreamListener {
 	public StreamAudioListener(String streamName, IScope scope,
 			Long flvRecordingMetaDataId, boolean isScreenData,
 			boolean isInterview,
-			FlvRecordingMetaDeltaDaoImpl flvRecordingMetaDeltaDao,
-			FlvRecordingMetaDataDaoImpl flvRecordingMetaDataDao) {
+			FlvRecordingMetaDeltaBuffer flvRecordingMetaDeltaBuffer,
+			FlvRecordingMetaDataDaoImpl flvRecordingMetaDataDao,
+			StreamWriterPool streamWriterPool) {
 		streamAudioWriter = new StreamAudioWriter(streamName, scope,
 				flvRecordingMetaDataId, isScreenData, isInterview,
-				flvRecordingMetaDeltaDao, flvRecordingMetaDataDao);
+				flvRecordingMetaDeltaBuffer, flvRecordingMetaDataDao,
+				streamWriterPool);
 	}
 
 	public void packetReceived(IBroadcastStream broadcastStream,
@@ -24,6 +24,7 @@ import org.openmeetings.app.OpenmeetingsVariables;
 import org.openmeetings.app.data.flvrecord.FlvRecordingMetaDataDaoImpl;
 import org.openmeetings.app.data.flvrecord.listener.async.CachedEvent;
 import org.openmeetings.app.data.flvrecord.listener.async.StreamVideoWriter;
+import org.openmeetings.app.data.flvrecord.listener.async.StreamWriterPool;
 import org.red5.logging.Red5LoggerFactory;
 import org.red5.server.api.scope.IScope;
 import org.red5.server.api.stream.IBroadcastStream;
@@ -40,9 +41,10 @@ public class StreamVideoListener extends BaseStreamListener {
 	public StreamVideoListener(String streamName, IScope scope,
 			Long flvRecordingMetaDataId, boolean isScreenData,
 			boolean isInterview,
-			FlvRecordingMetaDataDaoImpl flvRecordingMetaDataDao) {
+			FlvRecordingMetaDataDaoImpl flvRecordingMetaDataDao,
+			StreamWriterPool streamWriterPool) {
 		streamVideoWriter = new StreamVideoWriter(streamName, scope, flvRecordingMetaDataId, isScreenData,
-				isInterview, flvRecordingMetaDataDao);
+				isInterview, flvRecordingMetaDataDao, streamWriterPool);
 	}
 
 	public void packetReceived(IBroadcastStream broadcastStream,
@@ -24,6 +24,8 @@ import java.util.Date;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.openmeetings.app.OpenmeetingsVariables;
 import org.openmeetings.app.remote.red5.ScopeApplicationAdapter;
@@ -37,17 +39,28 @@ import org.red5.server.api.scope.IScope;
 import org.red5.server.util.ScopeUtils;
 import org.slf4j.Logger;
 
+/**
+ * Writes the packets of a recorded stream to disk
+ *
+ * The packets are queued and written by the threads of the
+ * {@link StreamWriterPool}, a writer is scheduled on the pool only while it
+ * has packets to write, at most one thread writes the packets of a stream at
+ * a time.
+ */
 public abstract class BaseStreamWriter implements Runnable {
 
 	private static final Logger log = Red5LoggerFactory.getLogger(
 			BaseStreamWriter.class, OpenmeetingsVariables.webAppRootKey);
 
-	// thread is running
-	private boolean running = false;
-	// thread is stopped
-	private boolean stopping = false;
-	// thread will be stopped as soon as the queue is empty
-	private boolean dostopping = false;
+	// writer is open
+	private volatile boolean running = false;
+	// stream is closed
+	private volatile boolean stopping = false;
+	// stream will be closed as soon as the queue is empty
+	private volatile boolean dostopping = false;
+	// writer is scheduled on the pool
+	private final AtomicBoolean scheduled = new AtomicBoolean(false);
+	private final AtomicLong droppedPackets = new AtomicLong();
 
 	protected ITagWriter writer = null;
 
@@ -63,11 +76,16 @@ public abstract class BaseStreamWriter implements Runnable {
 
 	protected String streamName = "";
 
+	private final StreamWriterPool pool;
 
-	private final BlockingQueue<CachedEvent> queue = new LinkedBlockingQueue<CachedEvent>();
+	private final BlockingQueue<CachedEvent> queue;
 
 	public BaseStreamWriter(String streamName, IScope scope,
-			Long flvRecordingMetaDataId, boolean isScreenData) {
+			Long flvRecordingMetaDataId, boolean isScreenData,
+			StreamWriterPool pool) {
+		this.pool = pool;
+		this.queue = new LinkedBlockingQueue<CachedEvent>(
+				pool.getQueueCapacity());
 		this.startedSessionTimeDate = new Date();
 		this.isScreenData = isScreenData;
 		this.streamName = streamName;
@@ -133,31 +151,49 @@ public abstract class BaseStreamWriter implements Runnable {
 
 	private void open() {
 		running = true;
-		new Thread(this).start();
+		pool.register(this);
 	}
 
 	public void stop() {
 		dostopping = true;
+		schedule();
+	}
+
+	private void schedule() {
+		if (scheduled.compareAndSet(false, true)) {
+			pool.execute(this);
+		}
 	}
 
 	public void run() {
-		while (!stopping) {
-			try {
-				CachedEvent item = queue.poll(100, TimeUnit.MICROSECONDS);
-				if (item != null) {
-
-					if (dostopping) {
-						log.debug("Recording stopped but still packets to write to file!");
-					}
-
-					packetReceived(item);
-				} else if (dostopping) {
-					stopping = true;
+		try {
+			for (int i = 0; i < pool.getBatchSize(); ++i) {
+				CachedEvent item = queue.poll();
+				if (item == null) {
+					break;
+				}
+				if (dostopping) {
+					log.debug("Recording stopped but still packets to write to file!");
+				}
+				packetReceived(item);
+				pool.packetWritten();
+			}
+			if (dostopping && !stopping && queue.isEmpty()) {
+				stopping = true;
+				try {
 					closeStream();
+				} finally {
+					pool.unregister(this);
 				}
-			} catch (InterruptedException e) {
-				log.error("[run]", e);
 			}
+		} catch (Exception e) {
+			log.error("[run]", e);
+		} finally {
+			scheduled.set(false);
+		}
+		// packets might have been added after the last poll
+		if (!stopping && (dostopping || !queue.isEmpty())) {
+			schedule();
 		}
 	}
 
@@ -177,13 +213,35 @@ public abstract class BaseStreamWriter implements Runnable {
 	public void append(CachedEvent streampacket) {
 		if (!running) {
 			throw new IllegalStateException(
-					"Append called before the Thread was started!");
+					"Append called before the writer was opened!");
 		}
 		try {
-			queue.put(streampacket);
+			if (!queue.offer(streampacket, pool.getAppendTimeout(),
+					TimeUnit.MILLISECONDS)) {
+				long dropped = droppedPackets.incrementAndGet();
+				pool.packetDropped();
+				if (dropped == 1 || dropped % 1000 == 0) {
+					log.warn("[append] Queue of " + streamName + " is full, "
+							+ dropped + " packets dropped");
+				}
+			}
 		} catch (InterruptedException ignored) {
 			log.error("[append]", ignored);
+			Thread.currentThread().interrupt();
 		}
+		schedule();
+	}
+
+	public int getQueueSize() {
+		return queue.size();
+	}
+
+	public long getDroppedPackets() {
+		return droppedPackets.get();
+	}
+
+	public String getStreamName() {
+		return streamName;
 	}
 
 }
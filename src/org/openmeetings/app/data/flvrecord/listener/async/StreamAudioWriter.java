@@ -24,7 +24,7 @@ import java.util.Date;
 import org.apache.mina.core.buffer.IoBuffer;
 import org.openmeetings.app.OpenmeetingsVariables;
 import org.openmeetings.app.data.flvrecord.FlvRecordingMetaDataDaoImpl;
-import org.openmeetings.app.data.flvrecord.FlvRecordingMetaDeltaDaoImpl;
+import org.openmeetings.app.data.flvrecord.FlvRecordingMetaDeltaBuffer;
 import org.openmeetings.app.persistence.beans.flvrecord.FlvRecordingMetaData;
 import org.openmeetings.app.persistence.beans.flvrecord.FlvRecordingMetaDelta;
 import org.red5.io.ITag;
@@ -52,7 +52,7 @@ public class StreamAudioWriter extends BaseStreamWriter {
 	private long byteCount = 0;
 	
 	// Autowire is not possible
-	protected final FlvRecordingMetaDeltaDaoImpl flvRecordingMetaDeltaDao;
+	protected final FlvRecordingMetaDeltaBuffer flvRecordingMetaDeltaBuffer;
 	protected final FlvRecordingMetaDataDaoImpl flvRecordingMetaDataDao;
 
 	private boolean isInterview = false;
@@ -60,19 +60,15 @@ public class StreamAudioWriter extends BaseStreamWriter {
 	public StreamAudioWriter(String streamName, IScope scope,
 			Long flvRecordingMetaDataId, boolean isScreenData,
 			boolean isInterview,
-			FlvRecordingMetaDeltaDaoImpl flvRecordingMetaDeltaDao,
-			FlvRecordingMetaDataDaoImpl flvRecordingMetaDataDao) {
-		super(streamName, scope, flvRecordingMetaDataId, isScreenData);
+			FlvRecordingMetaDeltaBuffer flvRecordingMetaDeltaBuffer,
+			FlvRecordingMetaDataDaoImpl flvRecordingMetaDataDao,
+			StreamWriterPool streamWriterPool) {
+		super(streamName, scope, flvRecordingMetaDataId, isScreenData,
+				streamWriterPool);
 		
-		this.flvRecordingMetaDeltaDao = flvRecordingMetaDeltaDao;
+		this.flvRecordingMetaDeltaBuffer = flvRecordingMetaDeltaBuffer;
 		this.flvRecordingMetaDataDao = flvRecordingMetaDataDao;
 		this.isInterview  = isInterview;
-		
-		FlvRecordingMetaData flvRecordingMetaData = flvRecordingMetaDataDao.
-								getFlvRecordingMetaDataById(flvRecordingMetaDataId);
-		flvRecordingMetaData.setStreamReaderThreadComplete(false);
-		flvRecordingMetaDataDao.updateFlvRecordingMetaData(flvRecordingMetaData);
-		
 	}
 
 	@Override
@@ -139,8 +135,7 @@ public class StreamAudioWriter extends BaseStreamWriter {
 					flvRecordingMetaDelta.setDeltaTimeStamp(deltaTimeStamp);
 					flvRecordingMetaDelta.setStartTimeStamp(startTimeStamp);
 
-					flvRecordingMetaDeltaDao
-							.addFlvRecordingMetaDelta(flvRecordingMetaDelta);
+					flvRecordingMetaDeltaBuffer.add(flvRecordingMetaDelta);
 
 					// That will be not bigger then long value
 					this.startTimeStamp = (streampacket.getTimestamp());
@@ -204,8 +199,7 @@ public class StreamAudioWriter extends BaseStreamWriter {
 					flvRecordingMetaDelta.setDeltaTimeStamp(deltaTimeStamp);
 					flvRecordingMetaDelta.setStartTimeStamp(startTimeStamp);
 
-					flvRecordingMetaDeltaDao
-							.addFlvRecordingMetaDelta(flvRecordingMetaDelta);
+					flvRecordingMetaDeltaBuffer.add(flvRecordingMetaDelta);
 
 				}
 
@@ -269,8 +263,9 @@ public class StreamAudioWriter extends BaseStreamWriter {
 			flvRecordingMetaDelta.setStartTime(startedSessionTimeDate);
 			flvRecordingMetaDelta.setCurrentTime(new Date());
 
-			flvRecordingMetaDeltaDao
-					.addFlvRecordingMetaDelta(flvRecordingMetaDelta);
+			flvRecordingMetaDeltaBuffer.add(flvRecordingMetaDelta);
+			// the converter reads the deltas as soon as the stream is complete
+			flvRecordingMetaDeltaBuffer.flush();
 			
 			//Write the complete Bit to the meta data, the converter task will wait for this bit!
 			FlvRecordingMetaData flvRecordingMetaData = flvRecordingMetaDataDao.getFlvRecordingMetaDataById(flvRecordingMetaDataId);
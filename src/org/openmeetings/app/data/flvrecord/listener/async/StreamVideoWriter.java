@@ -47,16 +47,13 @@ public class StreamVideoWriter extends BaseStreamWriter {
 	public StreamVideoWriter(String streamName, IScope scope,
 			Long flvRecordingMetaDataId, boolean isScreenData,
 			boolean isInterview,
-			FlvRecordingMetaDataDaoImpl flvRecordingMetaDataDao) {
+			FlvRecordingMetaDataDaoImpl flvRecordingMetaDataDao,
+			StreamWriterPool streamWriterPool) {
 		
-		super(streamName, scope, flvRecordingMetaDataId, isScreenData);
+		super(streamName, scope, flvRecordingMetaDataId, isScreenData,
+				streamWriterPool);
 		
 		this.flvRecordingMetaDataDao = flvRecordingMetaDataDao;
-		
-		FlvRecordingMetaData flvRecordingMetaData = flvRecordingMetaDataDao.
-				getFlvRecordingMetaDataById(flvRecordingMetaDataId);
-		flvRecordingMetaData.setStreamReaderThreadComplete(false);
-		flvRecordingMetaDataDao.updateFlvRecordingMetaData(flvRecordingMetaData);
 	}
 	
 	@Override
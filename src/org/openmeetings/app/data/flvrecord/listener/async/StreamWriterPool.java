@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.app.data.flvrecord.listener.async;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openmeetings.app.OpenmeetingsVariables;
+import org.red5.logging.Red5LoggerFactory;
+import org.slf4j.Logger;
+
+/**
+ * Shared pool of threads writing the recorded streams to disk
+ *
+ * Each {@link BaseStreamWriter} has a bounded queue of packets, a writer is
+ * only scheduled on the pool when packets arrive or the recording is stopped,
+ * so idle streams do not use a thread. If the queue of a stream is full (the
+ * disk can not keep up) the receiving thread is blocked up to appendTimeout
+ * milliseconds before the packet is dropped.
+ */
+public class StreamWriterPool {
+
+	private static final Logger log = Red5LoggerFactory.getLogger(
+			StreamWriterPool.class, OpenmeetingsVariables.webAppRootKey);
+
+	private int threads = Runtime.getRuntime().availableProcessors();
+	// packets queued per stream
+	private int queueCapacity = 2000;
+	// milliseconds a full queue blocks the receiving thread
+	private long appendTimeout = 100;
+	// packets written by a writer before the thread is given to the next one
+	private int batchSize = 100;
+
+	private volatile ExecutorService executor = null;
+
+	private final Set<BaseStreamWriter> writers = Collections
+			.newSetFromMap(new ConcurrentHashMap<BaseStreamWriter, Boolean>());
+	private final AtomicLong writtenPackets = new AtomicLong();
+	private final AtomicLong droppedPackets = new AtomicLong();
+
+	private ExecutorService getExecutor() {
+		if (executor == null) {
+			synchronized (this) {
+				if (executor == null) {
+					log.debug("Starting " + threads + " stream writer threads");
+					executor = Executors.newFixedThreadPool(threads,
+							new ThreadFactory() {
+								private final AtomicInteger count = new AtomicInteger();
+
+								public Thread newThread(Runnable r) {
+									Thread t = new Thread(r, "StreamWriter-"
+											+ count.incrementAndGet());
+									t.setDaemon(true);
+									return t;
+								}
+							});
+				}
+			}
+		}
+		return executor;
+	}
+
+	void register(BaseStreamWriter writer) {
+		writers.add(writer);
+	}
+
+	void unregister(BaseStreamWriter writer) {
+		writers.remove(writer);
+		if (writer.getDroppedPackets() > 0) {
+			log.warn("Recording of " + writer.getStreamName() + " finished, "
+					+ writer.getDroppedPackets() + " packets were dropped");
+		}
+	}
+
+	void execute(BaseStreamWriter writer) {
+		getExecutor().execute(writer);
+	}
+
+	void packetWritten() {
+		writtenPackets.incrementAndGet();
+	}
+
+	void packetDropped() {
+		droppedPackets.incrementAndGet();
+	}
+
+	/**
+	 * @return number of streams currently recorded
+	 */
+	public int getActiveWriters() {
+		return writers.size();
+	}
+
+	/**
+	 * @return number of packets waiting to be written to disk
+	 */
+	public long getQueuedPackets() {
+		long queued = 0;
+		for (BaseStreamWriter writer : writers) {
+			queued += writer.getQueueSize();
+		}
+		return queued;
+	}
+
+	/**
+	 * @return the longest queue of all recorded streams
+	 */
+	public int getMaxQueueSize() {
+		int max = 0;
+		for (BaseStreamWriter writer : writers) {
+			max = Math.max(max, writer.getQueueSize());
+		}
+		return max;
+	}
+
+	public long getWrittenPackets() {
+		return writtenPackets.get();
+	}
+
+	public long getDroppedPackets() {
+		return droppedPackets.get();
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	public long getAppendTimeout() {
+		return appendTimeout;
+	}
+
+	public void setAppendTimeout(long appendTimeout) {
+		this.appendTimeout = appendTimeout;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+}
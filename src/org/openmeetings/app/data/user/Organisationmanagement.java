@@ -65,6 +65,8 @@ public class Organisationmanagement {
 	private UsersDaoImpl usersDao;
 	@Autowired
 	private AuthLevelmanagement authLevelManagement;
+	@Autowired
+	private PrincipalCache principalCache;
 
 	/**
 	 * adds a new organisation if userlevel is admin
@@ -113,6 +115,7 @@ public class Organisationmanagement {
 		try {
 			org.setStarttime(new Date());
 			org = em.merge(org);
+			em.flush();
 			long id = org.getOrganisation_id();
 			return id;
 		} catch (Exception ex2) {
@@ -431,6 +434,7 @@ public class Organisationmanagement {
 			em.createNamedQuery("deleteUsersFromOrganisation")
 				.setParameter("organisation_id", organisation_id)
 				.executeUpdate();
+			principalCache.clear();
 
 			Organisation org = this.getOrganisationById(organisation_id);
 			org.setDeleted("true");
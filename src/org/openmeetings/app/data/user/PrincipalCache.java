@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.app.data.user;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Level and organisations of the users checked by the web services, keyed
+ * by the user id. Entries expire after a short time, changes of a user
+ * done through {@link Usermanagement} or the
+ * {@link org.openmeetings.app.data.user.dao.UsersDaoImpl} remove the user
+ * right away.
+ */
+public class PrincipalCache {
+
+	// milliseconds a user is kept
+	private long ttl = 30000;
+	// users kept in memory
+	private int maxSize = 10000;
+
+	private final ConcurrentHashMap<Long, Principal> principals = new ConcurrentHashMap<Long, Principal>();
+	// incremented by every removal, users read before are not cached
+	private final AtomicLong generation = new AtomicLong();
+
+	public static class Principal {
+		private final Long user_id;
+		private final Long level_id;
+		private final Set<Long> organisation_ids;
+		private final Set<Long> moderatedOrganisation_ids;
+		private final long expires;
+
+		Principal(Long user_id, Long level_id, Set<Long> organisation_ids,
+				Set<Long> moderatedOrganisation_ids, long expires) {
+			this.user_id = user_id;
+			this.level_id = level_id;
+			this.organisation_ids = Collections
+					.unmodifiableSet(organisation_ids);
+			this.moderatedOrganisation_ids = Collections
+					.unmodifiableSet(moderatedOrganisation_ids);
+			this.expires = expires;
+		}
+
+		public Long getUser_id() {
+			return user_id;
+		}
+
+		public Long getLevel_id() {
+			return level_id;
+		}
+
+		public Set<Long> getOrganisation_ids() {
+			return organisation_ids;
+		}
+
+		/**
+		 * @return the organisations the user is moderator of
+		 */
+		public Set<Long> getModeratedOrganisation_ids() {
+			return moderatedOrganisation_ids;
+		}
+	}
+
+	public void setTtl(long ttl) {
+		this.ttl = ttl;
+	}
+
+	public void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public int size() {
+		return principals.size();
+	}
+
+	/**
+	 * @return the user, null if it is not cached or expired
+	 */
+	public Principal get(Long user_id) {
+		Principal principal = principals.get(user_id);
+		if (principal == null) {
+			return null;
+		}
+		if (principal.expires < System.currentTimeMillis()) {
+			principals.remove(user_id, principal);
+			return null;
+		}
+		return principal;
+	}
+
+	/**
+	 * @return the generation to pass to
+	 *         {@link #put(long, Long, Long, Set, Set)}, has to be taken before
+	 *         the user is read from the database
+	 */
+	public long getGeneration() {
+		return generation.get();
+	}
+
+	/**
+	 * The user is only cached if no user has been removed since the
+	 * generation has been taken, it might have been read before the change
+	 * 
+	 * @return the user
+	 */
+	public Principal put(long generation, Long user_id, Long level_id,
+			Set<Long> organisation_ids, Set<Long> moderatedOrganisation_ids) {
+		if (principals.size() >= maxSize) {
+			removeExpired();
+		}
+		Principal principal = new Principal(user_id, level_id,
+				organisation_ids, moderatedOrganisation_ids,
+				System.currentTimeMillis() + ttl);
+		if (principals.size() < maxSize
+				&& this.generation.get() == generation) {
+			principals.put(user_id, principal);
+			// removed concurrently after the check
+			if (this.generation.get() != generation) {
+				principals.remove(user_id, principal);
+			}
+		}
+		return principal;
+	}
+
+	/**
+	 * Has to be called for every change of the level, the deleted flag or
+	 * the organisations of a user. Inside a transaction the user is removed
+	 * again after the transaction completed, so that a concurrent lookup can
+	 * not keep the old values.
+	 */
+	public void remove(final Long user_id) {
+		if (user_id == null) {
+			return;
+		}
+		generation.incrementAndGet();
+		principals.remove(user_id);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager
+					.registerSynchronization(new TransactionSynchronizationAdapter() {
+						@Override
+						public void afterCompletion(int status) {
+							generation.incrementAndGet();
+							principals.remove(user_id);
+						}
+					});
+		}
+	}
+
+	/**
+	 * Removes all users, needed for changes of many users at once
+	 */
+	public void clear() {
+		generation.incrementAndGet();
+		principals.clear();
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager
+					.registerSynchronization(new TransactionSynchronizationAdapter() {
+						@Override
+						public void afterCompletion(int status) {
+							generation.incrementAndGet();
+							principals.clear();
+						}
+					});
+		}
+	}
+
+	private void removeExpired() {
+		long now = System.currentTimeMillis();
+		for (Iterator<Principal> it = principals.values().iterator(); it.hasNext();) {
+			if (it.next().expires < now) {
+				it.remove();
+			}
+		}
+	}
+}
@@ -21,8 +21,10 @@ package org.openmeetings.app.data.user;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
@@ -45,6 +47,7 @@ import org.openmeetings.app.data.basic.Fieldmanagment;
 import org.openmeetings.app.data.basic.Sessionmanagement;
 import org.openmeetings.app.data.basic.dao.OmTimeZoneDaoImpl;
 import org.openmeetings.app.data.beans.basic.SearchResult;
+import org.openmeetings.app.data.user.PrincipalCache.Principal;
 import org.openmeetings.app.data.user.dao.UserSipDataDaoImpl;
 import org.openmeetings.app.data.user.dao.UsersDaoImpl;
 import org.openmeetings.app.persistence.beans.adresses.Adresses;
@@ -102,6 +105,8 @@ public class Usermanagement {
 	@Autowired
 	private UsersDaoImpl usersDao;
 	@Autowired
+	private PrincipalCache principalCache;
+	@Autowired
 	private Emailmanagement emailManagement;
 	@Autowired
 	private UserSipDataDaoImpl userSipDataDao;
@@ -330,6 +335,7 @@ public class Usermanagement {
 		try {
 
 			us = em.merge(us);
+			principalCache.remove(us.getUser_id());
 			return us;
 		} catch (Exception ex2) {
 			log.error("[loginUser]: ", ex2);
@@ -606,6 +612,7 @@ public class Usermanagement {
 					// } else {
 					// if (!em.contains(us)) {
 					em.merge(us);
+					principalCache.remove(us.getUser_id());
 
 					// }
 					// }
@@ -704,6 +711,47 @@ public class Usermanagement {
 		return userlevel;
 	}
 
+	/**
+	 * Level and organisations of the user, taken from the
+	 * {@link PrincipalCache} if possible
+	 * 
+	 * @param user_id
+	 * @return the user, null if there is no such user
+	 */
+	public Principal getPrincipal(Long user_id) {
+		Principal principal = principalCache.get(user_id);
+		if (principal != null) {
+			return principal;
+		}
+
+		// taken before the read, a change committed meanwhile is not cached
+		long generation = principalCache.getGeneration();
+		TypedQuery<Users> query = em
+				.createQuery("select c from Users as c where c.user_id = :user_id AND c.deleted <> 'true'", Users.class);
+		query.setParameter("user_id", user_id);
+		Users us = null;
+		try {
+			us = query.getSingleResult();
+		} catch (NoResultException e) {
+			return null;
+		}
+
+		Set<Long> organisation_ids = new HashSet<Long>();
+		Set<Long> moderatedOrganisation_ids = new HashSet<Long>();
+		for (Organisation_Users ou : us.getOrganisation_users()) {
+			if (ou.getOrganisation() == null) {
+				continue;
+			}
+			organisation_ids.add(ou.getOrganisation().getOrganisation_id());
+			if (ou.getIsModerator() != null && ou.getIsModerator()) {
+				moderatedOrganisation_ids.add(ou.getOrganisation()
+						.getOrganisation_id());
+			}
+		}
+		return principalCache.put(generation, user_id, us.getLevel_id(),
+				organisation_ids, moderatedOrganisation_ids);
+	}
+
 	/**
 	 * get user-role 1 - user 2 - moderator 3 - admin
 	 * 
@@ -720,18 +768,10 @@ public class Usermanagement {
 				return new Long(1);
 			}
 
-			TypedQuery<Users> query = em
-					.createQuery("select c from Users as c where c.user_id = :user_id AND c.deleted <> 'true'", Users.class);
-			query.setParameter("user_id", user_id);
-			Users us = null;
-			try {
-				us = query.getSingleResult();
-			} catch (NoResultException e) {
-				// u=null}
-			}
+			Principal principal = getPrincipal(user_id);
 
-			if (us != null) {
-				return us.getLevel_id();
+			if (principal != null) {
+				return principal.getLevel_id();
 			} else {
 				return -1L;
 			}
@@ -751,39 +791,22 @@ public class Usermanagement {
 				return new Long(1);
 			}
 
-			TypedQuery<Users> query = em
-					.createQuery("select c from Users as c where c.user_id = :user_id AND c.deleted <> 'true'", Users.class);
-			query.setParameter("user_id", user_id);
-			Users us = null;
-			try {
-				us = query.getSingleResult();
-			} catch (NoResultException e) {
-				// u=null}
-			}
+			Principal principal = getPrincipal(user_id);
 
-			if (us != null) {
+			if (principal != null) {
 
-				if (us.getLevel_id() > 2) {
-					return us.getLevel_id();
+				if (principal.getLevel_id() > 2) {
+					return principal.getLevel_id();
 				} else {
 
 					log.debug("user_id, organisation_id" + user_id + ", "
 							+ organisation_id);
 
-					Organisation_Users ou = organisationmanagement
-							.getOrganisation_UserByUserAndOrganisation(user_id,
-									organisation_id);
-
-					log.debug("ou: " + ou);
-
-					if (ou != null) {
-						if (ou.getIsModerator() != null && ou.getIsModerator()) {
-							return 2L;
-						} else {
-							return us.getLevel_id();
-						}
+					if (principal.getModeratedOrganisation_ids().contains(
+							organisation_id)) {
+						return 2L;
 					} else {
-						return us.getLevel_id();
+						return principal.getLevel_id();
 					}
 				}
 
@@ -1307,6 +1330,8 @@ public class Usermanagement {
 			}
 
 			usr = em.merge(usr);
+			// the import stores many users in one transaction and needs the ids
+			em.flush();
 			Long user_id = usr.getUser_id();
 
 			return user_id;
@@ -61,6 +61,7 @@ public class PrivateMessageFolderDaoImpl {
 			privateMessageFolder.setInserted(new Date());
 			
 			privateMessageFolder = em.merge(privateMessageFolder);
+			em.flush();
 			Long privateMessageFolderId = privateMessageFolder.getPrivateMessageFolderId();
 			
 			return privateMessageFolderId;	
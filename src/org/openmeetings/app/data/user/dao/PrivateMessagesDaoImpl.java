@@ -104,6 +104,23 @@ public class PrivateMessagesDaoImpl {
 		return null;
 	}
 	
+	public List<PrivateMessages> getPrivateMessages(int first, int count) {
+		try {
+			
+			String hql = "select c from PrivateMessages c ORDER BY c.privateMessageId";
+			
+			TypedQuery<PrivateMessages> query = em.createQuery(hql, PrivateMessages.class); 
+			query.setFirstResult(first);
+			query.setMaxResults(count);
+			
+			return query.getResultList();
+			
+		} catch (Exception e) {
+			log.error("[getPrivateMessages]",e);
+		}
+		return null;
+	}
+	
 	public PrivateMessages getPrivateMessagesById(Long privateMessageId) {
 		try {
 			
@@ -70,6 +70,7 @@ public class UserContactsDaoImpl {
 			userContact.setInserted(new Date());
 			
 			userContact = em.merge(userContact);
+			em.flush();
 			Long userContactId = userContact.getUserContactId();
 			
 			return userContactId;			
@@ -281,6 +282,23 @@ public class UserContactsDaoImpl {
 		return null;
 	}
 	
+	public List<UserContacts> getUserContacts(int first, int count) {
+		try {
+			
+			String hql = "select c from UserContacts c ORDER BY c.userContactId";
+			
+			TypedQuery<UserContacts> query = em.createQuery(hql, UserContacts.class); 
+			query.setFirstResult(first);
+			query.setMaxResults(count);
+			
+			return query.getResultList();
+			
+		} catch (Exception e) {
+			log.error("[getUserContacts]",e);
+		}
+		return null;
+	}
+	
 	public Long updateContactStatus(Long userContactId, Boolean pending) {
 		try {
 			
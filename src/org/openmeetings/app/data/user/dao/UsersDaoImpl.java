@@ -32,6 +32,7 @@ import javax.persistence.criteria.Root;
 
 import org.apache.commons.lang.StringUtils;
 import org.openmeetings.app.OpenmeetingsVariables;
+import org.openmeetings.app.data.user.PrincipalCache;
 import org.openmeetings.app.persistence.beans.adresses.Adresses;
 import org.openmeetings.app.persistence.beans.user.Users;
 import org.openmeetings.utils.crypt.ManageCryptStyle;
@@ -48,6 +49,8 @@ public class UsersDaoImpl {
 	private EntityManager em;
 	@Autowired
 	private ManageCryptStyle manageCryptStyle;
+	@Autowired
+	private PrincipalCache principalCache;
 
 	/**
 	 * 
@@ -85,6 +88,7 @@ public class UsersDaoImpl {
 						em.merge(user);
 					}
 				}
+				principalCache.remove(user.getUser_id());
 			} catch (Exception ex2) {
 				log.error("[updateUser] ", ex2);
 			}
@@ -111,6 +115,7 @@ public class UsersDaoImpl {
 						em.merge(us);
 					}
 				}
+				principalCache.remove(us.getUser_id());
 				return us.getUser_id();
 			}
 		} catch (Exception ex2) {
@@ -165,6 +170,22 @@ public class UsersDaoImpl {
 		return null;
 	}
 
+	/**
+	 * @return a page of all users including the deleted ones, ordered by id
+	 */
+	public List<Users> getAllUsersDeleted(int first, int count) {
+		try {
+			TypedQuery<Users> q = em.createQuery(
+					"SELECT u FROM Users u ORDER BY u.user_id", Users.class);
+			q.setFirstResult(first);
+			q.setMaxResults(count);
+			return q.getResultList();
+		} catch (Exception ex2) {
+			log.error("[getAllUsersDeleted] ", ex2);
+		}
+		return null;
+	}
+
 	public Long getAllUserMax(String search) {
 		try {
 
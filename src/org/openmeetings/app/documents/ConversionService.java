@@ -0,0 +1,455 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.app.documents;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.openmeetings.app.OpenmeetingsVariables;
+import org.red5.logging.Red5LoggerFactory;
+import org.slf4j.Logger;
+
+/**
+ * Runs the conversions of uploaded files outside of the upload request
+ * 
+ * Every tool has a pool of workers and a bounded queue, a conversion is
+ * rejected if the queue of its tool is full. The jobs can be polled and
+ * cancelled by their id until some time after they finished. The folders of
+ * finished presentation conversions are remembered by the checksum of the
+ * document, see {@link GeneratePDF}.
+ * 
+ * Large documents are split into page ranges which are converted by a shared
+ * pool of page workers, the running job reports the pages done.
+ */
+public class ConversionService {
+	private static final Logger log = Red5LoggerFactory.getLogger(
+			ConversionService.class, OpenmeetingsVariables.webAppRootKey);
+
+	/**
+	 * The most expensive tool a conversion launches
+	 */
+	public enum Tool {
+		OFFICE, PDF, IMAGE, VIDEO
+	}
+
+	public enum Status {
+		QUEUED, RUNNING, DONE, FAILED, CANCELLED
+	}
+
+	public interface Conversion {
+		HashMap<String, HashMap<String, String>> convert() throws Exception;
+	}
+
+	public interface ConversionCallback {
+		/**
+		 * Called by the worker once the job is done, failed or has been
+		 * cancelled
+		 */
+		void converted(ConversionJob job);
+	}
+
+	private int officeWorkers = 1;
+	private int pdfWorkers = 2;
+	private int imageWorkers = 2;
+	private int videoWorkers = 1;
+	private int pageWorkers = Runtime.getRuntime().availableProcessors();
+	// jobs waiting per tool
+	private int maxQueued = 50;
+	// milliseconds a finished job can be polled
+	private long keepFinished = 10 * 60 * 1000;
+	// converted documents remembered by their checksum
+	private int maxCachedResults = 1000;
+
+	private final AtomicLong nextJobId = new AtomicLong();
+	private final ConcurrentHashMap<Long, ConversionJob> jobs = new ConcurrentHashMap<Long, ConversionJob>();
+	private final Map<Tool, ThreadPoolExecutor> executors = new HashMap<Tool, ThreadPoolExecutor>();
+	private ExecutorService pageExecutor;
+	private final ThreadLocal<ConversionJob> currentJob = new ThreadLocal<ConversionJob>();
+	private Map<String, File> cachedResults;
+
+	public class ConversionJob implements Runnable {
+		private final long id;
+		private final Tool tool;
+		private final Long userId;
+		private final Conversion conversion;
+		private final ConversionCallback callback;
+		private volatile Status status = Status.QUEUED;
+		private volatile Thread worker;
+		private volatile boolean cancelled;
+		private HashMap<String, HashMap<String, String>> result;
+		private String error;
+		private final long queued = System.currentTimeMillis();
+		private long finished;
+		private volatile int pagesDone;
+		private volatile int pages;
+
+		private ConversionJob(Tool tool, Long userId, Conversion conversion,
+				ConversionCallback callback) {
+			id = nextJobId.incrementAndGet();
+			this.tool = tool;
+			this.userId = userId;
+			this.conversion = conversion;
+			this.callback = callback;
+		}
+
+		public void run() {
+			synchronized (this) {
+				if (status != Status.QUEUED) {
+					return;
+				}
+				status = Status.RUNNING;
+				worker = Thread.currentThread();
+			}
+			HashMap<String, HashMap<String, String>> converted = null;
+			String failure = null;
+			currentJob.set(this);
+			try {
+				converted = conversion.convert();
+			} catch (Exception err) {
+				log.error("[ConversionJob.run] " + id, err);
+				failure = err.getMessage();
+			} finally {
+				currentJob.remove();
+			}
+			synchronized (this) {
+				worker = null;
+				// clears the interrupt of the pool thread
+				boolean interrupted = Thread.interrupted();
+				if (interrupted || cancelled) {
+					finish(Status.CANCELLED, null, failure);
+				} else {
+					finish(failure == null ? Status.DONE : Status.FAILED,
+							converted, failure);
+				}
+			}
+			notifyCallback();
+		}
+
+		private void finish(Status status,
+				HashMap<String, HashMap<String, String>> result, String error) {
+			this.result = result;
+			this.error = error;
+			this.finished = System.currentTimeMillis();
+			this.status = status;
+			notifyAll();
+		}
+
+		private void notifyCallback() {
+			if (callback == null) {
+				return;
+			}
+			try {
+				callback.converted(this);
+			} catch (Exception err) {
+				log.error("[ConversionJob.notifyCallback] " + id, err);
+			}
+		}
+
+		/**
+		 * Waits until the job is finished
+		 * 
+		 * @return the result of the conversion, null if it failed or has been
+		 *         cancelled
+		 */
+		public synchronized HashMap<String, HashMap<String, String>> await()
+				throws InterruptedException {
+			while (!isFinished()) {
+				wait();
+			}
+			return result;
+		}
+
+		public long getId() {
+			return id;
+		}
+
+		public Tool getTool() {
+			return tool;
+		}
+
+		public Long getUserId() {
+			return userId;
+		}
+
+		public Status getStatus() {
+			return status;
+		}
+
+		public boolean isFinished() {
+			return status == Status.DONE || status == Status.FAILED
+					|| status == Status.CANCELLED;
+		}
+
+		/**
+		 * @return the number of jobs of the same tool queued before this one,
+		 *         -1 if the job is not queued
+		 */
+		public int getPosition() {
+			if (status != Status.QUEUED) {
+				return -1;
+			}
+			int position = 0;
+			for (Runnable r : executors.get(tool).getQueue()) {
+				if (r == this) {
+					return position;
+				}
+				++position;
+			}
+			return -1;
+		}
+
+		public synchronized HashMap<String, HashMap<String, String>> getResult() {
+			return result;
+		}
+
+		public synchronized String getError() {
+			return error;
+		}
+
+		public long getQueued() {
+			return queued;
+		}
+
+		public synchronized long getFinished() {
+			return finished;
+		}
+
+		/**
+		 * @return the pages converted so far, 0 if the conversion does not
+		 *         report its pages
+		 */
+		public int getPagesDone() {
+			return pagesDone;
+		}
+
+		public int getPages() {
+			return pages;
+		}
+	}
+
+	public void setOfficeWorkers(int officeWorkers) {
+		this.officeWorkers = officeWorkers;
+	}
+
+	public void setPdfWorkers(int pdfWorkers) {
+		this.pdfWorkers = pdfWorkers;
+	}
+
+	public void setImageWorkers(int imageWorkers) {
+		this.imageWorkers = imageWorkers;
+	}
+
+	public void setVideoWorkers(int videoWorkers) {
+		this.videoWorkers = videoWorkers;
+	}
+
+	public void setPageWorkers(int pageWorkers) {
+		this.pageWorkers = pageWorkers;
+	}
+
+	public void setMaxQueued(int maxQueued) {
+		this.maxQueued = maxQueued;
+	}
+
+	public void setKeepFinished(long keepFinished) {
+		this.keepFinished = keepFinished;
+	}
+
+	public void setMaxCachedResults(int maxCachedResults) {
+		this.maxCachedResults = maxCachedResults;
+	}
+
+	@PostConstruct
+	public void init() {
+		executors.put(Tool.OFFICE, createExecutor(Tool.OFFICE, officeWorkers));
+		executors.put(Tool.PDF, createExecutor(Tool.PDF, pdfWorkers));
+		executors.put(Tool.IMAGE, createExecutor(Tool.IMAGE, imageWorkers));
+		executors.put(Tool.VIDEO, createExecutor(Tool.VIDEO, videoWorkers));
+		pageExecutor = new ThreadPoolExecutor(pageWorkers, pageWorkers, 0L,
+				TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+				createThreadFactory("Conversion pages"));
+		cachedResults = Collections.synchronizedMap(new LinkedHashMap<String, File>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, File> eldest) {
+				return size() > maxCachedResults;
+			}
+		});
+	}
+
+	private ThreadPoolExecutor createExecutor(Tool tool, int workers) {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(workers, workers,
+				0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(
+						maxQueued), createThreadFactory("Conversion " + tool));
+		return executor;
+	}
+
+	private ThreadFactory createThreadFactory(final String name) {
+		return new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, name + " " + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		};
+	}
+
+	@PreDestroy
+	public void destroy() {
+		for (ThreadPoolExecutor executor : executors.values()) {
+			executor.shutdownNow();
+		}
+		pageExecutor.shutdownNow();
+	}
+
+	/**
+	 * Queues the conversion
+	 * 
+	 * @param tool
+	 *            the most expensive tool the conversion launches
+	 * @param userId
+	 *            the user the conversion is done for
+	 * @param conversion
+	 * @param callback
+	 *            notified by the worker once the job is finished, may be null
+	 * @return the queued job
+	 * @throws RejectedExecutionException
+	 *             if the queue of the tool is full
+	 */
+	public ConversionJob submit(Tool tool, Long userId, Conversion conversion,
+			ConversionCallback callback) {
+		removeFinishedJobs();
+		ConversionJob job = new ConversionJob(tool, userId, conversion,
+				callback);
+		jobs.put(job.getId(), job);
+		try {
+			executors.get(tool).execute(job);
+		} catch (RejectedExecutionException err) {
+			jobs.remove(job.getId());
+			log.warn("Conversion queue " + tool + " is full");
+			throw err;
+		}
+		return job;
+	}
+
+	/**
+	 * @return the pool converting the page ranges of large documents, the
+	 *         queue is not bounded as the documents are already limited by
+	 *         the queues of the tools
+	 */
+	public ExecutorService getPageExecutor() {
+		return pageExecutor;
+	}
+
+	/**
+	 * Updates the progress of the job converted by the calling worker, does
+	 * nothing outside of a conversion
+	 */
+	public void reportProgress(int pagesDone, int pages) {
+		ConversionJob job = currentJob.get();
+		if (job != null) {
+			job.pagesDone = pagesDone;
+			job.pages = pages;
+		}
+	}
+
+	public ConversionJob getJob(Long jobId) {
+		return jobs.get(jobId);
+	}
+
+	/**
+	 * Removes a queued job or interrupts the running conversion
+	 * 
+	 * @return false if the job does not exist or is already finished
+	 */
+	public boolean cancel(Long jobId) {
+		ConversionJob job = jobs.get(jobId);
+		if (job == null) {
+			return false;
+		}
+		boolean notify = false;
+		synchronized (job) {
+			if (job.status == Status.QUEUED) {
+				executors.get(job.tool).remove(job);
+				job.finish(Status.CANCELLED, null, null);
+				notify = true;
+			} else if (job.status == Status.RUNNING) {
+				job.cancelled = true;
+				if (job.worker != null) {
+					job.worker.interrupt();
+				}
+			} else {
+				return false;
+			}
+		}
+		if (notify) {
+			job.notifyCallback();
+		}
+		return true;
+	}
+
+	private void removeFinishedJobs() {
+		long now = System.currentTimeMillis();
+		for (Iterator<ConversionJob> it = jobs.values().iterator(); it.hasNext();) {
+			ConversionJob job = it.next();
+			if (job.isFinished() && job.getFinished() + keepFinished < now) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * @param key
+	 *            checksum and kind of the conversion
+	 * @return the SWF of an earlier conversion of the same document, null if
+	 *         there is none or it has been deleted
+	 */
+	public File getCachedResult(String key) {
+		File swf = cachedResults.get(key);
+		if (swf != null && !swf.exists()) {
+			cachedResults.remove(key);
+			return null;
+		}
+		return swf;
+	}
+
+	public void putCachedResult(String key, File swf) {
+		cachedResults.put(key, swf);
+	}
+}
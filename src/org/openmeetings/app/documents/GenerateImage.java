@@ -44,8 +44,8 @@ public class GenerateImage {
 	private GenerateThumbs generateThumbs;
 
 	String getPathToImageMagic() {
-		String pathToImageMagic = cfgManagement.getConfKey(3,
-				"imagemagick_path").getConf_value();
+		String pathToImageMagic = cfgManagement.getConfValue(
+				"imagemagick_path", String.class, "");
 		if (!pathToImageMagic.equals("")
 				&& !pathToImageMagic.endsWith(File.separator)) {
 			pathToImageMagic += File.separator;
@@ -22,11 +22,19 @@ import java.io.File;
 import java.io.FilenameFilter;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
 
 import org.apache.commons.transaction.util.FileHelper;
 import org.openmeetings.app.OpenmeetingsVariables;
 import org.openmeetings.app.data.basic.Configurationmanagement;
 import org.openmeetings.utils.ProcessHelper;
+import org.openmeetings.utils.crypt.MD5;
 import org.red5.logging.Red5LoggerFactory;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -42,6 +50,16 @@ public class GeneratePDF {
 	private GenerateSWF generateSWF;
 	@Autowired
 	private Configurationmanagement cfgManagement;
+	@Autowired
+	private ConversionService conversionService;
+
+	// documents with more pages are converted by ranges of pages in parallel,
+	// 0 converts every document at once
+	private int pagesPerRange = 20;
+
+	public void setPagesPerRange(int pagesPerRange) {
+		this.pagesPerRange = pagesPerRange;
+	}
 
 	public HashMap<String, HashMap<String, String>> convertPDF(
 			String current_dir, String fileName, String fileExt,
@@ -89,33 +107,34 @@ public class GeneratePDF {
 		String outputfolder = destinationFolder + File.separatorChar;
 		destinationFolder = destinationFolder + File.separatorChar;
 
+		// identical documents are converted only once
+		String cacheKey = null;
+		try {
+			cacheKey = MD5.checksum(new File(fileFullPath))
+					+ (fullProcessing ? "_office" : "_pdf");
+		} catch (Exception err) {
+			log.error("[convertPDF] checksum", err);
+		}
+		File cachedSwf = cacheKey == null ? null : conversionService
+				.getCachedResult(cacheKey);
+
 		log.debug("fullProcessing: " + fullProcessing);
-		if (fullProcessing) {
+		if (cachedSwf != null) {
+			returnError.put("processCache", copyConversion(cachedSwf,
+					destinationFolder, fileName));
+		} else if (fullProcessing) {
 			HashMap<String, String> processOpenOffice = doJodConvert(
 					current_dir, fileFullPath, destinationFolder, fileName);
 			returnError.put("processOpenOffice", processOpenOffice);
-			HashMap<String, String> processThumb = generateThumbs
-					.generateBatchThumb(current_dir, destinationFolder
-							+ fileName + ".pdf", destinationFolder, 80, "thumb");
-			returnError.put("processThumb", processThumb);
-			HashMap<String, String> processSWF = generateSWF
-					.generateSwf(current_dir, destinationFolder,
-							destinationFolder, fileName);
-			returnError.put("processSWF", processSWF);
+			convertPages(returnError, current_dir, destinationFolder,
+					destinationFolder, fileName);
 		} else {
 
 			log.debug("-- generateBatchThumb --");
 
-			HashMap<String, String> processThumb = generateThumbs
-					.generateBatchThumb(current_dir, fileFullPath,
-							destinationFolder, 80, "thumb");
-			returnError.put("processThumb", processThumb);
-
-			HashMap<String, String> processSWF = generateSWF.generateSwf(
-					current_dir, (new File(fileFullPath)).getParentFile()
-							.getAbsolutePath() + File.separatorChar,
+			convertPages(returnError, current_dir, (new File(fileFullPath))
+					.getParentFile().getAbsolutePath() + File.separatorChar,
 					destinationFolder, fileName);
-			returnError.put("processSWF", processSWF);
 		}
 
 		// now it should be completed so copy that file to the expected location
@@ -137,9 +156,160 @@ public class GeneratePDF {
 			returnError.put("processXML", processXML);
 		}
 
+		if (cachedSwf == null && cacheKey != null && isSuccess(returnError)) {
+			conversionService.putCachedResult(cacheKey, new File(outputfolder
+					+ fileName + ".swf"));
+		}
+
 		return returnError;
 	}
 
+	/**
+	 * Generates the thumbs and the SWF of originalFolder/fileName.pdf, the
+	 * ranges of a large document are converted in parallel and their SWFs
+	 * combined, the thumbs of a range are in place as soon as it is done
+	 */
+	private void convertPages(
+			HashMap<String, HashMap<String, String>> returnError,
+			final String current_dir, String originalFolder,
+			final String destinationFolder, final String fileName)
+			throws InterruptedException {
+		final String pdf = originalFolder + fileName + ".pdf";
+		int pages = pagesPerRange > 0 ? generateSWF.getPageCount(pdf) : -1;
+		if (pages <= pagesPerRange) {
+			HashMap<String, String> processThumb = generateThumbs
+					.generateBatchThumb(current_dir, pdf, destinationFolder,
+							80, "thumb");
+			returnError.put("processThumb", processThumb);
+			HashMap<String, String> processSWF = generateSWF.generateSwf(
+					current_dir, originalFolder, destinationFolder, fileName);
+			returnError.put("processSWF", processSWF);
+			return;
+		}
+
+		log.debug("convertPages " + pdf + " pages: " + pages);
+		CompletionService<HashMap<String, String>> completion = new ExecutorCompletionService<HashMap<String, String>>(
+				conversionService.getPageExecutor());
+		Map<Future<HashMap<String, String>>, String> processNames = new HashMap<Future<HashMap<String, String>>, String>();
+		Map<Future<HashMap<String, String>>, Integer> swfPages = new HashMap<Future<HashMap<String, String>>, Integer>();
+		List<String> swfs = new ArrayList<String>();
+		for (int first = 1; first <= pages; first += pagesPerRange) {
+			final int firstPage = first;
+			final int lastPage = Math.min(first + pagesPerRange - 1, pages);
+			final String swf = destinationFolder + fileName + "_pages-"
+					+ firstPage + ".swf";
+			swfs.add(swf);
+
+			Future<HashMap<String, String>> thumbs = completion
+					.submit(new Callable<HashMap<String, String>>() {
+						public HashMap<String, String> call() {
+							// the thumbs are numbered from 0
+							return generateThumbs.generateBatchThumb(
+									current_dir, pdf, destinationFolder, 80,
+									"thumb", firstPage - 1, lastPage - 1);
+						}
+					});
+			processNames.put(thumbs, "processThumb " + firstPage);
+			Future<HashMap<String, String>> pagesSwf = completion
+					.submit(new Callable<HashMap<String, String>>() {
+						public HashMap<String, String> call() {
+							return generateSWF.generateSwf(pdf, swf,
+									firstPage, lastPage);
+						}
+					});
+			processNames.put(pagesSwf, "processSWF " + firstPage);
+			swfPages.put(pagesSwf, lastPage - firstPage + 1);
+		}
+
+		conversionService.reportProgress(0, pages);
+		int pagesDone = 0;
+		boolean swfsDone = true;
+		try {
+			for (int i = 0; i < processNames.size(); ++i) {
+				Future<HashMap<String, String>> future = completion.take();
+				HashMap<String, String> process;
+				try {
+					process = future.get();
+				} catch (ExecutionException err) {
+					log.error("[convertPages]", err.getCause());
+					process = buildErrorMessage(processNames.get(future), err
+							.getCause().getMessage(), err);
+				}
+				returnError.put(processNames.get(future), process);
+				if (swfPages.containsKey(future)) {
+					swfsDone &= "0".equals(process.get("exitValue"));
+					pagesDone += swfPages.get(future);
+					conversionService.reportProgress(pagesDone, pages);
+				}
+			}
+
+			if (swfsDone) {
+				HashMap<String, String> processSWF = generateSWF
+						.generateSWFByCombine(swfs, destinationFolder + fileName
+								+ ".swf", 1);
+				returnError.put("processSWF", processSWF);
+			}
+		} catch (InterruptedException err) {
+			// the conversion is cancelled, stop the tools of the other ranges
+			for (Future<HashMap<String, String>> future : processNames.keySet()) {
+				future.cancel(true);
+			}
+			throw err;
+		} finally {
+			// the SWFs of the ranges are not part of the converted document
+			for (String swf : swfs) {
+				new File(swf).delete();
+			}
+		}
+	}
+
+	private static boolean isSuccess(
+			HashMap<String, HashMap<String, String>> returnError) {
+		for (HashMap<String, String> process : returnError.values()) {
+			if (!"0".equals(process.get("exitValue"))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Copies the files of an earlier conversion of the same document, the
+	 * files named after the earlier document are renamed, the original
+	 * document and the library.xml are left out and created as usual
+	 */
+	private HashMap<String, String> copyConversion(File cachedSwf,
+			String destinationFolder, String fileName) {
+		HashMap<String, String> returnMap = new HashMap<String, String>();
+		returnMap.put("process", "copyConversion");
+		try {
+			String cachedName = cachedSwf.getName().substring(0,
+					cachedSwf.getName().length() - ".swf".length());
+			for (File file : cachedSwf.getParentFile().listFiles()) {
+				String name = file.getName();
+				if (!file.isFile()
+						|| name.equals(CreateLibraryPresentation.libraryFileName)) {
+					continue;
+				}
+				if (name.startsWith(cachedName + ".")) {
+					String ext = name.substring(cachedName.length());
+					if (!ext.equals(".pdf") && !ext.equals(".swf")) {
+						// the original document
+						continue;
+					}
+					name = fileName + ext;
+				}
+				FileHelper.copy(file, new File(destinationFolder + name));
+			}
+			returnMap.put("command", cachedSwf.getParent());
+			returnMap.put("exitValue", "0");
+		} catch (Exception ex) {
+			log.error("copyConversion", ex);
+			return buildErrorMessage("copyConversion", ex.getMessage(), ex);
+		}
+		return returnMap;
+	}
+
 	/**
 	 * Generates PDF using JOD Library (external library)
 	 */
@@ -19,6 +19,7 @@
 package org.openmeetings.app.documents;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -73,19 +74,64 @@ public class GenerateSWF {
 
 	public HashMap<String, String> generateSwf(String current_dir,
 			String originalFolder, String destinationFolder, String fileNamePure) {
-		
+		return generateSwf(originalFolder + fileNamePure + ".pdf",
+				destinationFolder + fileNamePure + ".swf", null);
+	}
+
+	/**
+	 * Generates an SWF from a range of pages of the PDF
+	 * 
+	 * @param firstPage
+	 *            first page to convert, starting with 1
+	 * @param lastPage
+	 *            last page to convert
+	 */
+	public HashMap<String, String> generateSwf(String pdf, String swf,
+			int firstPage, int lastPage) {
+		return generateSwf(pdf, swf, firstPage + "-" + lastPage);
+	}
+
+	private HashMap<String, String> generateSwf(String pdf, String swf,
+			String pages) {
 		// Create the Content of the Converter Script (.bat or .sh File)
-		String[] argv = new String[] {
+		List<String> argvList = new ArrayList<String>(Arrays.asList(new String[] {
 				getPathToSwfTools() + "pdf2swf" + execExt, "-s",
 				"insertstop", // insert Stop command into every frame
 				"-s","poly2bitmap", //http://www.swftools.org/gfx_tutorial.html#Rendering_pages_to_SWF_files
 				"-i", // change draw order to reduce pdf complexity
 				"-j", "" + getSwfJpegQuality(), // JPEG Quality 
-				"-s", "zoom=" + getSwfZoom(), // set zoom dpi 
-				originalFolder + fileNamePure + ".pdf",
-				destinationFolder + fileNamePure + ".swf" };
+				"-s", "zoom=" + getSwfZoom() })); // set zoom dpi 
+		if (pages != null) {
+			argvList.add("-p");
+			argvList.add(pages);
+		}
+		argvList.add(pdf);
+		argvList.add(swf);
+
+		return ProcessHelper.executeScript("generateSwf",
+				argvList.toArray(new String[argvList.size()]));
+	}
 
-		return ProcessHelper.executeScript("generateSwf", argv);
+	/**
+	 * @return the number of pages of the PDF, -1 if pdf2swf cannot read it
+	 */
+	public int getPageCount(String pdf) {
+		String[] argv = new String[] {
+				getPathToSwfTools() + "pdf2swf" + execExt, "-I", pdf };
+		HashMap<String, String> returnMap = ProcessHelper.executeScript(
+				"getPageCount", argv);
+		if (!"0".equals(returnMap.get("exitValue"))) {
+			log.error("getPageCount " + returnMap.get("error"));
+			return -1;
+		}
+		// pdf2swf prints a line per page: page=1 width=595.00 height=842.00
+		int pages = 0;
+		for (String line : returnMap.get("out").split("\n")) {
+			if (line.startsWith("page=")) {
+				pages++;
+			}
+		}
+		return pages;
 	}
 
 	/**
@@ -108,13 +154,12 @@ public class GenerateSWF {
 	 */
 	public HashMap<String, String> generateSWFByCombine(List<String> swfs,
 			String outputswf, int fps) {
-		List<String> argvList = Arrays.asList(new String[] {
-				getPathToSwfTools() + "swfcombine" + execExt, "-s",
-				"insertstop", // Insert Stop command into every frame
-				"-o", outputswf, "-r", Integer.toString(fps), "-z", "-a" });
+		List<String> argvList = new ArrayList<String>(Arrays.asList(new String[] {
+				getPathToSwfTools() + "swfcombine" + execExt,
+				"-o", outputswf, "-r", Integer.toString(fps), "-z", "-a" }));
 
 		argvList.addAll(swfs);
-		return ProcessHelper.executeScript("generateSwfByImages",
+		return ProcessHelper.executeScript("generateSWFByCombine",
 				argvList.toArray(new String[0]));
 	}
 
@@ -23,7 +23,9 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 import org.openmeetings.app.remote.red5.ScopeApplicationAdapter;
 import org.openmeetings.utils.ProcessHelper;
@@ -81,26 +83,53 @@ public class GenerateThumbs {
 
 	public HashMap<String, String> generateBatchThumb(String current_dir,
 			String inputfile, String outputpath, Integer thumbSize, String pre) {
+		return generateBatchThumb(inputfile, outputpath, thumbSize, pre, null);
+	}
 
-		if (System.getProperty("os.name").toUpperCase().indexOf("WINDOWS") == -1) {
-			String[] argv = new String[] {
-					generateImage.getPathToImageMagic(),
-					"-thumbnail", // FIXME
-					Integer.toString(thumbSize), inputfile,
-					outputpath + "_" + pre + "_page-%04d.jpg" };
-
-			return ProcessHelper.executeScript("generateBatchThumbByWidth", argv);
-		} else {
+	/**
+	 * Generates the thumbs of a range of pages, the thumbs are numbered like
+	 * the ones of the whole document
+	 * 
+	 * @param firstPage
+	 *            first page, starting with 0
+	 * @param lastPage
+	 *            last page
+	 */
+	public HashMap<String, String> generateBatchThumb(String current_dir,
+			String inputfile, String outputpath, Integer thumbSize, String pre,
+			int firstPage, int lastPage) {
+		return generateBatchThumb(inputfile + "[" + firstPage + "-" + lastPage
+				+ "]", outputpath, thumbSize, pre, firstPage);
+	}
 
-			String[] argv = new String[] {
-					generateImage.getPathToImageMagic(),
-					"-thumbnail", // FIXME
-					Integer.toString(thumbSize), inputfile,
-					outputpath + "_" + pre + "_page-%%04d.jpg" };
+	/**
+	 * @param firstPage
+	 *            number of the first thumb, null for the whole document
+	 */
+	private HashMap<String, String> generateBatchThumb(String input,
+			String outputpath, Integer thumbSize, String pre, Integer firstPage) {
+		boolean windows = System.getProperty("os.name").toUpperCase()
+				.indexOf("WINDOWS") != -1;
+
+		List<String> argv = new ArrayList<String>();
+		argv.add(generateImage.getPathToImageMagic());
+		argv.add("-thumbnail"); // FIXME
+		argv.add(Integer.toString(thumbSize));
+		argv.add(input);
+		if (firstPage != null) {
+			argv.add("-scene");
+			argv.add(Integer.toString(firstPage));
+		}
+		// the batch file needs the percent sign escaped
+		argv.add(outputpath + "_" + pre
+				+ (windows ? "_page-%%04d.jpg" : "_page-%04d.jpg"));
 
-			// return GenerateSWF.executeScript("generateBatchThumbByWidth",
-			// argv);
-			return this.processImageWindows(argv);
+		if (!windows) {
+			return ProcessHelper.executeScript("generateBatchThumbByWidth",
+					argv.toArray(new String[argv.size()]));
+		} else {
+			return this.processImageWindows(argv.toArray(new String[argv
+					.size()]));
 		}
 	}
 
@@ -59,7 +59,7 @@ public class LdapAuthBase {
 	/** Security Authentification Type */
 	private String ldap_auth_type = "simple";
 	
-	/** Directory Context */
+	/** Directory Context of the user, used for searches if there is no admin */
 	private DirContext authContext = null;
 	
 	/** ContextFactory */
@@ -70,6 +70,16 @@ public class LdapAuthBase {
 	
 	private static final Logger log = Red5LoggerFactory.getLogger(LdapAuthBase.class, OpenmeetingsVariables.webAppRootKey);
 
+	static {
+		// the JNDI pool reads its settings once, pool ldaps connections as
+		// well and close idle ones before the server drops them
+		if (System.getProperty("com.sun.jndi.ldap.connect.pool.protocol") == null) {
+			System.setProperty("com.sun.jndi.ldap.connect.pool.protocol", "plain ssl");
+		}
+		if (System.getProperty("com.sun.jndi.ldap.connect.pool.timeout") == null) {
+			System.setProperty("com.sun.jndi.ldap.connect.pool.timeout", "300000");
+		}
+	}
 	
 	/**
 	 * Configuring LdapConnection
@@ -92,7 +102,8 @@ public class LdapAuthBase {
 	
 	
 	/**
-	 * Autentificate User
+	 * Autentificate User, the connection of the user is closed right away if
+	 * an admin is configured for the searches
 	 * @param username
 	 * @param passwd
 	 */
@@ -110,15 +121,10 @@ public class LdapAuthBase {
 	    ldapAuthenticateProperties.put("java.naming.ldap.referral.bind", "true");
 		
 	    
-	    if(ldap_admin_dn == null)
-	    	ldap_admin_dn = "";
-	    
-	    if(!ldap_auth_type.equals(LDAP_AUTH_TYPE_NONE) && ldap_admin_dn.length() > 0){
+	    if(hasAdmin()){
 	    	log.debug("\n\nAuthentification to LDAP - Server start");
 	    	try {
-	    		loginToLdapServer();
-	    	
-	    		authContext = new InitialDirContext(ldapAuthenticateProperties);
+	    		new InitialDirContext(ldapAuthenticateProperties).close();
 	    	} catch (Exception ae){
 	    		log.error("\n\nAuthentification on LDAP Server failed : " + ae.getMessage());
 	    		log.error("[Authentification on LDAP Server failed]",ae);
@@ -129,7 +135,9 @@ public class LdapAuthBase {
 	    else{
 	    	log.debug("\n\nConnection to LDAP - Server start (without Server login)");
 	    	try{
-	    		authContext = new InitialDirContext(ldapAuthenticateProperties);
+	    		DirContext userContext = new InitialDirContext(ldapAuthenticateProperties);
+	    		close();
+	    		authContext = userContext;
 	    	}catch(Exception e){
 	    		log.error("\n\nConnection to LDAP Server failed : " + e.getMessage());
 	    		log.error("[Connection to LDAP Server failed]",e);
@@ -143,11 +151,17 @@ public class LdapAuthBase {
 	//-------------------------------------------------------------------------------------------------------
 	
 	
+	private boolean hasAdmin() {
+		return !LDAP_AUTH_TYPE_NONE.equals(ldap_auth_type)
+				&& ldap_admin_dn != null && ldap_admin_dn.length() > 0;
+	}
+	
 	/**
-	 * Login to LdapServer
+	 * Login to LdapServer, the admin connection is taken from the JNDI pool
+	 * and returned to it by {@link #release(DirContext)}
 	 */
 	//-------------------------------------------------------------------------------------------------------
-	private void loginToLdapServer() throws Exception{
+	private DirContext loginToLdapServer() throws NamingException{
 		log.debug("loginToLdapServer");
 		
 		Hashtable<String, String> env = new Hashtable<String, String>();
@@ -155,15 +169,50 @@ public class LdapAuthBase {
 		env.put(Context.INITIAL_CONTEXT_FACTORY, CONTEXT_FACTORY);
 		env.put(Context.PROVIDER_URL, ldap_connection_url);
 		env.put(Context.SECURITY_AUTHENTICATION, ldap_auth_type);
-		env.put(Context.SECURITY_PRINCIPAL, ldap_admin_dn);
-		env.put(Context.SECURITY_CREDENTIALS, ldap_passwd);
+		env.put(Context.SECURITY_PRINCIPAL, ldap_admin_dn == null ? "" : ldap_admin_dn);
+		env.put(Context.SECURITY_CREDENTIALS, ldap_passwd == null ? "" : ldap_passwd);
+		env.put("com.sun.jndi.ldap.connect.pool", "true");
 		
-		authContext = new InitialDirContext(env);
+		return new InitialDirContext(env);
 		
 	}
 	//-------------------------------------------------------------------------------------------------------
 	
 	
+	/**
+	 * @return the context of the authenticated user if there is no admin,
+	 *         a pooled admin context otherwise
+	 */
+	private DirContext getSearchContext() throws NamingException {
+		if (authContext != null) {
+			return authContext;
+		}
+		return loginToLdapServer();
+	}
+	
+	
+	private void release(DirContext context) {
+		if (context == authContext) {
+			authContext = null;
+		}
+		try {
+			context.close();
+		} catch (NamingException e) {
+			log.error("[release]", e);
+		}
+	}
+	
+	
+	/**
+	 * Closes the connection of the authenticated user if it is still open
+	 */
+	public void close() {
+		if (authContext != null) {
+			release(authContext);
+		}
+	}
+	
+	
 	 /**
 	  * @param searchScope LDAP Url to search within
 	  * @param filter LDAP Filter
@@ -182,9 +231,11 @@ public class LdapAuthBase {
 		// Result
 		Vector<HashMap<String, String>>  result = new Vector<HashMap<String, String>>() ;
 		
+		DirContext searchContext = null;
 		try{
+			searchContext = getSearchContext();
 			// search
-			NamingEnumeration<SearchResult> results = authContext.search(searchScope, filter, constraints);
+			NamingEnumeration<SearchResult> results = searchContext.search(searchScope, filter, constraints);
 			
 			// Stepping through the data
 			while (results != null && results.hasMore()) {
@@ -224,6 +275,10 @@ public class LdapAuthBase {
 			  }
 		}catch(Exception e){
 			log.error("Error occured on LDAP Search : " , e);
+		}finally{
+			if (searchContext != null) {
+				release(searchContext);
+			}
 		}
 		
 		return result;
@@ -243,8 +298,10 @@ public class LdapAuthBase {
 		SearchControls searchCtls = new SearchControls();
 		searchCtls.setSearchScope(SearchControls.SUBTREE_SCOPE);
 		NamingEnumeration<SearchResult> results = null;
+		DirContext searchContext = null;
 		try {
-			results = authContext.search(searchBase, searchFilter,  searchCtls);
+			searchContext = getSearchContext();
+			results = searchContext.search(searchBase, searchFilter,  searchCtls);
 			while (results.hasMore()) {
 				SearchResult searchResult = results.next();
 				// 'cn' gets the name of the entry relative to searchbase for instance: "uid=user,ou=people"
@@ -262,6 +319,10 @@ public class LdapAuthBase {
 		} catch (NamingException e) {
 			log.error("Error occured on LDAP Search : " + e.getMessage());
 			log.error("Error occured on LDAP Search : " , e);
+		} finally {
+			if (searchContext != null) {
+				release(searchContext);
+			}
 		}
 		return uidCnDictionary;
 	}
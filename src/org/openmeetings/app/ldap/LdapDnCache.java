@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.app.ldap;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * DNs found for the logins of an LDAP server, kept for a short time so that
+ * a repeated login only needs the bind of the user
+ */
+public class LdapDnCache {
+	// milliseconds the DN of a login is kept
+	private long ttl = 60000;
+	private int maxSize = 10000;
+
+	private final ConcurrentHashMap<String, CachedDn> dns = new ConcurrentHashMap<String, CachedDn>();
+
+	private static class CachedDn {
+		private final String dn;
+		private final long expires;
+
+		private CachedDn(String dn, long expires) {
+			this.dn = dn;
+			this.expires = expires;
+		}
+	}
+
+	public void setTtl(long ttl) {
+		this.ttl = ttl;
+	}
+
+	public void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public int size() {
+		return dns.size();
+	}
+
+	/**
+	 * @return the DN of the login, null if it is not cached or expired
+	 */
+	public String get(String key) {
+		CachedDn cached = dns.get(key);
+		if (cached == null) {
+			return null;
+		}
+		if (cached.expires < System.currentTimeMillis()) {
+			dns.remove(key);
+			return null;
+		}
+		return cached.dn;
+	}
+
+	/**
+	 * Caches the DN, if the cache is full the expired DNs are removed and the
+	 * DN is not cached if there are none
+	 */
+	public void put(String key, String dn) {
+		long now = System.currentTimeMillis();
+		if (dns.size() >= maxSize) {
+			for (Iterator<CachedDn> it = dns.values().iterator(); it.hasNext();) {
+				if (it.next().expires < now) {
+					it.remove();
+				}
+			}
+		}
+		if (dns.size() < maxSize) {
+			dns.put(key, new CachedDn(dn, now + ttl));
+		}
+	}
+
+	/**
+	 * Has to be called if the bind with the DN failed, the entry might have
+	 * been moved
+	 */
+	public void remove(String key) {
+		dns.remove(key);
+	}
+}
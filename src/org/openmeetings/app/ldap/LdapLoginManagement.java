@@ -25,6 +25,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Random;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.openmeetings.app.OpenmeetingsVariables;
 import org.openmeetings.app.conference.session.RoomClient;
@@ -68,6 +69,25 @@ public class LdapLoginManagement {
 	@Autowired
 	private OmTimeZoneDaoImpl omTimeZoneDaoImpl;
 
+	private final LdapDnCache dnCache = new LdapDnCache();
+	private final ConcurrentHashMap<String, CachedConfig> configs = new ConcurrentHashMap<String, CachedConfig>();
+
+	/**
+	 * Config file as read, valid as long as the file is not changed
+	 */
+	private static class CachedConfig {
+		private final long lastModified;
+		private final long length;
+		private final HashMap<String, String> configData;
+
+		private CachedConfig(long lastModified, long length,
+				HashMap<String, String> configData) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.configData = configData;
+		}
+	}
+
 	// External User Types
 	public static final String EXTERNAL_USER_TYPE_LDAP = "LDAP";
 
@@ -209,7 +229,8 @@ public class LdapLoginManagement {
 	// ----------------------------------------------------------------------------------------
 
 	/**
-	 * Reading Ldap Config via ConfigReader
+	 * Reading Ldap Config via ConfigReader, the file is only read again once
+	 * it has been changed
 	 */
 	// ----------------------------------------------------------------------------------------
 	private HashMap<String, String> readConfig(String configPath)
@@ -218,13 +239,25 @@ public class LdapLoginManagement {
 
 		File configFile = new File(configPath);
 
-		if (!configFile.isFile())
+		if (!configFile.isFile()) {
+			configs.remove(configPath);
 			return null;
+		}
 
-		ConfigReader reader = new ConfigReader();
-		reader.readConfig(configPath);
+		long lastModified = configFile.lastModified();
+		long length = configFile.length();
+		CachedConfig config = configs.get(configPath);
+		if (config == null || config.lastModified != lastModified
+				|| config.length != length) {
+			ConfigReader reader = new ConfigReader();
+			reader.readConfig(configPath);
+
+			config = new CachedConfig(lastModified, length,
+					reader.getConfigMap());
+			configs.put(configPath, config);
+		}
 
-		return reader.getConfigMap();
+		return new HashMap<String, String>(config.configData);
 
 	}
 
@@ -390,25 +423,29 @@ public class LdapLoginManagement {
 		LdapAuthBase lAuth = new LdapAuthBase(ldap_url, ldap_admin_dn,
 				ldap_passwd, ldap_auth_type);
 
-		log.debug("authenticating admin...");
-		lAuth.authenticateUser(ldap_admin_dn, ldap_passwd);
-
 		log.debug("Checking server type...");
 		// for OpenLDAP only
 		if (ldap_server_type.equalsIgnoreCase("OpenLDAP")) {
-			String ldapUserDN = user;
 			log.debug("LDAP server is OpenLDAP");
 			log.debug("LDAP search base: " + ldap_search_scope);
-			HashMap<String, String> uidCnDictionary = lAuth.getUidCnHashMap(
-					ldap_search_scope, ldap_search_filter, ldap_fieldname_user_principal);
-			if (uidCnDictionary.get(user) != null) {
-				ldapUserDN = uidCnDictionary.get(user) + ","
-						+ ldap_search_scope;
-				log.debug("Authentication with DN: " + ldapUserDN);
+			String dnKey = ldap_url + "|" + ldap_search_scope + "|" + user;
+			String ldapUserDN = dnCache.get(dnKey);
+			if (ldapUserDN == null) {
+				ldapUserDN = user;
+				HashMap<String, String> uidCnDictionary = lAuth.getUidCnHashMap(
+						ldap_search_scope, ldap_search_filter, ldap_fieldname_user_principal);
+				if (uidCnDictionary.get(user) != null) {
+					ldapUserDN = uidCnDictionary.get(user) + ","
+							+ ldap_search_scope;
+					dnCache.put(dnKey, ldapUserDN);
+				}
 			}
+			log.debug("Authentication with DN: " + ldapUserDN);
 			try {
 				if (!lAuth.authenticateUser(ldapUserDN, passwd)) {
 					log.error(ldapUserDN + " not authenticated.");
+					// the entry might have been moved
+					dnCache.remove(dnKey);
 					return new Long(-11);
 				}
 			} catch (Exception e) {
@@ -543,6 +580,7 @@ public class LdapLoginManagement {
 		} else {
 			// User exists, just update necessary values
 			log.debug("User already exists -> Update of current passwd");
+			lAuth.close();
 
 			// If invoked via SOAP this is NULL
 			if (currentClient != null) {
@@ -581,6 +619,18 @@ public class LdapLoginManagement {
 
 	// ----------------------------------------------------------------------------------------
 
+	/**
+	 * @param dnCacheTtl
+	 *            milliseconds the DN of a login is kept
+	 */
+	public void setDnCacheTtl(long dnCacheTtl) {
+		dnCache.setTtl(dnCacheTtl);
+	}
+
+	public void setMaxCachedDns(int maxCachedDns) {
+		dnCache.setMaxSize(maxCachedDns);
+	}
+
 	/**
 	 * Creation on User with LDAP - Data AutoCreation of Country if not existant
 	 * Added to Default Organisation
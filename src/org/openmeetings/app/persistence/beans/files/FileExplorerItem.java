@@ -74,6 +74,9 @@ public class FileExplorerItem implements Serializable {
 	
 	@Column(name="filesize")
 	private Long fileSize;
+	// size of the item and all its children, null if not yet computed
+	@Column(name="total_size")
+	private Long totalSize;
 	
 	@Column(name="flv_width")
 	private Integer flvWidth;
@@ -200,6 +203,13 @@ public class FileExplorerItem implements Serializable {
 		this.fileSize = fileSize;
 	}
 	
+	public Long getTotalSize() {
+		return totalSize;
+	}
+	public void setTotalSize(Long totalSize) {
+		this.totalSize = totalSize;
+	}
+	
 	public Integer getFlvWidth() {
 		return flvWidth;
 	}
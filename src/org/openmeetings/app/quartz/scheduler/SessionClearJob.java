@@ -38,4 +38,13 @@ public class SessionClearJob {
 			log.error("execute",err);
 		}
 	}
+
+	public void flushSessions() {
+		log.trace("SessionClearJob.flushSessions");
+		try {
+			sessionManagement.flushSessionCache();
+		} catch (Exception err){
+			log.error("flushSessions",err);
+		}
+	}
 }
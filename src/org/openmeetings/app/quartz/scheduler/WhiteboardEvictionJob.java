@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.app.quartz.scheduler;
+
+import org.openmeetings.app.OpenmeetingsVariables;
+import org.openmeetings.app.remote.red5.ClientListManager;
+import org.openmeetings.app.remote.red5.WhiteBoardObjectListManagerById;
+import org.red5.logging.Red5LoggerFactory;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Writes the whiteboards of rooms without users to snapshot files after they
+ * have not been used for the idle time
+ */
+public class WhiteboardEvictionJob {
+	private static Logger log = Red5LoggerFactory.getLogger(WhiteboardEvictionJob.class, OpenmeetingsVariables.webAppRootKey);
+	@Autowired
+	private ClientListManager clientListManager;
+	@Autowired
+	private WhiteBoardObjectListManagerById whiteBoardObjectListManagerById;
+
+	// milliseconds
+	private long idleTime = 10 * 60 * 1000;
+
+	public void setIdleTime(long idleTime) {
+		this.idleTime = idleTime;
+	}
+
+	public void doIt() {
+		log.trace("WhiteboardEvictionJob.execute");
+		try {
+			for (Long room_id : whiteBoardObjectListManagerById.getRoomIds()) {
+				if (whiteBoardObjectListManagerById.getIdleTime(room_id) > idleTime
+						&& clientListManager.getClientListByRoomAll(room_id).isEmpty()) {
+					whiteBoardObjectListManagerById.evictRoom(room_id);
+				}
+			}
+		} catch (Exception err){
+			log.error("execute",err);
+		}
+	}
+}
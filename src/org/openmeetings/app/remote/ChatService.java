@@ -31,6 +31,7 @@ import java.util.Set;
 
 import org.openmeetings.app.OpenmeetingsVariables;
 import org.openmeetings.app.conference.session.RoomClient;
+import org.openmeetings.app.remote.red5.ChatHistory;
 import org.openmeetings.app.remote.red5.ClientListManager;
 import org.openmeetings.app.remote.red5.EmoticonsManager;
 import org.openmeetings.app.remote.red5.ScopeApplicationAdapter;
@@ -56,15 +57,12 @@ public class ChatService implements IPendingServiceCallback {
 	private ScopeApplicationAdapter scopeApplicationAdapter;
 	@Autowired
 	private ClientListManager clientListManager = null;
+	@Autowired
+	private ChatHistory chatHistory;
 	
 	//the overall chat room is just another room
 	private static final Long overallChatRoomName = new Long(-1);
 	
-	//number of items in the chat room history
-	private static final int chatRoomHistory = 50;
-	
-	private static LinkedHashMap<Long,List<HashMap<String,Object>>> myChats = new LinkedHashMap<Long,List<HashMap<String,Object>>>();
-	
 	private String parseDateAsTimeString() {
 		Calendar cal=Calendar.getInstance();
 		
@@ -116,18 +114,8 @@ public class ChatService implements IPendingServiceCallback {
 			//log.error("parsedStringObjects"+parsedStringObjects.size());
 			log.debug("size:"+messageMap.size());
 			messageMap.add(parsedStringObjects);
-			newMessage = messageMap;			
-			
-			HashMap<String,Object> hsm = new HashMap<String,Object>();
-			hsm.put("client", currentClient);
-			hsm.put("message", newMessage);
-			
-			List<HashMap<String,Object>> myChatList = myChats.get(room_id);
-			if (myChatList==null) myChatList = new LinkedList<HashMap<String,Object>>();
 			
-			if (myChatList.size()==chatRoomHistory) myChatList.remove(0);
-			myChatList.add(hsm);
-			myChats.put(room_id,myChatList);
+			HashMap<String,Object> hsm = chatHistory.add(room_id, currentClient, messageMap);
 			
 			log.debug("SET CHATROOM: "+room_id);
 			
@@ -182,10 +170,8 @@ public class ChatService implements IPendingServiceCallback {
 			Long chatroom = room_id;
 			log.debug("### GET CHATROOM: "+chatroom);
 			
-			List<HashMap<String,Object>> myChatList = myChats.get(chatroom);
-			myChatList = new LinkedList<HashMap<String,Object>>();
-			
-			myChats.put(chatroom,myChatList);
+			chatHistory.clear(chatroom);
+			List<HashMap<String,Object>> myChatList = new LinkedList<HashMap<String,Object>>();
 			
 			HashMap<String,Object> hsm = new HashMap<String,Object>();
 			
@@ -200,6 +186,16 @@ public class ChatService implements IPendingServiceCallback {
 	}
 	
 	public List<HashMap<String,Object>> getRoomChatHistory() {
+		return getRoomChatHistory(0, -1);
+	}
+	
+	/**
+	 * gets a page of the chat history of the current room
+	 * @param start index of the first message, the oldest message is 0
+	 * @param max number of messages, -1 for all
+	 * @return
+	 */
+	public List<HashMap<String,Object>> getRoomChatHistory(int start, int max) {
 		try {
 			IConnection current = Red5.getConnectionLocal();
 			RoomClient currentClient = this.clientListManager.getClientByStreamId(current.getClient().getId());
@@ -208,10 +204,7 @@ public class ChatService implements IPendingServiceCallback {
 			Long chatroom = room_id;
 			log.debug("GET CHATROOM: "+chatroom);
 			
-			List<HashMap<String,Object>> myChatList = myChats.get(chatroom);
-			if (myChatList==null) myChatList = new LinkedList<HashMap<String,Object>>();	
-			
-			return myChatList;
+			return chatHistory.get(chatroom, start, max);
 		} catch (Exception err) {
 			log.error("[getRoomChatHistory] ",err);
 			return null;
@@ -230,10 +223,7 @@ public class ChatService implements IPendingServiceCallback {
 			Long chatroom = room_id;
 			log.debug("GET CHATROOM: "+chatroom);
 			
-			List<HashMap<String,Object>> myChatList = myChats.get(chatroom);
-			if (myChatList==null) myChatList = new LinkedList<HashMap<String,Object>>();	
-			
-			return myChatList;
+			return chatHistory.get(chatroom, 0, -1);
 		} catch (Exception err) {
 			log.error("[getRoomChatHistory] ",err);
 			return null;
@@ -315,19 +305,8 @@ public class ChatService implements IPendingServiceCallback {
 			//log.error("parsedStringObjects"+parsedStringObjects.size());
 			log.debug("size:" + messageMap.size());
 			messageMap.add(parsedStringObjects);
-			newMessage = messageMap;
-			
 			
-			HashMap<String,Object> hsm = new HashMap<String,Object>();
-			hsm.put("client", currentClient);
-			hsm.put("message", newMessage);
-			
-			List<HashMap<String,Object>> myChatList = myChats.get(overallChatRoomName);
-			if (myChatList==null) myChatList = new LinkedList<HashMap<String,Object>>();
-			
-			if (myChatList.size()==chatRoomHistory) myChatList.remove(0);
-			myChatList.add(hsm);
-			myChats.put(overallChatRoomName,myChatList);
+			HashMap<String,Object> hsm = chatHistory.add(overallChatRoomName, currentClient, messageMap);
 			
 			log.debug("SET CHATROOM: "+overallChatRoomName);
 			
@@ -350,10 +329,7 @@ public class ChatService implements IPendingServiceCallback {
 	public List<HashMap<String,Object>> getOverallChatHistory() {
 		try {
 			
-			List<HashMap<String,Object>> myChatList = myChats.get(overallChatRoomName);
-			if (myChatList==null) myChatList = new LinkedList<HashMap<String,Object>>();	
-			
-			return myChatList;
+			return chatHistory.get(overallChatRoomName, 0, -1);
 		} catch (Exception err) {
 			log.error("[getRoomChatHistory] ",err);
 			return null;
@@ -367,10 +343,8 @@ public class ChatService implements IPendingServiceCallback {
 	public List<HashMap<String,Object>> clearOverallChat() {
 		try {
 			
-			List<HashMap<String,Object>> myChatList = myChats.get(overallChatRoomName);
-			myChatList = new LinkedList<HashMap<String,Object>>();
-			
-			myChats.put(overallChatRoomName,myChatList);
+			chatHistory.clear(overallChatRoomName);
+			List<HashMap<String,Object>> myChatList = new LinkedList<HashMap<String,Object>>();
 			
 			//Send event to clear to all participants
 			Map<Integer,String> newMessage = new HashMap<Integer,String>();
@@ -35,6 +35,8 @@ import org.openmeetings.app.data.file.FileUtils;
 import org.openmeetings.app.data.file.dao.FileExplorerItemDaoImpl;
 import org.openmeetings.app.data.file.dto.LibraryPresentation;
 import org.openmeetings.app.data.user.Usermanagement;
+import org.openmeetings.app.documents.ConversionService;
+import org.openmeetings.app.documents.ConversionService.ConversionJob;
 import org.openmeetings.app.documents.LibraryChartLoader;
 import org.openmeetings.app.documents.LibraryDocumentConverter;
 import org.openmeetings.app.documents.LibraryWmlLoader;
@@ -76,6 +78,8 @@ public class ConferenceLibrary implements IPendingServiceCallback {
 	private LibraryWmlLoader libraryWmlLoader;
 	@Autowired
 	private FileUtils fileUtils;
+	@Autowired
+	private ConversionService conversionService;
 
 	public LibraryPresentation getPresentationPreviewFileExplorer(String SID,
 			String parentFolder) {
@@ -523,6 +527,68 @@ public class ConferenceLibrary implements IPendingServiceCallback {
 		return -1L;
 	}
 
+	/**
+	 * Polls the conversion of an uploaded file
+	 * 
+	 * @param SID
+	 * @param jobId
+	 *            the id returned by the upload
+	 * @return status, position in the queue, pages done and error of the job,
+	 *         null if the job is unknown or belongs to another user
+	 */
+	public Map<String, Object> getConversionJob(String SID, Long jobId) {
+		try {
+			ConversionJob job = getOwnConversionJob(SID, jobId);
+			if (job == null) {
+				return null;
+			}
+			Map<String, Object> jobObject = new HashMap<String, Object>();
+			jobObject.put("jobId", job.getId());
+			jobObject.put("status", job.getStatus().name());
+			jobObject.put("position", job.getPosition());
+			jobObject.put("pagesDone", job.getPagesDone());
+			jobObject.put("pages", job.getPages());
+			jobObject.put("error", job.getError());
+			return jobObject;
+		} catch (Exception err) {
+			log.error("[getConversionJob] ", err);
+		}
+		return null;
+	}
+
+	/**
+	 * Cancels the conversion of an uploaded file
+	 * 
+	 * @param SID
+	 * @param jobId
+	 *            the id returned by the upload
+	 * @return 1 if the job is cancelled, -1 otherwise
+	 */
+	public Long cancelConversionJob(String SID, Long jobId) {
+		try {
+			ConversionJob job = getOwnConversionJob(SID, jobId);
+			if (job != null && conversionService.cancel(job.getId())) {
+				return 1L;
+			}
+		} catch (Exception err) {
+			log.error("[cancelConversionJob] ", err);
+		}
+		return -1L;
+	}
+
+	private ConversionJob getOwnConversionJob(String SID, Long jobId) {
+		Long users_id = sessionManagement.checkSession(SID);
+		Long user_level = userManagement.getUserLevelByID(users_id);
+		if (!authLevelManagement.checkUserLevel(user_level)) {
+			return null;
+		}
+		ConversionJob job = conversionService.getJob(jobId);
+		if (job == null || !users_id.equals(job.getUserId())) {
+			return null;
+		}
+		return job;
+	}
+
 	public void resultReceived(IPendingServiceCall arg0) {
 		// TODO Auto-generated method stub
 
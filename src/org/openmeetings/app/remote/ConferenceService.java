@@ -737,7 +737,7 @@ public class ConferenceService {
 			Rooms room = roommanagement.getRoomById(room_id);
 			
 			if (room.getNumberOfPartizipants() <= this.clientListManager
-					.getClientListByRoom(room_id).size()) {
+					.getParticipantCount(room_id)) {
 				return true;
 			}
 			
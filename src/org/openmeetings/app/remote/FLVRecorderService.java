@@ -35,7 +35,7 @@ import org.openmeetings.app.data.conference.Roommanagement;
 import org.openmeetings.app.data.flvrecord.FlvRecordingDaoImpl;
 import org.openmeetings.app.data.flvrecord.FlvRecordingLogDaoImpl;
 import org.openmeetings.app.data.flvrecord.FlvRecordingMetaDataDaoImpl;
-import org.openmeetings.app.data.flvrecord.FlvRecordingMetaDeltaDaoImpl;
+import org.openmeetings.app.data.flvrecord.FlvRecordingMetaDeltaBuffer;
 import org.openmeetings.app.data.flvrecord.beans.FLVRecorderObject;
 import org.openmeetings.app.data.flvrecord.converter.FlvInterviewConverterTask;
 import org.openmeetings.app.data.flvrecord.converter.FlvInterviewReConverterTask;
@@ -43,6 +43,7 @@ import org.openmeetings.app.data.flvrecord.converter.FlvRecorderConverterTask;
 import org.openmeetings.app.data.flvrecord.listener.BaseStreamListener;
 import org.openmeetings.app.data.flvrecord.listener.StreamAudioListener;
 import org.openmeetings.app.data.flvrecord.listener.StreamVideoListener;
+import org.openmeetings.app.data.flvrecord.listener.async.StreamWriterPool;
 import org.openmeetings.app.data.user.Usermanagement;
 import org.openmeetings.app.data.user.dao.UsersDaoImpl;
 import org.openmeetings.app.persistence.beans.flvrecord.FlvRecording;
@@ -106,9 +107,11 @@ public class FLVRecorderService implements IPendingServiceCallback {
 	@Autowired
 	private AuthLevelmanagement authLevelManagement;
 	@Autowired
-	private FlvRecordingMetaDeltaDaoImpl flvRecordingMetaDeltaDao;
+	private FlvRecordingMetaDeltaBuffer flvRecordingMetaDeltaBuffer;
 	@Autowired
 	private FlvRecordingMetaDataDaoImpl flvRecordingMetaDataDaoImpl = null;
+	@Autowired
+	private StreamWriterPool streamWriterPool;
 
 	public void resultReceived(IPendingServiceCall arg0) {
 	}
@@ -332,7 +335,7 @@ public class FLVRecorderService implements IPendingServiceCallback {
 				
 				StreamVideoListener streamScreenListener = new StreamVideoListener(streamName,
 																		conn.getScope(), flvRecordingMetaDataId, isScreenData,
-																		isInterview, flvRecordingMetaDataDao);
+																		isInterview, flvRecordingMetaDataDao, streamWriterPool);
 				
 				streamListeners.put(flvRecordingMetaDataId, streamScreenListener);
 				
@@ -349,7 +352,8 @@ public class FLVRecorderService implements IPendingServiceCallback {
 
 				StreamAudioListener streamAudioListener = new StreamAudioListener(streamName,
 																	conn.getScope(), flvRecordingMetaDataId, isScreenData,
-																	isInterview, flvRecordingMetaDeltaDao, flvRecordingMetaDataDao);
+																	isInterview, flvRecordingMetaDeltaBuffer, flvRecordingMetaDataDao,
+																	streamWriterPool);
 
 				streamListeners.put(flvRecordingMetaDataId, streamAudioListener);
 
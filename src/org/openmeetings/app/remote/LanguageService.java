@@ -97,6 +97,17 @@ public class LanguageService {
 		return fieldmanagment.getLabelsByLanguage(language_id, start, max);
 	}
 
+	/**
+	 * get the version of the fields of a given Language_id, the fields have
+	 * to be loaded again only if the version has changed
+	 * 
+	 * @param language_id
+	 * @return
+	 */
+	public String getLanguageVersion(Long language_id) {
+		return fieldmanagment.getLabelsVersion(language_id);
+	}
+
 	public Fieldvalues getFieldvalueById(String SID, Long fieldvalues_id,
 			Long language_id) {
 		Long users_id = sessionManagement.checkSession(SID);
@@ -126,33 +126,10 @@ public class WhiteBoardService implements IPendingServiceCallback {
 					.getClientByStreamId(streamid);
 			Long room_id = currentClient.getRoom_id();
 
-			WhiteboardObjectList whiteboardObjectList = this.whiteBoardObjectListManagerById
-					.getWhiteBoardObjectListByRoomId(room_id);
-
-			for (Iterator<Long> iter = whiteboardObjectList
-					.getWhiteboardObjects().keySet().iterator(); iter.hasNext();) {
-				Long storedWhiteboardId = iter.next();
-
-				log.debug(" :: storedWhiteboardId :: " + storedWhiteboardId);
-
-				if (storedWhiteboardId.equals(whiteBoardId)) {
-					log.debug("Found Whiteboard to Remove");
-				}
-			}
-			Object returnValue = whiteboardObjectList.getWhiteboardObjects()
-					.remove(whiteBoardId);
-
 			log.debug(" :: whiteBoardId :: " + whiteBoardId);
 
-			this.whiteBoardObjectListManagerById
-					.setWhiteBoardObjectListRoomObj(room_id,
-							whiteboardObjectList);
-
-			if (returnValue != null) {
-				return true;
-			} else {
-				return false;
-			}
+			return this.whiteBoardObjectListManagerById.removeWhiteboard(
+					room_id, whiteBoardId);
 
 		} catch (Exception err) {
 			log.error("[deleteWhiteboard]", err);
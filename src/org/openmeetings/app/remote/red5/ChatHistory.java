@@ -0,0 +1,499 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.app.remote.red5;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.openmeetings.app.OpenmeetingsVariables;
+import org.openmeetings.app.conference.session.RoomClient;
+import org.red5.logging.Red5LoggerFactory;
+import org.slf4j.Logger;
+
+/**
+ * History of the chat rooms, the last messages of each room are kept in a
+ * ring buffer
+ *
+ * A message only keeps the fields of the sender which are shown by the
+ * clients, not the {@link RoomClient} itself. If a journal file is set the
+ * messages and clear events are appended to it and read again by
+ * {@link #open(File)}, the journal is rewritten with the current history on
+ * open and whenever it has grown too large.
+ *
+ * Each room is locked on its own, the journal is written and rewritten by a
+ * background thread so the messages are not delayed by the disk.
+ */
+public class ChatHistory {
+
+	private static final Logger log = Red5LoggerFactory.getLogger(
+			ChatHistory.class, OpenmeetingsVariables.webAppRootKey);
+
+	// journal record of a cleared room
+	private static final int CLEAR = -1;
+
+	// messages kept per room
+	private int maxMessages = 50;
+	// journal relative to the web application, empty for no journal
+	private String journalFile = "";
+	// records appended to the journal before it is rewritten
+	private int compactThreshold = 10000;
+
+	private final ConcurrentHashMap<Long, RoomHistory> rooms = new ConcurrentHashMap<Long, RoomHistory>();
+
+	private final Object journalLock = new Object();
+	private volatile ThreadPoolExecutor journalWriter = null;
+	// the fields below are used by the journal writer only
+	private File journal = null;
+	private DataOutputStream journalOut = null;
+	private int journalRecords = 0;
+	// version of each room written by the last rewrite, older records of the
+	// room are in the journal already
+	private final Map<Long, Long> compactedVersions = new HashMap<Long, Long>();
+
+	/**
+	 * A chat message and the sender
+	 */
+	public static class ChatMessage implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private final Long userId;
+		private final String publicSID;
+		private final String streamid;
+		private final String firstname;
+		private final String lastname;
+		private final String pictureUri;
+		private final long timestamp;
+		private final List<Object> message;
+
+		public ChatMessage(RoomClient sender, List<Object> message) {
+			this.userId = sender.getUser_id();
+			this.publicSID = sender.getPublicSID();
+			this.streamid = sender.getStreamid();
+			this.firstname = sender.getFirstname();
+			this.lastname = sender.getLastname();
+			this.pictureUri = sender.getPicture_uri();
+			this.timestamp = System.currentTimeMillis();
+			this.message = message;
+		}
+
+		public Long getUserId() {
+			return userId;
+		}
+
+		public long getTimestamp() {
+			return timestamp;
+		}
+
+		public List<Object> getMessage() {
+			return message;
+		}
+
+		/**
+		 * @return the message as sent to the clients: the fields of the
+		 *         sender as "client" and the message as "message"
+		 */
+		public HashMap<String, Object> toMap() {
+			HashMap<String, Object> client = new HashMap<String, Object>();
+			client.put("user_id", userId);
+			client.put("publicSID", publicSID);
+			client.put("streamid", streamid);
+			client.put("firstname", firstname);
+			client.put("lastname", lastname);
+			client.put("picture_uri", pictureUri);
+
+			HashMap<String, Object> hsm = new HashMap<String, Object>();
+			hsm.put("client", client);
+			hsm.put("message", message);
+			return hsm;
+		}
+	}
+
+	private static class RoomHistory {
+		private final ChatMessage[] messages;
+		// index of the oldest message
+		private int first = 0;
+		private int count = 0;
+		// incremented on every change
+		private long version = 0;
+
+		RoomHistory(int size) {
+			messages = new ChatMessage[size];
+		}
+
+		/**
+		 * @return the version of the history with the message
+		 */
+		synchronized long add(ChatMessage msg) {
+			if (count < messages.length) {
+				messages[(first + count++) % messages.length] = msg;
+			} else {
+				messages[first] = msg;
+				first = (first + 1) % messages.length;
+			}
+			return ++version;
+		}
+
+		synchronized List<ChatMessage> get(int start, int max) {
+			int from = Math.min(Math.max(0, start), count);
+			int to = max < 0 ? count : (int) Math.min((long) from + max, count);
+			List<ChatMessage> result = new ArrayList<ChatMessage>(to - from);
+			for (int i = from; i < to; ++i) {
+				result.add(messages[(first + i) % messages.length]);
+			}
+			return result;
+		}
+
+		/**
+		 * @return the version of the cleared history
+		 */
+		synchronized long clear() {
+			for (int i = 0; i < messages.length; ++i) {
+				messages[i] = null;
+			}
+			first = 0;
+			count = 0;
+			return ++version;
+		}
+
+		/**
+		 * Adds all messages to the list
+		 * 
+		 * @return the version of the history
+		 */
+		synchronized long snapshot(List<ChatMessage> result) {
+			result.addAll(get(0, -1));
+			return version;
+		}
+	}
+
+	public void setMaxMessages(int maxMessages) {
+		this.maxMessages = maxMessages;
+	}
+
+	public void setJournalFile(String journalFile) {
+		this.journalFile = journalFile;
+	}
+
+	public void setCompactThreshold(int compactThreshold) {
+		this.compactThreshold = compactThreshold;
+	}
+
+	/**
+	 * Reads the history from the journal and opens it for appending, does
+	 * nothing if no journal file is set
+	 * 
+	 * @param webAppPath
+	 *            the journal file is relative to this directory
+	 */
+	public void open(File webAppPath) {
+		if (journalFile == null || journalFile.length() == 0) {
+			return;
+		}
+		synchronized (journalLock) {
+			close();
+			journal = new File(webAppPath, journalFile);
+			if (journal.exists()) {
+				read();
+			}
+			ThreadPoolExecutor writer = new ThreadPoolExecutor(1, 1, 0L,
+					TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+					new ThreadFactory() {
+						public Thread newThread(Runnable r) {
+							Thread t = new Thread(r, "Chat history journal");
+							t.setDaemon(true);
+							return t;
+						}
+					});
+			writer.execute(new Runnable() {
+				public void run() {
+					compact();
+				}
+			});
+			journalWriter = writer;
+		}
+	}
+
+	/**
+	 * Writes the pending records and closes the journal, the history is kept
+	 * in memory
+	 */
+	public void close() {
+		synchronized (journalLock) {
+			ThreadPoolExecutor writer = journalWriter;
+			if (writer == null) {
+				return;
+			}
+			journalWriter = null;
+			writer.execute(new Runnable() {
+				public void run() {
+					closeJournal();
+				}
+			});
+			writer.shutdown();
+			try {
+				if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+					log.warn("Chat history journal is not written completely");
+				}
+			} catch (InterruptedException err) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Adds the message to the history of the room
+	 * 
+	 * @return the message as sent to the clients
+	 */
+	public HashMap<String, Object> add(Long room_id, RoomClient sender,
+			List<Object> message) {
+		ChatMessage msg = new ChatMessage(sender, message);
+		if (room_id == null) {
+			log.debug("Message of a client without room is not stored");
+		} else {
+			// the journal gets the messages in the order of the history
+			RoomHistory room = getRoom(room_id);
+			synchronized (room) {
+				append(room_id, msg, room.add(msg));
+			}
+		}
+		return msg.toMap();
+	}
+
+	/**
+	 * @return the messages of the room starting with the oldest one, max
+	 *         below 0 for all messages
+	 */
+	public List<HashMap<String, Object>> get(Long room_id, int start, int max) {
+		List<HashMap<String, Object>> result = new ArrayList<HashMap<String, Object>>();
+		RoomHistory room = room_id == null ? null : rooms.get(room_id);
+		if (room != null) {
+			for (ChatMessage msg : room.get(start, max)) {
+				result.add(msg.toMap());
+			}
+		}
+		return result;
+	}
+
+	public void clear(Long room_id) {
+		if (room_id == null) {
+			return;
+		}
+		RoomHistory room = rooms.get(room_id);
+		if (room != null) {
+			synchronized (room) {
+				append(room_id, null, room.clear());
+			}
+		}
+	}
+
+	private RoomHistory getRoom(Long room_id) {
+		RoomHistory room = rooms.get(room_id);
+		if (room == null) {
+			room = new RoomHistory(maxMessages);
+			RoomHistory current = rooms.putIfAbsent(room_id, room);
+			if (current != null) {
+				room = current;
+			}
+		}
+		return room;
+	}
+
+	/**
+	 * Queues a message or, if msg is null, a clear event for the journal
+	 * 
+	 * @param version
+	 *            the version of the room with the change
+	 */
+	private void append(final Long room_id, final ChatMessage msg,
+			final long version) {
+		ThreadPoolExecutor writer = journalWriter;
+		if (writer == null) {
+			return;
+		}
+		try {
+			writer.execute(new Runnable() {
+				public void run() {
+					write(room_id, msg, version);
+				}
+			});
+		} catch (RejectedExecutionException err) {
+			log.debug("Chat history journal is closed");
+		}
+	}
+
+	/**
+	 * Appends the record to the journal, runs in the journal writer
+	 */
+	private void write(Long room_id, ChatMessage msg, long version) {
+		if (journalOut == null) {
+			return;
+		}
+		Long compacted = compactedVersions.get(room_id);
+		if (compacted != null && version <= compacted) {
+			// the change has been written by the last rewrite
+			return;
+		}
+		try {
+			writeRecord(journalOut, room_id, msg);
+			if (++journalRecords > compactThreshold) {
+				compact();
+			} else if (journalWriter == null
+					|| journalWriter.getQueue().isEmpty()) {
+				journalOut.flush();
+			}
+		} catch (IOException err) {
+			log.error("[write] the chat history journal is closed", err);
+			closeJournal();
+		}
+	}
+
+	private void closeJournal() {
+		if (journalOut != null) {
+			try {
+				journalOut.close();
+			} catch (IOException err) {
+				log.error("[closeJournal]", err);
+			}
+			journalOut = null;
+		}
+	}
+
+	private static void writeRecord(DataOutputStream out, Long room_id,
+			ChatMessage msg) throws IOException {
+		if (msg == null) {
+			out.writeLong(room_id);
+			out.writeInt(CLEAR);
+			return;
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+		ObjectOutputStream oos = new ObjectOutputStream(bytes);
+		try {
+			oos.writeObject(msg);
+		} catch (IOException err) {
+			// the message contains an object which is not serializable
+			log.warn("Chat message is not written to the journal: " + err);
+			return;
+		} finally {
+			oos.close();
+		}
+		out.writeLong(room_id);
+		out.writeInt(bytes.size());
+		bytes.writeTo(out);
+	}
+
+	private void read() {
+		int records = 0;
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(journal)));
+			try {
+				while (true) {
+					long room_id = in.readLong();
+					int length = in.readInt();
+					if (length == CLEAR) {
+						RoomHistory room = rooms.get(room_id);
+						if (room != null) {
+							room.clear();
+						}
+					} else {
+						byte[] b = new byte[length];
+						in.readFully(b);
+						ObjectInputStream ois = new ObjectInputStream(
+								new ByteArrayInputStream(b));
+						getRoom(room_id).add((ChatMessage) ois.readObject());
+					}
+					++records;
+				}
+			} finally {
+				in.close();
+			}
+		} catch (EOFException eof) {
+			// end of the journal, the last record might be incomplete
+		} catch (Exception err) {
+			log.error("[read] chat history journal is read up to record "
+					+ records, err);
+		}
+		log.debug("Chat history records read: " + records);
+	}
+
+	/**
+	 * Rewrites the journal with the messages currently in memory, runs in the
+	 * journal writer
+	 */
+	private void compact() {
+		closeJournal();
+		compactedVersions.clear();
+		File tmp = new File(journal.getPath() + ".tmp");
+		try {
+			if (journal.getParentFile() != null) {
+				journal.getParentFile().mkdirs();
+			}
+			int records = 0;
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(tmp)));
+			try {
+				for (Map.Entry<Long, RoomHistory> entry : rooms.entrySet()) {
+					List<ChatMessage> messages = new ArrayList<ChatMessage>();
+					compactedVersions.put(entry.getKey(), entry.getValue()
+							.snapshot(messages));
+					for (ChatMessage msg : messages) {
+						writeRecord(out, entry.getKey(), msg);
+						++records;
+					}
+				}
+			} finally {
+				out.close();
+			}
+			if (journal.exists() && !journal.delete()) {
+				throw new IOException("Unable to delete " + journal);
+			}
+			if (!tmp.renameTo(journal)) {
+				throw new IOException("Unable to rename " + tmp);
+			}
+			journalRecords = records;
+			journalOut = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(journal, true)));
+		} catch (IOException err) {
+			log.error("[compact] the chat history journal is closed", err);
+		}
+	}
+}
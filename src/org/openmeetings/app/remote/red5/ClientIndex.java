@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.app.remote.red5;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Secondary index of the {@link ClientListManager}: maps a key (room id,
+ * publicSID, user id) to the stream ids of the clients having this key
+ *
+ * Reads are lock free, modifications of one key are serialized by a lock
+ * stripe so that empty buckets can be dropped without loosing concurrent adds
+ *
+ * @param <K>
+ *            type of the indexed key
+ */
+class ClientIndex<K> {
+	private static final int LOCK_STRIPES = 32;
+
+	private final ConcurrentHashMap<K, Set<String>> index = new ConcurrentHashMap<K, Set<String>>();
+	private final Object[] locks = new Object[LOCK_STRIPES];
+
+	ClientIndex() {
+		for (int i = 0; i < locks.length; ++i) {
+			locks[i] = new Object();
+		}
+	}
+
+	private Object getLock(K key) {
+		return locks[(key.hashCode() & 0x7fffffff) % locks.length];
+	}
+
+	void add(K key, String streamId) {
+		if (key == null) {
+			return;
+		}
+		synchronized (getLock(key)) {
+			Set<String> streamIds = index.get(key);
+			if (streamIds == null) {
+				streamIds = Collections
+						.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+				index.put(key, streamIds);
+			}
+			streamIds.add(streamId);
+		}
+	}
+
+	void remove(K key, String streamId) {
+		if (key == null) {
+			return;
+		}
+		synchronized (getLock(key)) {
+			Set<String> streamIds = index.get(key);
+			if (streamIds != null) {
+				streamIds.remove(streamId);
+				if (streamIds.isEmpty()) {
+					index.remove(key);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Moves the stream id from the old to the new key, nothing is done in case
+	 * the key is unchanged
+	 */
+	void move(K oldKey, K newKey, String streamId) {
+		if (oldKey == null ? newKey == null : oldKey.equals(newKey)) {
+			return;
+		}
+		remove(oldKey, streamId);
+		add(newKey, streamId);
+	}
+
+	/**
+	 * @return read only live view of the stream ids stored for the key, never
+	 *         null
+	 */
+	Set<String> get(K key) {
+		Set<String> streamIds = key == null ? null : index.get(key);
+		if (streamIds == null) {
+			return Collections.emptySet();
+		}
+		return Collections.unmodifiableSet(streamIds);
+	}
+
+	int size() {
+		return index.size();
+	}
+
+	void clear() {
+		index.clear();
+	}
+}
@@ -24,6 +24,8 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.openmeetings.app.OpenmeetingsVariables;
 import org.openmeetings.app.conference.session.RoomClient;
@@ -33,8 +35,50 @@ import org.red5.logging.Red5LoggerFactory;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 
+/**
+ * Registry of all connected clients
+ * 
+ * Clients are stored by their stream id and additionally indexed by room id,
+ * publicSID and user id. The participants of a room (full session clients,
+ * no audio/video or screen sharing connections) have an index of their own
+ * so that room listings only touch the participants of the listed rooms and
+ * can count them without iterating. All read methods are lock free, modifications of a
+ * single client are serialized by a lock stripe chosen by its stream id.
+ * 
+ * The secondary indexes are refreshed by {@link #addClientListItem},
+ * {@link #updateClientByStreamId} and {@link #removeClient}, so callers
+ * changing the room, publicSID or user of a client have to store it with
+ * {@link #updateClientByStreamId} afterwards (as they did before).
+ */
 public class ClientListManager {
-	private static HashMap<String, RoomClient> clientList = new HashMap<String, RoomClient>();
+	private static final int LOCK_STRIPES = 64;
+	
+	private static ConcurrentHashMap<String, RoomClient> clientList = new ConcurrentHashMap<String, RoomClient>();
+	
+	/*
+	 * Keys the client is currently indexed with, RoomClient is mutable so the
+	 * old values are needed to clean up the indexes on update
+	 */
+	private static ConcurrentHashMap<String, IndexKeys> indexedKeys = new ConcurrentHashMap<String, IndexKeys>();
+	private static ClientIndex<Long> roomIndex = new ClientIndex<Long>();
+	private static ClientIndex<Long> participantIndex = new ClientIndex<Long>();
+	private static ClientIndex<String> publicSIDIndex = new ClientIndex<String>();
+	private static ClientIndex<Long> userIndex = new ClientIndex<Long>();
+	
+	/*
+	 * Incremented each time a client enters or leaves a scope or changes its
+	 * screen sharing or audio/video flag, used to cache the recipients of
+	 * broadcasts, see RoomBroadcaster. Entries are never removed so that a
+	 * version can not be reused for the same scope.
+	 */
+	private static ConcurrentHashMap<String, AtomicLong> scopeVersions = new ConcurrentHashMap<String, AtomicLong>();
+	
+	private static final Object[] locks = new Object[LOCK_STRIPES];
+	static {
+		for (int i = 0; i < locks.length; ++i) {
+			locks[i] = new Object();
+		}
+	}
 
 	private static final Logger log = Red5LoggerFactory.getLogger(
 			ClientListManager.class, OpenmeetingsVariables.webAppRootKey);
@@ -42,6 +86,94 @@ public class ClientListManager {
 	@Autowired
 	private ManageCryptStyle manageCryptStyle;
 	
+	private static class IndexKeys {
+		private final Long room_id;
+		// room id in case the client is a participant of the room
+		private final Long participantRoom_id;
+		private final String publicSID;
+		private final Long user_id;
+		private final String scope;
+		private final boolean isScreenClient;
+		private final boolean isAVClient;
+		
+		IndexKeys(RoomClient rcl) {
+			room_id = rcl.getRoom_id();
+			publicSID = rcl.getPublicSID();
+			user_id = rcl.getUser_id();
+			scope = rcl.getScope();
+			isScreenClient = rcl.getIsScreenClient() != null && rcl.getIsScreenClient();
+			isAVClient = rcl.getIsAVClient();
+			participantRoom_id = rcl.getIsScreenClient() == null
+					|| isScreenClient || isAVClient ? null : room_id;
+		}
+		
+		boolean sameMembership(IndexKeys keys) {
+			return (scope == null ? keys.scope == null : scope.equals(keys.scope))
+					&& isScreenClient == keys.isScreenClient
+					&& isAVClient == keys.isAVClient;
+		}
+	}
+	
+	private static void incrementScopeVersion(String scope) {
+		if (scope == null) {
+			return;
+		}
+		AtomicLong version = scopeVersions.get(scope);
+		if (version == null) {
+			AtomicLong newVersion = new AtomicLong();
+			version = scopeVersions.putIfAbsent(scope, newVersion);
+			if (version == null) {
+				version = newVersion;
+			}
+		}
+		version.incrementAndGet();
+	}
+	
+	private static Object getLock(String streamId) {
+		return locks[(streamId.hashCode() & 0x7fffffff) % locks.length];
+	}
+	
+	/**
+	 * Has to be called holding the lock of the stream id
+	 * 
+	 * @param streamId
+	 * @param rcl the client to index, null to remove it from all indexes
+	 */
+	private static void reindex(String streamId, RoomClient rcl) {
+		IndexKeys oldKeys = indexedKeys.get(streamId);
+		if (rcl == null) {
+			if (oldKeys != null) {
+				roomIndex.remove(oldKeys.room_id, streamId);
+				participantIndex.remove(oldKeys.participantRoom_id, streamId);
+				publicSIDIndex.remove(oldKeys.publicSID, streamId);
+				userIndex.remove(oldKeys.user_id, streamId);
+				indexedKeys.remove(streamId);
+				incrementScopeVersion(oldKeys.scope);
+			}
+			return;
+		}
+		IndexKeys newKeys = new IndexKeys(rcl);
+		if (oldKeys == null) {
+			roomIndex.add(newKeys.room_id, streamId);
+			participantIndex.add(newKeys.participantRoom_id, streamId);
+			publicSIDIndex.add(newKeys.publicSID, streamId);
+			userIndex.add(newKeys.user_id, streamId);
+		} else {
+			roomIndex.move(oldKeys.room_id, newKeys.room_id, streamId);
+			participantIndex.move(oldKeys.participantRoom_id,
+					newKeys.participantRoom_id, streamId);
+			publicSIDIndex.move(oldKeys.publicSID, newKeys.publicSID, streamId);
+			userIndex.move(oldKeys.user_id, newKeys.user_id, streamId);
+		}
+		indexedKeys.put(streamId, newKeys);
+		if (oldKeys == null || !oldKeys.sameMembership(newKeys)) {
+			if (oldKeys != null) {
+				incrementScopeVersion(oldKeys.scope);
+			}
+			incrementScopeVersion(newKeys.scope);
+		}
+	}
+	
 	/**
 	 * Get current clients and extends the room client with its potential 
 	 * audio/video client and settings
@@ -59,7 +191,7 @@ public class ClientListManager {
 				String key = iter.next();
 				RoomClient rcl = this.getClientByStreamId(key);
 				
-				if (rcl.getIsAVClient()) {
+				if (rcl == null || rcl.getIsAVClient()) {
 					continue;
 				}
 				
@@ -74,7 +206,7 @@ public class ClientListManager {
 		return null;
 	}
 
-	public synchronized RoomClient addClientListItem(String streamId,
+	public RoomClient addClientListItem(String streamId,
 			String scopeName, Integer remotePort, String remoteAddress,
 			String swfUrl, boolean isAVClient) {
 		try {
@@ -95,13 +227,14 @@ public class ClientListManager {
 			rcm.setCanDraw(new Boolean(false));
 			rcm.setIsAVClient(isAVClient);
 
-			if (clientList.containsKey(streamId)) {
-				log.error("Tried to add an existing Client " + streamId);
-				return null;
+			synchronized (getLock(streamId)) {
+				if (clientList.putIfAbsent(rcm.getStreamid(), rcm) != null) {
+					log.error("Tried to add an existing Client " + streamId);
+					return null;
+				}
+				reindex(streamId, rcm);
 			}
 
-			clientList.put(rcm.getStreamid(), rcm);
-
 			log.debug(" :: addClientListItem :: " + rcm.getRoomClientId());
 
 			return rcm;
@@ -111,17 +244,28 @@ public class ClientListManager {
 		return null;
 	}
 
-	public synchronized Collection<RoomClient> getAllClients() {
+	/**
+	 * @param scopeName
+	 * @return a number which changes each time a client enters or leaves the
+	 *         scope or starts/stops being a screen sharing or audio/video
+	 *         client
+	 */
+	public long getScopeVersion(String scopeName) {
+		AtomicLong version = scopeVersions.get(scopeName);
+		return version == null ? 0 : version.get();
+	}
+
+	public Collection<RoomClient> getAllClients() {
 		return clientList.values();
 	}
 
-	public synchronized RoomClient getClientByStreamId(String streamId) {
+	public RoomClient getClientByStreamId(String streamId) {
 		try {
-			if (!clientList.containsKey(streamId)) {
+			RoomClient rcl = clientList.get(streamId);
+			if (rcl == null) {
 				log.debug("Tried to get a non existing Client " + streamId);
-				return null;
 			}
-			return clientList.get(streamId);
+			return rcl;
 		} catch (Exception err) {
 			log.error("[getClientByStreamId]", err);
 		}
@@ -138,16 +282,12 @@ public class ClientListManager {
 	 * @param streamId
 	 * @return
 	 */
-	public synchronized RoomClient getSyncClientByStreamId(String streamId) {
+	public RoomClient getSyncClientByStreamId(String streamId) {
 		try {
-			if (!clientList.containsKey(streamId)) {
-				log.debug("Tried to get a non existing Client " + streamId);
-				return null;
-			}
-			
 			RoomClient rcl = clientList.get(streamId);
 			
 			if (rcl == null) {
+				log.debug("Tried to get a non existing Client " + streamId);
 				return null;
 			}
 			
@@ -155,7 +295,7 @@ public class ClientListManager {
 				return null;
 			}
 			
-			return clientList.get(streamId);
+			return rcl;
 		} catch (Exception err) {
 			log.error("[getClientByStreamId]", err);
 		}
@@ -163,13 +303,12 @@ public class ClientListManager {
 	}
 
 
-	public synchronized RoomClient getClientByPublicSID(String publicSID, Boolean isAVClient) {
+	public RoomClient getClientByPublicSID(String publicSID, Boolean isAVClient) {
 		try {
-			for (Iterator<String> iter = clientList.keySet().iterator(); iter
-					.hasNext();) {
-				RoomClient rcl = clientList.get(iter.next());
+			for (String streamId : publicSIDIndex.get(publicSID)) {
+				RoomClient rcl = clientList.get(streamId);
 				
-				if (!rcl.getPublicSID().equals(publicSID)) {
+				if (rcl == null || !publicSID.equals(rcl.getPublicSID())) {
 					continue;
 				}
 				if (rcl.getIsAVClient() != isAVClient) {
@@ -184,17 +323,25 @@ public class ClientListManager {
 		return null;
 	}
 
-	public synchronized RoomClient getClientByUserId(Long userId) {
+	public RoomClient getClientByUserId(Long userId) {
 		try {
-			for (Iterator<String> iter = clientList.keySet().iterator(); iter
-					.hasNext();) {
-				RoomClient rcl = clientList.get(iter.next());
-				if (rcl.getUser_id().equals(userId)) {
+			for (String streamId : userIndex.get(userId)) {
+				RoomClient rcl = clientList.get(streamId);
+				if (rcl != null && userId.equals(rcl.getUser_id())) {
+					return rcl;
+				}
+			}
+			/*
+			 * The login methods set the user id without storing the client,
+			 * such clients are not indexed by their user yet
+			 */
+			for (RoomClient rcl : clientList.values()) {
+				if (userId.equals(rcl.getUser_id())) {
 					return rcl;
 				}
 			}
 		} catch (Exception err) {
-			log.error("[getClientByPublicSID]", err);
+			log.error("[getClientByUserId]", err);
 		}
 		return null;
 	}
@@ -206,7 +353,7 @@ public class ClientListManager {
 	 * @param rcm
 	 * @return
 	 */
-	public synchronized Boolean updateAVClientByStreamId(String streamId,
+	public Boolean updateAVClientByStreamId(String streamId,
 			RoomClient rcm) {
 		try {
 			
@@ -219,11 +366,7 @@ public class ClientListManager {
 				rclUsual.setVWidth(rcm.getVWidth());
 				rclUsual.setVX(rcm.getVX());
 				rclUsual.setVY(rcm.getVY());
-				if (clientList.containsKey(rclUsual.getStreamid())) {
-					clientList.put(rclUsual.getStreamid(), rclUsual);
-				} else {
-					 log.debug("Tried to update a non existing Client " + rclUsual.getStreamid());
-				}
+				updateClientByStreamId(rclUsual.getStreamid(), rclUsual);
 			}
 			
 			updateClientByStreamId(streamId, rcm);
@@ -233,32 +376,33 @@ public class ClientListManager {
 		return null;
 	}
 
-	public synchronized Boolean updateClientByStreamId(String streamId,
+	public Boolean updateClientByStreamId(String streamId,
 			RoomClient rcm) {
 		try {
-			if (clientList.containsKey(streamId)) {
-				clientList.put(streamId, rcm);
-				return true;
-			} else {
-				log.debug("Tried to update a non existing Client " + streamId);
-				return false;
+			synchronized (getLock(streamId)) {
+				if (clientList.replace(streamId, rcm) != null) {
+					reindex(streamId, rcm);
+					return true;
+				}
 			}
+			log.debug("Tried to update a non existing Client " + streamId);
+			return false;
 		} catch (Exception err) {
 			log.error("[updateClientByStreamId]", err);
 		}
 		return null;
 	}
 
-	public synchronized Boolean removeClient(String streamId) {
+	public Boolean removeClient(String streamId) {
 		try {
-			if (clientList.containsKey(streamId)) {
-				clientList.remove(streamId);
-				// log.debug(":: removeClient ::"+clientList.size());
-				return true;
-			} else {
-				log.debug("Tried to remove a non existing Client " + streamId);
-				return false;
+			synchronized (getLock(streamId)) {
+				if (clientList.remove(streamId) != null) {
+					reindex(streamId, null);
+					return true;
+				}
 			}
+			log.debug("Tried to remove a non existing Client " + streamId);
+			return false;
 		} catch (Exception err) {
 			log.error("[removeClient]", err);
 		}
@@ -274,17 +418,15 @@ public class ClientListManager {
 	 * @return
 	 */
 	// FIXME seems like there is no need to return HashMap
-	public synchronized HashMap<String, RoomClient> getClientListByRoom(
+	public HashMap<String, RoomClient> getClientListByRoom(
 			Long room_id) {
 		HashMap<String, RoomClient> roomClientList = new HashMap<String, RoomClient>();
 		try {
-			for (Iterator<String> iter = clientList.keySet().iterator(); iter
-					.hasNext();) {
-				String key = iter.next();
+			for (String key : participantIndex.get(room_id)) {
 				RoomClient rcl = clientList.get(key);
 				
 				// client initialized and same room
-				if (rcl.getRoom_id() == null || !room_id.equals(rcl.getRoom_id())) {
+				if (rcl == null || !room_id.equals(rcl.getRoom_id())) {
 					continue;
 				}
 				if (rcl.getIsScreenClient() == null ||
@@ -308,48 +450,87 @@ public class ClientListManager {
 	
 	
 
+	/**
+	 * Number of participants of the room, the same clients
+	 * {@link #getClientListByRoom(Long)} returns
+	 * 
+	 * @param room_id
+	 * @return
+	 */
+	public int getParticipantCount(Long room_id) {
+		return participantIndex.get(room_id).size();
+	}
+
 	// FIXME seems to be copy/pasted with previous one
-	public synchronized HashMap<String, RoomClient> getClientListByRoomAll(
+	public HashMap<String, RoomClient> getClientListByRoomAll(
 			Long room_id) {
 		HashMap<String, RoomClient> roomClientList = new HashMap<String, RoomClient>();
 		try {
-			for (Iterator<String> iter = clientList.keySet().iterator(); iter
-					.hasNext();) {
-				String key = iter.next();
-				// log.debug("getClientList key: "+key);
+			for (String key : roomIndex.get(room_id)) {
 				RoomClient rcl = clientList.get(key);
 
-				if (rcl.getRoom_id() != null
-						&& rcl.getRoom_id().equals(room_id)) {
+				if (rcl != null && room_id.equals(rcl.getRoom_id())) {
 					// same room
 					roomClientList.put(key, rcl);
 				}
 			}
 		} catch (Exception err) {
-			log.error("[getClientListByRoom]", err);
+			log.error("[getClientListByRoomAll]", err);
 		}
 		return roomClientList;
 	}
 
+	/**
+	 * Get the audio/video connections of the room
+	 * 
+	 * @param room_id
+	 * @return
+	 */
+	public List<RoomClient> getAVClientListByRoom(Long room_id) {
+		List<RoomClient> rclList = new LinkedList<RoomClient>();
+		for (RoomClient rcl : getClientListByRoomAll(room_id).values()) {
+			if (rcl.getIsAVClient()) {
+				rclList.add(rcl);
+			}
+		}
+		return rclList;
+	}
+
+	/**
+	 * Get the screen sharing connections of the room
+	 * 
+	 * @param room_id
+	 * @return
+	 */
+	public List<RoomClient> getScreenClientListByRoom(Long room_id) {
+		List<RoomClient> rclList = new LinkedList<RoomClient>();
+		for (RoomClient rcl : getClientListByRoomAll(room_id).values()) {
+			if (rcl.getIsScreenClient() != null && rcl.getIsScreenClient()) {
+				rclList.add(rcl);
+			}
+		}
+		return rclList;
+	}
+
 	/**
 	 * get the current Moderator in this room
 	 * 
 	 * @param roomname
 	 * @return
 	 */
-	public synchronized List<RoomClient> getCurrentModeratorByRoom(Long room_id) {
+	public List<RoomClient> getCurrentModeratorByRoom(Long room_id) {
 
 		List<RoomClient> rclList = new LinkedList<RoomClient>();
-		for (Iterator<String> iter = clientList.keySet().iterator(); iter
-				.hasNext();) {
-			String key = iter.next();
+		for (String key : roomIndex.get(room_id)) {
 			RoomClient rcl = clientList.get(key);
+			if (rcl == null) {
+				continue;
+			}
 			//
 			log.debug("*..*unsetModerator ClientList key: " + rcl.getStreamid());
 			//
 			// Check if the Client is in the same room
-			if (room_id != null && room_id.equals(rcl.getRoom_id())
-					&& rcl.getIsMod()) {
+			if (room_id.equals(rcl.getRoom_id()) && rcl.getIsMod()) {
 				log.debug("found client who is the Moderator: " + rcl);
 				rclList.add(rcl);
 			}
@@ -358,7 +539,7 @@ public class ClientListManager {
 		return rclList;
 	}
 
-	public synchronized SearchResult<RoomClient> getListByStartAndMax(int start, int max,
+	public SearchResult<RoomClient> getListByStartAndMax(int start, int max,
 			String orderby, boolean asc) {
 		SearchResult<RoomClient> sResult = new SearchResult<RoomClient>();
 		sResult.setObjectName(RoomClient.class.getName());
@@ -367,11 +548,11 @@ public class ClientListManager {
 
 		int i = 0;
 		// TODO Auto-generated method stub
-		Iterator<String> iter = clientList.keySet().iterator();
+		Iterator<RoomClient> iter = clientList.values().iterator();
 		while (iter.hasNext()) {
-			String key = iter.next();
+			RoomClient rcl = iter.next();
 			if (i >= start) {
-				myList.add(clientList.get(key));
+				myList.add(rcl);
 			}
 			if (i > max) {
 				break;
@@ -383,9 +564,11 @@ public class ClientListManager {
 		return sResult;
 	}
 
-	public synchronized void removeAllClients() {
+	public void removeAllClients() {
 		try {
-			clientList.clear();
+			for (String streamId : clientList.keySet()) {
+				removeClient(streamId);
+			}
 		} catch (Exception err) {
 			log.error("[removeAllClients]", err);
 		}
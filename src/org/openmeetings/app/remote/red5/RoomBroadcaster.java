@@ -0,0 +1,364 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.app.remote.red5;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.openmeetings.app.OpenmeetingsVariables;
+import org.openmeetings.app.conference.session.RoomClient;
+import org.red5.logging.Red5LoggerFactory;
+import org.red5.server.api.IConnection;
+import org.red5.server.api.scope.IScope;
+import org.red5.server.api.service.IServiceCapableConnection;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Collects the high frequency events of a room (whiteboard actions, cursor
+ * positions of the screen sharing, remote control events) and sends them to
+ * the recipients after a short window, one invoke per recipient and client
+ * method instead of one invoke per event and recipient.
+ *
+ * If a recipient gets only one event of a kind in a window the original
+ * client method is invoked, otherwise the batch method which gets a list of
+ * the argument arrays of the single invokes.
+ *
+ * Events having a coalesce key replace a pending event with the same key, the
+ * replacing event is moved to the end of the queue so the order relative to
+ * the other events is kept for the latest state.
+ *
+ * The recipients of a scope are cached and rebuilt only if the
+ * {@link ClientListManager#getScopeVersion(String)} or the number of
+ * connections of the scope has changed, each event is delivered to the
+ * recipients which were in the room when it was queued. The client list is
+ * changed before Red5 adds the connection to the scope, so the version alone
+ * would miss a joining client.
+ */
+public class RoomBroadcaster {
+
+	private static final Logger log = Red5LoggerFactory.getLogger(
+			RoomBroadcaster.class, OpenmeetingsVariables.webAppRootKey);
+
+	@Autowired
+	private ClientListManager clientListManager;
+
+	// window in milliseconds to collect events before they are sent
+	private long batchWindow = 20;
+
+	private final ConcurrentHashMap<String, RoomQueue> queues = new ConcurrentHashMap<String, RoomQueue>();
+	private final ConcurrentHashMap<String, Recipients> recipientCache = new ConcurrentHashMap<String, Recipients>();
+
+	private final ScheduledExecutorService scheduler = Executors
+			.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "RoomBroadcaster");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+
+	private static class Recipient {
+		private final String streamId;
+		private final IServiceCapableConnection conn;
+
+		Recipient(String streamId, IServiceCapableConnection conn) {
+			this.streamId = streamId;
+			this.conn = conn;
+		}
+
+		// the recipients of a snapshot and its rebuild have to be equal
+		@Override
+		public int hashCode() {
+			return streamId.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Recipient
+					&& streamId.equals(((Recipient) obj).streamId);
+		}
+	}
+
+	/**
+	 * Snapshot of the connections of a scope
+	 */
+	private static class Recipients {
+		private final long version;
+		// connections of the scope, including the ones not in the client list
+		private final int connections;
+		// connections receiving sync events
+		private final List<Recipient> syncClients;
+		// screen sharing connections by stream id
+		private final Map<String, Recipient> screenClients;
+
+		Recipients(long version, int connections, List<Recipient> syncClients,
+				Map<String, Recipient> screenClients) {
+			this.version = version;
+			this.connections = connections;
+			this.syncClients = syncClients;
+			this.screenClients = screenClients;
+		}
+	}
+
+	private static class Event {
+		private final String senderStreamId;
+		private final String method;
+		private final String batchMethod;
+		private final Object[] args;
+		private final String coalesceKey;
+		private final List<Recipient> recipients;
+
+		Event(String senderStreamId, String method, String batchMethod,
+				Object[] args, String coalesceKey, List<Recipient> recipients) {
+			this.senderStreamId = senderStreamId;
+			this.method = method;
+			this.batchMethod = batchMethod;
+			this.args = args;
+			this.coalesceKey = coalesceKey;
+			this.recipients = recipients;
+		}
+	}
+
+	private class RoomQueue implements Runnable {
+		private final String scopeName;
+		private List<Event> pending = new LinkedList<Event>();
+		private boolean scheduled = false;
+
+		RoomQueue(String scopeName) {
+			this.scopeName = scopeName;
+		}
+
+		synchronized void add(Event event) {
+			if (event.coalesceKey != null) {
+				for (Iterator<Event> iter = pending.iterator(); iter.hasNext();) {
+					Event queued = iter.next();
+					if (event.method.equals(queued.method)
+							&& event.coalesceKey.equals(queued.coalesceKey)) {
+						iter.remove();
+						break;
+					}
+				}
+			}
+			pending.add(event);
+			if (!scheduled) {
+				scheduled = true;
+				scheduler.schedule(this, batchWindow, TimeUnit.MILLISECONDS);
+			}
+		}
+
+		synchronized List<Event> take() {
+			List<Event> events = pending;
+			pending = new LinkedList<Event>();
+			scheduled = false;
+			return events;
+		}
+
+		public void run() {
+			try {
+				flush(take());
+			} catch (Exception err) {
+				log.error("[flush] " + scopeName, err);
+			}
+		}
+	}
+
+	public void setBatchWindow(long batchWindow) {
+		this.batchWindow = batchWindow;
+	}
+
+	public long getBatchWindow() {
+		return batchWindow;
+	}
+
+	/**
+	 * Send the event to all clients of the scope receiving sync events except
+	 * the sender
+	 *
+	 * @param current
+	 *            connection of the sender
+	 * @param method
+	 *            client method to invoke for a single event
+	 * @param batchMethod
+	 *            client method to invoke for several events
+	 * @param args
+	 *            arguments of the single invoke
+	 * @param coalesceKey
+	 *            pending events of the same method and key are dropped, null
+	 *            if every event has to be delivered
+	 */
+	public void sendToScope(IConnection current, String method,
+			String batchMethod, Object[] args, String coalesceKey) {
+		try {
+			IScope scope = current.getScope();
+			Recipients recipients = getRecipients(scope);
+			enqueue(scope.getName(), new Event(current.getClient().getId(),
+					method, batchMethod, args, coalesceKey,
+					recipients.syncClients));
+		} catch (Exception err) {
+			log.error("[sendToScope]", err);
+		}
+	}
+
+	/**
+	 * Send the event to the screen sharing client of the scope having the
+	 * stream id
+	 *
+	 * @see #sendToScope(IConnection, String, String, Object[], String)
+	 */
+	public void sendToScreenClient(IConnection current, String streamId,
+			String method, String batchMethod, Object[] args,
+			String coalesceKey) {
+		try {
+			IScope scope = current.getScope();
+			Recipient recipient = getRecipients(scope).screenClients
+					.get(streamId);
+			if (recipient == null) {
+				return;
+			}
+			enqueue(scope.getName(), new Event(current.getClient().getId(),
+					method, batchMethod, args, coalesceKey,
+					Collections.singletonList(recipient)));
+		} catch (Exception err) {
+			log.error("[sendToScreenClient]", err);
+		}
+	}
+
+	/**
+	 * Drops the cached recipients and pending events of a scope which has
+	 * been stopped
+	 *
+	 * @param scopeName
+	 */
+	public void removeScope(String scopeName) {
+		recipientCache.remove(scopeName);
+		queues.remove(scopeName);
+	}
+
+	private void enqueue(String scopeName, Event event) {
+		RoomQueue queue = queues.get(scopeName);
+		if (queue == null) {
+			RoomQueue newQueue = new RoomQueue(scopeName);
+			queue = queues.putIfAbsent(scopeName, newQueue);
+			if (queue == null) {
+				queue = newQueue;
+			}
+		}
+		queue.add(event);
+	}
+
+	private Recipients getRecipients(IScope scope) {
+		String scopeName = scope.getName();
+		long version = clientListManager.getScopeVersion(scopeName);
+		Collection<Set<IConnection>> conCollection = scope.getConnections();
+		int connections = 0;
+		for (Set<IConnection> conset : conCollection) {
+			connections += conset.size();
+		}
+		Recipients recipients = recipientCache.get(scopeName);
+		if (recipients != null && recipients.version == version
+				&& recipients.connections == connections) {
+			return recipients;
+		}
+		// the version and count are read before the connections, a
+		// concurrent change leads to another rebuild on the next call
+		List<Recipient> syncClients = new ArrayList<Recipient>();
+		Map<String, Recipient> screenClients = new HashMap<String, Recipient>();
+		for (Set<IConnection> conset : conCollection) {
+			for (IConnection conn : conset) {
+				if (conn == null || !(conn instanceof IServiceCapableConnection)) {
+					continue;
+				}
+				String streamId = conn.getClient().getId();
+				RoomClient rcl = clientListManager.getClientByStreamId(streamId);
+				if (rcl == null) {
+					continue;
+				}
+				Recipient recipient = new Recipient(streamId,
+						(IServiceCapableConnection) conn);
+				if (rcl.getIsScreenClient() != null && rcl.getIsScreenClient()) {
+					screenClients.put(streamId, recipient);
+				} else {
+					syncClients.add(recipient);
+				}
+			}
+		}
+		recipients = new Recipients(version, connections, syncClients,
+				screenClients);
+		recipientCache.put(scopeName, recipients);
+		return recipients;
+	}
+
+	private void flush(List<Event> events) {
+		// recipient -> client method -> arguments, in the order of the events
+		Map<Recipient, Map<String, List<Event>>> byRecipient = new LinkedHashMap<Recipient, Map<String, List<Event>>>();
+		for (Event event : events) {
+			for (Recipient recipient : event.recipients) {
+				if (recipient.streamId.equals(event.senderStreamId)) {
+					continue;
+				}
+				Map<String, List<Event>> byMethod = byRecipient.get(recipient);
+				if (byMethod == null) {
+					byMethod = new LinkedHashMap<String, List<Event>>();
+					byRecipient.put(recipient, byMethod);
+				}
+				List<Event> methodEvents = byMethod.get(event.method);
+				if (methodEvents == null) {
+					methodEvents = new ArrayList<Event>();
+					byMethod.put(event.method, methodEvents);
+				}
+				methodEvents.add(event);
+			}
+		}
+		for (Map.Entry<Recipient, Map<String, List<Event>>> entry : byRecipient
+				.entrySet()) {
+			IServiceCapableConnection conn = entry.getKey().conn;
+			for (List<Event> methodEvents : entry.getValue().values()) {
+				try {
+					Event first = methodEvents.get(0);
+					if (methodEvents.size() == 1) {
+						conn.invoke(first.method, first.args);
+					} else {
+						List<Object[]> batch = new ArrayList<Object[]>(
+								methodEvents.size());
+						for (Event event : methodEvents) {
+							batch.add(event.args);
+						}
+						conn.invoke(first.batchMethod, new Object[] { batch });
+					}
+				} catch (Exception err) {
+					log.error("[flush] " + entry.getKey().streamId, err);
+				}
+			}
+		}
+	}
+}
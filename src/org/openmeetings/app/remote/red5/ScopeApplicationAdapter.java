@@ -29,17 +29,21 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.openmeetings.app.OpenmeetingsVariables;
 import org.openmeetings.app.conference.session.RoomClient;
 import org.openmeetings.app.conference.whiteboard.BrowserStatus;
 import org.openmeetings.app.conference.whiteboard.RoomStatus;
 import org.openmeetings.app.conference.whiteboard.WhiteboardManagement;
+import org.openmeetings.app.data.basic.ConfigurationListener;
 import org.openmeetings.app.data.basic.Configurationmanagement;
 import org.openmeetings.app.data.basic.Sessionmanagement;
 import org.openmeetings.app.data.calendar.daos.MeetingMemberDaoImpl;
 import org.openmeetings.app.data.calendar.management.AppointmentLogic;
 import org.openmeetings.app.data.conference.Roommanagement;
+import org.openmeetings.app.data.flvrecord.FlvRecordingMetaDeltaBuffer;
 import org.openmeetings.app.data.logs.ConferenceLogDaoImpl;
 import org.openmeetings.app.data.user.Usermanagement;
 import org.openmeetings.app.data.user.dao.UsersDaoImpl;
@@ -83,12 +87,18 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	@Autowired
 	private ClientListManager clientListManager;
 	@Autowired
+	private RoomBroadcaster roomBroadcaster;
+	@Autowired
 	private EmoticonsManager emoticonsManager;
 	@Autowired
+	private ChatHistory chatHistory;
+	@Autowired
 	private WhiteBoardService whiteBoardService;
 	@Autowired
 	private FLVRecorderService flvRecorderService;
 	@Autowired
+	private FlvRecordingMetaDeltaBuffer flvRecordingMetaDeltaBuffer;
+	@Autowired
 	private Configurationmanagement cfgManagement;
 	@Autowired
 	private AppointmentLogic appointmentLogic;
@@ -105,7 +115,16 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	@Autowired
 	private MeetingMemberDaoImpl meetingMemberDao;
 
-    private Map<String, StreamingProxy> streamingProxyMap = new HashMap<String, StreamingProxy>();
+    private Map<String, StreamingProxy> streamingProxyMap = new ConcurrentHashMap<String, StreamingProxy>();
+	
+	/*
+	 * Monitors serializing the handlers changing the state of one room, so
+	 * events of different rooms are processed in parallel. Handlers which do
+	 * only broadcast or read are not locked, the ClientListManager is thread
+	 * safe on its own.
+	 */
+	private final ConcurrentHashMap<String, Object> roomLocks = new ConcurrentHashMap<String, Object>();
+	private final Object noRoomLock = new Object();
 	// This is the Folder where all executables are written
 	// for windows platform
 	public static String batchFileDir = "webapps" + File.separatorChar + "ROOT"
@@ -120,13 +139,45 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	public static String configKeyCryptClassName = null;
 	public static Boolean whiteboardDrawStatus = null;
 	
-	private static long broadCastCounter = 0;
+	private static AtomicLong broadCastCounter = new AtomicLong(0);
 	public static boolean initComplete = false;
 
-	public synchronized void resultReceived(IPendingServiceCall arg0) {
+	public void resultReceived(IPendingServiceCall arg0) {
 		// TODO Auto-generated method stub
 	}
 
+	/**
+	 * Get the monitor of the room, the room is identified by the name of its
+	 * scope
+	 * 
+	 * @param scope
+	 * @return
+	 */
+	private Object getRoomLock(IScope scope) {
+		if (scope == null) {
+			return noRoomLock;
+		}
+		Object lock = roomLocks.get(scope.getName());
+		if (lock == null) {
+			Object newLock = new Object();
+			lock = roomLocks.putIfAbsent(scope.getName(), newLock);
+			if (lock == null) {
+				lock = newLock;
+			}
+		}
+		return lock;
+	}
+
+	/**
+	 * Get the monitor of the room of the current connection
+	 * 
+	 * @return
+	 */
+	private Object getRoomLock() {
+		IConnection current = Red5.getConnectionLocal();
+		return getRoomLock(current == null ? null : current.getScope());
+	}
+
 	@Override
 	public synchronized boolean appStart(IScope scope) {
 		try {
@@ -144,6 +195,18 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 				ScopeApplicationAdapter.configKeyCryptClassName = conf
 						.getConf_value();
 			}
+			cfgManagement.addConfigurationListener("crypt_ClassName",
+					new ConfigurationListener() {
+						public void configurationChanged(String CONF_KEY, String value) {
+							ScopeApplicationAdapter.configKeyCryptClassName = value;
+						}
+					});
+			cfgManagement.addConfigurationListener("show.whiteboard.draw.status",
+					new ConfigurationListener() {
+						public void configurationChanged(String CONF_KEY, String value) {
+							ScopeApplicationAdapter.whiteboardDrawStatus = "1".equals(value);
+						}
+					});
 
 			// init your handler here
 
@@ -154,6 +217,8 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 			// not set yet
 			emoticonsManager.loadEmot(scope);
 
+			chatHistory.open(new File(webAppPath));
+
 			for (String scopeName : scope.getScopeNames()) {
 				log.debug("scopeName :: " + scopeName);
 			}
@@ -162,6 +227,10 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 
 			clientListManager.removeAllClients();
 
+			// streams recorded while the server was stopped will never be
+			// completed by their writers
+			flvRecordingMetaDeltaBuffer.recover();
+
 			// OpenXGHttpClient.getInstance().openSIPgUserCreateTest();
 			// OpenXGWrapperClient.getInstance().testConnection();
 			// OpenXGClient.getInstance().testConnection();
@@ -220,66 +289,68 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	}
 
 	@SuppressWarnings({ "rawtypes", "unchecked" })
-	public synchronized Map screenSharerAction(Map map) {
-		try {
+	public Map screenSharerAction(Map map) {
+		synchronized (getRoomLock()) {
+			try {
 
-			IConnection current = Red5.getConnectionLocal();
+				IConnection current = Red5.getConnectionLocal();
 
-			RoomClient currentClient = this.clientListManager
-					.getClientByStreamId(current.getClient().getId());
+				RoomClient currentClient = this.clientListManager
+						.getClientByStreamId(current.getClient().getId());
 
-			Map returnMap = new HashMap();
-			returnMap.put("result", "stopAll");
+				Map returnMap = new HashMap();
+				returnMap.put("result", "stopAll");
 
-			log.debug("-----------  ");
+				log.debug("-----------  ");
 
-			if (currentClient != null) {
+				if (currentClient != null) {
 
-				if (Boolean.valueOf(map.get("stopStreaming").toString())) {
-					log.debug("start streamPublishStart Is Screen Sharing -- Stop ");
+					if (Boolean.valueOf(map.get("stopStreaming").toString())) {
+						log.debug("start streamPublishStart Is Screen Sharing -- Stop ");
 					
-					//Send message to all users
-					syncMessageToCurrentScope("stopRed5ScreenSharing", currentClient, false);
+						//Send message to all users
+						syncMessageToCurrentScope("stopRed5ScreenSharing", currentClient, false);
 
-					if (currentClient.isStartRecording()) {
-						returnMap.put("result", "stopSharingOnly");
-					}
+						if (currentClient.isStartRecording()) {
+							returnMap.put("result", "stopSharingOnly");
+						}
 
-					currentClient.setStartStreaming(false);
-					currentClient.setScreenPublishStarted(false);
+						currentClient.setStartStreaming(false);
+						currentClient.setScreenPublishStarted(false);
 
-					clientListManager.updateClientByStreamId(
-							currentClient.getStreamid(), currentClient);
-				}
-				if (Boolean.valueOf(map.get("stopRecording").toString())) {
-					if (currentClient.isStartStreaming()) {
-						returnMap.put("result", "stopRecordingOnly");
+						clientListManager.updateClientByStreamId(
+								currentClient.getStreamid(), currentClient);
 					}
+					if (Boolean.valueOf(map.get("stopRecording").toString())) {
+						if (currentClient.isStartStreaming()) {
+							returnMap.put("result", "stopRecordingOnly");
+						}
 					
-					//Send message to all users
-					syncMessageToCurrentScope("stopRecordingMessage", currentClient, false);
+						//Send message to all users
+						syncMessageToCurrentScope("stopRecordingMessage", currentClient, false);
 
-					flvRecorderService.stopRecordAndSave(
-							current.getScope(), currentClient, null);
+						flvRecorderService.stopRecordAndSave(
+								current.getScope(), currentClient, null);
 
-					currentClient.setStartRecording(false);
-					currentClient.setIsRecording(false);
+						currentClient.setStartRecording(false);
+						currentClient.setIsRecording(false);
 
-					clientListManager.updateClientByStreamId(
-							currentClient.getStreamid(), currentClient);
-				}
-				if (Boolean.valueOf(map.get("stopPublishing").toString())) {
-					streamPublishingStop();
-					if (currentClient.getIsScreenClient() && currentClient.isStartStreaming()) {
-						returnMap.put("result", "stopPublishingOnly");
+						clientListManager.updateClientByStreamId(
+								currentClient.getStreamid(), currentClient);
+					}
+					if (Boolean.valueOf(map.get("stopPublishing").toString())) {
+						streamPublishingStop();
+						if (currentClient.getIsScreenClient() && currentClient.isStartStreaming()) {
+							returnMap.put("result", "stopPublishingOnly");
+						}
 					}
 				}
+				return returnMap;
+			} catch (Exception err) {
+				log.error("[screenSharerAction]", err);
 			}
-			return returnMap;
-		} catch (Exception err) {
-			log.error("[screenSharerAction]", err);
+			return null;
 		}
-		return null;
 	}
 
 	public List<RoomClient> checkRed5ScreenSharing() {
@@ -294,13 +365,10 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 			RoomClient currentClient = this.clientListManager
 					.getClientByStreamId(streamid);
 
-			HashMap<String, RoomClient> roomList = this.clientListManager
-					.getClientListByRoomAll(currentClient.getRoom_id());
+			List<RoomClient> screenClientList = this.clientListManager
+					.getScreenClientListByRoom(currentClient.getRoom_id());
 
-			for (Iterator<String> iter = roomList.keySet().iterator(); iter
-					.hasNext();) {
-
-				RoomClient rcl = roomList.get(iter.next());
+			for (RoomClient rcl : screenClientList) {
 
 				if (rcl.isStartStreaming()) {
 					screenSharerList.add(rcl);
@@ -317,125 +385,127 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	}
 
 	@SuppressWarnings({ "rawtypes", "unchecked" })
-	public synchronized Map setConnectionAsSharingClient(Map map) {
-		try {
+	public Map setConnectionAsSharingClient(Map map) {
+		synchronized (getRoomLock()) {
+			try {
 
-			IConnection current = Red5.getConnectionLocal();
-			// IServiceCapableConnection service = (IServiceCapableConnection)
-			// current;
+				IConnection current = Red5.getConnectionLocal();
+				// IServiceCapableConnection service = (IServiceCapableConnection)
+				// current;
 
-			log.debug("### setConnectionAsSharingClient: ");
+				log.debug("### setConnectionAsSharingClient: ");
 
-			RoomClient currentClient = this.clientListManager
-					.getClientByStreamId(current.getClient().getId());
+				RoomClient currentClient = this.clientListManager
+						.getClientByStreamId(current.getClient().getId());
 
-			if (currentClient != null) {
+				if (currentClient != null) {
 
-				boolean startRecording = Boolean.valueOf(map.get(
-						"startRecording").toString());
-				boolean startStreaming = Boolean.valueOf(map.get(
-						"startStreaming").toString());
+					boolean startRecording = Boolean.valueOf(map.get(
+							"startRecording").toString());
+					boolean startStreaming = Boolean.valueOf(map.get(
+							"startStreaming").toString());
 
-				currentClient.setRoom_id(Long.parseLong(current.getScope()
-						.getName()));
+					currentClient.setRoom_id(Long.parseLong(current.getScope()
+							.getName()));
 
-				// Set this connection to be a RTMP-Java Client
-				currentClient.setIsScreenClient(true);
-				currentClient.setUser_id(Long.parseLong(map.get("user_id")
-						.toString()));
+					// Set this connection to be a RTMP-Java Client
+					currentClient.setIsScreenClient(true);
+					currentClient.setUser_id(Long.parseLong(map.get("user_id")
+							.toString()));
 
-				if (startStreaming) {
-					currentClient.setStartStreaming(true);
-				}
+					if (startStreaming) {
+						currentClient.setStartStreaming(true);
+					}
 
-				if (startRecording) {
-					currentClient.setStartRecording(true);
-				}
+					if (startRecording) {
+						currentClient.setStartRecording(true);
+					}
 
-				currentClient.setOrganization_id(Long.parseLong(map.get(
-						"organization_id").toString()));
+					currentClient.setOrganization_id(Long.parseLong(map.get(
+							"organization_id").toString()));
 
-				this.clientListManager.updateClientByStreamId(current
-						.getClient().getId(), currentClient);
+					this.clientListManager.updateClientByStreamId(current
+							.getClient().getId(), currentClient);
 
-				Map returnMap = new HashMap();
-				returnMap.put("alreadyPublished", false);
+					Map returnMap = new HashMap();
+					returnMap.put("alreadyPublished", false);
 
-				// if is already started screen sharing, then there is no need
-				// to start it again
-				if (currentClient.isScreenPublishStarted()) {
-					returnMap.put("alreadyPublished", true);
-				}
+					// if is already started screen sharing, then there is no need
+					// to start it again
+					if (currentClient.isScreenPublishStarted()) {
+						returnMap.put("alreadyPublished", true);
+					}
 
-				currentClient.setVX(Integer.parseInt(map.get("screenX")
-						.toString()));
-				currentClient.setVY(Integer.parseInt(map.get("screenY")
-						.toString()));
-				currentClient.setVWidth(Integer.parseInt(map.get("screenWidth")
-						.toString()));
-				currentClient.setVHeight(Integer.parseInt(map.get(
-						"screenHeight").toString()));
+					currentClient.setVX(Integer.parseInt(map.get("screenX")
+							.toString()));
+					currentClient.setVY(Integer.parseInt(map.get("screenY")
+							.toString()));
+					currentClient.setVWidth(Integer.parseInt(map.get("screenWidth")
+							.toString()));
+					currentClient.setVHeight(Integer.parseInt(map.get(
+							"screenHeight").toString()));
 
-				log.debug("screen x,y,width,height " + currentClient.getVX()
-						+ " " + currentClient.getVY() + " "
-						+ currentClient.getVWidth() + " "
-						+ currentClient.getVHeight());
+					log.debug("screen x,y,width,height " + currentClient.getVX()
+							+ " " + currentClient.getVY() + " "
+							+ currentClient.getVWidth() + " "
+							+ currentClient.getVHeight());
 
-				log.debug("publishName :: " + map.get("publishName"));
+					log.debug("publishName :: " + map.get("publishName"));
 
-				currentClient.setStreamPublishName(map.get("publishName")
-						.toString());
+					currentClient.setStreamPublishName(map.get("publishName")
+							.toString());
 
-				RoomClient currentScreenUser = this.clientListManager
-						.getClientByPublicSID(currentClient
-								.getStreamPublishName(), false);
+					RoomClient currentScreenUser = this.clientListManager
+							.getClientByPublicSID(currentClient
+									.getStreamPublishName(), false);
 
-				currentClient.setFirstname(currentScreenUser.getFirstname());
-				currentClient.setLastname(currentScreenUser.getLastname());
+					currentClient.setFirstname(currentScreenUser.getFirstname());
+					currentClient.setLastname(currentScreenUser.getLastname());
 
-				// This is duplicated, but its not sure that in the meantime
-				// somebody requests this Client Object Info
-				this.clientListManager.updateClientByStreamId(current
-						.getClient().getId(), currentClient);
+					// This is duplicated, but its not sure that in the meantime
+					// somebody requests this Client Object Info
+					this.clientListManager.updateClientByStreamId(current
+							.getClient().getId(), currentClient);
 
-				if (startStreaming) {
-					returnMap.put("modus", "startStreaming");
+					if (startStreaming) {
+						returnMap.put("modus", "startStreaming");
 
-					log.debug("start streamPublishStart Is Screen Sharing ");
+						log.debug("start streamPublishStart Is Screen Sharing ");
 					
-					//Send message to all users
-					syncMessageToCurrentScope("newRed5ScreenSharing", currentClient, false);
-				} else if (startRecording) {
-					returnMap.put("modus", "startRecording");
-
-					String recordingName = "Recording "
-							+ CalendarPatterns
-									.getDateWithTimeByMiliSeconds(new Date());
-
-					flvRecorderService.recordMeetingStream(recordingName, "", false);
-				} else if (Boolean.valueOf(map.get("startPublishing").toString())) {
-					if (streamPublishingStart("" + map.get("publishingHost")
-						, "" + map.get("publishingApp")
-						, "" + map.get("publishingId")))
-					{
-						returnMap.put("modus", "startPublishing");
+						//Send message to all users
+						syncMessageToCurrentScope("newRed5ScreenSharing", currentClient, false);
+					} else if (startRecording) {
+						returnMap.put("modus", "startRecording");
+
+						String recordingName = "Recording "
+								+ CalendarPatterns
+										.getDateWithTimeByMiliSeconds(new Date());
+
+						flvRecorderService.recordMeetingStream(recordingName, "", false);
+					} else if (Boolean.valueOf(map.get("startPublishing").toString())) {
+						if (streamPublishingStart("" + map.get("publishingHost")
+							, "" + map.get("publishingApp")
+							, "" + map.get("publishingId")))
+						{
+							returnMap.put("modus", "startPublishing");
+						}
 					}
-				}
 
-				return returnMap;
+					return returnMap;
 
-			} else {
-				throw new Exception("Could not find Screen Sharing Client "
-						+ current.getClient().getId());
-			}
+				} else {
+					throw new Exception("Could not find Screen Sharing Client "
+							+ current.getClient().getId());
+				}
 
-		} catch (Exception err) {
-			log.error("[setConnectionAsSharingClient]", err);
+			} catch (Exception err) {
+				log.error("[setConnectionAsSharingClient]", err);
+			}
+			return null;
 		}
-		return null;
 	}
 
-    public synchronized List<Integer> listRoomBroadcast() {
+    public List<Integer> listRoomBroadcast() {
         List<Integer> broadcastList = new ArrayList<Integer>();
         IConnection current = Red5.getConnectionLocal();
         String streamid = current.getClient().getId();
@@ -474,7 +544,7 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	 * 
 	 * @return
 	 */
-	public synchronized String getPublicSID() {
+	public String getPublicSID() {
 		IConnection current = Red5.getConnectionLocal();
 		RoomClient currentClient = this.clientListManager
 				.getClientByStreamId(current.getClient().getId());
@@ -489,7 +559,7 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	 * 
 	 * @param newPublicSID
 	 */
-	public synchronized Boolean overwritePublicSID(String newPublicSID) {
+	public Boolean overwritePublicSID(String newPublicSID) {
 		try {
 			IConnection current = Red5.getConnectionLocal();
 			RoomClient currentClient = this.clientListManager
@@ -507,6 +577,19 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 		return null;
 	}
 
+	@Override
+	public void appStop(IScope app) {
+		flvRecordingMetaDeltaBuffer.flush();
+		chatHistory.close();
+		super.appStop(app);
+	}
+
+	@Override
+	public void roomStop(IScope room) {
+		this.roomBroadcaster.removeScope(room.getName());
+		super.roomStop(room);
+	}
+
 	/**
 	 * Logic must be before roomDisconnect cause otherwise you cannot throw a
 	 * message to each one
@@ -544,7 +627,7 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	 * Exit Room by Application
 	 * 
 	 */
-	public synchronized void logicalRoomLeave() {
+	public void logicalRoomLeave() {
 		log.debug("logicalRoomLeave ");
 		try {
 			IConnection current = Red5.getConnectionLocal();
@@ -572,129 +655,131 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	 * @param currentClient
 	 * @param currentScope
 	 */
-	public synchronized void roomLeaveByScope(RoomClient currentClient,
+	public void roomLeaveByScope(RoomClient currentClient,
 			IScope currentScope, boolean removeUserFromSessionList) {
-		try {
-
-			log.debug("currentClient " + currentClient);
-			log.debug("currentScope " + currentScope);
-			// log.debug("currentClient "+currentClient.getRoom_id());
-
-			Long room_id = currentClient.getRoom_id();
-
-			// Log the User
-			conferenceLogDao.addConferenceLog("roomLeave",
-					currentClient.getUser_id(), currentClient.getStreamid(),
-					room_id, currentClient.getUserip(), "",
-					currentClient.getExternalUserId(),
-					currentClient.getExternalUserType(),
-					currentClient.getMail(), currentClient.getFirstname(),
-					currentClient.getLastname());
-
-			// Remove User from Sync List's
-			if (room_id != null) {
-				this.whiteBoardService.removeUserFromAllLists(currentScope,
-						currentClient);
-			}
-
-			log.debug("removing USername " + currentClient.getUsername() + " "
-					+ currentClient.getConnectedSince() + " streamid: "
-					+ currentClient.getStreamid());
+		synchronized (getRoomLock(currentScope)) {
+			try {
+
+				log.debug("currentClient " + currentClient);
+				log.debug("currentScope " + currentScope);
+				// log.debug("currentClient "+currentClient.getRoom_id());
+
+				Long room_id = currentClient.getRoom_id();
+
+				// Log the User
+				conferenceLogDao.addConferenceLog("roomLeave",
+						currentClient.getUser_id(), currentClient.getStreamid(),
+						room_id, currentClient.getUserip(), "",
+						currentClient.getExternalUserId(),
+						currentClient.getExternalUserType(),
+						currentClient.getMail(), currentClient.getFirstname(),
+						currentClient.getLastname());
+
+				// Remove User from Sync List's
+				if (room_id != null) {
+					this.whiteBoardService.removeUserFromAllLists(currentScope,
+							currentClient);
+				}
 
-			// stop and save any recordings
-			if (currentClient.getIsRecording()) {
-				log.debug("*** roomLeave Current Client is Recording - stop that");
-				// StreamService.stopRecordAndSave(currentScope,
-				// currentClient.getRoomRecordingName(), currentClient);
+				log.debug("removing USername " + currentClient.getUsername() + " "
+						+ currentClient.getConnectedSince() + " streamid: "
+						+ currentClient.getStreamid());
 
-				this.flvRecorderService.stopRecordAndSave(currentScope,
-						currentClient, null);
+				// stop and save any recordings
+				if (currentClient.getIsRecording()) {
+					log.debug("*** roomLeave Current Client is Recording - stop that");
+					// StreamService.stopRecordAndSave(currentScope,
+					// currentClient.getRoomRecordingName(), currentClient);
 
-				// set to true and overwrite the default one cause otherwise no
-				// notification is send
-				currentClient.setIsRecording(true);
-			}
+					this.flvRecorderService.stopRecordAndSave(currentScope,
+							currentClient, null);
 
-			// Notify all clients of the same currentScope (room) with domain
-			// and room except the current disconnected cause it could throw an exception
-			log.debug("currentScope " + currentScope);
+					// set to true and overwrite the default one cause otherwise no
+					// notification is send
+					currentClient.setIsRecording(true);
+				}
 
-			if (currentScope != null && currentScope.getConnections() != null) {
-				// Notify Users of the current Scope
-				Collection<Set<IConnection>> conCollection = currentScope
-						.getConnections();
-				for (Set<IConnection> conset : conCollection) {
-					for (IConnection cons : conset) {
-						if (cons != null) {
-							if (cons instanceof IServiceCapableConnection) {
+				// Notify all clients of the same currentScope (room) with domain
+				// and room except the current disconnected cause it could throw an exception
+				log.debug("currentScope " + currentScope);
 
-								log.debug("sending roomDisconnect to " + cons
-										+ " client id "
-										+ cons.getClient().getId());
+				if (currentScope != null && currentScope.getConnections() != null) {
+					// Notify Users of the current Scope
+					Collection<Set<IConnection>> conCollection = currentScope
+							.getConnections();
+					for (Set<IConnection> conset : conCollection) {
+						for (IConnection cons : conset) {
+							if (cons != null) {
+								if (cons instanceof IServiceCapableConnection) {
 
-								RoomClient rcl = this.clientListManager
-										.getClientByStreamId(cons.getClient()
-												.getId());
+									log.debug("sending roomDisconnect to " + cons
+											+ " client id "
+											+ cons.getClient().getId());
 
-								/*
-								 * Check if the Client does still exist on the
-								 * list
-								 */
-								if (rcl != null) {
+									RoomClient rcl = this.clientListManager
+											.getClientByStreamId(cons.getClient()
+													.getId());
 
 									/*
-									 * Do not send back to sender, but actually
-									 * all other clients should receive this
-									 * message swagner 01.10.2009
+									 * Check if the Client does still exist on the
+									 * list
 									 */
-									if (!currentClient.getStreamid().equals(
-											rcl.getStreamid())) {
+									if (rcl != null) {
+
+										/*
+										 * Do not send back to sender, but actually
+										 * all other clients should receive this
+										 * message swagner 01.10.2009
+										 */
+										if (!currentClient.getStreamid().equals(
+												rcl.getStreamid())) {
 										
-										// add Notification if another user isrecording
-										log.debug("###########[roomLeave]");
-										if (rcl.getIsRecording()) {
-											log.debug("*** roomLeave Any Client is Recording - stop that");
-											this.flvRecorderService
-													.stopRecordingShowForClient(
-															cons, currentClient);
-										}
+											// add Notification if another user isrecording
+											log.debug("###########[roomLeave]");
+											if (rcl.getIsRecording()) {
+												log.debug("*** roomLeave Any Client is Recording - stop that");
+												this.flvRecorderService
+														.stopRecordingShowForClient(
+																cons, currentClient);
+											}
 										
-										//If the user was a avclient, we do not broadcast a message about that to everybody
-										if (currentClient.getIsAVClient()) {
-											continue;
-										}
+											//If the user was a avclient, we do not broadcast a message about that to everybody
+											if (currentClient.getIsAVClient()) {
+												continue;
+											}
 										
-										if (rcl.getIsScreenClient() != null && rcl
-												.getIsScreenClient()) {
-											// screen sharing clients do not receive events
-											continue;
-										} else if (rcl.getIsAVClient()) {
-											// AVClients or potential AVClients do not receive events
-											continue;
-										}
+											if (rcl.getIsScreenClient() != null && rcl
+													.getIsScreenClient()) {
+												// screen sharing clients do not receive events
+												continue;
+											} else if (rcl.getIsAVClient()) {
+												// AVClients or potential AVClients do not receive events
+												continue;
+											}
 										
-										// Send to all connected users
-										((IServiceCapableConnection) cons)
-												.invoke("roomDisconnect",
-													new Object[] { currentClient },this);
-										log.debug("sending roomDisconnect to " + cons);
+											// Send to all connected users
+											((IServiceCapableConnection) cons)
+													.invoke("roomDisconnect",
+														new Object[] { currentClient },this);
+											log.debug("sending roomDisconnect to " + cons);
+										}
+									} else {
+										log.debug("For this StreamId: "
+												+ cons.getClient().getId()
+												+ " There is no Client in the List anymore");
 									}
-								} else {
-									log.debug("For this StreamId: "
-											+ cons.getClient().getId()
-											+ " There is no Client in the List anymore");
 								}
 							}
 						}
 					}
 				}
-			}
 
-			if (removeUserFromSessionList) {
-				this.clientListManager.removeClient(currentClient.getStreamid());
+				if (removeUserFromSessionList) {
+					this.clientListManager.removeClient(currentClient.getStreamid());
+				}
+			} catch (Exception err) {
+				log.error("[roomLeaveByScope]", err);
 			}
-		} catch (Exception err) {
-			log.error("[roomLeaveByScope]", err);
 		}
 	}
 
@@ -706,97 +791,99 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	 * 
 	 */
 	@Override
-	public synchronized void streamPublishStart(IBroadcastStream stream) {
-		try {
-			IConnection current = Red5.getConnectionLocal();
-			String streamid = current.getClient().getId();
-			RoomClient currentClient = this.clientListManager
-					.getClientByStreamId(streamid);
+	public void streamPublishStart(IBroadcastStream stream) {
+		synchronized (getRoomLock()) {
+			try {
+				IConnection current = Red5.getConnectionLocal();
+				String streamid = current.getClient().getId();
+				RoomClient currentClient = this.clientListManager
+						.getClientByStreamId(streamid);
 
-			//We make a second object the has the reference to the object 
-			//that we will use to send to all participents
-			RoomClient clientObjectSendToSync = currentClient;
+				//We make a second object the has the reference to the object 
+				//that we will use to send to all participents
+				RoomClient clientObjectSendToSync = currentClient;
 			
-			// Notify all the clients that the stream had been started
-			log.debug("start streamPublishStart broadcast start: "
-					+ stream.getPublishedName() + " CONN " + current);
+				// Notify all the clients that the stream had been started
+				log.debug("start streamPublishStart broadcast start: "
+						+ stream.getPublishedName() + " CONN " + current);
 
-			// In case its a screen sharing we start a new Video for that
-			if (currentClient.getIsScreenClient()) {
+				// In case its a screen sharing we start a new Video for that
+				if (currentClient.getIsScreenClient()) {
 
-				currentClient.setScreenPublishStarted(true);
+					currentClient.setScreenPublishStarted(true);
 
-				this.clientListManager.updateClientByStreamId(current
-						.getClient().getId(), currentClient);
-			}
-			//If its an audio/video client then send the session object with the full 
-			//data to everybody
-			else if (currentClient.getIsAVClient()) {
-				clientObjectSendToSync = this.clientListManager.getClientByPublicSID(
-											currentClient.getPublicSID(), false);
-			}
+					this.clientListManager.updateClientByStreamId(current
+							.getClient().getId(), currentClient);
+				}
+				//If its an audio/video client then send the session object with the full 
+				//data to everybody
+				else if (currentClient.getIsAVClient()) {
+					clientObjectSendToSync = this.clientListManager.getClientByPublicSID(
+												currentClient.getPublicSID(), false);
+				}
 			
-			log.debug("newStream SEND: "+currentClient);
+				log.debug("newStream SEND: "+currentClient);
 
-			// Notify all users of the same Scope
-			// We need to iterate through the streams to catch if anybody is recording
-			Collection<Set<IConnection>> conCollection = current.getScope()
-					.getConnections();
-			for (Set<IConnection> conset : conCollection) {
-				for (IConnection conn : conset) {
-					if (conn != null) {
-						if (conn instanceof IServiceCapableConnection) {
+				// Notify all users of the same Scope
+				// We need to iterate through the streams to catch if anybody is recording
+				Collection<Set<IConnection>> conCollection = current.getScope()
+						.getConnections();
+				for (Set<IConnection> conset : conCollection) {
+					for (IConnection conn : conset) {
+						if (conn != null) {
+							if (conn instanceof IServiceCapableConnection) {
 							
-							RoomClient rcl = this.clientListManager
-									.getClientByStreamId(conn.getClient()
-											.getId());
+								RoomClient rcl = this.clientListManager
+										.getClientByStreamId(conn.getClient()
+												.getId());
 							
-							if (rcl == null) {
-								log.debug("RCL IS NULL newStream SEND");
-								continue;
-							}
+								if (rcl == null) {
+									log.debug("RCL IS NULL newStream SEND");
+									continue;
+								}
 							
-							log.debug("check send to "+rcl);
+								log.debug("check send to "+rcl);
 							
-							if (rcl.getPublicSID() == "") {
-								log.debug("publicSID IS NULL newStream SEND");
-								continue;
-							}
-							if (rcl.getIsRecording()) {
-								log.debug("RCL getIsRecording newStream SEND");
-								this.flvRecorderService
-										.addRecordingByStreamId(current,
-												streamid, currentClient,
-												rcl.getFlvRecordingId());
-							}
-							if (rcl.getIsAVClient()) {
-								log.debug("RCL getIsAVClient newStream SEND");
-								continue;
-							}
-							if (rcl.getIsScreenClient() == null || rcl.getIsScreenClient()) {
-								log.debug("RCL getIsScreenClient newStream SEND");
-								continue;
-							}
+								if (rcl.getPublicSID() == "") {
+									log.debug("publicSID IS NULL newStream SEND");
+									continue;
+								}
+								if (rcl.getIsRecording()) {
+									log.debug("RCL getIsRecording newStream SEND");
+									this.flvRecorderService
+											.addRecordingByStreamId(current,
+													streamid, currentClient,
+													rcl.getFlvRecordingId());
+								}
+								if (rcl.getIsAVClient()) {
+									log.debug("RCL getIsAVClient newStream SEND");
+									continue;
+								}
+								if (rcl.getIsScreenClient() == null || rcl.getIsScreenClient()) {
+									log.debug("RCL getIsScreenClient newStream SEND");
+									continue;
+								}
 							
-							if (rcl.getPublicSID().equals(currentClient.getPublicSID())) {
-								log.debug("RCL publicSID is equal newStream SEND");
-								continue;
-							}
+								if (rcl.getPublicSID().equals(currentClient.getPublicSID())) {
+									log.debug("RCL publicSID is equal newStream SEND");
+									continue;
+								}
 							
-							log.debug("RCL SEND is equal newStream SEND "+rcl.getPublicSID()+" || "+rcl.getUserport());
+								log.debug("RCL SEND is equal newStream SEND "+rcl.getPublicSID()+" || "+rcl.getUserport());
 								
-							IServiceCapableConnection iStream = (IServiceCapableConnection) conn;
-							iStream.invoke("newStream",
-									new Object[] { clientObjectSendToSync },
-									this);
+								IServiceCapableConnection iStream = (IServiceCapableConnection) conn;
+								iStream.invoke("newStream",
+										new Object[] { clientObjectSendToSync },
+										this);
 
+							}
 						}
 					}
 				}
-			}
 
-		} catch (Exception err) {
-			log.error("[streamPublishStart]", err);
+			} catch (Exception err) {
+				log.error("[streamPublishStart]", err);
+			}
 		}
 	}
 
@@ -880,19 +967,21 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	 * 
 	 */
 	@Override
-	public synchronized void streamBroadcastClose(IBroadcastStream stream) {
+	public void streamBroadcastClose(IBroadcastStream stream) {
+		synchronized (getRoomLock()) {
 
-		// Notify all the clients that the stream had been closed
-		log.debug("start streamBroadcastClose broadcast close: "
-				+ stream.getPublishedName());
-		try {
-			streamPublishingStop();
+			// Notify all the clients that the stream had been closed
+			log.debug("start streamBroadcastClose broadcast close: "
+					+ stream.getPublishedName());
+			try {
+				streamPublishingStop();
 			
-			IConnection current = Red5.getConnectionLocal();
-			RoomClient rcl = clientListManager.getClientByStreamId(current.getClient().getId());
-			sendClientBroadcastNotifications(stream, "closeStream", rcl);
-		} catch (Exception e) {
-			log.error("[streamBroadcastClose]", e);
+				IConnection current = Red5.getConnectionLocal();
+				RoomClient rcl = clientListManager.getClientByStreamId(current.getClient().getId());
+				sendClientBroadcastNotifications(stream, "closeStream", rcl);
+			} catch (Exception e) {
+				log.error("[streamBroadcastClose]", e);
+			}
 		}
 	}
 
@@ -902,7 +991,7 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	 * @return void
 	 * 
 	 */
-	private synchronized void sendClientBroadcastNotifications(
+	private void sendClientBroadcastNotifications(
 			IBroadcastStream stream, String clientFunction, RoomClient rc) {
 		try {
 
@@ -1011,36 +1100,38 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	 * @param publicSID
 	 * @return
 	 */
-	public synchronized Long addModerator(String publicSID) {
-		try {
+	public Long addModerator(String publicSID) {
+		synchronized (getRoomLock()) {
+			try {
 
-			log.debug("*..*addModerator publicSID: " + publicSID);
+				log.debug("*..*addModerator publicSID: " + publicSID);
 
-			// String streamid = current.getClient().getId();
+				// String streamid = current.getClient().getId();
 
-			RoomClient currentClient = this.clientListManager
-					.getClientByPublicSID(publicSID, false);
+				RoomClient currentClient = this.clientListManager
+						.getClientByPublicSID(publicSID, false);
 
-			if (currentClient == null) {
-				return -1L;
-			}
-			Long room_id = currentClient.getRoom_id();
+				if (currentClient == null) {
+					return -1L;
+				}
+				Long room_id = currentClient.getRoom_id();
 
-			currentClient.setIsMod(true);
-			// Put the mod-flag to true for this client
-			this.clientListManager.updateClientByStreamId(
-					currentClient.getStreamid(), currentClient);
+				currentClient.setIsMod(true);
+				// Put the mod-flag to true for this client
+				this.clientListManager.updateClientByStreamId(
+						currentClient.getStreamid(), currentClient);
 
-			List<RoomClient> currentMods = this.clientListManager
-					.getCurrentModeratorByRoom(room_id);
+				List<RoomClient> currentMods = this.clientListManager
+						.getCurrentModeratorByRoom(room_id);
 			
-			//Send message to all users
-			syncMessageToCurrentScope("setNewModeratorByList", currentMods, true);
+				//Send message to all users
+				syncMessageToCurrentScope("setNewModeratorByList", currentMods, true);
 
-		} catch (Exception err) {
-			log.error("[addModerator]", err);
+			} catch (Exception err) {
+				log.error("[addModerator]", err);
+			}
+			return -1L;
 		}
-		return -1L;
 	}
 
 	@SuppressWarnings("unchecked")
@@ -1063,248 +1154,228 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 			// log.debug("[setNewCursorPosition y]"+cursor.get("cursor_y"));
 			// log.debug("[setNewCursorPosition publicSID]"+cursor.get("publicSID"));
 
-			// Notify all users of the same Scope
-			Collection<Set<IConnection>> conCollection = current.getScope()
-					.getConnections();
-			for (Set<IConnection> conset : conCollection) {
-				for (IConnection conn : conset) {
-					if (conn != null) {
-						if (conn instanceof IServiceCapableConnection) {
-							if (conn.equals(current)) {
-								continue;
-							} else {
-								RoomClient rcl = this.clientListManager
-										.getClientByStreamId(conn.getClient()
-												.getId());
-								if (rcl == null) {
-									// continue;
-								} else if (rcl.getIsScreenClient() != null
-										&& rcl.getIsScreenClient()) {
-									// continue;
-								} else {
-									// log.debug("is this users still alive? :"+rcl);
-									// Check if the Client is in the same room
-									// and same domain
-									IServiceCapableConnection iStream = (IServiceCapableConnection) conn;
-									// log.info("IServiceCapableConnection ID "
-									// + iStream.getClient().getId());
-									iStream.invoke("newRed5ScreenCursor",
-											new Object[] { cursor }, this);
-									// log.debug("send Notification to");
-								}
-							}
-						}
-					}
-				}
-			}
+			// Notify all users of the same Scope, only the latest position of
+			// the sender is sent if the cursor moves faster than the batch
+			// window
+			this.roomBroadcaster.sendToScope(current, "newRed5ScreenCursor",
+					"newRed5ScreenCursorBatch", new Object[] { cursor },
+					streamid);
 
 		} catch (Exception err) {
 			log.error("[setNewCursorPosition]", err);
 		}
 	}
 
-	public synchronized Long removeModerator(String publicSID) {
-		try {
+	public Long removeModerator(String publicSID) {
+		synchronized (getRoomLock()) {
+			try {
 
-			log.debug("*..*addModerator publicSID: " + publicSID);
+				log.debug("*..*addModerator publicSID: " + publicSID);
 
-			IConnection current = Red5.getConnectionLocal();
-			// String streamid = current.getClient().getId();
+				IConnection current = Red5.getConnectionLocal();
+				// String streamid = current.getClient().getId();
 
-			RoomClient currentClient = this.clientListManager
-					.getClientByPublicSID(publicSID, false);
+				RoomClient currentClient = this.clientListManager
+						.getClientByPublicSID(publicSID, false);
 
-			if (currentClient == null) {
-				return -1L;
-			}
-			Long room_id = currentClient.getRoom_id();
+				if (currentClient == null) {
+					return -1L;
+				}
+				Long room_id = currentClient.getRoom_id();
 
-			currentClient.setIsMod(false);
-			// Put the mod-flag to true for this client
-			this.clientListManager.updateClientByStreamId(
-					currentClient.getStreamid(), currentClient);
+				currentClient.setIsMod(false);
+				// Put the mod-flag to true for this client
+				this.clientListManager.updateClientByStreamId(
+						currentClient.getStreamid(), currentClient);
 
-			List<RoomClient> currentMods = this.clientListManager
-					.getCurrentModeratorByRoom(room_id);
+				List<RoomClient> currentMods = this.clientListManager
+						.getCurrentModeratorByRoom(room_id);
 
-			// Notify all clients of the same scope (room)
-			Collection<Set<IConnection>> conCollection = current.getScope()
-					.getConnections();
-			for (Set<IConnection> conset : conCollection) {
-				for (IConnection conn : conset) {
-					if (conn != null) {
-						RoomClient rcl = this.clientListManager
-								.getClientByStreamId(conn.getClient().getId());
-						if (rcl == null) {
-							// continue;
-						} else if (rcl.getIsScreenClient() != null
-								&& rcl.getIsScreenClient()) {
-							// continue;
-						} else {
-							log.debug("Send Flag to Client: "
-									+ rcl.getUsername());
-							if (conn instanceof IServiceCapableConnection) {
-								((IServiceCapableConnection) conn).invoke(
-										"setNewModeratorByList",
-										new Object[] { currentMods }, this);
-								log.debug("sending setNewModeratorByList to "
-										+ conn);
+				// Notify all clients of the same scope (room)
+				Collection<Set<IConnection>> conCollection = current.getScope()
+						.getConnections();
+				for (Set<IConnection> conset : conCollection) {
+					for (IConnection conn : conset) {
+						if (conn != null) {
+							RoomClient rcl = this.clientListManager
+									.getClientByStreamId(conn.getClient().getId());
+							if (rcl == null) {
+								// continue;
+							} else if (rcl.getIsScreenClient() != null
+									&& rcl.getIsScreenClient()) {
+								// continue;
+							} else {
+								log.debug("Send Flag to Client: "
+										+ rcl.getUsername());
+								if (conn instanceof IServiceCapableConnection) {
+									((IServiceCapableConnection) conn).invoke(
+											"setNewModeratorByList",
+											new Object[] { currentMods }, this);
+									log.debug("sending setNewModeratorByList to "
+											+ conn);
+								}
 							}
 						}
 					}
 				}
-			}
 
-		} catch (Exception err) {
-			log.error("[addModerator]", err);
+			} catch (Exception err) {
+				log.error("[addModerator]", err);
+			}
+			return -1L;
 		}
-		return -1L;
 	}
 
-	public synchronized Long setBroadCastingFlag(String publicSID,
+	public Long setBroadCastingFlag(String publicSID,
 			boolean value, Integer interviewPodId) {
-		try {
+		synchronized (getRoomLock()) {
+			try {
 
-			log.debug("*..*setBroadCastingFlag publicSID: " + publicSID);
+				log.debug("*..*setBroadCastingFlag publicSID: " + publicSID);
 
-			IConnection current = Red5.getConnectionLocal();
-			// String streamid = current.getClient().getId();
+				IConnection current = Red5.getConnectionLocal();
+				// String streamid = current.getClient().getId();
 
-            RoomClient currentClient = this.clientListManager
-					.getClientByPublicSID(publicSID, false);
+	            RoomClient currentClient = this.clientListManager
+						.getClientByPublicSID(publicSID, false);
 
-			if (currentClient == null) {
-				return -1L;
-			}
+				if (currentClient == null) {
+					return -1L;
+				}
 
-			currentClient.setIsBroadcasting(value);
-			currentClient.setInterviewPodId(interviewPodId);
+				currentClient.setIsBroadcasting(value);
+				currentClient.setInterviewPodId(interviewPodId);
 
-            // Put the mod-flag to true for this client
-		    this.clientListManager.updateClientByStreamId(
-		    		currentClient.getStreamid(), currentClient);
+	            // Put the mod-flag to true for this client
+			    this.clientListManager.updateClientByStreamId(
+			    		currentClient.getStreamid(), currentClient);
 		    
-			// Notify all clients of the same scope (room)
-			Collection<Set<IConnection>> conCollection = current.getScope()
-					.getConnections();
-			for (Set<IConnection> conset : conCollection) {
-				for (IConnection conn : conset) {
-					if (conn != null) {
-						RoomClient rcl = this.clientListManager
-								.getClientByStreamId(conn.getClient().getId());
-						if (rcl == null) {
-							continue;
-						} else if (rcl.getIsScreenClient() != null
-								&& rcl.getIsScreenClient()) {
-							continue;
-						} else if (rcl.getIsAVClient()) {
-							continue;
-						}
+				// Notify all clients of the same scope (room)
+				Collection<Set<IConnection>> conCollection = current.getScope()
+						.getConnections();
+				for (Set<IConnection> conset : conCollection) {
+					for (IConnection conn : conset) {
+						if (conn != null) {
+							RoomClient rcl = this.clientListManager
+									.getClientByStreamId(conn.getClient().getId());
+							if (rcl == null) {
+								continue;
+							} else if (rcl.getIsScreenClient() != null
+									&& rcl.getIsScreenClient()) {
+								continue;
+							} else if (rcl.getIsAVClient()) {
+								continue;
+							}
 						
-						log.debug("Send Flag to Client: "
-								+ rcl.getUsername());
-						if (conn instanceof IServiceCapableConnection) {
-							((IServiceCapableConnection) conn).invoke(
-									"setNewBroadCastingFlag",
-									new Object[] { currentClient }, this);
-							log.debug("sending setNewBroadCastingFlag to "
-									+ conn);
+							log.debug("Send Flag to Client: "
+									+ rcl.getUsername());
+							if (conn instanceof IServiceCapableConnection) {
+								((IServiceCapableConnection) conn).invoke(
+										"setNewBroadCastingFlag",
+										new Object[] { currentClient }, this);
+								log.debug("sending setNewBroadCastingFlag to "
+										+ conn);
+							}
 						}
 					}
 				}
-			}
 
-		} catch (Exception err) {
-			log.error("[setBroadCastingFlag]", err);
+			} catch (Exception err) {
+				log.error("[setBroadCastingFlag]", err);
+			}
+			return -1L;
 		}
-		return -1L;
 	}
 
-	public synchronized Long giveExclusiveAudio(String publicSID) {
-		try {
+	public Long giveExclusiveAudio(String publicSID) {
+		synchronized (getRoomLock()) {
+			try {
 
-			log.debug("*..*giveExclusiveAudio publicSID: " + publicSID);
+				log.debug("*..*giveExclusiveAudio publicSID: " + publicSID);
 
-			IConnection current = Red5.getConnectionLocal();
-			// String streamid = current.getClient().getId();
+				IConnection current = Red5.getConnectionLocal();
+				// String streamid = current.getClient().getId();
 
-			RoomClient currentClient = this.clientListManager
-					.getClientByPublicSID(publicSID, false);
+				RoomClient currentClient = this.clientListManager
+						.getClientByPublicSID(publicSID, false);
 
-			if (currentClient == null) {
-				return -1L;
-			}
+				if (currentClient == null) {
+					return -1L;
+				}
 
-			// Put the mod-flag to true for this client
-			currentClient.setMicMuted(false);
-			this.clientListManager.updateClientByStreamId(
-					currentClient.getStreamid(), currentClient);
+				// Put the mod-flag to true for this client
+				currentClient.setMicMuted(false);
+				this.clientListManager.updateClientByStreamId(
+						currentClient.getStreamid(), currentClient);
 
-			// Notify all clients of the same scope (room)
-			Collection<Set<IConnection>> conCollection = current.getScope()
-					.getConnections();
-			for (Set<IConnection> conset : conCollection) {
-				for (IConnection conn : conset) {
-					if (conn != null) {
-						RoomClient rcl = this.clientListManager
-								.getClientByStreamId(conn.getClient().getId());
-						if (rcl == null) {
-							// continue;
-						} else if (rcl.getIsScreenClient() != null
-								&& rcl.getIsScreenClient()) {
-							// continue;
-						} else {
-							if (rcl != currentClient) {
-								rcl.setMicMuted(true);
-								this.clientListManager.updateClientByStreamId(
-										rcl.getStreamid(), rcl);
-							}
-							log.debug("Send Flag to Client: "
-									+ rcl.getUsername());
-							if (conn instanceof IServiceCapableConnection) {
-								((IServiceCapableConnection) conn).invoke(
-										"receiveExclusiveAudioFlag",
-										new Object[] { currentClient }, this);
-								log.debug("sending receiveExclusiveAudioFlag to "
-										+ conn);
+				// Notify all clients of the same scope (room)
+				Collection<Set<IConnection>> conCollection = current.getScope()
+						.getConnections();
+				for (Set<IConnection> conset : conCollection) {
+					for (IConnection conn : conset) {
+						if (conn != null) {
+							RoomClient rcl = this.clientListManager
+									.getClientByStreamId(conn.getClient().getId());
+							if (rcl == null) {
+								// continue;
+							} else if (rcl.getIsScreenClient() != null
+									&& rcl.getIsScreenClient()) {
+								// continue;
+							} else {
+								if (rcl != currentClient) {
+									rcl.setMicMuted(true);
+									this.clientListManager.updateClientByStreamId(
+											rcl.getStreamid(), rcl);
+								}
+								log.debug("Send Flag to Client: "
+										+ rcl.getUsername());
+								if (conn instanceof IServiceCapableConnection) {
+									((IServiceCapableConnection) conn).invoke(
+											"receiveExclusiveAudioFlag",
+											new Object[] { currentClient }, this);
+									log.debug("sending receiveExclusiveAudioFlag to "
+											+ conn);
+								}
 							}
 						}
 					}
 				}
-			}
 
-		} catch (Exception err) {
-			log.error("[giveExclusiveAudio]", err);
+			} catch (Exception err) {
+				log.error("[giveExclusiveAudio]", err);
+			}
+			return -1L;
 		}
-		return -1L;
 	}
 
-	public synchronized Long switchMicMuted(String publicSID, boolean mute) {
-		try {
-			log.debug("*..*switchMicMuted publicSID: " + publicSID);
+	public Long switchMicMuted(String publicSID, boolean mute) {
+		synchronized (getRoomLock()) {
+			try {
+				log.debug("*..*switchMicMuted publicSID: " + publicSID);
 
-			RoomClient currentClient = this.clientListManager
-					.getClientByPublicSID(publicSID, false);
-			if (currentClient == null) {
-				return -1L;
-			}
+				RoomClient currentClient = this.clientListManager
+						.getClientByPublicSID(publicSID, false);
+				if (currentClient == null) {
+					return -1L;
+				}
 
-			currentClient.setMicMuted(mute);
-			this.clientListManager.updateClientByStreamId(
-					currentClient.getStreamid(), currentClient);
+				currentClient.setMicMuted(mute);
+				this.clientListManager.updateClientByStreamId(
+						currentClient.getStreamid(), currentClient);
 
-			HashMap<Integer, Object> newMessage = new HashMap<Integer, Object>();
-			newMessage.put(0, "updateMuteStatus");
-			newMessage.put(1, currentClient);
-			this.sendMessageWithClient(newMessage);
+				HashMap<Integer, Object> newMessage = new HashMap<Integer, Object>();
+				newMessage.put(0, "updateMuteStatus");
+				newMessage.put(1, currentClient);
+				this.sendMessageWithClient(newMessage);
 
-		} catch (Exception err) {
-			log.error("[switchMicMuted]", err);
+			} catch (Exception err) {
+				log.error("[switchMicMuted]", err);
+			}
+			return 0L;
 		}
-		return 0L;
 	}
 
-    public synchronized Boolean getMicMutedByPublicSID(String publicSID) {
+    public Boolean getMicMutedByPublicSID(String publicSID) {
         try {
 			RoomClient currentClient = this.clientListManager.getClientByPublicSID(publicSID, false);
 			if (currentClient == null) {
@@ -1333,7 +1404,7 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	 * @return Long 1 => means get Moderation, 2 => ask Moderator for
 	 *         Moderation, 3 => wait for Moderator
 	 */
-	public synchronized Long applyForModeration(String publicSID) {
+	public Long applyForModeration(String publicSID) {
 		try {
 
 			RoomClient currentClient = this.clientListManager
@@ -1368,13 +1439,13 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	 * 
 	 * @return long broadCastId
 	 */
-	public synchronized long getBroadCastId() {
+	public long getBroadCastId() {
 		try {
 			IConnection current = Red5.getConnectionLocal();
 			String streamid = current.getClient().getId();
 			RoomClient currentClient = this.clientListManager
 					.getClientByStreamId(streamid);
-			currentClient.setBroadCastID(broadCastCounter++);
+			currentClient.setBroadCastID(broadCastCounter.getAndIncrement());
 			this.clientListManager.updateClientByStreamId(streamid,
 					currentClient);
 			return currentClient.getBroadCastID();
@@ -1395,65 +1466,67 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	 * @param newMessage
 	 * @return
 	 */
-	public synchronized RoomClient setUserAVSettings(String avsettings,
+	public RoomClient setUserAVSettings(String avsettings,
 			Object newMessage, Integer vWidth, Integer vHeight, 
 			long room_id, String publicSID, Integer interviewPodId) {
-		try {
+		synchronized (getRoomLock()) {
+			try {
 
-			IConnection current = Red5.getConnectionLocal();
-			String streamid = current.getClient().getId();
-			RoomClient currentClient = this.clientListManager
-					.getClientByStreamId(streamid);
-			currentClient.setAvsettings(avsettings);
-			currentClient.setRoom_id(room_id);
-			currentClient.setPublicSID(publicSID);
-			currentClient.setIsAVClient(true);
-			currentClient.setVWidth(vWidth);
-			currentClient.setVHeight(vHeight);
-			currentClient.setInterviewPodId(interviewPodId);
-			// Long room_id = currentClient.getRoom_id();
-			this.clientListManager.updateAVClientByStreamId(streamid,
-					currentClient);
+				IConnection current = Red5.getConnectionLocal();
+				String streamid = current.getClient().getId();
+				RoomClient currentClient = this.clientListManager
+						.getClientByStreamId(streamid);
+				currentClient.setAvsettings(avsettings);
+				currentClient.setRoom_id(room_id);
+				currentClient.setPublicSID(publicSID);
+				currentClient.setIsAVClient(true);
+				currentClient.setVWidth(vWidth);
+				currentClient.setVHeight(vHeight);
+				currentClient.setInterviewPodId(interviewPodId);
+				// Long room_id = currentClient.getRoom_id();
+				this.clientListManager.updateAVClientByStreamId(streamid,
+						currentClient);
 
-			HashMap<String, Object> hsm = new HashMap<String, Object>();
-			hsm.put("client", currentClient);
-			hsm.put("message", newMessage);
+				HashMap<String, Object> hsm = new HashMap<String, Object>();
+				hsm.put("client", currentClient);
+				hsm.put("message", newMessage);
 
-			Collection<Set<IConnection>> conCollection = current.getScope()
-					.getConnections();
-			for (Set<IConnection> conset : conCollection) {
-				for (IConnection conn : conset) {
-					if (conn != null) {
-						if (conn instanceof IServiceCapableConnection) {
-							RoomClient rcl = this.clientListManager
-									.getClientByStreamId(conn.getClient()
-											.getId());
-							if (rcl == null) {
-								// continue;
-							} else if (rcl.getIsScreenClient() != null
-									&& rcl.getIsScreenClient()) {
-								// continue;
-							} else {
-								((IServiceCapableConnection) conn).invoke(
-										"sendVarsToMessageWithClient",
-										new Object[] { hsm }, this);
+				Collection<Set<IConnection>> conCollection = current.getScope()
+						.getConnections();
+				for (Set<IConnection> conset : conCollection) {
+					for (IConnection conn : conset) {
+						if (conn != null) {
+							if (conn instanceof IServiceCapableConnection) {
+								RoomClient rcl = this.clientListManager
+										.getClientByStreamId(conn.getClient()
+												.getId());
+								if (rcl == null) {
+									// continue;
+								} else if (rcl.getIsScreenClient() != null
+										&& rcl.getIsScreenClient()) {
+									// continue;
+								} else {
+									((IServiceCapableConnection) conn).invoke(
+											"sendVarsToMessageWithClient",
+											new Object[] { hsm }, this);
+								}
 							}
 						}
 					}
 				}
-			}
 
-			return currentClient;
-		} catch (Exception err) {
-			log.error("[setUserAVSettings]", err);
+				return currentClient;
+			} catch (Exception err) {
+				log.error("[setUserAVSettings]", err);
+			}
+			return null;
 		}
-		return null;
 	}
 
 	/*
 	 * checks if the user is allowed to apply for Moderation
 	 */
-	public synchronized Boolean checkRoomValues(Long room_id) {
+	public Boolean checkRoomValues(Long room_id) {
 		try {
 
 			// appointed meeting or moderated Room?
@@ -1526,186 +1599,120 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	 * @param colorObj
 	 * @return
 	 */
-	public synchronized RoomStatus setRoomValues(Long room_id,
+	public RoomStatus setRoomValues(Long room_id,
 			Boolean becomeModerator, Boolean isSuperModerator,
 			Long organization_id, String colorObj) {
-		try {
+		synchronized (getRoomLock()) {
+			try {
 
-			// Return Object
-			RoomStatus roomStatus = new RoomStatus();
+				// Return Object
+				RoomStatus roomStatus = new RoomStatus();
 
-			IConnection current = Red5.getConnectionLocal();
-			String streamid = current.getClient().getId();
-			RoomClient currentClient = this.clientListManager
-					.getClientByStreamId(streamid);
-			currentClient.setRoom_id(room_id);
-			currentClient.setIsAVClient(false);
-			currentClient.setRoomEnter(new Date());
-			currentClient.setOrganization_id(organization_id);
-
-			currentClient.setUsercolor(colorObj);
-
-			// Inject externalUserId if nothing is set yet
-			if (currentClient.getExternalUserId() == null) {
-				Users us = usersDao.getUser(currentClient.getUser_id());
-				if (us != null) {
-					currentClient.setExternalUserId(us.getExternalUserId());
-					currentClient.setExternalUserType(us.getExternalUserType());
+				IConnection current = Red5.getConnectionLocal();
+				String streamid = current.getClient().getId();
+				RoomClient currentClient = this.clientListManager
+						.getClientByStreamId(streamid);
+				currentClient.setRoom_id(room_id);
+				currentClient.setIsAVClient(false);
+				currentClient.setRoomEnter(new Date());
+				currentClient.setOrganization_id(organization_id);
+
+				currentClient.setUsercolor(colorObj);
+
+				// Inject externalUserId if nothing is set yet
+				if (currentClient.getExternalUserId() == null) {
+					Users us = usersDao.getUser(currentClient.getUser_id());
+					if (us != null) {
+						currentClient.setExternalUserId(us.getExternalUserId());
+						currentClient.setExternalUserType(us.getExternalUserType());
+					}
 				}
-			}
 
-			// This can be set without checking for Moderation Flag
-			currentClient.setIsSuperModerator(isSuperModerator);
+				// This can be set without checking for Moderation Flag
+				currentClient.setIsSuperModerator(isSuperModerator);
 
-			this.clientListManager.updateClientByStreamId(streamid,
-					currentClient);
-
-            Rooms room = roommanagement.getRoomById(room_id);
-            if (room.getShowMicrophoneStatus()) {
-            	currentClient.setCanGiveAudio(true);
-            }
+				this.clientListManager.updateClientByStreamId(streamid,
+						currentClient);
 
-			// Log the User
-			conferenceLogDao.addConferenceLog("roomEnter",
-					currentClient.getUser_id(), streamid, room_id,
-					currentClient.getUserip(), "",
-					currentClient.getExternalUserId(),
-					currentClient.getExternalUserType(),
-					currentClient.getMail(), currentClient.getFirstname(),
-					currentClient.getLastname());
-
-			log.debug("##### setRoomValues : " + currentClient);
+	            Rooms room = roommanagement.getRoomById(room_id);
+	            if (room.getShowMicrophoneStatus()) {
+	            	currentClient.setCanGiveAudio(true);
+	            }
+
+				// Log the User
+				conferenceLogDao.addConferenceLog("roomEnter",
+						currentClient.getUser_id(), streamid, room_id,
+						currentClient.getUserip(), "",
+						currentClient.getExternalUserId(),
+						currentClient.getExternalUserType(),
+						currentClient.getMail(), currentClient.getFirstname(),
+						currentClient.getLastname());
+
+				log.debug("##### setRoomValues : " + currentClient);
 			
-			// Check for Moderation LogicalRoom ENTER
-			HashMap<String, RoomClient> clientListRoom = this.clientListManager
-					.getRoomClients(room_id);
-
-			// appointed meeting or moderated Room? => Check Max Users first
-			if (room.getNumberOfPartizipants() != null
-					&& clientListRoom.size() > room.getNumberOfPartizipants()) {
-				roomStatus.setRoomFull(true);
-				return roomStatus;
-			}
-
-			// default logic for non regular rooms
-			if (room.getAppointment() == null || room.getAppointment() == false) {
-
-				if (room.getIsModeratedRoom()) {
-
-					// if this is a Moderated Room then the Room can be only
-					// locked off by the Moderator Bit
-					// List<RoomClient> clientModeratorListRoom =
-					// this.clientListManager.getCurrentModeratorByRoom(room_id);
-
-					// If there is no Moderator yet we have to check if the
-					// current User has the Bit set to true to
-					// become one, otherwise he won't get Moderation and has to
-					// wait
-					if (becomeModerator) {
-						currentClient.setIsMod(true);
-
-						// There is a need to send an extra Event here, cause at
-						// this moment there could be
-						// already somebody in the Room waiting
-
-						// Update the Client List
-						this.clientListManager.updateClientByStreamId(streamid,
-								currentClient);
-
-						List<RoomClient> modRoomList = this.clientListManager
-								.getCurrentModeratorByRoom(currentClient.getRoom_id());
-						
-						//Sync message to everybody
-						syncMessageToCurrentScope("setNewModeratorByList", modRoomList, false);
+				// Check for Moderation LogicalRoom ENTER
+				HashMap<String, RoomClient> clientListRoom = this.clientListManager
+						.getRoomClients(room_id);
+
+				// appointed meeting or moderated Room? => Check Max Users first
+				if (room.getNumberOfPartizipants() != null
+						&& clientListRoom.size() > room.getNumberOfPartizipants()) {
+					roomStatus.setRoomFull(true);
+					return roomStatus;
+				}
 
-					} else {
-						// The current User is not a Teacher/Admin or whatever
-						// Role that should get the
-						// Moderation
-						currentClient.setIsMod(false);
-					}
+				// default logic for non regular rooms
+				if (room.getAppointment() == null || room.getAppointment() == false) {
 
-				} else {
+					if (room.getIsModeratedRoom()) {
 
-					// If this is a normal Room Moderator rules : first come,
-					// first draw ;-)
-					log.debug("setRoomValues : Room"
-							+ room_id
-							+ " not appointed! Moderator rules : first come, first draw ;-)");
-					if (clientListRoom.size() == 1) {
-						log.debug("Room is empty so set this user to be moderation role");
-						currentClient.setIsMod(true);
-					} else {
-						log.debug("Room is already somebody so set this user not to be moderation role");
+						// if this is a Moderated Room then the Room can be only
+						// locked off by the Moderator Bit
+						// List<RoomClient> clientModeratorListRoom =
+						// this.clientListManager.getCurrentModeratorByRoom(room_id);
 
+						// If there is no Moderator yet we have to check if the
+						// current User has the Bit set to true to
+						// become one, otherwise he won't get Moderation and has to
+						// wait
 						if (becomeModerator) {
 							currentClient.setIsMod(true);
 
+							// There is a need to send an extra Event here, cause at
+							// this moment there could be
+							// already somebody in the Room waiting
+
 							// Update the Client List
-							this.clientListManager.updateClientByStreamId(
-									streamid, currentClient);
+							this.clientListManager.updateClientByStreamId(streamid,
+									currentClient);
 
 							List<RoomClient> modRoomList = this.clientListManager
-									.getCurrentModeratorByRoom(currentClient
-											.getRoom_id());
-
-							// There is a need to send an extra Event here,
-							// cause at this moment there could be
-							// already somebody in the Room waiting -swagner check this comment, 20.01.2012
-							
+									.getCurrentModeratorByRoom(currentClient.getRoom_id());
+						
 							//Sync message to everybody
 							syncMessageToCurrentScope("setNewModeratorByList", modRoomList, false);
 
 						} else {
-							// The current User is not a Teacher/Admin or
-							// whatever Role that should get the Moderation
+							// The current User is not a Teacher/Admin or whatever
+							// Role that should get the
+							// Moderation
 							currentClient.setIsMod(false);
 						}
 
-					}
-
-				}
-
-				// Update the Client List
-				this.clientListManager.updateClientByStreamId(streamid,
-						currentClient);
-
-			} else {
-
-				// If this is an Appointment then the Moderator will be set to
-				// the Invitor
-
-				Appointment ment = appointmentLogic
-						.getAppointmentByRoom(room_id);
-
-				List<MeetingMember> members = meetingMemberDao
-						.getMeetingMemberByAppointmentId(ment
-								.getAppointmentId());
+					} else {
 
-				Long userIdInRoomClient = currentClient.getUser_id();
+						// If this is a normal Room Moderator rules : first come,
+						// first draw ;-)
+						log.debug("setRoomValues : Room"
+								+ room_id
+								+ " not appointed! Moderator rules : first come, first draw ;-)");
+						if (clientListRoom.size() == 1) {
+							log.debug("Room is empty so set this user to be moderation role");
+							currentClient.setIsMod(true);
+						} else {
+							log.debug("Room is already somebody so set this user not to be moderation role");
 
-				boolean found = false;
-				boolean moderator_set = false;
-
-				// Check if current user is set to moderator
-				for (int i = 0; i < members.size(); i++) {
-					MeetingMember member = members.get(i);
-
-					// only persistent users can schedule a meeting
-					// user-id is only set for registered users
-					if (member.getUserid() != null) {
-						log.debug("checking user " + member.getFirstname()
-								+ " for moderator role - ID : "
-								+ member.getUserid().getUser_id());
-
-						if (member.getUserid().getUser_id()
-								.equals(userIdInRoomClient)) {
-							found = true;
-
-							if (member.getInvitor()) {
-								log.debug("User "
-										+ userIdInRoomClient
-										+ " is moderator due to flag in MeetingMember record");
+							if (becomeModerator) {
 								currentClient.setIsMod(true);
 
 								// Update the Client List
@@ -1716,95 +1723,163 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 										.getCurrentModeratorByRoom(currentClient
 												.getRoom_id());
 
-								// There is a need to send an extra Event here, cause at this moment 
-								// there could be already somebody in the Room waiting
-
+								// There is a need to send an extra Event here,
+								// cause at this moment there could be
+								// already somebody in the Room waiting -swagner check this comment, 20.01.2012
+							
 								//Sync message to everybody
 								syncMessageToCurrentScope("setNewModeratorByList", modRoomList, false);
 
-								moderator_set = true;
-								this.clientListManager.updateClientByStreamId(
-										streamid, currentClient);
-								break;
 							} else {
-								log.debug("User "
-										+ userIdInRoomClient
-										+ " is NOT moderator due to flag in MeetingMember record");
+								// The current User is not a Teacher/Admin or
+								// whatever Role that should get the Moderation
 								currentClient.setIsMod(false);
-								this.clientListManager.updateClientByStreamId(
-										streamid, currentClient);
-								break;
 							}
-						} else {
-							if (member.getInvitor())
-								moderator_set = true;
+
 						}
-					} else {
-						if (member.getInvitor())
-							moderator_set = true;
-					}
 
-				}
+					}
 
-				if (!found) {
-					log.debug("User "
-							+ userIdInRoomClient
-							+ " could not be found as MeetingMember -> definitely no moderator");
-					currentClient.setIsMod(false);
+					// Update the Client List
 					this.clientListManager.updateClientByStreamId(streamid,
 							currentClient);
+
 				} else {
-					// if current user is part of the member list, but moderator
-					// couldn't be retrieved : first come, first draw!
-					if (clientListRoom.size() == 1 && moderator_set == false) {
-						log.debug("");
-						currentClient.setIsMod(true);
 
-						// Update the Client List
+					// If this is an Appointment then the Moderator will be set to
+					// the Invitor
+
+					Appointment ment = appointmentLogic
+							.getAppointmentByRoom(room_id);
+
+					List<MeetingMember> members = meetingMemberDao
+							.getMeetingMemberByAppointmentId(ment
+									.getAppointmentId());
+
+					Long userIdInRoomClient = currentClient.getUser_id();
+
+					boolean found = false;
+					boolean moderator_set = false;
+
+					// Check if current user is set to moderator
+					for (int i = 0; i < members.size(); i++) {
+						MeetingMember member = members.get(i);
+
+						// only persistent users can schedule a meeting
+						// user-id is only set for registered users
+						if (member.getUserid() != null) {
+							log.debug("checking user " + member.getFirstname()
+									+ " for moderator role - ID : "
+									+ member.getUserid().getUser_id());
+
+							if (member.getUserid().getUser_id()
+									.equals(userIdInRoomClient)) {
+								found = true;
+
+								if (member.getInvitor()) {
+									log.debug("User "
+											+ userIdInRoomClient
+											+ " is moderator due to flag in MeetingMember record");
+									currentClient.setIsMod(true);
+
+									// Update the Client List
+									this.clientListManager.updateClientByStreamId(
+											streamid, currentClient);
+
+									List<RoomClient> modRoomList = this.clientListManager
+											.getCurrentModeratorByRoom(currentClient
+													.getRoom_id());
+
+									// There is a need to send an extra Event here, cause at this moment 
+									// there could be already somebody in the Room waiting
+
+									//Sync message to everybody
+									syncMessageToCurrentScope("setNewModeratorByList", modRoomList, false);
+
+									moderator_set = true;
+									this.clientListManager.updateClientByStreamId(
+											streamid, currentClient);
+									break;
+								} else {
+									log.debug("User "
+											+ userIdInRoomClient
+											+ " is NOT moderator due to flag in MeetingMember record");
+									currentClient.setIsMod(false);
+									this.clientListManager.updateClientByStreamId(
+											streamid, currentClient);
+									break;
+								}
+							} else {
+								if (member.getInvitor())
+									moderator_set = true;
+							}
+						} else {
+							if (member.getInvitor())
+								moderator_set = true;
+						}
+
+					}
+
+					if (!found) {
+						log.debug("User "
+								+ userIdInRoomClient
+								+ " could not be found as MeetingMember -> definitely no moderator");
+						currentClient.setIsMod(false);
 						this.clientListManager.updateClientByStreamId(streamid,
 								currentClient);
+					} else {
+						// if current user is part of the member list, but moderator
+						// couldn't be retrieved : first come, first draw!
+						if (clientListRoom.size() == 1 && moderator_set == false) {
+							log.debug("");
+							currentClient.setIsMod(true);
+
+							// Update the Client List
+							this.clientListManager.updateClientByStreamId(streamid,
+									currentClient);
 
-						List<RoomClient> modRoomList = this.clientListManager
-								.getCurrentModeratorByRoom(currentClient
-										.getRoom_id());
+							List<RoomClient> modRoomList = this.clientListManager
+									.getCurrentModeratorByRoom(currentClient
+											.getRoom_id());
 
-						// There is a need to send an extra Event here, cause at
-						// this moment there could be
-						// already somebody in the Room waiting
+							// There is a need to send an extra Event here, cause at
+							// this moment there could be
+							// already somebody in the Room waiting
 
-						//Sync message to everybody
-						syncMessageToCurrentScope("setNewModeratorByList", modRoomList, false);
+							//Sync message to everybody
+							syncMessageToCurrentScope("setNewModeratorByList", modRoomList, false);
 						
-						this.clientListManager.updateClientByStreamId(streamid,
-								currentClient);
+							this.clientListManager.updateClientByStreamId(streamid,
+									currentClient);
+						}
 					}
-				}
 
-			}
+				}
 			
 			
-			//Sync message to everybody
-			syncMessageToCurrentScope("addNewUser", currentClient, false);
+				//Sync message to everybody
+				syncMessageToCurrentScope("addNewUser", currentClient, false);
 
-			//Status object for Shared Browsing
-			BrowserStatus browserStatus = (BrowserStatus) current.getScope()
-					.getAttribute("browserStatus");
+				//Status object for Shared Browsing
+				BrowserStatus browserStatus = (BrowserStatus) current.getScope()
+						.getAttribute("browserStatus");
 
-			if (browserStatus == null) {
-				browserStatus = new BrowserStatus();
-			}
+				if (browserStatus == null) {
+					browserStatus = new BrowserStatus();
+				}
 
-			// RoomStatus roomStatus = new RoomStatus();
+				// RoomStatus roomStatus = new RoomStatus();
 
-			// FIXME: Rework Client Object to DTOs
-			roomStatus.setClientMap(clientListRoom);
-			roomStatus.setBrowserStatus(browserStatus);
+				// FIXME: Rework Client Object to DTOs
+				roomStatus.setClientMap(clientListRoom);
+				roomStatus.setBrowserStatus(browserStatus);
 
-			return roomStatus;
-		} catch (Exception err) {
-			log.error("[setRoomValues]", err);
+				return roomStatus;
+			} catch (Exception err) {
+				log.error("[setRoomValues]", err);
+			}
+			return null;
 		}
-		return null;
 	}
 
 	/**
@@ -1819,7 +1894,7 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	 * @param picture_uri
 	 * @return
 	 */
-	public synchronized RoomClient setUsernameReconnect(String SID,
+	public RoomClient setUsernameReconnect(String SID,
 			Long userId, String username, String firstname, String lastname,
 			String picture_uri) {
 		try {
@@ -1870,7 +1945,7 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	 * @param orgdomain
 	 * @return
 	 */
-	public synchronized RoomClient setUsernameAndSession(String SID,
+	public RoomClient setUsernameAndSession(String SID,
 			Long userId, String username, String firstname, String lastname) {
 		try {
 			IConnection current = Red5.getConnectionLocal();
@@ -1917,7 +1992,7 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	 * @param message
 	 * @return
 	 */
-	public synchronized HashMap<String, RoomClient> sendMessageByRoomAndDomain(
+	public HashMap<String, RoomClient> sendMessageByRoomAndDomain(
 			Long room_id, Object message) {
 		HashMap<String, RoomClient> roomClientList = new HashMap<String, RoomClient>();
 		try {
@@ -1976,7 +2051,7 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 		return roomClientList;
 	}
 
-	public synchronized List<RoomClient> getCurrentModeratorList() {
+	public List<RoomClient> getCurrentModeratorList() {
 		try {
 			log.debug("*..*getCurrentModerator id: ");
 
@@ -2001,99 +2076,74 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	 * @return
 	 */
 	@SuppressWarnings({ "rawtypes", "unchecked" })
-	public synchronized void sendVars(ArrayList whiteboardObjParam) {
-		//
-		try {
-
-			// In previous version this has been always a Map, now its a List
-			// so I re-wrapp that class to be a Map again.
-			// swagner 13.02.2009
-			// log.debug("*..*sendVars1: " + whiteboardObjParam);
-			// log.debug("*..*sendVars2: " + whiteboardObjParam.getClass());
-			// log.debug("*..*sendVars3: " +
-			// whiteboardObjParam.getClass().getName());
-
-			Map whiteboardObj = new HashMap();
-			int i = 0;
-			for (Iterator iter = whiteboardObjParam.iterator(); iter.hasNext();) {
-				Object obj = iter.next();
-				// log.debug("obj"+obj);
-				whiteboardObj.put(i, obj);
-				i++;
-			}
-
-			// Map whiteboardObj = (Map) whiteboardObjParam;
-
-			// Check if this User is the Mod:
-			IConnection current = Red5.getConnectionLocal();
-			RoomClient currentClient = this.clientListManager
-					.getClientByStreamId(current.getClient().getId());
-
-			if (currentClient == null) {
-				return;
-			}
+	public void sendVars(ArrayList whiteboardObjParam) {
+		synchronized (getRoomLock()) {
+			//
+			try {
+
+				// In previous version this has been always a Map, now its a List
+				// so I re-wrapp that class to be a Map again.
+				// swagner 13.02.2009
+				// log.debug("*..*sendVars1: " + whiteboardObjParam);
+				// log.debug("*..*sendVars2: " + whiteboardObjParam.getClass());
+				// log.debug("*..*sendVars3: " +
+				// whiteboardObjParam.getClass().getName());
+
+				Map whiteboardObj = new HashMap();
+				int i = 0;
+				for (Iterator iter = whiteboardObjParam.iterator(); iter.hasNext();) {
+					Object obj = iter.next();
+					// log.debug("obj"+obj);
+					whiteboardObj.put(i, obj);
+					i++;
+				}
 
-			Long room_id = currentClient.getRoom_id();
+				// Map whiteboardObj = (Map) whiteboardObjParam;
 
-			String action = whiteboardObj.get(2).toString();
+				// Check if this User is the Mod:
+				IConnection current = Red5.getConnectionLocal();
+				RoomClient currentClient = this.clientListManager
+						.getClientByStreamId(current.getClient().getId());
 
-			// log.debug("***** sendVars: " + actionObject.get(0));
+				if (currentClient == null) {
+					return;
+				}
 
-			if (action != null && action.equals("whiteboardObj")) {
-				// Update Whiteboard Object
-				List actionObject = (List) whiteboardObj.get(3);
-				WhiteboardManagement.getInstance().updateWhiteboardObject(
-						room_id, actionObject);
-			} else if (action != null && action.equals("moveMap")) {
-				// Update Whiteboard Object
-				List actionObject = (List) whiteboardObj.get(3);
-				WhiteboardManagement.getInstance().updateWhiteboardObjectPos(
-						room_id, actionObject);
-			} else {
-				// Store event in list
-				WhiteboardManagement.getInstance().addWhiteBoardObject(room_id,
-						whiteboardObj);
-			}
+				Long room_id = currentClient.getRoom_id();
 
-			boolean showDrawStatus = getWhiteboardDrawStatus();
+				String action = whiteboardObj.get(2).toString();
 
-			// Notify all Clients of that Scope (Room)
-			Collection<Set<IConnection>> conCollection = current.getScope()
-					.getConnections();
-			for (Set<IConnection> conset : conCollection) {
-				for (IConnection conn : conset) {
-					if (conn != null) {
-						if (conn instanceof IServiceCapableConnection) {
+				// log.debug("***** sendVars: " + actionObject.get(0));
 
-							if (conn.getClient().getId()
-									.equals(current.getClient().getId())) {
-								continue;
-							}
+				if (action != null && action.equals("whiteboardObj")) {
+					// Update Whiteboard Object
+					List actionObject = (List) whiteboardObj.get(3);
+					WhiteboardManagement.getInstance().updateWhiteboardObject(
+							room_id, actionObject);
+				} else if (action != null && action.equals("moveMap")) {
+					// Update Whiteboard Object
+					List actionObject = (List) whiteboardObj.get(3);
+					WhiteboardManagement.getInstance().updateWhiteboardObjectPos(
+							room_id, actionObject);
+				} else {
+					// Store event in list
+					WhiteboardManagement.getInstance().addWhiteBoardObject(room_id,
+							whiteboardObj);
+				}
 
-							RoomClient rcl = this.clientListManager
-									.getSyncClientByStreamId(conn.getClient()
-											.getId());
+				boolean showDrawStatus = getWhiteboardDrawStatus();
 
-							if (rcl == null) {
-								continue;
-							}
+				// Notify all Clients of that Scope (Room), intermediate positions
+				// of the whiteboard moved in the batch window are dropped
+				this.roomBroadcaster.sendToScope(current, "sendVarsToWhiteboard",
+						"sendVarsToWhiteboardBatch", new Object[] {
+								(showDrawStatus ? currentClient : null),
+								whiteboardObj }, "moveMap".equals(action) ? action
+								: null);
 
-							if (!currentClient.getStreamid().equals(
-									rcl.getStreamid())) {
-								((IServiceCapableConnection) conn)
-										.invoke("sendVarsToWhiteboard",
-												new Object[] {
-														(showDrawStatus ? currentClient
-																: null),
-														whiteboardObj }, this);
-							}
-						}
-					}
-				}
+			} catch (Exception err) {
+				log.error("[sendVars]", err);
 			}
-
-		} catch (Exception err) {
-			log.error("[sendVars]", err);
 		}
 	}
 
@@ -2104,131 +2154,107 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	 * @return
 	 */
 	@SuppressWarnings({ "rawtypes", "unchecked" })
-	public synchronized void sendVarsByWhiteboardId(
+	public void sendVarsByWhiteboardId(
 			ArrayList whiteboardObjParam, Long whiteboardId) {
-		//
-		try {
-
-			Map whiteboardObj = new HashMap();
-			int i = 0;
-			for (Iterator iter = whiteboardObjParam.iterator(); iter.hasNext();) {
-				Object obj = iter.next();
-				// log.debug("obj"+obj);
-				whiteboardObj.put(i, obj);
-				i++;
-			}
-
-			// Check if this User is the Mod:
-			IConnection current = Red5.getConnectionLocal();
-			RoomClient currentClient = this.clientListManager
-					.getClientByStreamId(current.getClient().getId());
-
-			if (currentClient == null) {
-				return;
-			}
+		synchronized (getRoomLock()) {
+			//
+			try {
+
+				Map whiteboardObj = new HashMap();
+				int i = 0;
+				for (Iterator iter = whiteboardObjParam.iterator(); iter.hasNext();) {
+					Object obj = iter.next();
+					// log.debug("obj"+obj);
+					whiteboardObj.put(i, obj);
+					i++;
+				}
 
-			Long room_id = currentClient.getRoom_id();
+				// Check if this User is the Mod:
+				IConnection current = Red5.getConnectionLocal();
+				RoomClient currentClient = this.clientListManager
+						.getClientByStreamId(current.getClient().getId());
 
-			// log.debug("***** sendVars: " + whiteboardObj);
+				if (currentClient == null) {
+					return;
+				}
 
-			// Store event in list
-			String action = whiteboardObj.get(2).toString();
+				Long room_id = currentClient.getRoom_id();
 
-			if (action.equals("deleteMindMapNodes")) {
+				// log.debug("***** sendVars: " + whiteboardObj);
 
-				// Simulate Single Delete Events for z-Index
-				List actionObject = (List) whiteboardObj.get(3);
+				// Store event in list
+				String action = whiteboardObj.get(2).toString();
 
-				List<List> itemObjects = (List) actionObject.get(3);
+				if (action.equals("deleteMindMapNodes")) {
 
-				Map whiteboardTempObj = new HashMap();
-				whiteboardTempObj.put(2, "delete");
+					// Simulate Single Delete Events for z-Index
+					List actionObject = (List) whiteboardObj.get(3);
 
-				for (List itemObject : itemObjects) {
+					List<List> itemObjects = (List) actionObject.get(3);
 
-					List<Object> tempActionObject = new LinkedList<Object>();
-					tempActionObject.add("mindmapnode");
-					tempActionObject.add(itemObject.get(0)); // z-Index -8
-					tempActionObject.add(null); // simulate -7
-					tempActionObject.add(null); // simulate -6
-					tempActionObject.add(null); // simulate -5
-					tempActionObject.add(null); // simulate -4
-					tempActionObject.add(null); // simulate -3
-					tempActionObject.add(null); // simulate -2
-					tempActionObject.add(itemObject.get(1)); // Object-Name -1
+					Map whiteboardTempObj = new HashMap();
+					whiteboardTempObj.put(2, "delete");
 
-					whiteboardTempObj.put(3, tempActionObject);
+					for (List itemObject : itemObjects) {
 
-					WhiteboardManagement.getInstance().addWhiteBoardObjectById(
-							room_id, whiteboardTempObj, whiteboardId);
+						List<Object> tempActionObject = new LinkedList<Object>();
+						tempActionObject.add("mindmapnode");
+						tempActionObject.add(itemObject.get(0)); // z-Index -8
+						tempActionObject.add(null); // simulate -7
+						tempActionObject.add(null); // simulate -6
+						tempActionObject.add(null); // simulate -5
+						tempActionObject.add(null); // simulate -4
+						tempActionObject.add(null); // simulate -3
+						tempActionObject.add(null); // simulate -2
+						tempActionObject.add(itemObject.get(1)); // Object-Name -1
 
-				}
+						whiteboardTempObj.put(3, tempActionObject);
 
-			} else {
+						WhiteboardManagement.getInstance().addWhiteBoardObjectById(
+								room_id, whiteboardTempObj, whiteboardId);
 
-				WhiteboardManagement.getInstance().addWhiteBoardObjectById(
-						room_id, whiteboardObj, whiteboardId);
+					}
 
-			}
+				} else {
 
-			// This is no longer necessary
-			// boolean ismod = currentClient.getIsMod();
+					WhiteboardManagement.getInstance().addWhiteBoardObjectById(
+							room_id, whiteboardObj, whiteboardId);
 
-			// log.debug("*..*ismod: " + ismod);
+				}
 
-			// if (ismod) {
+				// This is no longer necessary
+				// boolean ismod = currentClient.getIsMod();
 
-			Map<String, Object> sendObject = new HashMap<String, Object>();
-			sendObject.put("id", whiteboardId);
-			sendObject.put("param", whiteboardObjParam);
+				// log.debug("*..*ismod: " + ismod);
 
-			boolean showDrawStatus = getWhiteboardDrawStatus();
+				// if (ismod) {
 
-			// Notify all Clients of that Scope (Room)
-			Collection<Set<IConnection>> conCollection = current.getScope()
-					.getConnections();
-			for (Set<IConnection> conset : conCollection) {
-				for (IConnection conn : conset) {
-					if (conn != null) {
-						if (conn instanceof IServiceCapableConnection) {
-							if (conn.getClient().getId()
-									.equals(current.getClient().getId())) {
-								continue;
-							}
+				Map<String, Object> sendObject = new HashMap<String, Object>();
+				sendObject.put("id", whiteboardId);
+				sendObject.put("param", whiteboardObjParam);
 
-							RoomClient rcl = this.clientListManager
-									.getSyncClientByStreamId(conn.getClient()
-											.getId());
+				boolean showDrawStatus = getWhiteboardDrawStatus();
 
-							if (rcl == null) {
-								continue;
-							}
+				// Notify all Clients of that Scope (Room), intermediate positions
+				// of the whiteboard moved in the batch window are dropped
+				this.roomBroadcaster.sendToScope(current,
+						"sendVarsToWhiteboardById",
+						"sendVarsToWhiteboardByIdBatch", new Object[] {
+								showDrawStatus ? currentClient : null, sendObject },
+						"moveMap".equals(action) ? action + whiteboardId : null);
 
-							if (!currentClient.getStreamid().equals(
-									rcl.getStreamid())) {
-								((IServiceCapableConnection) conn).invoke(
-										"sendVarsToWhiteboardById",
-										new Object[] {
-												showDrawStatus ? currentClient
-														: null, sendObject },
-										this);
-							}
-						}
-					}
-				}
+				// return numberOfUsers;
+				// } else {
+				// // log.debug("*..*you are not allowed to send: "+ismod);
+				// return -1;
+				// }
+			} catch (Exception err) {
+				log.error("[sendVarsByWhiteboardId]", err);
 			}
-
-			// return numberOfUsers;
-			// } else {
-			// // log.debug("*..*you are not allowed to send: "+ismod);
-			// return -1;
-			// }
-		} catch (Exception err) {
-			log.error("[sendVarsByWhiteboardId]", err);
 		}
 	}
 
-	public synchronized int sendVarsModeratorGeneral(Object vars) {
+	public int sendVarsModeratorGeneral(Object vars) {
 		log.debug("*..*sendVars: " + vars);
 		try {
 			IConnection current = Red5.getConnectionLocal();
@@ -2287,7 +2313,7 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 		return -1;
 	}
 
-	public synchronized int sendMessage(Object newMessage) {
+	public int sendMessage(Object newMessage) {
 		try {
 			
 			syncMessageToCurrentScope("sendVarsToMessage", newMessage, false);
@@ -2298,7 +2324,7 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 		return 1;
 	}
 	
-	public synchronized int sendMessageAll(Object newMessage) {
+	public int sendMessageAll(Object newMessage) {
 		try {
 			
 			syncMessageToCurrentScope("sendVarsToMessage", newMessage, true);
@@ -2315,36 +2341,38 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	 * @return
 	 */
 	@SuppressWarnings({ "rawtypes" })
-	public synchronized int sendBrowserMessageToMembers(Object newMessage) {
-		try {
-			IConnection current = Red5.getConnectionLocal();
+	public int sendBrowserMessageToMembers(Object newMessage) {
+		synchronized (getRoomLock()) {
+			try {
+				IConnection current = Red5.getConnectionLocal();
 
-			List newMessageList = (List) newMessage;
+				List newMessageList = (List) newMessage;
 
-			String action = newMessageList.get(0).toString();
+				String action = newMessageList.get(0).toString();
 
-			BrowserStatus browserStatus = (BrowserStatus) current.getScope()
-					.getAttribute("browserStatus");
+				BrowserStatus browserStatus = (BrowserStatus) current.getScope()
+						.getAttribute("browserStatus");
 
-			if (browserStatus == null) {
-				browserStatus = new BrowserStatus();
-			}
+				if (browserStatus == null) {
+					browserStatus = new BrowserStatus();
+				}
 
-			if (action.equals("initBrowser") || action.equals("newBrowserURL")) {
-				browserStatus.setBrowserInited(true);
-				browserStatus.setCurrentURL(newMessageList.get(1).toString());
-			} else if (action.equals("closeBrowserURL")) {
-				browserStatus.setBrowserInited(false);
-			}
+				if (action.equals("initBrowser") || action.equals("newBrowserURL")) {
+					browserStatus.setBrowserInited(true);
+					browserStatus.setCurrentURL(newMessageList.get(1).toString());
+				} else if (action.equals("closeBrowserURL")) {
+					browserStatus.setBrowserInited(false);
+				}
 
-			current.getScope().setAttribute("browserStatus", browserStatus);
+				current.getScope().setAttribute("browserStatus", browserStatus);
 			
-			syncMessageToCurrentScope("sendVarsToMessage", newMessage, false);
+				syncMessageToCurrentScope("sendVarsToMessage", newMessage, false);
 
-		} catch (Exception err) {
-			log.error("[sendMessage]", err);
+			} catch (Exception err) {
+				log.error("[sendMessage]", err);
+			}
+			return 1;
 		}
-		return 1;
 	}
 
 	/**
@@ -2352,7 +2380,7 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	 * @param newMessage
 	 * @return
 	 */
-	public synchronized int sendMessageToMembers(Object newMessage) {
+	public int sendMessageToMembers(Object newMessage) {
 		try {
 			
 			//Sync to all users of current scope
@@ -2379,7 +2407,7 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	 * @param sendSelf 
 	 * @return
 	 */
-	public synchronized int syncMessageToCurrentScope(String remoteMethodName, Object newMessage, boolean sendSelf) {
+	public int syncMessageToCurrentScope(String remoteMethodName, Object newMessage, boolean sendSelf) {
 		try {
 			IConnection current = Red5.getConnectionLocal();
 
@@ -2427,7 +2455,7 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	 * @param newMessage
 	 * @return
 	 */
-	public synchronized int sendMessageWithClient(Object newMessage) {
+	public int sendMessageWithClient(Object newMessage) {
 		try {
 			sendMessageWithClientWithSyncObject(newMessage, true);
 
@@ -2444,7 +2472,7 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	 * @param sync
 	 * @return
 	 */
-	public synchronized int sendMessageWithClientWithSyncObject(Object newMessage, boolean sync) {
+	public int sendMessageWithClientWithSyncObject(Object newMessage, boolean sync) {
 		try {
 			IConnection current = Red5.getConnectionLocal();
 			RoomClient currentClient = this.clientListManager
@@ -2472,7 +2500,7 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	 * @param clientId
 	 * @return
 	 */
-	public synchronized int sendMessageById(Object newMessage, String clientId,
+	public int sendMessageById(Object newMessage, String clientId,
 			IScope scope) {
 		try {
 			log.debug("### sendMessageById ###" + clientId);
@@ -2524,7 +2552,7 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	 * @param clientId
 	 * @return
 	 */
-	public synchronized int sendMessageWithClientById(Object newMessage,
+	public int sendMessageWithClientById(Object newMessage,
 			String clientId) {
 		try {
 			IConnection current = Red5.getConnectionLocal();
@@ -2573,7 +2601,7 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 		return 1;
 	}
 
-	public synchronized void sendMessageWithClientByPublicSID(Object message,
+	public void sendMessageWithClientByPublicSID(Object message,
 			String publicSID) {
 		try {
 			// ApplicationContext appCtx = getContext().getApplicationContext();
@@ -2645,7 +2673,7 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 		}
 	}
 
-	public synchronized void sendMessageWithClientByPublicSIDOrUser(
+	public void sendMessageWithClientByPublicSIDOrUser(
 			Object message, String publicSID, Long user_id) {
 		try {
 			// ApplicationContext appCtx = getContext().getApplicationContext();
@@ -2733,7 +2761,7 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 		}
 	}
 
-	public synchronized Boolean getInterviewRecordingStatus() {
+	public Boolean getInterviewRecordingStatus() {
 		try {
 
 			IConnection current = Red5.getConnectionLocal();
@@ -2764,114 +2792,96 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 		return null;
 	}
 
-	public synchronized Boolean startInterviewRecording() {
-		try {
+	public Boolean startInterviewRecording() {
+		synchronized (getRoomLock()) {
+			try {
 
-			IConnection current = Red5.getConnectionLocal();
+				IConnection current = Red5.getConnectionLocal();
 
-			Collection<Set<IConnection>> conCollection = current.getScope()
-					.getConnections();
-			for (Set<IConnection> conset : conCollection) {
-				for (IConnection conn : conset) {
-					if (conn != null) {
+				Collection<Set<IConnection>> conCollection = current.getScope()
+						.getConnections();
+				for (Set<IConnection> conset : conCollection) {
+					for (IConnection conn : conset) {
+						if (conn != null) {
 
-						RoomClient rcl = this.clientListManager
-								.getClientByStreamId(conn.getClient().getId());
+							RoomClient rcl = this.clientListManager
+									.getClientByStreamId(conn.getClient().getId());
 
-						if (rcl.getIsRecording() != null
-								&& rcl.getIsRecording()) {
-							return false;
-						}
+							if (rcl.getIsRecording() != null
+									&& rcl.getIsRecording()) {
+								return false;
+							}
 
+						}
 					}
 				}
-			}
 
-			RoomClient current_rcl = this.clientListManager
-					.getClientByStreamId(current.getClient().getId());
+				RoomClient current_rcl = this.clientListManager
+						.getClientByStreamId(current.getClient().getId());
 
-			// Also set the Recording Flag to Record all Participants that enter
-			// later
-			current_rcl.setIsRecording(true);
-			this.clientListManager.updateClientByStreamId(current.getClient()
-					.getId(), current_rcl);
+				// Also set the Recording Flag to Record all Participants that enter
+				// later
+				current_rcl.setIsRecording(true);
+				this.clientListManager.updateClientByStreamId(current.getClient()
+						.getId(), current_rcl);
 
-			Map<String, String> interviewStatus = new HashMap<String, String>();
-			interviewStatus.put("action", "start");
+				Map<String, String> interviewStatus = new HashMap<String, String>();
+				interviewStatus.put("action", "start");
 
-			for (Set<IConnection> conset : conCollection) {
-				for (IConnection conn : conset) {
-					if (conn != null) {
+				for (Set<IConnection> conset : conCollection) {
+					for (IConnection conn : conset) {
+						if (conn != null) {
 						
-						RoomClient rcl = this.clientListManager
-								.getClientByStreamId(conn.getClient().getId());
+							RoomClient rcl = this.clientListManager
+									.getClientByStreamId(conn.getClient().getId());
 						
-						if (rcl == null) {
-							continue;
-						} else if (rcl.getIsAVClient()) {
-							continue;
-						} else if (rcl.getIsScreenClient() != null && rcl.getIsScreenClient()) {
-							continue;
-						}
+							if (rcl == null) {
+								continue;
+							} else if (rcl.getIsAVClient()) {
+								continue;
+							} else if (rcl.getIsScreenClient() != null && rcl.getIsScreenClient()) {
+								continue;
+							}
 
-						((IServiceCapableConnection) conn).invoke(
-								"interviewStatus",
-								new Object[] { interviewStatus }, this);
-						log.debug("-- interviewStatus" + interviewStatus);
+							((IServiceCapableConnection) conn).invoke(
+									"interviewStatus",
+									new Object[] { interviewStatus }, this);
+							log.debug("-- interviewStatus" + interviewStatus);
 
+						}
 					}
 				}
-			}
 
-			String recordingName = "Interview "
-					+ CalendarPatterns.getDateWithTimeByMiliSeconds(new Date());
+				String recordingName = "Interview "
+						+ CalendarPatterns.getDateWithTimeByMiliSeconds(new Date());
 
-			this.flvRecorderService
-					.recordMeetingStream(recordingName, "", true);
+				this.flvRecorderService
+						.recordMeetingStream(recordingName, "", true);
 
-			return true;
+				return true;
 
-		} catch (Exception err) {
-			log.debug("[startInterviewRecording]", err);
+			} catch (Exception err) {
+				log.debug("[startInterviewRecording]", err);
+			}
+			return null;
 		}
-		return null;
 	}
 
 	@SuppressWarnings({ "rawtypes" })
-	public synchronized Boolean sendRemoteCursorEvent(String streamid,
+	public Boolean sendRemoteCursorEvent(String streamid,
 			Map messageObj) {
 		try {
 
 			IConnection current = Red5.getConnectionLocal();
 
-			Collection<Set<IConnection>> conCollection = current.getScope()
-					.getConnections();
-			for (Set<IConnection> conset : conCollection) {
-				for (IConnection conn : conset) {
-					if (conn != null) {
-
-						RoomClient rcl = this.clientListManager
-								.getClientByStreamId(conn.getClient().getId());
-
-						if (rcl == null) {
-							// continue;
-						} else if (rcl.getIsScreenClient() != null
-								&& rcl.getIsScreenClient()) {
-
-							if (rcl.getStreamid() != null
-									&& rcl.getStreamid().equals(streamid)) {
-								((IServiceCapableConnection) conn).invoke(
-										"sendRemoteCursorEvent",
-										new Object[] { messageObj }, this);
-								log.debug("sendRemoteCursorEvent messageObj"
-										+ messageObj);
-							}
-
-						}
-
-					}
-				}
-			}
+			// Mouse moves replace the pending mouse move of the sharer,
+			// clicks and keys are always delivered in order
+			Object action = messageObj.get("action");
+			this.roomBroadcaster.sendToScreenClient(current, streamid,
+					"sendRemoteCursorEvent", "sendRemoteCursorEventBatch",
+					new Object[] { messageObj },
+					"mousePos".equals(action) ? "mousePos" + streamid : null);
+			log.debug("sendRemoteCursorEvent messageObj" + messageObj);
 		} catch (Exception err) {
 			log.debug("[sendRemoteCursorEvent]", err);
 		}
@@ -2888,76 +2898,78 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	 * 
 	 * @return
 	 */
-	public synchronized Boolean stopInterviewRecording() {
-		try {
+	public Boolean stopInterviewRecording() {
+		synchronized (getRoomLock()) {
+			try {
 
-			IConnection current = Red5.getConnectionLocal();
+				IConnection current = Red5.getConnectionLocal();
 
-			boolean found = false;
-			Long flvRecordingId = null;
+				boolean found = false;
+				Long flvRecordingId = null;
 
-			Collection<Set<IConnection>> conCollection = current.getScope()
-					.getConnections();
-			for (Set<IConnection> conset : conCollection) {
-				for (IConnection conn : conset) {
-					if (conn != null) {
+				Collection<Set<IConnection>> conCollection = current.getScope()
+						.getConnections();
+				for (Set<IConnection> conset : conCollection) {
+					for (IConnection conn : conset) {
+						if (conn != null) {
 
-						RoomClient rcl = this.clientListManager
-								.getClientByStreamId(conn.getClient().getId());
+							RoomClient rcl = this.clientListManager
+									.getClientByStreamId(conn.getClient().getId());
 
-						if (rcl.getIsRecording() != null
-								&& rcl.getIsRecording()) {
+							if (rcl.getIsRecording() != null
+									&& rcl.getIsRecording()) {
 
-							rcl.setIsRecording(false);
+								rcl.setIsRecording(false);
 
-							flvRecordingId = rcl.getFlvRecordingId();
+								flvRecordingId = rcl.getFlvRecordingId();
 
-							rcl.setFlvRecordingId(null);
+								rcl.setFlvRecordingId(null);
 
-							// Reset the Recording Flag to Record all
-							// Participants that enter later
-							this.clientListManager.updateClientByStreamId(conn
-									.getClient().getId(), rcl);
+								// Reset the Recording Flag to Record all
+								// Participants that enter later
+								this.clientListManager.updateClientByStreamId(conn
+										.getClient().getId(), rcl);
 
-							found = true;
-						}
+								found = true;
+							}
 
+						}
 					}
 				}
-			}
 
-			if (!found) {
-				return false;
-			}
+				if (!found) {
+					return false;
+				}
 
-			RoomClient currentClient = this.clientListManager
-					.getClientByStreamId(current.getClient().getId());
+				RoomClient currentClient = this.clientListManager
+						.getClientByStreamId(current.getClient().getId());
 
-			this.flvRecorderService.stopRecordAndSave(scope, currentClient,
-					flvRecordingId);
+				this.flvRecorderService.stopRecordAndSave(scope, currentClient,
+						flvRecordingId);
 
-			Map<String, String> interviewStatus = new HashMap<String, String>();
-			interviewStatus.put("action", "stop");
+				Map<String, String> interviewStatus = new HashMap<String, String>();
+				interviewStatus.put("action", "stop");
 
-			for (Set<IConnection> conset : conCollection) {
-				for (IConnection conn : conset) {
-					if (conn != null) {
-						((IServiceCapableConnection) conn).invoke(
-								"interviewStatus",
-								new Object[] { interviewStatus }, this);
-						log.debug("sendMessageWithClientByPublicSID interviewStatus"
-								+ interviewStatus);
+				for (Set<IConnection> conset : conCollection) {
+					for (IConnection conn : conset) {
+						if (conn != null) {
+							((IServiceCapableConnection) conn).invoke(
+									"interviewStatus",
+									new Object[] { interviewStatus }, this);
+							log.debug("sendMessageWithClientByPublicSID interviewStatus"
+									+ interviewStatus);
 
+						}
 					}
 				}
-			}
 
-			return true;
+				return true;
 
-		} catch (Exception err) {
-			log.debug("[startInterviewRecording]", err);
+			} catch (Exception err) {
+				log.debug("[startInterviewRecording]", err);
+			}
+			return null;
 		}
-		return null;
 	}
 
 	/**
@@ -2966,7 +2978,7 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	 * 
 	 * @return
 	 */
-	public synchronized HashMap<String, RoomClient> getClientListScope() {
+	public HashMap<String, RoomClient> getClientListScope() {
 		HashMap<String, RoomClient> roomClientList = new HashMap<String, RoomClient>();
 		try {
 			IConnection current = Red5.getConnectionLocal();
@@ -3018,7 +3030,7 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
         }
     }
 
-	public synchronized IScope getRoomScope(String room) {
+	public IScope getRoomScope(String room) {
 		try {
 
 			IScope globalScope = getContext().getGlobalScope();
@@ -3044,18 +3056,20 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
 	 * SIP transport methods
 	 */
 
-    public synchronized void updateSipTransport() {
-        IConnection current = Red5.getConnectionLocal();
-        String streamid = current.getClient().getId();
-        RoomClient currentClient = this.clientListManager.getClientByStreamId(streamid);
-        log.debug("getSipConferenceMembersNumber: " + roommanagement.getSipConferenceMembersNumber(currentClient.getRoom_id()));
-        String newNumber = "("+Integer.toString(roommanagement.getSipConferenceMembersNumber(currentClient.getRoom_id())-1)+")";
-        if(!newNumber.equals(currentClient.getLastname())) {
-            currentClient.setLastname(newNumber);
-            this.clientListManager.updateClientByStreamId(streamid, currentClient);
-            log.debug("updateSipTransport: {}, {}, {}, {}", new Object[]{currentClient.getPublicSID(),
-                    currentClient.getRoom_id(), currentClient.getFirstname(), currentClient.getLastname()});
-            sendMessageWithClient(new String[]{"personal",currentClient.getFirstname(),currentClient.getLastname()});
+    public void updateSipTransport() {
+        synchronized (getRoomLock()) {
+            IConnection current = Red5.getConnectionLocal();
+            String streamid = current.getClient().getId();
+            RoomClient currentClient = this.clientListManager.getClientByStreamId(streamid);
+            log.debug("getSipConferenceMembersNumber: " + roommanagement.getSipConferenceMembersNumber(currentClient.getRoom_id()));
+            String newNumber = "("+Integer.toString(roommanagement.getSipConferenceMembersNumber(currentClient.getRoom_id())-1)+")";
+            if(!newNumber.equals(currentClient.getLastname())) {
+                currentClient.setLastname(newNumber);
+                this.clientListManager.updateClientByStreamId(streamid, currentClient);
+                log.debug("updateSipTransport: {}, {}, {}, {}", new Object[]{currentClient.getPublicSID(),
+                        currentClient.getRoom_id(), currentClient.getFirstname(), currentClient.getLastname()});
+                sendMessageWithClient(new String[]{"personal",currentClient.getFirstname(),currentClient.getLastname()});
+            }
         }
     }
 
@@ -3063,7 +3077,7 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
      * Perform call to specified phone number and join to conference
      * @param number to call
      */
-    public synchronized void joinToConfCall(String number) {
+    public void joinToConfCall(String number) {
         IConnection current = Red5.getConnectionLocal();
         String streamid = current.getClient().getId();
         RoomClient currentClient = this.clientListManager.getClientByStreamId(streamid);
@@ -3076,7 +3090,7 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
         }
     }
 
-    public synchronized String getSipNumber(Long room_id) {
+    public String getSipNumber(Long room_id) {
         Rooms rooms = roommanagement.getRoomById(room_id);
         if(rooms != null) {
             log.debug("getSipNumber: room_id: {}, sipNumber: {}", new Object[]{room_id, rooms.getSipNumber()});
@@ -3085,47 +3099,49 @@ public class ScopeApplicationAdapter extends ApplicationAdapter implements
         return null;
     }
 
-    public synchronized void setSipTransport(Long room_id, String publicSID, String broadCastId) {
-        IConnection current = Red5.getConnectionLocal();
-        String streamid = current.getClient().getId();
-        // Notify all clients of the same scope (room)
-        RoomClient currentClient = this.clientListManager.getClientByStreamId(streamid);
-        currentClient.setRoom_id(room_id);
-        currentClient.setRoomEnter(new Date());
-        currentClient.setFirstname("SIP Transport");
-        currentClient.setLastname("("+Integer.toString(roommanagement.getSipConferenceMembersNumber(room_id)-1)+")");
-        currentClient.setBroadCastID(Long.parseLong(broadCastId));
-        currentClient.setIsBroadcasting(true);
-        currentClient.setPublicSID(publicSID);
-        currentClient.setAvsettings("av");
-        currentClient.setVWidth(120);
-        currentClient.setVHeight(90);
-        this.clientListManager.updateClientByStreamId(streamid, currentClient);
-
-        Collection<Set<IConnection>> conCollection = current
-                .getScope().getConnections();
-        for (Set<IConnection> conset : conCollection) {
-            for (IConnection conn : conset) {
-                if (conn != null) {
-                    RoomClient rcl = this.clientListManager.getClientByStreamId(conn.getClient().getId());
-                    if (rcl == null) {
-                        // continue;
-                    } else if (rcl.getIsScreenClient() != null
-                            && rcl.getIsScreenClient()) {
-                        // continue;
-                    } else {
-                        if (!streamid.equals(rcl.getStreamid())) {
-                            // It is not needed to send back
-                            // that event to the actuall
-                            // Moderator
-                            // as it will be already triggered
-                            // in the result of this Function
-                            // in the Client
-                            if (conn instanceof IServiceCapableConnection) {
-                                ((IServiceCapableConnection) conn).invoke("addNewUser", new Object[]{currentClient}, this);
-                                ((IServiceCapableConnection) conn).invoke("newStream", new Object[]{currentClient}, this);
-                                log.debug("sending setSipTransport to "
-                                        + conn);
+    public void setSipTransport(Long room_id, String publicSID, String broadCastId) {
+        synchronized (getRoomLock()) {
+            IConnection current = Red5.getConnectionLocal();
+            String streamid = current.getClient().getId();
+            // Notify all clients of the same scope (room)
+            RoomClient currentClient = this.clientListManager.getClientByStreamId(streamid);
+            currentClient.setRoom_id(room_id);
+            currentClient.setRoomEnter(new Date());
+            currentClient.setFirstname("SIP Transport");
+            currentClient.setLastname("("+Integer.toString(roommanagement.getSipConferenceMembersNumber(room_id)-1)+")");
+            currentClient.setBroadCastID(Long.parseLong(broadCastId));
+            currentClient.setIsBroadcasting(true);
+            currentClient.setPublicSID(publicSID);
+            currentClient.setAvsettings("av");
+            currentClient.setVWidth(120);
+            currentClient.setVHeight(90);
+            this.clientListManager.updateClientByStreamId(streamid, currentClient);
+
+            Collection<Set<IConnection>> conCollection = current
+                    .getScope().getConnections();
+            for (Set<IConnection> conset : conCollection) {
+                for (IConnection conn : conset) {
+                    if (conn != null) {
+                        RoomClient rcl = this.clientListManager.getClientByStreamId(conn.getClient().getId());
+                        if (rcl == null) {
+                            // continue;
+                        } else if (rcl.getIsScreenClient() != null
+                                && rcl.getIsScreenClient()) {
+                            // continue;
+                        } else {
+                            if (!streamid.equals(rcl.getStreamid())) {
+                                // It is not needed to send back
+                                // that event to the actuall
+                                // Moderator
+                                // as it will be already triggered
+                                // in the result of this Function
+                                // in the Client
+                                if (conn instanceof IServiceCapableConnection) {
+                                    ((IServiceCapableConnection) conn).invoke("addNewUser", new Object[]{currentClient}, this);
+                                    ((IServiceCapableConnection) conn).invoke("newStream", new Object[]{currentClient}, this);
+                                    log.debug("sending setSipTransport to "
+                                            + conn);
+                                }
                             }
                         }
                     }
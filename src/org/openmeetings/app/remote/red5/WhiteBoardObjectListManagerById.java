@@ -18,7 +18,28 @@
  */
 package org.openmeetings.app.remote.red5;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import org.openmeetings.app.OpenmeetingsVariables;
 import org.openmeetings.app.conference.whiteboard.WhiteboardObject;
@@ -26,20 +47,74 @@ import org.openmeetings.app.conference.whiteboard.WhiteboardObjectList;
 import org.red5.logging.Red5LoggerFactory;
 import org.slf4j.Logger;
 
+/**
+ * Whiteboards of all rooms
+ *
+ * The memory is limited by the number of whiteboard items per room and in
+ * total. If a room exceeds its limit its least recently used whiteboards are
+ * written to a snapshot file, if the total limit is exceeded the least
+ * recently used rooms are. Rooms without users are evicted by the
+ * {@link org.openmeetings.app.quartz.scheduler.WhiteboardEvictionJob}.
+ * Evicted whiteboards are loaded again on access.
+ *
+ * The whiteboards of a room are guarded by the monitor of the room entry,
+ * different rooms are accessed in parallel.
+ */
 public class WhiteBoardObjectListManagerById {
-	
-	private static HashMap<Long,WhiteboardObjectList> whiteBoardObjectList = new HashMap<Long,WhiteboardObjectList>();
-	
-	private static Long whiteboardId = 0L;
-	
-//	private static HashMap<Long,Map<String,WhiteboardSyncLockObject>> whiteBoardSyncList = new HashMap<Long,Map<String,WhiteboardSyncLockObject>>();
-//	
-//	private static HashMap<Long,Map<String,Map<String,WhiteboardSyncLockObject>>> whiteBoardObjectSyncList = new HashMap<Long,Map<String,Map<String,WhiteboardSyncLockObject>>>();
+
+	private static final String SNAPSHOT_DIR = "whiteboards";
+	private static final String SNAPSHOT_EXT = ".ser.gz";
+
+	private static ConcurrentHashMap<Long,RoomWhiteboards> whiteBoardObjectList = new ConcurrentHashMap<Long,RoomWhiteboards>();
+
+	private static AtomicLong whiteboardId = new AtomicLong(0);
+
+	// items of all whiteboards held in memory
+	private static AtomicLong itemCount = new AtomicLong(0);
+	private static AtomicBoolean evicting = new AtomicBoolean(false);
+
+	/*
+	 * Limits in number of whiteboard items, 0 for no limit. Static as the
+	 * Spring bean and getInstance() are different instances
+	 */
+	private static volatile int maxRoomItems = 20000;
+	private static volatile long maxItems = 200000;
+
+	private static volatile File snapshotDir = null;
+	private static final Object snapshotDirLock = new Object();
+	/*
+	 * Ids of the evicted whiteboards of the rooms not in memory. Snapshots
+	 * of an earlier run are deleted, so there are no other snapshot files
+	 * and a miss does not need to list the snapshot directory
+	 */
+	private static ConcurrentHashMap<Long,Set<Long>> evictedRooms = new ConcurrentHashMap<Long,Set<Long>>();
 
 	private static final Logger log = Red5LoggerFactory.getLogger(WhiteBoardObjectListManagerById.class, OpenmeetingsVariables.webAppRootKey);
 
 	private static WhiteBoardObjectListManagerById instance = null;
 
+	private static class RoomWhiteboards {
+		private final Long room_id;
+		private final WhiteboardObjectList whiteboardObjectList = new WhiteboardObjectList();
+		// ids of the whiteboards in snapshot files
+		private final Set<Long> evicted = new HashSet<Long>();
+		private final Map<Long,Long> lastAccess = new HashMap<Long,Long>();
+		private volatile long lastRoomAccess = System.currentTimeMillis();
+		private int itemCount = 0;
+		// set when the room has been evicted, the entry must not be used anymore
+		private boolean removed = false;
+
+		RoomWhiteboards(Long room_id) {
+			this.room_id = room_id;
+			whiteboardObjectList.setRoom_id(room_id);
+		}
+
+		void touch(Long whiteBoardId) {
+			lastRoomAccess = System.currentTimeMillis();
+			lastAccess.put(whiteBoardId, lastRoomAccess);
+		}
+	}
+
 	private WhiteBoardObjectListManagerById() {
 		log.debug("WhiteBoardObjectListManagerById is constructed");
 	}
@@ -50,122 +125,411 @@ public class WhiteBoardObjectListManagerById {
 		}
 		return instance;
 	}
-	
+
+	public void setMaxRoomItems(int maxRoomItems) {
+		WhiteBoardObjectListManagerById.maxRoomItems = maxRoomItems;
+	}
+
+	public void setMaxItems(long maxItems) {
+		WhiteBoardObjectListManagerById.maxItems = maxItems;
+	}
+
 	public Long getNewWhiteboardId(Long room_id) throws Exception {
-		whiteboardId++;
-		
-		this.setWhiteBoardObjectListRoomObjAndWhiteboardId(room_id, new WhiteboardObject(), whiteboardId);
-		
-		return whiteboardId;
+		Long newWhiteboardId = whiteboardId.incrementAndGet();
+
+		this.setWhiteBoardObjectListRoomObjAndWhiteboardId(room_id, new WhiteboardObject(), newWhiteboardId);
+
+		return newWhiteboardId;
 	}
-	
+
 	/*
 	 * Room items a Whiteboard
 	 */
-	public synchronized WhiteboardObjectList getWhiteBoardObjectListByRoomId(Long room_id){
-		WhiteboardObjectList whiteboardObjectList = whiteBoardObjectList.get(room_id);
-		if (whiteboardObjectList == null) {
-			whiteboardObjectList = new WhiteboardObjectList();
-		}
-		return whiteboardObjectList;
-	}
-	
-	public synchronized WhiteboardObject getWhiteBoardObjectListByRoomIdAndWhiteboard(Long room_id, Long whiteBoardId){
-		WhiteboardObjectList whiteboardObjectList = whiteBoardObjectList.get(room_id);
-		if (whiteboardObjectList == null) {
-			whiteboardObjectList = new WhiteboardObjectList();
-		}
-		WhiteboardObject whiteboardObjects = whiteboardObjectList.getWhiteboardObjects().get(whiteBoardId);
-		if (whiteboardObjects == null) {
-			whiteboardObjects = new WhiteboardObject();
-		}
-		return whiteboardObjects;
-	}
-	
-//	/*
-//	 * Initial Sync Process
-//	 */
-//	public synchronized void setWhiteBoardSyncListByRoomid(Long room_id, Map<String,WhiteboardSyncLockObject> mapObject ){
-//		whiteBoardSyncList.put(room_id, mapObject);
-//	}
-//	public synchronized Map<String,WhiteboardSyncLockObject> getWhiteBoardSyncListByRoomid(Long room_id){
-//		Map<String,WhiteboardSyncLockObject> roomList = whiteBoardSyncList.get(room_id);
-//		if (roomList == null) {
-//			roomList = new HashMap<String,WhiteboardSyncLockObject>();
-//		}
-//		return roomList;
-//	}
-//	
-//	/*
-//	 * Image Sync Process
-//	 */
-//	public synchronized void setWhiteBoardImagesSyncListByRoomid(Long room_id, Map<String,Map<String,WhiteboardSyncLockObject>> mapObject ){
-//		whiteBoardObjectSyncList.put(room_id, mapObject);
-//	}
-//	public synchronized void setWhiteBoardImagesSyncListByRoomAndObjectId(Long room_id, 
-//			String object_id,Map<String,WhiteboardSyncLockObject> imageSyncList){
-//		Map<String,Map<String,WhiteboardSyncLockObject>> roomList = whiteBoardObjectSyncList.get(room_id);
-//		if (roomList == null) {
-//			roomList = new HashMap<String,Map<String,WhiteboardSyncLockObject>>();
-//		}
-//		if (imageSyncList.size() == 0) {
-//			roomList.remove(object_id);
-//		} else {
-//			roomList.put(object_id, imageSyncList);
-//		}
-//		setWhiteBoardImagesSyncListByRoomid(room_id,roomList);
-//	}
-//	public synchronized Map<String,Map<String,WhiteboardSyncLockObject>> getWhiteBoardObjectSyncListByRoomid(Long room_id){
-//		Map<String,Map<String,WhiteboardSyncLockObject>> roomList = whiteBoardObjectSyncList.get(room_id);
-//		if (roomList == null) {
-//			roomList = new HashMap<String,Map<String,WhiteboardSyncLockObject>>();
-//		}
-//		return roomList;
-//	}
-//	public synchronized Map<String,WhiteboardSyncLockObject> getWhiteBoardObjectSyncListByRoomAndObjectId(Long room_id, 
-//			String object_id){
-//		log.debug("getWhiteBoardImagesSyncListByRoomAndImageid room_id: "+room_id);
-//		Map<String,Map<String,WhiteboardSyncLockObject>> roomList = whiteBoardObjectSyncList.get(room_id);
-//		if (roomList == null) {
-//			roomList = new HashMap<String,Map<String,WhiteboardSyncLockObject>>();
-//		}
-//		log.debug("getWhiteBoardImagesSyncListByRoomAndImageid roomList: "+roomList);
-//		log.debug("getWhiteBoardImagesSyncListByRoomAndImageid object_id: "+object_id);
-//		if (roomList.size() == 1) {
-//			log.debug("getWhiteBoardImagesSyncListByRoomAndImageid roomList Key image_id: "+roomList.keySet().iterator().next());
-//		}
-//		Map<String,WhiteboardSyncLockObject> imageSyncList = roomList.get(object_id);
-//		if (imageSyncList == null) {
-//			imageSyncList = new HashMap<String,WhiteboardSyncLockObject>();
-//		}
-//		return imageSyncList;
-//	}
-	
-	/*
-	 * Whiteboard Object List
-	 * 
+	public WhiteboardObjectList getWhiteBoardObjectListByRoomId(Long room_id){
+		while (true) {
+			RoomWhiteboards room = getRoom(room_id, false);
+			if (room == null) {
+				return new WhiteboardObjectList();
+			}
+			synchronized (room) {
+				if (room.removed) {
+					continue;
+				}
+				// whiteboards which can not be read are left out of the list
+				for (Long whiteBoardId : new ArrayList<Long>(room.evicted)) {
+					load(room, whiteBoardId);
+				}
+				room.lastRoomAccess = System.currentTimeMillis();
+				// copy, the whiteboards of the room might be evicted while
+				// the list is sent to the client
+				WhiteboardObjectList whiteboardObjectList = new WhiteboardObjectList();
+				whiteboardObjectList.setRoom_id(room_id);
+				whiteboardObjectList.getWhiteboardObjects().putAll(room.whiteboardObjectList.getWhiteboardObjects());
+				return whiteboardObjectList;
+			}
+		}
+	}
+
+	public WhiteboardObject getWhiteBoardObjectListByRoomIdAndWhiteboard(Long room_id, Long whiteBoardId){
+		while (true) {
+			RoomWhiteboards room = getRoom(room_id, false);
+			if (room == null) {
+				return new WhiteboardObject();
+			}
+			synchronized (room) {
+				if (room.removed) {
+					continue;
+				}
+				if (room.evicted.contains(whiteBoardId) && !load(room, whiteBoardId)) {
+					return new WhiteboardObject();
+				}
+				WhiteboardObject whiteboardObjects = room.whiteboardObjectList.getWhiteboardObjects().get(whiteBoardId);
+				if (whiteboardObjects == null) {
+					return new WhiteboardObject();
+				}
+				room.touch(whiteBoardId);
+				return whiteboardObjects;
+			}
+		}
+	}
+
+	public void setWhiteBoardObjectListRoomObj(Long room_id, WhiteboardObjectList whiteboardObjectList){
+		while (true) {
+			RoomWhiteboards room = getRoom(room_id, true);
+			synchronized (room) {
+				if (room.removed) {
+					continue;
+				}
+				Map<Long,WhiteboardObject> whiteboards = new HashMap<Long,WhiteboardObject>(whiteboardObjectList.getWhiteboardObjects());
+				room.whiteboardObjectList.getWhiteboardObjects().clear();
+				room.whiteboardObjectList.getWhiteboardObjects().putAll(whiteboards);
+				room.lastAccess.keySet().retainAll(whiteboards.keySet());
+				for (Long whiteBoardId : whiteboards.keySet()) {
+					if (room.evicted.remove(whiteBoardId)) {
+						getSnapshotFile(room_id, whiteBoardId).delete();
+					}
+					room.touch(whiteBoardId);
+				}
+				updateItemCount(room);
+				break;
+			}
+		}
+		checkMaxItems(room_id);
+	}
+
+	public void setWhiteBoardObjectListRoomObjAndWhiteboardId(Long room_id, WhiteboardObject whiteboardObjects, Long whiteBoardId){
+		while (true) {
+			RoomWhiteboards room = getRoom(room_id, true);
+			synchronized (room) {
+				if (room.removed) {
+					continue;
+				}
+				whiteboardObjects.setWhiteBoardId(whiteBoardId);
+				room.whiteboardObjectList.getWhiteboardObjects().put(whiteBoardId, whiteboardObjects);
+				if (room.evicted.remove(whiteBoardId)) {
+					// changed after it has been evicted, the memory is up to date
+					getSnapshotFile(room_id, whiteBoardId).delete();
+				}
+				room.touch(whiteBoardId);
+				updateItemCount(room);
+				checkMaxRoomItems(room, whiteBoardId);
+				break;
+			}
+		}
+		checkMaxItems(room_id);
+	}
+
+	/**
+	 * @return true if the whiteboard has been found and removed
 	 */
-	
-//	public synchronized HashMap<Long,HashMap<String,List>> getWhiteBoardObjectList(){
-//		return whiteBoardObjectList;
-//	}
-//	
-//	public synchronized void setWhiteBoardObjectList(HashMap<Long,HashMap<String,List>> whiteBoardObjectListNew){
-//		whiteBoardObjectList = whiteBoardObjectListNew;
-//	}
-//	
-	public synchronized void setWhiteBoardObjectListRoomObj(Long room_id, WhiteboardObjectList whiteboardObjectList){
-		whiteBoardObjectList.put(room_id, whiteboardObjectList);
-	}
-	
-	public synchronized void setWhiteBoardObjectListRoomObjAndWhiteboardId(Long room_id, WhiteboardObject whiteboardObjects, Long whiteBoardId){
-		WhiteboardObjectList whiteboardObjectList = whiteBoardObjectList.get(room_id);
-		if (whiteboardObjectList == null) {
-			whiteboardObjectList = new WhiteboardObjectList();
-			whiteboardObjectList.setRoom_id(room_id);
+	public boolean removeWhiteboard(Long room_id, Long whiteBoardId) {
+		while (true) {
+			RoomWhiteboards room = getRoom(room_id, false);
+			if (room == null) {
+				return false;
+			}
+			synchronized (room) {
+				if (room.removed) {
+					continue;
+				}
+				room.lastAccess.remove(whiteBoardId);
+				if (room.evicted.remove(whiteBoardId)) {
+					getSnapshotFile(room_id, whiteBoardId).delete();
+					return true;
+				}
+				boolean found = room.whiteboardObjectList.getWhiteboardObjects().remove(whiteBoardId) != null;
+				updateItemCount(room);
+				return found;
+			}
+		}
+	}
+
+	/**
+	 * @return ids of the rooms having whiteboards in memory
+	 */
+	public Set<Long> getRoomIds() {
+		return new HashSet<Long>(whiteBoardObjectList.keySet());
+	}
+
+	/**
+	 * @return milliseconds since the whiteboards of the room have been
+	 *         accessed, -1 if they are not in memory
+	 */
+	public long getIdleTime(Long room_id) {
+		RoomWhiteboards room = whiteBoardObjectList.get(room_id);
+		return room == null ? -1 : System.currentTimeMillis() - room.lastRoomAccess;
+	}
+
+	/**
+	 * Writes all whiteboards of the room to snapshot files and removes them
+	 * from memory
+	 *
+	 * @return true if the room has been evicted
+	 */
+	public boolean evictRoom(Long room_id) {
+		RoomWhiteboards room = whiteBoardObjectList.get(room_id);
+		if (room == null) {
+			return false;
+		}
+		synchronized (room) {
+			if (room.removed) {
+				return false;
+			}
+			for (Long whiteBoardId : new ArrayList<Long>(room.whiteboardObjectList.getWhiteboardObjects().keySet())) {
+				if (!evict(room, whiteBoardId)) {
+					updateItemCount(room);
+					return false;
+				}
+			}
+			updateItemCount(room);
+			room.removed = true;
+			if (!room.evicted.isEmpty()) {
+				// known before the entry is gone, a miss creates it again
+				evictedRooms.put(room_id, new HashSet<Long>(room.evicted));
+			}
+			whiteBoardObjectList.remove(room_id, room);
+			log.debug("Whiteboards of room evicted " + room_id);
+			return true;
+		}
+	}
+
+	/**
+	 * @param create
+	 *            create the entry if it does not exist
+	 * @return the room entry, rooms having snapshots are always created
+	 */
+	private static RoomWhiteboards getRoom(Long room_id, boolean create) {
+		RoomWhiteboards room = whiteBoardObjectList.get(room_id);
+		if (room != null) {
+			return room;
+		}
+		if (!create && !evictedRooms.containsKey(room_id)) {
+			return null;
+		}
+		RoomWhiteboards newRoom = new RoomWhiteboards(room_id);
+		synchronized (newRoom) {
+			room = whiteBoardObjectList.putIfAbsent(room_id, newRoom);
+			if (room != null) {
+				return room;
+			}
+			// taken after the put, a concurrent eviction might have finished
+			// meanwhile
+			Set<Long> evicted = evictedRooms.remove(room_id);
+			if (evicted != null) {
+				newRoom.evicted.addAll(evicted);
+			}
+			return newRoom;
+		}
+	}
+
+	/**
+	 * Has to be called holding the monitor of the room
+	 */
+	private static void updateItemCount(RoomWhiteboards room) {
+		int count = 0;
+		for (WhiteboardObject whiteboard : room.whiteboardObjectList.getWhiteboardObjects().values()) {
+			count += whiteboard.size();
+		}
+		itemCount.addAndGet(count - room.itemCount);
+		room.itemCount = count;
+	}
+
+	/**
+	 * Evicts the least recently used whiteboards of the room except the
+	 * current one until the room is below its limit, has to be called holding
+	 * the monitor of the room
+	 */
+	private static void checkMaxRoomItems(final RoomWhiteboards room, Long currentWhiteBoardId) {
+		if (maxRoomItems <= 0 || room.itemCount <= maxRoomItems) {
+			return;
+		}
+		List<Long> whiteBoardIds = new ArrayList<Long>(room.whiteboardObjectList.getWhiteboardObjects().keySet());
+		whiteBoardIds.remove(currentWhiteBoardId);
+		Collections.sort(whiteBoardIds, new Comparator<Long>() {
+			public int compare(Long o1, Long o2) {
+				Long a1 = room.lastAccess.get(o1);
+				Long a2 = room.lastAccess.get(o2);
+				return Long.valueOf(a1 == null ? 0 : a1).compareTo(a2 == null ? 0 : a2);
+			}
+		});
+		for (Long whiteBoardId : whiteBoardIds) {
+			if (room.itemCount <= maxRoomItems) {
+				break;
+			}
+			evict(room, whiteBoardId);
+			updateItemCount(room);
 		}
-		whiteboardObjects.setWhiteBoardId(whiteBoardId);
-		whiteboardObjectList.getWhiteboardObjects().put(whiteBoardId, whiteboardObjects);
-		whiteBoardObjectList.put(room_id, whiteboardObjectList);
+	}
+
+	/**
+	 * Evicts the least recently used rooms except the current one until the
+	 * total limit is reached, only one thread evicts at a time
+	 */
+	private void checkMaxItems(Long currentRoom_id) {
+		if (maxItems <= 0 || itemCount.get() <= maxItems || !evicting.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			List<RoomWhiteboards> rooms = new ArrayList<RoomWhiteboards>(whiteBoardObjectList.values());
+			Collections.sort(rooms, new Comparator<RoomWhiteboards>() {
+				public int compare(RoomWhiteboards o1, RoomWhiteboards o2) {
+					return Long.valueOf(o1.lastRoomAccess).compareTo(o2.lastRoomAccess);
+				}
+			});
+			for (RoomWhiteboards room : rooms) {
+				if (itemCount.get() <= maxItems) {
+					break;
+				}
+				if (!room.room_id.equals(currentRoom_id)) {
+					evictRoom(room.room_id);
+				}
+			}
+		} finally {
+			evicting.set(false);
+		}
+	}
+
+	/**
+	 * Has to be called holding the monitor of the room
+	 *
+	 * @return true if the whiteboard has been written, it is kept in memory
+	 *         otherwise
+	 */
+	private static boolean evict(RoomWhiteboards room, Long whiteBoardId) {
+		WhiteboardObject whiteboard = room.whiteboardObjectList.getWhiteboardObjects().get(whiteBoardId);
+		if (whiteboard == null) {
+			return true;
+		}
+		File file = getSnapshotFile(room.room_id, whiteBoardId);
+		File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+		ObjectOutputStream out = null;
+		try {
+			file.getParentFile().mkdirs();
+			out = new ObjectOutputStream(new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(tmp))));
+			out.writeObject(whiteboard.getWhiteBoardId());
+			out.writeObject(whiteboard.getX());
+			out.writeObject(whiteboard.getY());
+			out.writeObject(whiteboard.getZoom());
+			out.writeObject(whiteboard.getFullFit());
+			out.writeObject(whiteboard.getCreated());
+			out.writeObject(new LinkedHashMap<String,Object>(whiteboard.getRoomItems()));
+			out.close();
+			out = null;
+			if (!tmp.renameTo(file)) {
+				throw new Exception("Unable to rename " + tmp);
+			}
+		} catch (Exception err) {
+			log.error("[evict] " + room.room_id + " " + whiteBoardId, err);
+			if (out != null) {
+				try {
+					out.close();
+				} catch (Exception e) {
+					// ignore, the write failed anyway
+				}
+			}
+			tmp.delete();
+			return false;
+		}
+		room.whiteboardObjectList.getWhiteboardObjects().remove(whiteBoardId);
+		room.lastAccess.remove(whiteBoardId);
+		room.evicted.add(whiteBoardId);
+		return true;
+	}
+
+	/**
+	 * Has to be called holding the monitor of the room
+	 *
+	 * @return true if the whiteboard has been read, it stays evicted and is
+	 *         read again on the next access otherwise
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static boolean load(RoomWhiteboards room, Long whiteBoardId) {
+		File file = getSnapshotFile(room.room_id, whiteBoardId);
+		ObjectInputStream in = null;
+		try {
+			in = new ObjectInputStream(new GZIPInputStream(new BufferedInputStream(new FileInputStream(file))));
+			WhiteboardObject whiteboard = new WhiteboardObject();
+			whiteboard.setWhiteBoardId((Long) in.readObject());
+			whiteboard.setX((Integer) in.readObject());
+			whiteboard.setY((Integer) in.readObject());
+			whiteboard.setZoom((Integer) in.readObject());
+			whiteboard.setFullFit((Boolean) in.readObject());
+			whiteboard.setCreated((Date) in.readObject());
+			whiteboard.setRoomItems((Map) in.readObject());
+			room.whiteboardObjectList.getWhiteboardObjects().put(whiteBoardId, whiteboard);
+			room.touch(whiteBoardId);
+			updateItemCount(room);
+		} catch (Exception err) {
+			log.error("[load] " + room.room_id + " " + whiteBoardId, err);
+			return false;
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (Exception e) {
+					// ignore, the content has been read
+				}
+			}
+		}
+		room.evicted.remove(whiteBoardId);
+		file.delete();
+		return true;
+	}
+
+	private static File getSnapshotDir() {
+		File dir = snapshotDir;
+		if (dir != null) {
+			return dir;
+		}
+		synchronized (snapshotDirLock) {
+			if (snapshotDir != null) {
+				return snapshotDir;
+			}
+			dir = new File(ScopeApplicationAdapter.webAppPath + File.separatorChar
+					+ OpenmeetingsVariables.UPLOAD_TEMP_DIR + File.separatorChar + SNAPSHOT_DIR);
+			// whiteboard ids are not kept on restart, old snapshots are invalid
+			File[] roomDirs = dir.listFiles();
+			if (roomDirs != null) {
+				for (File roomDir : roomDirs) {
+					File[] snapshots = roomDir.listFiles();
+					if (snapshots != null) {
+						for (File snapshot : snapshots) {
+							snapshot.delete();
+						}
+					}
+					roomDir.delete();
+				}
+			}
+			snapshotDir = dir;
+			return dir;
+		}
+	}
+
+	private static File getRoomDir(Long room_id) {
+		return new File(getSnapshotDir(), String.valueOf(room_id));
+	}
+
+	private static File getSnapshotFile(Long room_id, Long whiteBoardId) {
+		return new File(getRoomDir(room_id), whiteBoardId + SNAPSHOT_EXT);
 	}
 }
@@ -484,22 +484,13 @@ public class RoomWebService {
 				int i = 0;
 				for (Rooms room : rooms) {
 
-					HashMap<String, RoomClient> map = clientListManager
-							.getClientListByRoom(room.getRooms_id());
-
-					// room.setCurrentusers(new LinkedList<RoomClient>());
-
-					// for (Iterator<String> iter = map.keySet().iterator();
-					// iter.hasNext(); ) {
-					// room.getCurrentusers().add(map.get(iter.next()));
-					// }
-
 					RoomCountBean rCountBean = new RoomCountBean();
 					rCountBean.setRoomId(room.getRooms_id());
 					rCountBean.setRoomName(room.getName());
 					rCountBean.setMaxUser(room.getNumberOfPartizipants()
 							.intValue());
-					rCountBean.setRoomCount(map.size());
+					rCountBean.setRoomCount(clientListManager
+							.getParticipantCount(room.getRooms_id()));
 
 					roomsArray[i] = rCountBean;
 					i++;
@@ -373,14 +373,10 @@ public class Admin {
 						System.out.println("File name was not specified, '" + file + "' will be used");
 					}
 					boolean includeFiles = Boolean.parseBoolean(cmdl.getOptionValue("exclude-files", "true"));
-					File backup_dir = new File(omUploadTemp, "" + System.currentTimeMillis());
-					backup_dir.mkdirs();
 					
 					shutdownScheduledJobs(ctxName);
 					BackupExport export = getApplicationContext(ctxName).getBean(BackupExport.class);
-					export.performExport(file, backup_dir, includeFiles, omHome.getAbsolutePath());
-					export.deleteDirectory(backup_dir);
-					backup_dir.delete();
+					export.performExport(file, includeFiles, omHome.getAbsolutePath());
 				} catch (Exception e) {
 					handleError("Backup failed", e);
 				}
@@ -22,14 +22,55 @@ import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
 
 public abstract class BaseScreenEncoder implements IScreenEncoder {
+	private BufferedImage buffer = null;
 
+	/**
+	 * @return an int RGB image of the given size, the same image is returned
+	 *         by the next calls as long as the size is not changed
+	 */
+	protected BufferedImage getBuffer(int width, int height) {
+		if (buffer == null || buffer.getWidth() != width || buffer.getHeight() != height) {
+			buffer = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		}
+		return buffer;
+	}
+
+	/**
+	 * @return true if the pixels of the image are stored in an int array one
+	 *         row after the other without any padding
+	 */
+	protected static boolean isPlainRaster(BufferedImage img) {
+		WritableRaster raster = img.getRaster();
+		return raster.getDataBuffer() instanceof DataBufferInt
+				&& raster.getDataBuffer().getNumBanks() == 1
+				&& raster.getDataBuffer().getOffset() == 0
+				&& raster.getSampleModelTranslateX() == 0
+				&& raster.getSampleModelTranslateY() == 0
+				&& raster.getSampleModel() instanceof SinglePixelPackedSampleModel
+				&& ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride() == img.getWidth();
+	}
+
+	/**
+	 * @return the pixel array of an image having a plain raster
+	 */
+	protected static int[] getData(BufferedImage img) {
+		return ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+	}
+
+	/**
+	 * The returned image is reused by the next call, it is only valid until
+	 * then
+	 */
 	public BufferedImage resize(BufferedImage _img, Rectangle size) {
 		BufferedImage img = _img;
 		if (img.getWidth() != size.width || img.getHeight() != size.height) {
-			img = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
-			
+			img = getBuffer(size.width, size.height);
+
 			Graphics2D graphics2D = img.createGraphics();
 			graphics2D.setRenderingHint(
 				RenderingHints.KEY_INTERPOLATION,
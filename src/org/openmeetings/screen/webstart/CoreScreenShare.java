@@ -35,8 +35,11 @@ import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.mina.core.buffer.IoBuffer;
@@ -307,6 +310,15 @@ public class CoreScreenShare {
 		String method = invoke.getCall().getServiceMethodName();
 		if ("sendRemoteCursorEvent".equals(method)) {
 			sendRemoteCursorEvent(invoke.getCall().getArguments()[0]);
+		} else if ("sendRemoteCursorEventBatch".equals(method)) {
+			// events collected by the server, each item are the arguments of
+			// a single sendRemoteCursorEvent
+			for (Object item : toList(invoke.getCall().getArguments()[0])) {
+				List<?> args = toList(item);
+				if (!args.isEmpty()) {
+					sendRemoteCursorEvent(args.get(0));
+				}
+			}
 		} else if ("screenSharerAction".equals(method)) {
 			Object[] args = invoke.getCall().getArguments();
 			if (args != null) {
@@ -323,6 +335,15 @@ public class CoreScreenShare {
 		}
 	}
 
+	private static List<?> toList(Object obj) {
+		if (obj instanceof List) {
+			return (List<?>) obj;
+		} else if (obj instanceof Object[]) {
+			return Arrays.asList((Object[]) obj);
+		}
+		return Collections.emptyList();
+	}
+
 	public void stopStream() {
 		try {
 			logger.debug("ScreenShare stopStream");
@@ -18,32 +18,60 @@
  */
 package org.openmeetings.screen.webstart;
 
+import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.zip.Deflater;
 
+/**
+ * Screen Video (version 1) encoder
+ *
+ * The pixels are read from the int raster of the image and compared with the
+ * previous frame block by block, only the changed blocks are packed and
+ * deflated, this is done by several threads if many blocks have changed. All
+ * buffers are kept between the frames.
+ */
 public class ScreenV1Encoder extends BaseScreenEncoder {
-	private BufferedImage last = null;
 	private static int KEY_FRAME_INDEX = 100;
 	private static int DEFAULT_BLOCK_SIZE = 32;
 	private static int DEFAULT_SCREEN_WIDTH = 1920;
 	private static int DEFAULT_SCREEN_HEIGHT = 1080;
+	// changed blocks below this number are deflated by the calling thread
+	private static int PARALLEL_MIN_BLOCKS = 8;
+	private static final int THREADS = Runtime.getRuntime().availableProcessors();
+	private static ExecutorService deflatePool = null;
 	private int keyFrameIndex;
 	private int frameCount = 0;
 	private int blockSize;
 	private Rectangle screen;
 	private ByteArrayOutputStream ba = new ByteArrayOutputStream(50 + 3 * DEFAULT_SCREEN_WIDTH * DEFAULT_SCREEN_HEIGHT);
-	private byte[] areaBuf = null;
-	private Deflater d = new Deflater(Deflater.DEFAULT_COMPRESSION);
-	private byte[] zipBuf = null;
-	
+	// pixels of the previous frame
+	private int[] last = null;
+	private int width;
+	private int height;
+	private int hBlocks;
+	private int vBlocks;
+	// deflated data of the changed blocks of the current frame
+	private byte[][] blockData = null;
+	private int[] blockLength = null;
+	private int[] changed = null;
+	private final BlockDeflater[] deflaters;
+
 	public ScreenV1Encoder() {
 		this(KEY_FRAME_INDEX, DEFAULT_BLOCK_SIZE);
 	}
-	
+
 	//will create square blocks
 	public ScreenV1Encoder(int keyFrameIndex, int blockSize) {
 		this.keyFrameIndex = keyFrameIndex;
@@ -52,84 +80,218 @@ public class ScreenV1Encoder extends BaseScreenEncoder {
 		}
 		this.blockSize = blockSize;
 
-		areaBuf = new byte[3 * blockSize * blockSize];
-		zipBuf = new byte[3 * blockSize * blockSize];
+		deflaters = new BlockDeflater[THREADS];
+		for (int i = 0; i < deflaters.length; ++i) {
+			deflaters[i] = new BlockDeflater();
+		}
 	}
-	
+
+	private static synchronized ExecutorService getDeflatePool() {
+		if (deflatePool == null) {
+			deflatePool = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "ScreenV1Encoder");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return deflatePool;
+	}
+
 	public byte[] encode(Rectangle screen, BufferedImage _img, Rectangle size) throws IOException {
 		BufferedImage img = resize(_img, size);
+		int[] pixels = getPixels(img);
+		boolean isKeyFrame = (frameCount++ % keyFrameIndex) == 0 || last == null || !screen.equals(this.screen)
+				|| img.getWidth() != width || img.getHeight() != height;
+		if (img.getWidth() != width || img.getHeight() != height || last == null) {
+			init(img.getWidth(), img.getHeight());
+		}
+
+		int count = 0;
+		for (int block = 0; block < hBlocks * vBlocks; ++block) {
+			if (isKeyFrame || isChanged(pixels, block)) {
+				changed[count++] = block;
+			}
+		}
+		deflate(pixels, count);
+
 		ba.reset();
-		Rectangle imgArea = new Rectangle(img.getWidth(), img.getHeight());
-		Rectangle area = getNextBlock(imgArea, null);
-		boolean isKeyFrame = (frameCount++ % keyFrameIndex) == 0 || last == null || !screen.equals(this.screen);
-		
 		//header
 		ba.write(getTag(isKeyFrame ? 0x01 : 0x02, 0x03));
-		writeShort(ba, imgArea.width + ((blockSize / 16 - 1) << 12));
-		writeShort(ba, imgArea.height + ((blockSize / 16 - 1) << 12));
-		
-		while (area.width > 0 && area.height > 0) {
-			writeBytesIfChanged(ba, isKeyFrame, img, area);
-			area = getNextBlock(imgArea, area);
+		writeShort(ba, width + ((blockSize / 16 - 1) << 12));
+		writeShort(ba, height + ((blockSize / 16 - 1) << 12));
+
+		int next = 0;
+		for (int block = 0; block < hBlocks * vBlocks; ++block) {
+			if (next < count && changed[next] == block) {
+				writeShort(ba, blockLength[block]);
+				ba.write(blockData[block], 0, blockLength[block]);
+				copyBlock(pixels, last, block);
+				++next;
+			} else {
+				writeShort(ba, 0);
+			}
 		}
 		this.screen = screen;
-		last = img;
 		return ba.toByteArray();
 	}
-	
+
 	public void reset() {
 		last = null;
 	}
-	
-	private Rectangle getNextBlock(Rectangle img, Rectangle _prev) {
-		Rectangle prev;
-		if (_prev == null) {
-			prev = new Rectangle(0, Math.max(0, img.height - blockSize), blockSize, blockSize);
-		} else {
-			prev = new Rectangle(_prev);
-			if (prev.x + prev.width == img.getWidth()) {
-				if (prev.y == 0) return new Rectangle(); //the end of the image
-				//next row
-				prev.x = 0; //reset position
-				prev.width = blockSize; //reset width
-				prev.y -= (prev.y > blockSize ? blockSize : prev.y);
-			} else {
-				prev.x += blockSize;
+
+	private void init(int width, int height) {
+		this.width = width;
+		this.height = height;
+		hBlocks = (width + blockSize - 1) / blockSize;
+		vBlocks = (height + blockSize - 1) / blockSize;
+		last = new int[width * height];
+		blockData = new byte[hBlocks * vBlocks][];
+		blockLength = new int[hBlocks * vBlocks];
+		changed = new int[hBlocks * vBlocks];
+	}
+
+	/**
+	 * @return the pixels of the image, the raster of the image if it is an
+	 *         int RGB image without padding, a copy otherwise
+	 */
+	private int[] getPixels(BufferedImage img) {
+		if ((img.getType() == BufferedImage.TYPE_INT_RGB || img.getType() == BufferedImage.TYPE_INT_ARGB)
+				&& isPlainRaster(img)) {
+			return getData(img);
+		}
+		BufferedImage copy = getBuffer(img.getWidth(), img.getHeight());
+		Graphics2D graphics2D = copy.createGraphics();
+		graphics2D.drawImage(img, 0, 0, null);
+		graphics2D.dispose();
+		return getData(copy);
+	}
+
+	// The blocks are numbered from the bottom left to the top right, the
+	// blocks of the right column and of the top row might be smaller
+
+	private int getBlockX(int block) {
+		return (block % hBlocks) * blockSize;
+	}
+
+	private int getBlockWidth(int block) {
+		return Math.min(blockSize, width - getBlockX(block));
+	}
+
+	private int getBlockBottom(int block) {
+		return height - (block / hBlocks) * blockSize;
+	}
+
+	private int getBlockHeight(int block) {
+		return Math.min(blockSize, getBlockBottom(block));
+	}
+
+	private boolean isChanged(int[] pixels, int block) {
+		int x = getBlockX(block);
+		int w = getBlockWidth(block);
+		int bottom = getBlockBottom(block);
+		for (int y = bottom - getBlockHeight(block); y < bottom; ++y) {
+			int offset = y * width + x;
+			for (int i = offset, end = offset + w; i < end; ++i) {
+				if (pixels[i] != last[i]) {
+					return true;
+				}
 			}
 		}
-		return img.intersection(prev); 
+		return false;
 	}
 
-	private void writeBytesIfChanged(ByteArrayOutputStream ba, boolean isKeyFrame, BufferedImage img, Rectangle area) throws IOException {
-		boolean changed = isKeyFrame;
-		int count = 0;
-		for (int y = area.y + area.height - 1; y >= area.y; --y) {
-			for (int x = area.x; x < area.x + area.width; ++x) {
-				int pixel = img.getRGB(x, y);
-				if (!changed && (last == null || pixel != last.getRGB(x, y))) {
-					changed = true;
+	private void copyBlock(int[] from, int[] to, int block) {
+		int x = getBlockX(block);
+		int w = getBlockWidth(block);
+		int bottom = getBlockBottom(block);
+		for (int y = bottom - getBlockHeight(block); y < bottom; ++y) {
+			System.arraycopy(from, y * width + x, to, y * width + x, w);
+		}
+	}
+
+	private void deflate(final int[] pixels, final int count) throws IOException {
+		if (count < PARALLEL_MIN_BLOCKS || deflaters.length == 1) {
+			deflaters[0].deflate(pixels, 0, count);
+			return;
+		}
+		int chunk = (count + deflaters.length - 1) / deflaters.length;
+		List<Future<Object>> futures = new ArrayList<Future<Object>>();
+		for (int i = 1; i * chunk < count; ++i) {
+			final BlockDeflater deflater = deflaters[i];
+			final int from = i * chunk;
+			final int to = Math.min(count, from + chunk);
+			futures.add(getDeflatePool().submit(new Callable<Object>() {
+				public Object call() throws Exception {
+					deflater.deflate(pixels, from, to);
+					return null;
 				}
-				areaBuf[count++] = (byte)(pixel & 0xFF);			// Blue component
-				areaBuf[count++] = (byte)((pixel >> 8) & 0xFF);		// Green component
-				areaBuf[count++] = (byte)((pixel >> 16) & 0xFF);	// Red component
+			}));
+		}
+		deflaters[0].deflate(pixels, 0, Math.min(count, chunk));
+		try {
+			for (Future<Object> f : futures) {
+				f.get();
 			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while deflating");
+		} catch (ExecutionException e) {
+			throw new IOException("Unable to deflate: " + e.getCause());
 		}
-		if (changed) {
-			d.reset();
-			d.setInput(areaBuf, 0, count);
-			d.finish();
-			int written = d.deflate(zipBuf);
-			writeShort(ba, written);
-			ba.write(zipBuf, 0, written);
-		} else {
-			writeShort(ba, 0);
+	}
+
+	/**
+	 * Packs and deflates blocks, one instance is used by one thread at a time
+	 */
+	private class BlockDeflater {
+		private final Deflater d = new Deflater(Deflater.DEFAULT_COMPRESSION);
+		private final byte[] areaBuf = new byte[3 * blockSize * blockSize];
+
+		private void deflate(int[] pixels, int from, int to) {
+			for (int i = from; i < to; ++i) {
+				int block = changed[i];
+				int x = getBlockX(block);
+				int w = getBlockWidth(block);
+				int bottom = getBlockBottom(block);
+				int top = bottom - getBlockHeight(block);
+				int count = 0;
+				for (int y = bottom - 1; y >= top; --y) {
+					for (int p = y * width + x, end = p + w; p < end; ++p) {
+						int pixel = pixels[p];
+						areaBuf[count++] = (byte)(pixel & 0xFF);			// Blue component
+						areaBuf[count++] = (byte)((pixel >> 8) & 0xFF);		// Green component
+						areaBuf[count++] = (byte)((pixel >> 16) & 0xFF);	// Red component
+					}
+				}
+				byte[] zipBuf = blockData[block];
+				if (zipBuf == null) {
+					// deflate might produce more bytes than the input
+					zipBuf = new byte[areaBuf.length + areaBuf.length / 100 + 64];
+				}
+				d.reset();
+				d.setInput(areaBuf, 0, count);
+				d.finish();
+				int written = 0;
+				while (!d.finished()) {
+					if (written == zipBuf.length) {
+						byte[] b = new byte[2 * zipBuf.length];
+						System.arraycopy(zipBuf, 0, b, 0, written);
+						zipBuf = b;
+					}
+					written += d.deflate(zipBuf, written, zipBuf.length - written);
+				}
+				blockData[block] = zipBuf;
+				blockLength[block] = written;
+			}
 		}
 	}
 
 	public int getTag(final int frame, final int codec) {
 		return ((frame & 0x0F) << 4) + ((codec & 0x0F) << 0);
 	}
-	
+
 	private void writeShort(OutputStream os, final int n) throws IOException {
 		os.write((n >> 8) & 0xFF);
 		os.write((n >> 0) & 0xFF);
@@ -20,13 +20,10 @@ package org.openmeetings.servlet.outputhandler;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
@@ -38,7 +35,6 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import org.dom4j.Document;
 import org.dom4j.DocumentHelper;
 import org.dom4j.Element;
 import org.dom4j.io.OutputFormat;
@@ -104,6 +100,9 @@ public class BackupExport {
 			+ "you should use the BackupPanel to modify or change this file \n"
 			+ "see http://incubator.apache.org/openmeetings/Upgrade.html for Details \n"
 			+ "###############################################";
+	// number of rows read at once from the large tables
+	private static final int PAGE_SIZE = 100;
+	private static final int BUFFER_SIZE = 64 * 1024;
 
 	@Autowired
 	private AppointmentDaoImpl appointmentDao;
@@ -144,321 +143,280 @@ public class BackupExport {
 	@Autowired
 	private AsteriskDAOImpl asteriskDAOImpl;
 
-	public void performExport(String filePath, File backup_dir,
-			boolean includeFiles, String omFilesDir) throws Exception {
-
-		if (!backup_dir.exists()) {
-			backup_dir.mkdirs();
-		}
-		
-		/*
-		 * ##################### Backup Organizations
-		 */
-		List<Organisation> orgList = organisationmanagement
-				.getOrganisations(3L);
-
-		if (orgList != null) {
-			Document doc = this.createOrgDocument(orgList);
-
-			File orgListXML = new File(backup_dir, "organizations.xml");
-
-			FileOutputStream fos = new FileOutputStream(orgListXML);
-
-			this.serializetoXML(fos, "UTF-8", doc);
-		}
-
-		/*
-		 * ##################### Backup Users
-		 */
-
-		List<Users> uList = usersDao.getAllUsersDeleted();
-
-		if (uList != null) {
-			log.debug("Number of Users to be deleted " + uList.size());
-
-			Document doc = this.createDocument(uList);
-
-			File userListXML = new File(backup_dir, "users.xml");
-
-			FileOutputStream fos = new FileOutputStream(userListXML);
-
-			this.serializetoXML(fos, "UTF-8", doc);
-		}
-
-		/*
-		 * ##################### Backup Room
-		 */
-		List<Rooms> roomList = roommanagement.getBackupRooms();
-
-		if (roomList != null) {
-			Document doc = this.createRoomsDocument(roomList);
-
-			File roomListXML = new File(backup_dir, "rooms.xml");
-
-			FileOutputStream fos = new FileOutputStream(roomListXML);
-
-			this.serializetoXML(fos, "UTF-8", doc);
-		}
-
-		/*
-		 * ##################### Backup Room Organizations
-		 */
-		List<Rooms_Organisation> roomOrgList = roommanagement
-				.getRoomsOrganisations();
-
-		if (roomOrgList != null) {
-			Document doc = this.createOrgRoomsDocument(roomOrgList);
-
-			File roomListXML = new File(backup_dir, "rooms_organisation.xml");
-
-			FileOutputStream fos = new FileOutputStream(roomListXML);
-
-			this.serializetoXML(fos, "UTF-8", doc);
-		}
-
-		/*
-		 * ##################### Backup Appointements
-		 */
-		List<Appointment> aList = appointmentDao.getAppointments();
-
-		if (aList != null) {
-			Document doc = this.createAppointementDocument(aList);
-
-			File aListXML = new File(backup_dir, "appointements.xml");
-
-			FileOutputStream fos = new FileOutputStream(aListXML);
-
-			this.serializetoXML(fos, "UTF-8", doc);
-
-		}
-
-		/*
-		 * ##################### Backup Meeting Members
-		 */
-		List<MeetingMember> membersList = meetingMemberDao.getMeetingMembers();
-
-		if (membersList != null) {
-			Document doc = this.createMeetingMemberDocument(membersList);
-
-			File aListXML = new File(backup_dir, "meetingmembers.xml");
-
-			FileOutputStream fos = new FileOutputStream(aListXML);
-
-			this.serializetoXML(fos, "UTF-8", doc);
-
-		}
-
-		/*
-		 * ##################### LDAP Configs
-		 */
-		List<LdapConfig> ldapConfigList = ldapConfigDao.getLdapConfigs();
-
-		if (ldapConfigList != null) {
-			Document doc = this.createLdapConfigDocument(ldapConfigList);
-
-			File aListXML = new File(backup_dir, "ldapconfigs.xml");
-
-			FileOutputStream fos = new FileOutputStream(aListXML);
-
-			this.serializetoXML(fos, "UTF-8", doc);
-		}
-
-		/*
-		 * ##################### Private Messages
-		 */
-		List<PrivateMessages> privateMessages = privateMessagesDao
-				.getPrivateMessages();
-
-		if (privateMessages != null) {
-			Document doc = this.createPrivateMessagesDocument(privateMessages);
-
-			File aListXML = new File(backup_dir, "privateMessages.xml");
-
-			FileOutputStream fos = new FileOutputStream(aListXML);
-
-			this.serializetoXML(fos, "UTF-8", doc);
-		}
-
-		/*
-		 * ##################### Private Message Folders
-		 */
-		List<PrivateMessageFolder> privateMessageFolders = privateMessageFolderDao
-				.getPrivateMessageFolders();
-
-		if (privateMessageFolders != null) {
-			Document doc = this
-					.createPrivateMessageFolderDocument(privateMessageFolders);
-
-			File aListXML = new File(backup_dir, "privateMessageFolder.xml");
-
-			FileOutputStream fos = new FileOutputStream(aListXML);
-
-			this.serializetoXML(fos, "UTF-8", doc);
-		}
-
-		/*
-		 * ##################### User Contacts
-		 */
-		List<UserContacts> userContacts = userContactsDao.getUserContacts();
-
-		if (privateMessageFolders != null) {
-			Document doc = this.createUserContactsDocument(userContacts);
-
-			File aListXML = new File(backup_dir, "userContacts.xml");
-
-			FileOutputStream fos = new FileOutputStream(aListXML);
+	/**
+	 * Writes the backup zip, every table is read page by page and written
+	 * straight into its own zip entry, the uploaded files and the recordings
+	 * are added to the zip from their folders
+	 */
+	public void performExport(String filePath, boolean includeFiles,
+			String omFilesDir) throws Exception {
 
-			this.serializetoXML(fos, "UTF-8", doc);
-		}
+		ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(
+				filePath));
+		try {
+			/*
+			 * ##################### Backup Organizations
+			 */
+			List<Organisation> orgList = organisationmanagement
+					.getOrganisations(3L);
+
+			if (orgList != null) {
+				TableWriter writer = new TableWriter(zos, "organizations.xml",
+						"organisations");
+				writeOrganisations(writer, orgList);
+				writer.close();
+			}
 
-		/*
-		 * ##################### File-Explorer
-		 */
-		List<FileExplorerItem> fileExplorerList = fileExplorerItemDao
-				.getFileExplorerItems();
+			/*
+			 * ##################### Backup Users
+			 */
+			writeTable(zos, "users.xml", "users", new TablePager<Users>() {
+				public List<Users> getPage(int first, int count) {
+					return usersDao.getAllUsersDeleted(first, count);
+				}
 
-		if (fileExplorerList != null) {
-			Document doc = this
-					.createFileExplorerItemDocument(fileExplorerList);
+				public void write(TableWriter writer, List<Users> page)
+						throws Exception {
+					writeUsers(writer, page);
+				}
+			});
 
-			File aListXML = new File(backup_dir, "fileExplorerItems.xml");
+			/*
+			 * ##################### Backup Room
+			 */
+			List<Rooms> roomList = roommanagement.getBackupRooms();
 
-			FileOutputStream fos = new FileOutputStream(aListXML);
+			if (roomList != null) {
+				TableWriter writer = new TableWriter(zos, "rooms.xml", "rooms");
+				writeRooms(writer, roomList);
+				writer.close();
+			}
 
-			this.serializetoXML(fos, "UTF-8", doc);
-		}
+			/*
+			 * ##################### Backup Room Organizations
+			 */
+			List<Rooms_Organisation> roomOrgList = roommanagement
+					.getRoomsOrganisations();
+
+			if (roomOrgList != null) {
+				TableWriter writer = new TableWriter(zos,
+						"rooms_organisation.xml", "room_organisations");
+				writeRoomOrganisations(writer, roomOrgList);
+				writer.close();
+			}
 
-		/*
-		 * ##################### Recordings
-		 */
-		List<FlvRecording> flvRecordings = flvRecordingDao
-				.getAllFlvRecordings();
+			/*
+			 * ##################### Backup Appointements
+			 */
+			writeTable(zos, "appointements.xml", "appointments",
+					new TablePager<Appointment>() {
+						public List<Appointment> getPage(int first, int count) {
+							return appointmentDao.getAppointments(first, count);
+						}
+
+						public void write(TableWriter writer,
+								List<Appointment> page) throws Exception {
+							writeAppointements(writer, page);
+						}
+					});
 
-		for (FlvRecording flvRecording : flvRecordings) {
-			flvRecording.setFlvRecordingMetaData(flvRecordingMetaDataDao
-					.getFlvRecordingMetaDataByRecording(flvRecording
-							.getFlvRecordingId()));
-		}
+			/*
+			 * ##################### Backup Meeting Members
+			 */
+			writeTable(zos, "meetingmembers.xml", "meetingmembers",
+					new TablePager<MeetingMember>() {
+						public List<MeetingMember> getPage(int first, int count) {
+							return meetingMemberDao.getMeetingMembers(first,
+									count);
+						}
+
+						public void write(TableWriter writer,
+								List<MeetingMember> page) throws Exception {
+							writeMeetingMembers(writer, page);
+						}
+					});
 
-		if (privateMessageFolders != null) {
-			Document doc = this.createFlvRecordingDocument(flvRecordings);
+			/*
+			 * ##################### LDAP Configs
+			 */
+			List<LdapConfig> ldapConfigList = ldapConfigDao.getLdapConfigs();
 
-			File aListXML = new File(backup_dir, "flvRecordings.xml");
+			if (ldapConfigList != null) {
+				TableWriter writer = new TableWriter(zos, "ldapconfigs.xml",
+						"ldapconfigs");
+				writeLdapConfigs(writer, ldapConfigList);
+				writer.close();
+			}
 
-			FileOutputStream fos = new FileOutputStream(aListXML);
+			/*
+			 * ##################### Private Message Folders
+			 */
+			List<PrivateMessageFolder> privateMessageFolders = privateMessageFolderDao
+					.getPrivateMessageFolders();
+
+			if (privateMessageFolders != null) {
+				TableWriter writer = new TableWriter(zos,
+						"privateMessageFolder.xml", "privatemessagefolders");
+				writePrivateMessageFolders(writer, privateMessageFolders);
+				writer.close();
+			}
 
-			this.serializetoXML(fos, "UTF-8", doc);
-		}
+			/*
+			 * ##################### User Contacts
+			 */
+			writeTable(zos, "userContacts.xml", "usercontacts",
+					new TablePager<UserContacts>() {
+						public List<UserContacts> getPage(int first, int count) {
+							return userContactsDao.getUserContacts(first, count);
+						}
+
+						public void write(TableWriter writer,
+								List<UserContacts> page) throws Exception {
+							writeUserContacts(writer, page);
+						}
+					});
 
-		/*
-		 * ##################### Polls
-		 */
-		List<RoomPoll> roomPolls = pollManagement.getPollListBackup();
+			/*
+			 * ##################### Private Messages
+			 */
+			writeTable(zos, "privateMessages.xml", "privatemessages",
+					new TablePager<PrivateMessages>() {
+						public List<PrivateMessages> getPage(int first,
+								int count) {
+							return privateMessagesDao.getPrivateMessages(first,
+									count);
+						}
+
+						public void write(TableWriter writer,
+								List<PrivateMessages> page) throws Exception {
+							writePrivateMessages(writer, page);
+						}
+					});
 
-		if (roomPolls != null) {
-			Document doc = this.createRoomPollDocument(roomPolls);
+			/*
+			 * ##################### File-Explorer
+			 */
+			writeTable(zos, "fileExplorerItems.xml", "fileExplorerItems",
+					new TablePager<FileExplorerItem>() {
+						public List<FileExplorerItem> getPage(int first,
+								int count) {
+							return fileExplorerItemDao.getFileExplorerItems(
+									first, count);
+						}
+
+						public void write(TableWriter writer,
+								List<FileExplorerItem> page) throws Exception {
+							writeFileExplorerItems(writer, page);
+						}
+					});
 
-			File aListXML = new File(backup_dir, "roompolls.xml");
+			/*
+			 * ##################### Recordings
+			 */
+			writeTable(zos, "flvRecordings.xml", "flvrecordings",
+					new TablePager<FlvRecording>() {
+						public List<FlvRecording> getPage(int first, int count) {
+							return flvRecordingDao.getAllFlvRecordings(first,
+									count);
+						}
+
+						public void write(TableWriter writer,
+								List<FlvRecording> page) throws Exception {
+							for (FlvRecording flvRecording : page) {
+								flvRecording.setFlvRecordingMetaData(flvRecordingMetaDataDao
+										.getFlvRecordingMetaDataByRecording(flvRecording
+												.getFlvRecordingId()));
+							}
+							writeFlvRecordings(writer, page);
+						}
+					});
 
-			FileOutputStream fos = new FileOutputStream(aListXML);
+			/*
+			 * ##################### Polls
+			 */
+			List<RoomPoll> roomPolls = pollManagement.getPollListBackup();
 
-			this.serializetoXML(fos, "UTF-8", doc);
-		}
+			if (roomPolls != null) {
+				TableWriter writer = new TableWriter(zos, "roompolls.xml",
+						"roompolls");
+				writeRoomPolls(writer, roomPolls);
+				writer.close();
+			}
 
-		/*
-		 * ##################### Config
-		 */
-		List<Configuration> configs = cfgManagement.getConfigurations(0, Integer.MAX_VALUE, "conf_key", true);
-		if (configs != null) {
-			Document doc = createConfigDocument(configs);
-			File aListXML = new File(backup_dir, "configs.xml");
-			FileOutputStream fos = new FileOutputStream(aListXML);
-			this.serializetoXML(fos, "UTF-8", doc);
-		}
-		
-		/*
-		 * ##################### Asterisk SIP Data
-		 */
-		List<AsteriskSipUsers> asteriskSipUsers = asteriskDAOImpl.getAsteriskSipUsers();
-		if (asteriskSipUsers != null) {
-			Document doc = createAsteriskSipUsersDocument(asteriskSipUsers);
-			File aListXML = new File(backup_dir, "asterisksipusers.xml");
-			FileOutputStream fos = new FileOutputStream(aListXML);
-			this.serializetoXML(fos, "UTF-8", doc);
-		}
-		
-		/*
-		 * ##################### Asterisk SIP Extensions
-		 */
-		List<Extensions> extensions = asteriskDAOImpl.getExtensions();
-		if (extensions != null) {
-			Document doc = createExtensionsDocument(extensions);
-			File aListXML = new File(backup_dir, "extensions.xml");
-			FileOutputStream fos = new FileOutputStream(aListXML);
-			this.serializetoXML(fos, "UTF-8", doc);
-		}
-		
-		/*
-		 * ##################### Asterisk SIP Meetme
-		 */
-		List<MeetMe> members = asteriskDAOImpl.getMembers();
-		if (members != null) {
-			Document doc = createMembersDocument(members);
-			File aListXML = new File(backup_dir, "members.xml");
-			FileOutputStream fos = new FileOutputStream(aListXML);
-			this.serializetoXML(fos, "UTF-8", doc);
-		}
-		
+			/*
+			 * ##################### Config
+			 */
+			List<Configuration> configs = cfgManagement.getConfigurations(0, Integer.MAX_VALUE, "conf_key", true);
+			if (configs != null) {
+				TableWriter writer = new TableWriter(zos, "configs.xml", "configs");
+				writeConfigs(writer, configs);
+				writer.close();
+			}
 
-		if (includeFiles) {
 			/*
-			 * ##################### Backup Room Files
+			 * ##################### Asterisk SIP Data
 			 */
-			File targetDir = new File(backup_dir, "roomFiles");
+			List<AsteriskSipUsers> asteriskSipUsers = asteriskDAOImpl.getAsteriskSipUsers();
+			if (asteriskSipUsers != null) {
+				TableWriter writer = new TableWriter(zos, "asterisksipusers.xml", "asterisksipusers");
+				writeAsteriskSipUsers(writer, asteriskSipUsers);
+				writer.close();
+			}
 
-			if (!targetDir.exists()) {
-				targetDir.mkdir();
+			/*
+			 * ##################### Asterisk SIP Extensions
+			 */
+			List<Extensions> extensions = asteriskDAOImpl.getExtensions();
+			if (extensions != null) {
+				TableWriter writer = new TableWriter(zos, "extensions.xml", "extensions");
+				writeExtensions(writer, extensions);
+				writer.close();
 			}
 
-			File sourceDir = new File(omFilesDir, OpenmeetingsVariables.UPLOAD_DIR);
+			/*
+			 * ##################### Asterisk SIP Meetme
+			 */
+			List<MeetMe> members = asteriskDAOImpl.getMembers();
+			if (members != null) {
+				TableWriter writer = new TableWriter(zos, "members.xml", "members");
+				writeMembers(writer, members);
+				writer.close();
+			}
 
-			File[] files = sourceDir.listFiles();
-			for (File file : files) {
-				if (file.isDirectory()) {
-					if (!file.getName().equals("backup")
-							&& !file.getName().equals("import")) {
+			if (includeFiles) {
+				byte[] buffer = new byte[BUFFER_SIZE];
+				/*
+				 * ##################### Backup Room Files
+				 */
+				File sourceDir = new File(omFilesDir, OpenmeetingsVariables.UPLOAD_DIR);
 
-						targetDir = new File(backup_dir, "roomFiles" + File.separatorChar
-								+ file.getName());
+				File[] files = sourceDir.listFiles();
+				if (files != null) {
+					for (File file : files) {
+						if (file.isDirectory()) {
+							if (!file.getName().equals("backup")
+									&& !file.getName().equals("import")) {
 
-						log.debug("### " + file.getName());
+								log.debug("### " + file.getName());
 
-						copyDirectory(file, targetDir);
+								addFolderToZip(file, "roomFiles/" + file.getName(),
+										zos, buffer);
+							}
+						}
 					}
 				}
-			}
 
-			/*
-			 * ##################### Backup Recording Files
-			 */
-			File targetDirRec = new File(backup_dir, "recordingFiles");
+				/*
+				 * ##################### Backup Recording Files
+				 */
+				File sourceDirRec = new File(omFilesDir, OpenmeetingsVariables.STREAMS_DIR
+						+ File.separatorChar + "hibernate" + File.separatorChar);
 
-			if (!targetDirRec.exists()) {
-				targetDirRec.mkdir();
+				addFolderToZip(sourceDirRec, "recordingFiles", zos, buffer);
 			}
-
-			File sourceDirRec = new File(omFilesDir, OpenmeetingsVariables.STREAMS_DIR
-					+ File.separatorChar + "hibernate" + File.separatorChar);
-
-			copyDirectory(sourceDirRec, targetDirRec);
+		} finally {
+			zos.close();
 		}
-
-		List<File> fileList = new ArrayList<File>();
-		log.debug("---Getting references to all files in: "
-				+ backup_dir.getCanonicalPath());
-		getAllFiles(backup_dir, fileList);
-		log.debug("---Creating zip file");
-		writeZipFile(backup_dir, fileList, new FileOutputStream(filePath));
 		log.debug("---Done");
 	}
 	
@@ -515,13 +473,12 @@ public class BackupExport {
 				String dateString = "backup_"
 						+ CalendarPatterns.getTimeForStreamId(new Date());
 
-				File backup_dir = new File(working_dir, dateString);
 				String requestedFile = dateString + ".zip";
-				File backupFile = new File(backup_dir, requestedFile);
+				File backupFile = new File(working_dir, requestedFile);
 
 				String full_path = backupFile.getAbsolutePath();
 				try {
-					performExport(full_path, backup_dir, includeFiles, current_dir);
+					performExport(full_path, includeFiles, current_dir);
 
 					RandomAccessFile rf = new RandomAccessFile(full_path, "r");
 
@@ -537,7 +494,7 @@ public class BackupExport {
 
 					OutputStream out = httpServletResponse.getOutputStream();
 
-					byte[] buffer = new byte[1024];
+					byte[] buffer = new byte[BUFFER_SIZE];
 					int readed = -1;
 
 					while ((readed = rf.read(buffer, 0, buffer.length)) > -1) {
@@ -557,8 +514,6 @@ public class BackupExport {
 					backupFile.delete();
 				}
 
-				deleteDirectory(backup_dir);
-
 			}
 		} else {
 			log.debug("ERROR LangExport: not authorized FileDownload "
@@ -566,17 +521,12 @@ public class BackupExport {
 		}
 	}
 
-	private Document createRoomPollDocument(List<RoomPoll> roomPollList) {
-
-		Document document = getDocument();
-
-		Element root = document.addElement("root");
-
-		Element roompolls = root.addElement("roompolls");
+	private void writeRoomPolls(TableWriter roompolls, List<RoomPoll> roomPollList)
+			throws Exception {
 
 		for (RoomPoll roomPollItem : roomPollList) {
 
-			Element roompoll = roompolls.addElement("roompoll");
+			Element roompoll = roompolls.addItem("roompoll");
 
 			roompoll.addElement("pollname").addCDATA(
 					formatString("" + roomPollItem.getPollName()));
@@ -645,135 +595,144 @@ public class BackupExport {
 			}
 
 		}
-
-		return document;
 	}
 
-	public boolean deleteDirectory(File path) throws IOException {
-
-		// log.debug("deleteDirectory :: "+path);
-
-		if (path.exists()) {
-			File[] files = path.listFiles();
-			for (int i = 0; i < files.length; i++) {
-				if (files[i].isDirectory()) {
-					deleteDirectory(files[i]);
-				} else {
-					files[i].delete();
-				}
-			}
+	/**
+	 * Adds the files of the folder and its sub folders to the zip, the names
+	 * of the entries start with the given path
+	 */
+	private void addFolderToZip(File folder, String path, ZipOutputStream zos,
+			byte[] buffer) throws IOException {
+		File[] files = folder.listFiles();
+		if (files == null) {
+			return;
 		}
-
-		// log.debug("DELETE :3: "+path.getAbsolutePath());
-
-		return (path.delete());
-	}
-
-	public void getAllFiles(File dir, List<File> fileList) throws IOException {
-		try {
-			File[] files = dir.listFiles();
-			for (File file : files) {
-				fileList.add(file);
-				if (file.isDirectory()) {
-					// log.debug("directory:" + file.getCanonicalPath());
-					getAllFiles(file, fileList);
-				} else {
-					// log.debug("     file:" + file.getCanonicalPath());
-				}
+		for (File file : files) {
+			String zipFilePath = path + "/" + file.getName();
+			if (file.isDirectory()) {
+				addFolderToZip(file, zipFilePath, zos, buffer);
+				continue;
 			}
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-	}
-
-	public void writeZipFile(File directoryToZip, List<File> fileList,
-			FileOutputStream fos) {
-
-		try {
-			ZipOutputStream zos = new ZipOutputStream(fos);
-
-			for (File file : fileList) {
-				if (!file.isDirectory()) { // we only zip files, not directories
-					addToZip(directoryToZip, file, zos);
+			log.debug("Writing '" + zipFilePath + "' to zip file");
+			zos.putNextEntry(new ZipEntry(zipFilePath));
+			FileInputStream fis = new FileInputStream(file);
+			try {
+				int length;
+				while ((length = fis.read(buffer)) >= 0) {
+					zos.write(buffer, 0, length);
 				}
+			} finally {
+				fis.close();
 			}
-
-			zos.close();
-			fos.close();
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-		} catch (IOException e) {
-			e.printStackTrace();
+			zos.closeEntry();
 		}
 	}
 
-	public void copyDirectory(File sourceLocation, File targetLocation)
-			throws IOException {
-
-		// log.debug("^^^^ "+sourceLocation.getName()+" || "+targetLocation.getName());
+	/**
+	 * Reads a table page by page and writes the pages
+	 */
+	private interface TablePager<T> {
+		/**
+		 * @return the rows of the page, null if they could not be read
+		 */
+		List<T> getPage(int first, int count);
 
-		if (sourceLocation.isDirectory()) {
-			if (!targetLocation.exists()) {
-				targetLocation.mkdir();
-			}
+		void write(TableWriter writer, List<T> page) throws Exception;
+	}
 
-			String[] children = sourceLocation.list();
-			for (int i = 0; i < children.length; i++) {
-				copyDirectory(new File(sourceLocation, children[i]), new File(
-						targetLocation, children[i]));
+	/**
+	 * Writes all pages of a table into a new entry of the zip, the export
+	 * fails if a page can not be read
+	 */
+	private static <T> void writeTable(ZipOutputStream zos, String fileName,
+			String listName, TablePager<T> pager) throws Exception {
+		TableWriter writer = new TableWriter(zos, fileName, listName);
+		for (int first = 0;; first += PAGE_SIZE) {
+			List<T> page = pager.getPage(first, PAGE_SIZE);
+			if (page == null) {
+				throw new Exception("Unable to read " + fileName
+						+ " starting at row " + first);
 			}
-		} else {
-
-			InputStream in = new FileInputStream(sourceLocation);
-			OutputStream out = new FileOutputStream(targetLocation);
-
-			// Copy the bits from instream to outstream
-			byte[] buf = new byte[1024];
-			int len;
-			while ((len = in.read(buf)) > 0) {
-				out.write(buf, 0, len);
+			pager.write(writer, page);
+			if (page.size() < PAGE_SIZE) {
+				break;
 			}
-			in.close();
-			out.close();
 		}
+		writer.close();
 	}
 
-	public void addToZip(File directoryToZip, File file, ZipOutputStream zos)
-			throws FileNotFoundException, IOException {
-
-		FileInputStream fis = new FileInputStream(file);
+	/**
+	 * Writes the XML of a table into a new entry of the zip
+	 * 
+	 * Only the item added last is held in memory, it is written when the next
+	 * item is added or the table is closed
+	 */
+	private static class TableWriter {
+		private final ZipOutputStream zos;
+		private final XMLWriter writer;
+		private final Element root;
+		private final Element list;
+		private Element item = null;
+
+		TableWriter(ZipOutputStream zos, String fileName, String listName)
+				throws Exception {
+			this.zos = zos;
+			zos.putNextEntry(new ZipEntry(fileName));
+
+			OutputFormat outformat = OutputFormat.createPrettyPrint();
+			outformat.setXHTML(true);
+			outformat.setEncoding("UTF-8");
+			writer = new XMLWriter(zos, outformat);
+			writer.startDocument();
+			writer.write(DocumentHelper.createComment(BACKUP_COMMENT));
+			writer.println();
+
+			root = DocumentHelper.createElement("root");
+			list = root.addElement(listName);
+			writer.writeOpen(root);
+			writer.println();
+			writer.writeOpen(list);
+			writer.setIndentLevel(2);
+		}
 
-		// we want the zipEntry's path to be a relative path that is relative
-		// to the directory being zipped, so chop off the rest of the path
-		String zipFilePath = file.getCanonicalPath().substring(
-				directoryToZip.getCanonicalPath().length() + 1,
-				file.getCanonicalPath().length());
-		log.debug("Writing '" + zipFilePath + "' to zip file");
-		ZipEntry zipEntry = new ZipEntry(zipFilePath);
-		zos.putNextEntry(zipEntry);
+		/**
+		 * @return new element of an item of the table
+		 */
+		Element addItem(String name) throws IOException {
+			writeItem();
+			item = DocumentHelper.createElement(name);
+			return item;
+		}
 
-		byte[] bytes = new byte[1024];
-		int length;
-		while ((length = fis.read(bytes)) >= 0) {
-			zos.write(bytes, 0, length);
+		private void writeItem() throws IOException {
+			if (item != null) {
+				writer.write(item);
+				item = null;
+			}
 		}
 
-		zos.closeEntry();
-		fis.close();
+		/**
+		 * Ends the document and the zip entry, the zip is left open
+		 */
+		void close() throws Exception {
+			writeItem();
+			writer.println();
+			writer.writeClose(list);
+			writer.println();
+			writer.writeClose(root);
+			writer.endDocument();
+			writer.flush();
+			zos.closeEntry();
+		}
 	}
 
-	public Document createAppointementDocument(List<Appointment> aList)
+	private void writeAppointements(TableWriter appointments, List<Appointment> aList)
 			throws Exception {
-		Document document = getDocument();
-
-		Element root = document.addElement("root");
-
-		Element appointments = root.addElement("appointments");
 
 		for (Iterator<Appointment> it = aList.iterator(); it.hasNext();) {
 			Appointment a = it.next();
 
-			Element appointment = appointments.addElement("appointment");
+			Element appointment = appointments.addItem("appointment");
 
 			appointment.addElement("appointmentId").addCDATA(
 					"" + a.getAppointmentId());
@@ -825,21 +784,15 @@ public class BackupExport {
 					"" + a.getIsPasswordProtected());
 			appointment.addElement("password").addCDATA("" + a.getPassword());
 		}
-
-		return document;
 	}
 
-	public Document createRoomsDocument(List<Rooms> roomList) throws Exception {
-		Document document = getDocument();
-
-		Element root = document.addElement("root");
-
-		Element rooms = root.addElement("rooms");
+	private void writeRooms(TableWriter rooms, List<Rooms> roomList)
+			throws Exception {
 
 		for (Iterator<Rooms> it = roomList.iterator(); it.hasNext();) {
 			Rooms r = it.next();
 
-			Element room = rooms.addElement("room");
+			Element room = rooms.addItem("room");
 
 			room.addElement("name").addCDATA("" + r.getName());
 			room.addElement("rooms_id").addCDATA("" + r.getRooms_id());
@@ -965,22 +918,15 @@ public class BackupExport {
 			}
 
 		}
-
-		return document;
 	}
 
-	public Document createOrgDocument(List<Organisation> orgList)
+	private void writeOrganisations(TableWriter organisations, List<Organisation> orgList)
 			throws Exception {
-		Document document = getDocument();
-
-		Element root = document.addElement("root");
-
-		Element organisations = root.addElement("organisations");
 
 		for (Iterator<Organisation> it = orgList.iterator(); it.hasNext();) {
 			Organisation org = it.next();
 
-			Element organisation = organisations.addElement("organisation");
+			Element organisation = organisations.addItem("organisation");
 
 			organisation.addElement("name").addCDATA(
 					formatString("" + org.getName()));
@@ -990,8 +936,6 @@ public class BackupExport {
 					formatString("" + org.getDeleted()));
 
 		}
-
-		return document;
 	}
 
 	private String formatString(String str) {
@@ -1001,20 +945,15 @@ public class BackupExport {
 		return str;
 	}
 
-	private Document createPrivateMessagesDocument(
-			List<PrivateMessages> privateMessages) throws Exception {
-		Document document = getDocument();
-
-		Element root = document.addElement("root");
-
-		Element privatemessages = root.addElement("privatemessages");
+	private void writePrivateMessages(TableWriter privatemessages, List<PrivateMessages> privateMessages)
+			throws Exception {
 
 		for (Iterator<PrivateMessages> it = privateMessages.iterator(); it
 				.hasNext();) {
 			PrivateMessages pm = it.next();
 
 			Element privateMessage = privatemessages
-					.addElement("privatemessage");
+					.addItem("privatemessage");
 
 			privateMessage.addElement("privateMessageId").addCDATA(
 					formatString("" + pm.getPrivateMessageId()));
@@ -1068,25 +1007,17 @@ public class BackupExport {
 			}
 
 		}
-
-		return document;
 	}
 
-	private Document createFileExplorerItemDocument(
-			List<FileExplorerItem> fileExplorerItems) throws Exception {
-
-		Document document = getDocument();
-
-		Element root = document.addElement("root");
-
-		Element fileExplorerItemsElement = root.addElement("fileExplorerItems");
+	private void writeFileExplorerItems(TableWriter fileExplorerItemsElement, List<FileExplorerItem> fileExplorerItems)
+			throws Exception {
 
 		for (Iterator<FileExplorerItem> it = fileExplorerItems.iterator(); it
 				.hasNext();) {
 			FileExplorerItem fileExplorerItem = it.next();
 
 			Element fileExplorerItemElement = fileExplorerItemsElement
-					.addElement("fileExplorerItem");
+					.addItem("fileExplorerItem");
 
 			fileExplorerItemElement
 					.addElement("fileExplorerItemId")
@@ -1142,23 +1073,15 @@ public class BackupExport {
 					formatString("" + fileExplorerItem.getIsChart()));
 
 		}
-
-		return document;
-
 	}
 
-	private Document createFlvRecordingDocument(List<FlvRecording> flvRecordings)
+	private void writeFlvRecordings(TableWriter flvrecordings, List<FlvRecording> flvRecordings)
 			throws Exception {
-		Document document = getDocument();
-
-		Element root = document.addElement("root");
-
-		Element flvrecordings = root.addElement("flvrecordings");
 
 		for (Iterator<FlvRecording> it = flvRecordings.iterator(); it.hasNext();) {
 			FlvRecording flvRec = it.next();
 
-			Element flvrecording = flvrecordings.addElement("flvrecording");
+			Element flvrecording = flvrecordings.addItem("flvrecording");
 
 			flvrecording.addElement("alternateDownload").addCDATA(
 					formatString("" + flvRec.getAlternateDownload()));
@@ -1277,25 +1200,17 @@ public class BackupExport {
 			}
 
 		}
-
-		return document;
 	}
 
-	private Document createPrivateMessageFolderDocument(
-			List<PrivateMessageFolder> privateMessageFolders) throws Exception {
-		Document document = getDocument();
-
-		Element root = document.addElement("root");
-
-		Element privatemessagefolders = root
-				.addElement("privatemessagefolders");
+	private void writePrivateMessageFolders(TableWriter privatemessagefolders, List<PrivateMessageFolder> privateMessageFolders)
+			throws Exception {
 
 		for (Iterator<PrivateMessageFolder> it = privateMessageFolders
 				.iterator(); it.hasNext();) {
 			PrivateMessageFolder pmf = it.next();
 
 			Element privateMessageFolder = privatemessagefolders
-					.addElement("privatemessagefolder");
+					.addItem("privatemessagefolder");
 
 			privateMessageFolder.addElement("privateMessageFolderId").addCDATA(
 					formatString("" + pmf.getPrivateMessageFolderId()));
@@ -1305,22 +1220,15 @@ public class BackupExport {
 					formatString("" + pmf.getUserId()));
 
 		}
-
-		return document;
 	}
 
-	private Document createUserContactsDocument(List<UserContacts> userContacts)
+	private void writeUserContacts(TableWriter usercontacts, List<UserContacts> userContacts)
 			throws Exception {
-		Document document = getDocument();
-
-		Element root = document.addElement("root");
-
-		Element usercontacts = root.addElement("usercontacts");
 
 		for (Iterator<UserContacts> it = userContacts.iterator(); it.hasNext();) {
 			UserContacts uc = it.next();
 
-			Element usercontact = usercontacts.addElement("usercontact");
+			Element usercontact = usercontacts.addItem("usercontact");
 
 			usercontact.addElement("userContactId").addCDATA(
 					formatString("" + uc.getUserContactId()));
@@ -1344,24 +1252,17 @@ public class BackupExport {
 					formatString("" + uc.getShareCalendar()));
 
 		}
-
-		return document;
 	}
 
-	private Document createOrgRoomsDocument(List<Rooms_Organisation> roomOrgList)
+	private void writeRoomOrganisations(TableWriter organisations, List<Rooms_Organisation> roomOrgList)
 			throws Exception {
-		Document document = getDocument();
-
-		Element root = document.addElement("root");
-
-		Element organisations = root.addElement("room_organisations");
 
 		for (Iterator<Rooms_Organisation> it = roomOrgList.iterator(); it
 				.hasNext();) {
 			Rooms_Organisation roomOrg = it.next();
 
 			Element room_organisation = organisations
-					.addElement("room_organisation");
+					.addItem("room_organisation");
 
 			room_organisation.addElement("rooms_organisation_id").addCDATA(
 					formatString("" + roomOrg.getRooms_organisation_id()));
@@ -1379,22 +1280,15 @@ public class BackupExport {
 					formatString("" + roomOrg.getDeleted()));
 
 		}
-
-		return document;
 	}
 
-	private Document createMeetingMemberDocument(List<MeetingMember> memberList)
+	private void writeMeetingMembers(TableWriter meetingmembers, List<MeetingMember> memberList)
 			throws Exception {
-		Document document = getDocument();
-
-		Element root = document.addElement("root");
-
-		Element meetingmembers = root.addElement("meetingmembers");
 
 		for (Iterator<MeetingMember> it = memberList.iterator(); it.hasNext();) {
 			MeetingMember meetMember = it.next();
 
-			Element meetingmember = meetingmembers.addElement("meetingmember");
+			Element meetingmember = meetingmembers.addItem("meetingmember");
 
 			meetingmember.addElement("meetingMemberId").addCDATA(
 					formatString("" + meetMember.getMeetingMemberId()));
@@ -1428,23 +1322,16 @@ public class BackupExport {
 					formatString("" + meetMember.getInvitor()));
 
 		}
-
-		return document;
 	}
 
-	private Document createLdapConfigDocument(List<LdapConfig> ldapConfigList)
+	private void writeLdapConfigs(TableWriter ldapconfigs, List<LdapConfig> ldapConfigList)
 			throws Exception {
-		Document document = getDocument();
-
-		Element root = document.addElement("root");
-
-		Element ldapconfigs = root.addElement("ldapconfigs");
 
 		for (Iterator<LdapConfig> it = ldapConfigList.iterator(); it.hasNext();) {
 
 			LdapConfig ldapC = it.next();
 
-			Element ldapconfig = ldapconfigs.addElement("ldapconfig");
+			Element ldapconfig = ldapconfigs.addItem("ldapconfig");
 
 			ldapconfig.addElement("name").addCDATA(
 					formatString("" + ldapC.getName()));
@@ -1458,19 +1345,13 @@ public class BackupExport {
 					formatString("" + ldapC.getIsActive()));
 
 		}
-
-		return document;
 	}
 
-	public Document createDocument(List<Users> uList) throws Exception {
-		Document document = getDocument();
-
-		Element root = document.addElement("root");
-
-		Element users = root.addElement("users");
+	private void writeUsers(TableWriter users, List<Users> uList)
+			throws Exception {
 
 		for (Users u : uList) {
-			Element user = users.addElement("user");
+			Element user = users.addItem("user");
 
 			user.addElement("user_id").addCDATA(
 					formatString("" + u.getUser_id()));
@@ -1695,25 +1576,13 @@ public class BackupExport {
 			// Element user_groups = user.addElement("groups");
 
 		}
-
-		return document;
 	}
 
-	private Document getDocument() {
-		Document document = DocumentHelper.createDocument();
-		document.setXMLEncoding("UTF-8");
-		document.addComment(BACKUP_COMMENT);
-		
-		return document;
-	}
-	
-	private Document createConfigDocument(List<Configuration> configs) {
-		Document document = getDocument();
-		Element root = document.addElement("root");
-		Element configsElem = root.addElement("configs");
+	private void writeConfigs(TableWriter configsElem, List<Configuration> configs)
+			throws Exception {
 		
 		for (Configuration cfg : configs) {
-			Element cfgElem = configsElem.addElement("config");
+			Element cfgElem = configsElem.addItem("config");
 			cfgElem.addElement("id").addCDATA(formatString("" + cfg.getConfiguration_id()));
 			cfgElem.addElement("comment").addCDATA(formatString("" + cfg.getComment()));
 			cfgElem.addElement("key").addCDATA(formatString(cfg.getConf_key()));
@@ -1723,18 +1592,13 @@ public class BackupExport {
 			cfgElem.addElement("updated").addCDATA(formatString(CalendarPatterns.getExportDate(cfg.getUpdatetime())));
 			cfgElem.addElement("user_id").addCDATA(formatString("" + cfg.getUser_id()));
 		}
-		return document;
 	}
 	
-	private Document createAsteriskSipUsersDocument(
-			List<AsteriskSipUsers> asteriskSipUsers) {
-		
-		Document document = getDocument();
-		Element root = document.addElement("root");
-		Element astusersElem = root.addElement("asterisksipusers");
+	private void writeAsteriskSipUsers(TableWriter astusersElem, List<AsteriskSipUsers> asteriskSipUsers)
+			throws Exception {
 		
 		for (AsteriskSipUsers asteriskSipUser : asteriskSipUsers) {
-			Element astuserElem = astusersElem.addElement("asterisksipuser");
+			Element astuserElem = astusersElem.addItem("asterisksipuser");
 			astuserElem.addElement("id").addCDATA(formatString("" + asteriskSipUser.getId()));
 			astuserElem.addElement("accountcode").addCDATA(formatString("" + asteriskSipUser.getAccountcode()));
 			astuserElem.addElement("disallow").addCDATA(formatString("" + asteriskSipUser.getDisallow()));
@@ -1799,51 +1663,31 @@ public class BackupExport {
 			astuserElem.addElement("vmexten").addCDATA(formatString("" + asteriskSipUser.getVmexten()));
 
 		}
-		return document;
-		
 	}
 	
-	private Document createExtensionsDocument(List<Extensions> extensions) {
-		Document document = getDocument();
-		Element root = document.addElement("root");
-		Element extensionsElem = root.addElement("extensions");
+	private void writeExtensions(TableWriter extensionsElem, List<Extensions> extensions)
+			throws Exception {
 		
 		for (Extensions extension : extensions) {
-			Element extensionElem = extensionsElem.addElement("extension");
+			Element extensionElem = extensionsElem.addItem("extension");
 			extensionElem.addElement("id").addCDATA(formatString("" + extension.getId()));
 			extensionElem.addElement("exten").addCDATA(formatString("" + extension.getExten()));
 			extensionElem.addElement("priority").addCDATA(formatString("" + extension.getPriority()));
 			extensionElem.addElement("app").addCDATA(formatString("" + extension.getApp()));
 			extensionElem.addElement("appdata").addCDATA(formatString("" + extension.getAppdata()));
 		}
-		return document;
 	}
 	
-	private Document createMembersDocument(List<MeetMe> members) {
-		Document document = getDocument();
-		Element root = document.addElement("root");
-		Element membersElem = root.addElement("members");
+	private void writeMembers(TableWriter membersElem, List<MeetMe> members)
+			throws Exception {
 		
 		for (MeetMe member : members) {
-			Element memberElem = membersElem.addElement("member");
+			Element memberElem = membersElem.addItem("member");
 			memberElem.addElement("confno").addCDATA(formatString("" + member.getConfno()));
 			memberElem.addElement("pin").addCDATA(formatString("" + member.getPin()));
 			memberElem.addElement("adminpin").addCDATA(formatString("" + member.getAdminpin()));
 			memberElem.addElement("members").addCDATA(formatString("" + member.getMembers()));
 		}
-		return document;
-	}
-	
-	public void serializetoXML(OutputStream out, String aEncodingScheme,
-			Document doc) throws Exception {
-		OutputFormat outformat = OutputFormat.createPrettyPrint();
-		outformat.setXHTML(true);
-		outformat.setEncoding(aEncodingScheme);
-		XMLWriter writer = new XMLWriter(out, outformat);
-		writer.write(doc);
-		writer.flush();
-		writer.close();
-		out.close();
 	}
 
 }
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.servlet.outputhandler;
+
+import java.util.List;
+
+import org.dom4j.Element;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Stores rows of a backup table, the rows of one call are stored in one
+ * transaction
+ * 
+ * @see BackupImportController
+ */
+public class BackupImportBatch {
+
+	// rows stored in one transaction
+	private int batchSize = 100;
+
+	/**
+	 * Stores one row of a table
+	 */
+	public interface RowImporter {
+		void importRow(Element row) throws Exception;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * The transaction is rolled back if a row throws an exception or marks
+	 * it for rollback
+	 */
+	@Transactional(rollbackFor = Exception.class)
+	public void importRows(List<Element> rows, RowImporter importer)
+			throws Exception {
+		for (Element row : rows) {
+			importer.importRow(row);
+		}
+	}
+}
@@ -20,8 +20,6 @@ package org.openmeetings.servlet.outputhandler;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.io.RandomAccessFile;
 import java.util.Date;
 
 import javax.servlet.ServletException;
@@ -341,7 +339,6 @@ public class DownloadHandler extends HttpServlet {
 					}
 
 					// Get file and handle download
-					RandomAccessFile rf = new RandomAccessFile(full_path, "r");
 
 					// Default type - Explorer, Chrome and others
 					int browserType = 0;
@@ -360,7 +357,6 @@ public class DownloadHandler extends HttpServlet {
 
 					httpServletResponse.reset();
 					httpServletResponse.resetBuffer();
-					OutputStream out = httpServletResponse.getOutputStream();
 
 					if (requestedFile.endsWith(".swf")) {
 						// trigger download to SWF => THIS is a workaround for
@@ -369,8 +365,6 @@ public class DownloadHandler extends HttpServlet {
 						// in the Header
 						httpServletResponse
 								.setContentType("application/x-shockwave-flash");
-						httpServletResponse.setHeader("Content-Length",
-								"" + rf.length());
 					} else {
 						httpServletResponse
 								.setContentType("APPLICATION/OCTET-STREAM");
@@ -399,22 +393,11 @@ public class DownloadHandler extends HttpServlet {
 											+ java.net.URLEncoder.encode(
 													fileNameResult, "UTF-8"));
 						}
-
-						httpServletResponse.setHeader("Content-Length",
-								"" + rf.length());
 					}
 
-					byte[] buffer = new byte[1024];
-					int readed = -1;
-
-					while ((readed = rf.read(buffer, 0, buffer.length)) > -1) {
-						out.write(buffer, 0, readed);
-					}
-
-					rf.close();
-
-					out.flush();
-					out.close();
+					// Content-Length, ranges and caching headers
+					FileSender.send(httpServletRequest, httpServletResponse,
+							f2);
 
 				}
 			} else {
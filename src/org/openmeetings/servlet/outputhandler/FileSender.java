@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.servlet.outputhandler;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Sends a file as response of a GET or HEAD request
+ *
+ * Supports conditional requests (ETag / Last-Modified) answered with 304 and
+ * a single byte range answered with 206, so the client can seek in large
+ * recordings. The file content is sent by the sendfile support of Tomcat if
+ * available, otherwise it is transferred from the file channel.
+ */
+public class FileSender {
+
+	/**
+	 * Range which can not be satisfied, see {@link #parseRange(String, long)}
+	 */
+	public static final long[] UNSATISFIABLE = new long[0];
+
+	private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+	private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+	private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+	private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+	private FileSender() {
+	}
+
+	public static String getETag(File file) {
+		return "\"" + Long.toHexString(file.length()) + "-"
+				+ Long.toHexString(file.lastModified()) + "\"";
+	}
+
+	/**
+	 * Sends the file, the content type and disposition have to be set by the
+	 * caller
+	 */
+	public static void send(HttpServletRequest request,
+			HttpServletResponse response, File file) throws IOException {
+		long length = file.length();
+		long lastModified = file.lastModified();
+		String eTag = getETag(file);
+
+		response.setHeader("ETag", eTag);
+		response.setDateHeader("Last-Modified", lastModified);
+		response.setHeader("Accept-Ranges", "bytes");
+		// the files are only sent to authorized users
+		response.setHeader("Cache-Control", "private");
+
+		if (isNotModified(request, eTag, lastModified)) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+
+		long start = 0;
+		long end = length - 1;
+		String range = request.getHeader("Range");
+		if (range != null && isRangeValid(request, eTag, lastModified)) {
+			long[] r = parseRange(range, length);
+			if (r == UNSATISFIABLE) {
+				response.setHeader("Content-Range", "bytes */" + length);
+				response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+				return;
+			} else if (r != null) {
+				start = r[0];
+				end = r[1];
+				response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+				response.setHeader("Content-Range", "bytes " + start + "-"
+						+ end + "/" + length);
+			}
+		}
+		long count = end - start + 1;
+		response.setHeader("Content-Length", "" + count);
+
+		if ("HEAD".equalsIgnoreCase(request.getMethod()) || count == 0) {
+			return;
+		}
+
+		if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+			request.setAttribute(SENDFILE_FILENAME, file.getCanonicalPath());
+			request.setAttribute(SENDFILE_START, Long.valueOf(start));
+			request.setAttribute(SENDFILE_END, Long.valueOf(end + 1));
+			return;
+		}
+
+		FileInputStream in = new FileInputStream(file);
+		try {
+			FileChannel channel = in.getChannel();
+			OutputStream out = response.getOutputStream();
+			WritableByteChannel target = Channels.newChannel(out);
+			long position = start;
+			while (count > 0) {
+				long sent = channel.transferTo(position, count, target);
+				if (sent <= 0) {
+					// the file was truncated
+					break;
+				}
+				position += sent;
+				count -= sent;
+			}
+			out.flush();
+		} finally {
+			in.close();
+		}
+	}
+
+	private static boolean isNotModified(HttpServletRequest request,
+			String eTag, long lastModified) {
+		String ifNoneMatch = request.getHeader("If-None-Match");
+		if (ifNoneMatch != null) {
+			return matches(ifNoneMatch, eTag);
+		}
+		try {
+			long ifModifiedSince = request.getDateHeader("If-Modified-Since");
+			// the header has a precision of seconds
+			return ifModifiedSince != -1
+					&& lastModified / 1000 <= ifModifiedSince / 1000;
+		} catch (IllegalArgumentException err) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return false if If-Range is sent and the file has been changed, the
+	 *         whole file has to be sent then
+	 */
+	private static boolean isRangeValid(HttpServletRequest request,
+			String eTag, long lastModified) {
+		String ifRange = request.getHeader("If-Range");
+		if (ifRange == null) {
+			return true;
+		}
+		if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+			return ifRange.equals(eTag);
+		}
+		try {
+			long date = request.getDateHeader("If-Range");
+			return date != -1 && lastModified / 1000 <= date / 1000;
+		} catch (IllegalArgumentException err) {
+			return false;
+		}
+	}
+
+	private static boolean matches(String header, String eTag) {
+		for (String tag : header.split(",")) {
+			tag = tag.trim();
+			if (tag.equals("*") || tag.equals(eTag)
+					|| tag.equals("W/" + eTag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Parses the value of a Range header, only single ranges are supported
+	 *
+	 * @param range
+	 *            the header, like "bytes=0-499", "bytes=500-" or "bytes=-500"
+	 * @param length
+	 *            length of the file
+	 * @return first and last byte of the range, null if the header is invalid
+	 *         or has multiple ranges (the whole file is sent) or
+	 *         {@link #UNSATISFIABLE}
+	 */
+	public static long[] parseRange(String range, long length) {
+		range = range.trim();
+		if (!range.startsWith("bytes=") || range.indexOf(',') != -1) {
+			return null;
+		}
+		String spec = range.substring("bytes=".length()).trim();
+		int dash = spec.indexOf('-');
+		if (dash == -1) {
+			return null;
+		}
+		try {
+			String first = spec.substring(0, dash).trim();
+			String last = spec.substring(dash + 1).trim();
+			long start;
+			long end;
+			if (first.length() == 0) {
+				// suffix range: the last bytes of the file
+				if (last.length() == 0) {
+					return null;
+				}
+				long suffix = Long.parseLong(last);
+				if (suffix == 0 || length == 0) {
+					return UNSATISFIABLE;
+				}
+				start = Math.max(0, length - suffix);
+				end = length - 1;
+			} else {
+				start = Long.parseLong(first);
+				end = last.length() == 0 ? Long.MAX_VALUE : Long.parseLong(last);
+				if (end < start) {
+					// invalid header
+					return null;
+				}
+				if (start >= length) {
+					return UNSATISFIABLE;
+				}
+				end = Math.min(end, length - 1);
+			}
+			return new long[] { start, end };
+		} catch (NumberFormatException err) {
+			return null;
+		}
+	}
+}
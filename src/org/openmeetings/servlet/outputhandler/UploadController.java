@@ -23,7 +23,9 @@ import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -35,6 +37,11 @@ import org.openmeetings.app.OpenmeetingsVariables;
 import org.openmeetings.app.data.file.FileProcessor;
 import org.openmeetings.app.data.file.dao.FileExplorerItemDaoImpl;
 import org.openmeetings.app.data.user.dao.UsersDaoImpl;
+import org.openmeetings.app.documents.ConversionService;
+import org.openmeetings.app.documents.ConversionService.Conversion;
+import org.openmeetings.app.documents.ConversionService.ConversionCallback;
+import org.openmeetings.app.documents.ConversionService.ConversionJob;
+import org.openmeetings.app.documents.ConversionService.Tool;
 import org.openmeetings.app.documents.GenerateImage;
 import org.openmeetings.app.documents.GeneratePDF;
 import org.openmeetings.app.documents.GenerateThumbs;
@@ -69,14 +76,16 @@ public class UploadController extends AbstractUploadController {
 	private FileProcessor fileProcessor;
 	@Autowired
 	private FileExplorerItemDaoImpl fileExplorerItemDao;
+	@Autowired
+	private ConversionService conversionService;
 
 	private String filesString[] = null;
 	
     @RequestMapping(value = "/file.upload", method = RequestMethod.POST)
     public void handleFileUpload(HttpServletRequest request, HttpServletResponse response, HttpSession session) throws ServletException {
-    	UploadInfo info = validate(request, false);
+    	final UploadInfo info = validate(request, false);
     	try {
-	    	LinkedHashMap<String, Object> hs = prepareMessage(info);
+	    	final LinkedHashMap<String, Object> hs = prepareMessage(info);
 			String room_idAsString = request.getParameter("room_id");
 			if (room_idAsString == null) {
 				throw new ServletException("Missing Room ID");
@@ -106,25 +115,45 @@ public class UploadController extends AbstractUploadController {
 			InputStream is = multipartFile.getInputStream();
 			log.debug("fileSystemName: " + info.filename);
 	
-			HashMap<String, HashMap<String, String>> returnError = fileProcessor
-					.processFile(info.userId, room_id_to_Store, isOwner, is,
-							parentFolderId, info.filename, current_dir, hs, 0L, ""); // externalFilesId,
+			// the client is notified once the file is converted
+			final CountDownLatch queued = new CountDownLatch(1);
+			try {
+				HashMap<String, HashMap<String, String>> returnError = fileProcessor
+						.processFile(info.userId, room_id_to_Store, isOwner, is,
+								parentFolderId, info.filename, current_dir, hs, 0L, "", // externalFilesId,
 																						// externalType
-	
-			HashMap<String, String> returnAttributes = returnError
-					.get("returnAttributes");
-	
-			// Flash cannot read the response of an upload
-			// httpServletResponse.getWriter().print(returnError);
-			hs.put("message", "library");
-			hs.put("action", "newFile");
-			hs.put("fileExplorerItem",
-					fileExplorerItemDao.getFileExplorerItemsById(
-							Long.parseLong(returnAttributes.get(
-									"fileExplorerItemId").toString())));
-			hs.put("error", returnError);
-			hs.put("fileName", returnAttributes.get("completeName"));
-			sendMessage(info, hs);
+								new ConversionCallback() {
+									public void converted(ConversionJob job) {
+										awaitQueued(queued);
+										HashMap<String, HashMap<String, String>> returnError = job.getResult();
+										if (returnError == null) {
+											sendFailed(info, job);
+											return;
+										}
+										HashMap<String, String> returnAttributes = returnError
+												.get("returnAttributes");
+					
+										// Flash cannot read the response of an upload
+										// httpServletResponse.getWriter().print(returnError);
+										LinkedHashMap<String, Object> message = prepareMessage(info);
+										message.put("message", "library");
+										message.put("action", "newFile");
+										message.put("fileExplorerItem",
+												fileExplorerItemDao.getFileExplorerItemsById(
+														Long.parseLong(returnAttributes.get(
+																"fileExplorerItemId").toString())));
+										message.put("error", returnError);
+										message.put("fileName", returnAttributes.get("completeName"));
+										sendMessage(info, message);
+									}
+								});
+				sendQueued(info, Long.parseLong(returnError.get(
+						"returnAttributes").get("jobId")));
+			} catch (RejectedExecutionException err) {
+				sendRejected(info);
+			} finally {
+				queued.countDown();
+			}
 		} catch (ServletException e) {
 			throw e;
 		} catch (Exception e) {
@@ -161,8 +190,20 @@ public class UploadController extends AbstractUploadController {
 	
 			// Flash cannot read the response of an upload
 			// httpServletResponse.getWriter().print(returnError);
-			uploadFile(request, userProfile, info.userId, roomName, is, fileSystemName, hs);
-			sendMessage(info, hs);
+			final CountDownLatch queued = new CountDownLatch(1);
+			try {
+				ConversionJob job = uploadFile(request, userProfile, info,
+						roomName, is, fileSystemName, queued);
+				if (job == null) {
+					sendMessage(info, hs);
+				} else {
+					sendQueued(info, job.getId());
+				}
+			} catch (RejectedExecutionException err) {
+				sendRejected(info);
+			} finally {
+				queued.countDown();
+			}
 		} catch (ServletException e) {
 			throw e;
 		} catch (Exception e) {
@@ -182,10 +223,63 @@ public class UploadController extends AbstractUploadController {
 				info.publicSID);
     }
     
-	private void uploadFile(HttpServletRequest request, boolean userProfile, Long userId, String roomName,
-			InputStream is, String fileSystemName, Map<String, Object> hs)
+	/**
+	 * Tells the client the id of the conversion job, so it can poll and cancel
+	 * it through the library service, Flash cannot read the response of an
+	 * upload
+	 */
+	private void sendQueued(UploadInfo info, long jobId) {
+		LinkedHashMap<String, Object> hs = prepareMessage(info);
+		hs.put("message", "library");
+		hs.put("action", "conversionQueued");
+		hs.put("jobId", jobId);
+		sendMessage(info, hs);
+	}
+
+	private void sendFailed(UploadInfo info, ConversionJob job) {
+		log.debug("Conversion " + job.getId() + " " + job.getStatus());
+		LinkedHashMap<String, Object> hs = prepareMessage(info);
+		hs.put("message", "library");
+		hs.put("action", "conversionFailed");
+		hs.put("jobId", job.getId());
+		hs.put("status", job.getStatus().name());
+		hs.put("error", job.getError());
+		sendMessage(info, hs);
+	}
+
+	private void sendRejected(UploadInfo info) {
+		log.debug("Conversion rejected, the queue is full");
+		LinkedHashMap<String, Object> hs = prepareMessage(info);
+		hs.put("message", "library");
+		hs.put("action", "conversionRejected");
+		sendMessage(info, hs);
+	}
+
+	/**
+	 * Keeps the conversionQueued message ahead of the result of a conversion
+	 * which finished before the upload request returned
+	 */
+	private void awaitQueued(CountDownLatch queued) {
+		try {
+			queued.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException err) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Stores the file and queues its conversion, the client is notified once
+	 * the file is converted
+	 * 
+	 * @return the conversion job, null if the file is not converted
+	 * @throws RejectedExecutionException
+	 *             if the conversion queue is full, the stored file is
+	 *             deleted again
+	 */
+	private ConversionJob uploadFile(HttpServletRequest request, boolean userProfile, final UploadInfo info, String roomName,
+			InputStream is, String fileSystemName, final CountDownLatch queued)
 			throws Exception {
-		HashMap<String, HashMap<String, String>> returnError = new HashMap<String, HashMap<String, String>>();
+		Long userId = info.userId;
 
 		// Get the current user directory
 		String currentDir = context.getRealPath("/");
@@ -272,7 +366,7 @@ public class UploadController extends AbstractUploadController {
 			}
 			completeName = workingDirPpt + newFileName;
 		} else {
-			return;
+			return null;
 		}
 
 		File f = new File(completeName + newFileExtDot);
@@ -292,11 +386,11 @@ public class UploadController extends AbstractUploadController {
 
 		FileOutputStream fos = new FileOutputStream(completeName
 				+ newFileExtDot);
-		byte[] buffer = new byte[1024];
+		byte[] buffer = new byte[65536];
 		int len = 0;
 
 		while (len != (-1)) {
-			len = is.read(buffer, 0, 1024);
+			len = is.read(buffer, 0, buffer.length);
 			if (len != (-1))
 				fos.write(buffer, 0, len);
 		}
@@ -304,94 +398,163 @@ public class UploadController extends AbstractUploadController {
 		fos.close();
 		is.close();
 
-		log.debug("canBeConverted: " + canBeConverted);
+		Tool tool = Tool.IMAGE;
 		if (canBeConverted) {
-			// convert to pdf, thumbs, swf and xml-description
-			returnError = generatePDF.convertPDF(currentDir, newFileName,
-					newFileExtDot, roomName, true, completeName);
+			tool = Tool.OFFICE;
 		} else if (isPdf) {
-			
-			boolean isEncrypted = true; 
-			
-			log.debug("isEncrypted :: " + isEncrypted);
+			tool = Tool.PDF;
+		}
+		final UploadConversion conversion = new UploadConversion(userProfile,
+				userId, roomName, currentDir, newFileName, newFileExtDot,
+				completeName, storedFile);
+		try {
+			return conversionService.submit(tool, userId, conversion,
+					new ConversionCallback() {
+						public void converted(ConversionJob job) {
+							awaitQueued(queued);
+							if (job.getResult() == null) {
+								sendFailed(info, job);
+								return;
+							}
+							LinkedHashMap<String, Object> message = prepareMessage(info);
+							message.put("message", "library");
+							message.put("action", "newFile");
+							message.put("error", job.getResult());
+							message.put("fileName", conversion.getCompleteName());
+							sendMessage(info, message);
+						}
+					});
+		} catch (RejectedExecutionException err) {
+			new File(completeName + newFileExtDot).delete();
+			throw err;
+		}
+	}
 
-			if (isEncrypted) {
-				// Do convert pdf to other pdf first
-				String inputfile = completeName + newFileExtDot;
+	/**
+	 * Converts a file uploaded by {@link #handleFormUpload}, runs in a worker
+	 * of the {@link ConversionService}
+	 */
+	private class UploadConversion implements Conversion {
+		private final boolean userProfile;
+		private final Long userId;
+		private final String roomName;
+		private final String currentDir;
+		private final String newFileExtDot;
+		private final StoredFile storedFile;
+		private String newFileName;
+		private volatile String completeName;
+
+		private UploadConversion(boolean userProfile, Long userId,
+				String roomName, String currentDir, String newFileName,
+				String newFileExtDot, String completeName, StoredFile storedFile) {
+			this.userProfile = userProfile;
+			this.userId = userId;
+			this.roomName = roomName;
+			this.currentDir = currentDir;
+			this.newFileName = newFileName;
+			this.newFileExtDot = newFileExtDot;
+			this.completeName = completeName;
+			this.storedFile = storedFile;
+		}
 
-				completeName = completeName + "_N_E";
-				newFileName = newFileName + "_N_E";
+		public String getCompleteName() {
+			return completeName;
+		}
 
-				String outputfile = completeName + newFileExtDot;
+		public HashMap<String, HashMap<String, String>> convert() throws Exception {
+			HashMap<String, HashMap<String, String>> returnError = new HashMap<String, HashMap<String, String>>();
 
-				generateThumbs.decodePDF(inputfile, outputfile);
+			boolean canBeConverted = storedFile.isConvertable();
+			boolean isPdf = storedFile.isPdf();
+			boolean isImage = storedFile.isImage();
+			boolean isAsIs = storedFile.isAsIs();
 
-				File f_old = new File(inputfile);
-				if (f_old.exists()) {
-					f_old.delete();
-				}
+			log.debug("canBeConverted: " + canBeConverted);
+			if (canBeConverted) {
+				// convert to pdf, thumbs, swf and xml-description
+				returnError = generatePDF.convertPDF(currentDir, newFileName,
+						newFileExtDot, roomName, true, completeName);
+			} else if (isPdf) {
+				
+				boolean isEncrypted = true; 
+				
+				log.debug("isEncrypted :: " + isEncrypted);
 
-			}
+				if (isEncrypted) {
+					// Do convert pdf to other pdf first
+					String inputfile = completeName + newFileExtDot;
 
-			// convert to thumbs, swf and xml-description
-			returnError = generatePDF.convertPDF(currentDir, newFileName,
-					newFileExtDot, roomName, false, completeName);
+					completeName = completeName + "_N_E";
+					newFileName = newFileName + "_N_E";
 
-			// returnError.put("decodePDF", returnError2);
+					String outputfile = completeName + newFileExtDot;
 
-		} else if (isImage && !isAsIs) {
+					generateThumbs.decodePDF(inputfile, outputfile);
 
-			log.debug("##### isImage! userProfilePic: " + userProfile);
+					File f_old = new File(inputfile);
+					if (f_old.exists()) {
+						f_old.delete();
+					}
 
-			if (userProfile) {
-				// User Profile Update
-				this.deleteUserProfileFiles(currentDir, userId);
-				// convert it to JPG
-				returnError = generateImage.convertImageUserProfile(
-						currentDir, newFileName, newFileExtDot, userId,
-						newFileName, false);
-			} else {
-				// convert it to JPG
-				log.debug("##### convert it to JPG: " + userProfile);
-				returnError = generateImage.convertImage(currentDir,
-						newFileName, newFileExtDot, roomName, newFileName,
-						false);
-			}
-		} else if (isAsIs) {
-			if (userProfile) {
-				// User Profile Update
-				this.deleteUserProfileFiles(currentDir, userId);
-				// is UserProfile Picture
-				HashMap<String, String> processThumb1 = generateThumbs
-						.generateThumb("_chat_", currentDir, completeName, 40);
-				HashMap<String, String> processThumb2 = generateThumbs
-						.generateThumb("_profile_", currentDir, completeName,
-								126);
-				HashMap<String, String> processThumb3 = generateThumbs
-						.generateThumb("_big_", currentDir, completeName, 240);
-				returnError.put("processThumb1", processThumb1);
-				returnError.put("processThumb2", processThumb2);
-				returnError.put("processThumb3", processThumb3);
-
-				File fileNameToStore = new File(completeName + ".jpg");
-				String pictureuri = fileNameToStore.getName();
-				Users us = usersDao.getUser(userId);
-				us.setUpdatetime(new java.util.Date());
-				us.setPictureuri(pictureuri);
-				usersDao.updateUser(us);
-
-				//FIXME: After updating the picture url all other users should refresh
-			} else {
-				HashMap<String, String> processThumb = generateThumbs
-						.generateThumb("_thumb_", currentDir, completeName, 50);
-				returnError.put("processThumb", processThumb);
+				}
+
+				// convert to thumbs, swf and xml-description
+				returnError = generatePDF.convertPDF(currentDir, newFileName,
+						newFileExtDot, roomName, false, completeName);
+
+				// returnError.put("decodePDF", returnError2);
+
+			} else if (isImage && !isAsIs) {
+
+				log.debug("##### isImage! userProfilePic: " + userProfile);
+
+				if (userProfile) {
+					// User Profile Update
+					deleteUserProfileFiles(currentDir, userId);
+					// convert it to JPG
+					returnError = generateImage.convertImageUserProfile(
+							currentDir, newFileName, newFileExtDot, userId,
+							newFileName, false);
+				} else {
+					// convert it to JPG
+					log.debug("##### convert it to JPG: " + userProfile);
+					returnError = generateImage.convertImage(currentDir,
+							newFileName, newFileExtDot, roomName, newFileName,
+							false);
+				}
+			} else if (isAsIs) {
+				if (userProfile) {
+					// User Profile Update
+					deleteUserProfileFiles(currentDir, userId);
+					// is UserProfile Picture
+					HashMap<String, String> processThumb1 = generateThumbs
+							.generateThumb("_chat_", currentDir, completeName, 40);
+					HashMap<String, String> processThumb2 = generateThumbs
+							.generateThumb("_profile_", currentDir, completeName,
+									126);
+					HashMap<String, String> processThumb3 = generateThumbs
+							.generateThumb("_big_", currentDir, completeName, 240);
+					returnError.put("processThumb1", processThumb1);
+					returnError.put("processThumb2", processThumb2);
+					returnError.put("processThumb3", processThumb3);
+
+					File fileNameToStore = new File(completeName + ".jpg");
+					String pictureuri = fileNameToStore.getName();
+					Users us = usersDao.getUser(userId);
+					us.setUpdatetime(new java.util.Date());
+					us.setPictureuri(pictureuri);
+					usersDao.updateUser(us);
+
+					//FIXME: After updating the picture url all other users should refresh
+				} else {
+					HashMap<String, String> processThumb = generateThumbs
+							.generateThumb("_thumb_", currentDir, completeName, 50);
+					returnError.put("processThumb", processThumb);
+				}
 			}
-		}
 
-		hs.put("message", "library");
-		hs.put("action", "newFile");
-		hs.put("error", returnError);
-		hs.put("fileName", completeName);
+			return returnError;
+		}
 	}
 
 	private void deleteUserProfileFilesStoreTemp(String current_dir,
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.test.backup;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.List;
+
+import org.dom4j.Element;
+import org.junit.Test;
+import org.openmeetings.app.data.calendar.daos.AppointmentDaoImpl;
+import org.openmeetings.app.persistence.beans.calendar.Appointment;
+import org.openmeetings.app.persistence.beans.user.Users;
+import org.openmeetings.servlet.outputhandler.BackupExport;
+import org.openmeetings.servlet.outputhandler.BackupImportBatch;
+import org.openmeetings.servlet.outputhandler.BackupImportController;
+import org.openmeetings.test.AbstractOpenmeetingsSpringTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class TestBackupImportRollback extends AbstractOpenmeetingsSpringTest {
+	@Autowired
+	private BackupExport backupExport;
+	@Autowired
+	private BackupImportController backupImport;
+	@Autowired
+	private BackupImportBatch importBatch;
+	@Autowired
+	private AppointmentDaoImpl appointmentDao;
+
+	/**
+	 * Fails every transaction storing the user row of the given id after the
+	 * row is stored, so the batch and the retry of the row are rolled back
+	 */
+	private static class FailingBatch extends BackupImportBatch {
+		private final BackupImportBatch delegate;
+		private final String failingUserId;
+
+		FailingBatch(BackupImportBatch delegate, Long failingUserId) {
+			this.delegate = delegate;
+			this.failingUserId = "" + failingUserId;
+			setBatchSize(delegate.getBatchSize());
+		}
+
+		@Override
+		public void importRows(List<Element> rows, final RowImporter importer)
+				throws Exception {
+			delegate.importRows(rows, new RowImporter() {
+				public void importRow(Element row) throws Exception {
+					importer.importRow(row);
+					if ("user".equals(row.getName())
+							&& failingUserId.equals(row.elementText("user_id"))) {
+						throw new Exception("rollback of user " + failingUserId);
+					}
+				}
+			});
+		}
+	}
+
+	@Test
+	public void rolledBackIdsAreNotMapped() throws Exception {
+		int rnd = (int) (Math.random() * 100000);
+		Users user = createUser(rnd);
+		Appointment ap = createAppointment();
+		String name = "rollback" + rnd;
+		ap.setAppointmentName(name);
+		ap.setUserId(user);
+		appointmentDao.updateAppointment(ap);
+
+		File backup = File.createTempFile("backup", ".zip");
+		File omHome = new File(System.getProperty("java.io.tmpdir"));
+		try {
+			backupExport.performExport(backup.getAbsolutePath(), false,
+					omHome.getAbsolutePath());
+
+			ReflectionTestUtils.setField(backupImport, "importBatch",
+					new FailingBatch(importBatch, user.getUser_id()));
+			InputStream is = new FileInputStream(backup);
+			try {
+				backupImport.performImport(is, omHome.getAbsolutePath());
+			} finally {
+				is.close();
+				ReflectionTestUtils.setField(backupImport, "importBatch",
+						importBatch);
+			}
+		} finally {
+			backup.delete();
+		}
+
+		List<Appointment> apps = appointmentDao.searchAppointmentsByName(name);
+		assertTrue("The appointment should be imported", apps.size() > 1);
+		for (Appointment a : apps) {
+			// the user was not imported, the old id is kept
+			assertNotNull("The user of the appointment should exist",
+					a.getUserId());
+			assertEquals(user.getUser_id(), a.getUserId().getUser_id());
+		}
+	}
+}
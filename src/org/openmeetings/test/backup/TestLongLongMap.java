@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.test.backup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+import org.openmeetings.utils.mappings.LongLongMap;
+
+public class TestLongLongMap {
+
+	@Test
+	public void putAndGet() {
+		LongLongMap map = new LongLongMap();
+		assertEquals(-1, map.get(0, -1));
+		assertFalse(map.containsKey(0));
+
+		map.put(0, 5);
+		map.put(-7, 8);
+		map.put(Long.MAX_VALUE, 1);
+		assertEquals(5, map.get(0, -1));
+		assertEquals(8, map.get(-7, -1));
+		assertEquals(1, map.get(Long.MAX_VALUE, -1));
+		assertEquals(3, map.size());
+
+		map.put(0, 6);
+		assertEquals(6, map.get(0, -1));
+		assertEquals(3, map.size());
+
+		map.clear();
+		assertEquals(0, map.size());
+		assertFalse(map.containsKey(-7));
+	}
+
+	@Test
+	public void putAll() {
+		LongLongMap map = new LongLongMap();
+		map.put(1, 10);
+		map.put(2, 20);
+		LongLongMap other = new LongLongMap();
+		for (int i = 2; i < 100; ++i) {
+			other.put(i, -i);
+		}
+		map.putAll(other);
+		assertEquals(99, map.size());
+		assertEquals(10, map.get(1, 0));
+		assertEquals(-2, map.get(2, 0));
+		assertEquals(-99, map.get(99, 0));
+	}
+
+	@Test
+	public void sameAsHashMap() {
+		Random rnd = new Random(42);
+		LongLongMap map = new LongLongMap();
+		Map<Long, Long> expected = new HashMap<Long, Long>();
+		for (int i = 0; i < 100000; ++i) {
+			// sequential ids as in the backups and some random ones
+			long key = i % 3 == 0 ? rnd.nextLong() : i;
+			long value = rnd.nextLong();
+			map.put(key, value);
+			expected.put(key, value);
+		}
+		assertEquals(expected.size(), map.size());
+		for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+			assertTrue(map.containsKey(entry.getKey()));
+			assertEquals(entry.getValue().longValue(), map.get(entry.getKey(), 0));
+		}
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.test.calendar;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+import org.openmeetings.app.data.calendar.daos.AppointmentDaoImpl;
+import org.openmeetings.app.data.calendar.daos.AppointmentReminderTypDaoImpl;
+import org.openmeetings.app.data.calendar.management.AppointmentReminderScheduler;
+import org.openmeetings.app.data.user.dao.UsersDaoImpl;
+import org.openmeetings.app.persistence.beans.calendar.Appointment;
+import org.openmeetings.test.AbstractOpenmeetingsSpringTest;
+import org.springframework.beans.factory.annotation.Autowired;
+
+public class TestAppointmentReminderScheduler extends AbstractOpenmeetingsSpringTest {
+	@Autowired
+	private AppointmentDaoImpl appointmentDao;
+	@Autowired
+	private AppointmentReminderTypDaoImpl appointmentReminderTypDao;
+	@Autowired
+	private UsersDaoImpl usersDao;
+	@Autowired
+	private AppointmentReminderScheduler reminderScheduler;
+
+	private Long addAppointment(long startOffset) {
+		// an imported appointment does not know if its reminder was sent
+		Appointment ap = new Appointment();
+		ap.setAppointmentName("reminder");
+		ap.setAppointmentStarttime(new Date(System.currentTimeMillis() + startOffset));
+		ap.setAppointmentEndtime(new Date(System.currentTimeMillis() + startOffset + 3600000));
+		ap.setDeleted("false");
+		ap.setIsDaily(false);
+		ap.setIsWeekly(false);
+		ap.setIsMonthly(false);
+		ap.setIsYearly(false);
+		ap.setIsPasswordProtected(false);
+		ap.setIsConnectedEvent(false);
+		ap.setRemind(appointmentReminderTypDao.getAppointmentReminderTypById(3L));
+		ap.setUserId(usersDao.getUser(1L));
+		return appointmentDao.addAppointmentObj(ap);
+	}
+
+	@Test
+	public void pastAppointmentIsNotReminded() {
+		reminderScheduler.getDueReminders();
+		Long pastId = addAppointment(-24 * 3600000L);
+		// starts within the reminder time
+		Long soonId = addAppointment(60000);
+
+		List<Long> due = reminderScheduler.getDueReminders();
+		assertFalse("Past appointments are not reminded", due.contains(pastId));
+		assertTrue(due.contains(soonId));
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.test.calendar;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.openmeetings.app.data.calendar.management.ReminderTimeWheel;
+
+public class TestReminderTimeWheel {
+	private static final long TICK = 1000;
+	private static final int SIZE = 10;
+
+	@Test
+	public void returnsDueReminders() {
+		ReminderTimeWheel wheel = new ReminderTimeWheel(TICK, SIZE, 0);
+		wheel.schedule(1L, 2500);
+		wheel.schedule(2L, 4000);
+		assertEquals(2, wheel.size());
+
+		assertTrue(wheel.advance(2000).isEmpty());
+		List<Long> due = wheel.advance(3000);
+		assertEquals(1, due.size());
+		assertEquals(Long.valueOf(1), due.get(0));
+		assertTrue(wheel.advance(3500).isEmpty());
+		assertEquals(Long.valueOf(2), wheel.advance(4000).get(0));
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	public void movesAndCancelsReminders() {
+		ReminderTimeWheel wheel = new ReminderTimeWheel(TICK, SIZE, 0);
+		wheel.schedule(1L, 2000);
+		wheel.schedule(2L, 2000);
+		wheel.schedule(1L, 5000);
+		wheel.cancel(2L);
+		assertEquals(1, wheel.size());
+
+		assertTrue(wheel.advance(3000).isEmpty());
+		assertEquals(Long.valueOf(1), wheel.advance(5000).get(0));
+	}
+
+	@Test
+	public void keepsRemindersOfLaterRounds() {
+		ReminderTimeWheel wheel = new ReminderTimeWheel(TICK, SIZE, 0);
+		// same slot as 3000, but two rounds later
+		wheel.schedule(1L, 23000);
+		assertTrue(wheel.advance(3000).isEmpty());
+		assertTrue(wheel.advance(13000).isEmpty());
+		assertEquals(1, wheel.size());
+		assertEquals(Long.valueOf(1), wheel.advance(23000).get(0));
+	}
+
+	@Test
+	public void returnsPastRemindersOnNextAdvance() {
+		ReminderTimeWheel wheel = new ReminderTimeWheel(TICK, SIZE, 10000);
+		wheel.schedule(1L, 1000);
+		assertEquals(Long.valueOf(1), wheel.advance(10000).get(0));
+	}
+
+	@Test
+	public void catchesUpAfterLongPause() {
+		ReminderTimeWheel wheel = new ReminderTimeWheel(TICK, SIZE, 0);
+		wheel.schedule(1L, 1000);
+		wheel.schedule(2L, 7000);
+		wheel.schedule(3L, 50000);
+		List<Long> due = wheel.advance(30000);
+		assertEquals(2, due.size());
+		assertEquals(1, wheel.size());
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.test.chat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.openmeetings.app.conference.session.RoomClient;
+import org.openmeetings.app.remote.red5.ChatHistory;
+
+public class TestChatHistory {
+
+	private static List<Object> message(String text) {
+		List<Object> msg = new ArrayList<Object>();
+		msg.add("chat");
+		msg.add("12:00");
+		msg.add(text);
+		return msg;
+	}
+
+	private static String text(HashMap<String, Object> hsm) {
+		return (String) ((List<?>) hsm.get("message")).get(2);
+	}
+
+	@Test
+	public void ringBuffer() {
+		ChatHistory history = new ChatHistory();
+		history.setMaxMessages(3);
+		RoomClient rc = new RoomClient();
+		rc.setFirstname("first");
+		rc.setLastname("last");
+		for (int i = 0; i < 5; ++i) {
+			history.add(1L, rc, message("m" + i));
+		}
+		List<HashMap<String, Object>> all = history.get(1L, 0, -1);
+		assertEquals(3, all.size());
+		assertEquals("m2", text(all.get(0)));
+		assertEquals("m4", text(all.get(2)));
+		assertEquals("first", ((Map<?, ?>) all.get(0).get("client")).get("firstname"));
+
+		List<HashMap<String, Object>> page = history.get(1L, 1, 1);
+		assertEquals(1, page.size());
+		assertEquals("m3", text(page.get(0)));
+
+		assertTrue(history.get(2L, 0, -1).isEmpty());
+		history.clear(1L);
+		assertTrue(history.get(1L, 0, -1).isEmpty());
+	}
+
+	@Test
+	public void journal() throws Exception {
+		File dir = File.createTempFile("chathistory", "");
+		dir.delete();
+		dir.mkdirs();
+		try {
+			ChatHistory history = new ChatHistory();
+			history.setJournalFile("history.journal");
+			history.setCompactThreshold(4);
+			history.open(dir);
+			RoomClient rc = new RoomClient();
+			for (int i = 0; i < 10; ++i) {
+				history.add(1L, rc, message("a" + i));
+			}
+			history.add(2L, rc, message("b"));
+			history.clear(2L);
+			history.add(3L, rc, message("c"));
+			history.close();
+
+			ChatHistory restored = new ChatHistory();
+			restored.setJournalFile("history.journal");
+			restored.open(dir);
+			assertEquals(history.get(1L, 0, -1).size(), restored.get(1L, 0, -1).size());
+			assertEquals("a9", text(restored.get(1L, 0, -1).get(9)));
+			assertTrue(restored.get(2L, 0, -1).isEmpty());
+			assertEquals("c", text(restored.get(3L, 0, -1).get(0)));
+			restored.close();
+		} finally {
+			for (File f : dir.listFiles()) {
+				f.delete();
+			}
+			dir.delete();
+		}
+	}
+
+	@Test
+	public void concurrentJournal() throws Exception {
+		File dir = File.createTempFile("chathistory", "");
+		dir.delete();
+		dir.mkdirs();
+		try {
+			final ChatHistory history = new ChatHistory();
+			history.setMaxMessages(20);
+			history.setJournalFile("history.journal");
+			history.setCompactThreshold(30);
+			history.open(dir);
+			final RoomClient rc = new RoomClient();
+			List<Callable<Void>> writers = new ArrayList<Callable<Void>>();
+			for (int i = 0; i < 8; ++i) {
+				final long room_id = i % 4;
+				final int writer = i;
+				writers.add(new Callable<Void>() {
+					public Void call() {
+						for (int j = 0; j < 100; ++j) {
+							history.add(room_id, rc, message(writer + "-" + j));
+						}
+						return null;
+					}
+				});
+			}
+			ExecutorService executor = Executors.newFixedThreadPool(8);
+			try {
+				for (Future<Void> f : executor.invokeAll(writers)) {
+					f.get();
+				}
+			} finally {
+				executor.shutdown();
+			}
+			history.close();
+
+			ChatHistory restored = new ChatHistory();
+			restored.setMaxMessages(20);
+			restored.setJournalFile("history.journal");
+			restored.open(dir);
+			for (long room_id = 0; room_id < 4; ++room_id) {
+				List<HashMap<String, Object>> expected = history.get(room_id, 0, -1);
+				List<HashMap<String, Object>> actual = restored.get(room_id, 0, -1);
+				assertEquals(expected.size(), actual.size());
+				for (int i = 0; i < expected.size(); ++i) {
+					assertEquals(text(expected.get(i)), text(actual.get(i)));
+				}
+			}
+			restored.close();
+		} finally {
+			for (File f : dir.listFiles()) {
+				f.delete();
+			}
+			dir.delete();
+		}
+	}
+}
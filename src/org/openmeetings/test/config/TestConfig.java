@@ -19,8 +19,13 @@
 package org.openmeetings.test.config;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Test;
+import org.openmeetings.app.data.basic.ConfigurationListener;
 import org.openmeetings.app.data.basic.Configurationmanagement;
 import org.openmeetings.test.AbstractOpenmeetingsSpringTest;
 import org.openmeetings.test.calendar.TestAppointmentAddAppointment;
@@ -52,4 +57,23 @@ public class TestConfig extends AbstractOpenmeetingsSpringTest {
 		}
 		
 	}
+
+	@Test
+	public void changeNotification() {
+		String key = "test.config.key." + System.currentTimeMillis();
+		final List<String> changes = new ArrayList<String>();
+		configurationmanagement.addConfigurationListener(key, new ConfigurationListener() {
+			public void configurationChanged(String CONF_KEY, String value) {
+				changes.add(value);
+			}
+		});
+
+		assertNull(configurationmanagement.getConfValue(key, Integer.class, null));
+		assertEquals(new Integer(15), configurationmanagement.getConfValue(key, Integer.class, "15"));
+
+		configurationmanagement.addConfByKey(3L, key, "42", null, "test");
+		assertEquals(new Integer(42), configurationmanagement.getConfValue(key, Integer.class, "15"));
+		assertEquals(1, changes.size());
+		assertEquals("42", changes.get(0));
+	}
 }
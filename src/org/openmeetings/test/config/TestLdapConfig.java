@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.test.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.HashMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmeetings.app.ldap.LdapLoginManagement;
+import org.openmeetings.app.remote.red5.ScopeApplicationAdapter;
+
+public class TestLdapConfig {
+	private File webAppDir;
+	private String webAppPath;
+
+	@Before
+	public void setUp() throws Exception {
+		webAppPath = ScopeApplicationAdapter.webAppPath;
+		webAppDir = File.createTempFile("omldap", "");
+		webAppDir.delete();
+		new File(webAppDir, "conf").mkdirs();
+		ScopeApplicationAdapter.webAppPath = webAppDir.getAbsolutePath();
+	}
+
+	@After
+	public void tearDown() {
+		ScopeApplicationAdapter.webAppPath = webAppPath;
+		if (webAppDir == null) {
+			return;
+		}
+		File confDir = new File(webAppDir, "conf");
+		File[] files = confDir.listFiles();
+		if (files != null) {
+			for (File f : files) {
+				f.delete();
+			}
+		}
+		confDir.delete();
+		webAppDir.delete();
+	}
+
+	private File writeConfig(String content) throws Exception {
+		File cfg = new File(webAppDir, "conf" + File.separatorChar + "test.cfg");
+		FileWriter writer = new FileWriter(cfg);
+		writer.write(content);
+		writer.close();
+		return cfg;
+	}
+
+	@Test
+	public void rereadChangedConfig() throws Exception {
+		LdapLoginManagement ldap = new LdapLoginManagement();
+		assertNull(ldap.getLdapConfigData("test.cfg"));
+
+		File cfg = writeConfig("ldap_conn_url=ldap://first:389\n");
+		HashMap<String, String> configData = ldap.getLdapConfigData("test.cfg");
+		assertEquals("ldap://first:389", configData.get("ldap_conn_url"));
+		configData.put("ldap_conn_url", "changed");
+		assertEquals("The cached config is not modified", "ldap://first:389",
+				ldap.getLdapConfigData("test.cfg").get("ldap_conn_url"));
+
+		long lastModified = cfg.lastModified();
+		writeConfig("ldap_conn_url=ldap://second:389\n");
+		cfg.setLastModified(lastModified + 2000);
+		assertEquals("ldap://second:389",
+				ldap.getLdapConfigData("test.cfg").get("ldap_conn_url"));
+
+		cfg.delete();
+		assertNull(ldap.getLdapConfigData("test.cfg"));
+	}
+}
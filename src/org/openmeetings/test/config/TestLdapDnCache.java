@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.test.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+import org.openmeetings.app.ldap.LdapDnCache;
+
+public class TestLdapDnCache {
+
+	@Test
+	public void expire() throws Exception {
+		LdapDnCache cache = new LdapDnCache();
+		cache.setTtl(20);
+		cache.put("user", "uid=user,ou=people,dc=example,dc=org");
+		assertEquals("uid=user,ou=people,dc=example,dc=org", cache.get("user"));
+
+		Thread.sleep(50);
+		assertNull(cache.get("user"));
+		assertEquals("Expired DNs are removed on lookup", 0, cache.size());
+	}
+
+	@Test
+	public void removeAfterFailedBind() {
+		LdapDnCache cache = new LdapDnCache();
+		cache.put("user", "uid=user,ou=people,dc=example,dc=org");
+		cache.remove("user");
+		assertNull(cache.get("user"));
+	}
+
+	@Test
+	public void evictExpiredWhenFull() throws Exception {
+		LdapDnCache cache = new LdapDnCache();
+		cache.setMaxSize(2);
+		cache.setTtl(20);
+		cache.put("old1", "uid=old1");
+		cache.put("old2", "uid=old2");
+		Thread.sleep(50);
+
+		cache.setTtl(60000);
+		cache.put("new1", "uid=new1");
+		assertEquals("The expired DNs make room", 1, cache.size());
+		assertEquals("uid=new1", cache.get("new1"));
+
+		cache.put("new2", "uid=new2");
+		cache.put("new3", "uid=new3");
+		assertEquals("A full cache without expired DNs keeps its DNs", 2,
+				cache.size());
+		assertNull(cache.get("new3"));
+		assertEquals("uid=new2", cache.get("new2"));
+	}
+}
@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.test.emotes;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmeetings.app.remote.red5.EmoticonsManager;
+import org.openmeetings.utils.stringhandlers.ChatString;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.io.xml.XppDriver;
+
+/**
+ * Compares the single pass tokenizer with the former parser splitting the
+ * message by one emoticon after the other, and measures both
+ */
+public class TestEmoticonTokenizer {
+
+	private static final String EMOTES = "WebContent/openmeetings/public/emoticons/emotes.xml";
+
+	// emoticons of the EmoticonsManager before the test
+	private LinkedList<LinkedList<String>> savedEmotes;
+
+	@Before
+	public void setUp() {
+		savedEmotes = EmoticonsManager.getEmotfilesList();
+	}
+
+	@After
+	public void tearDown() {
+		EmoticonsManager.setEmotfilesList(savedEmotes);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static LinkedList<LinkedList<String>> loadEmotes() {
+		XStream xStream = new XStream(new XppDriver());
+		xStream.setMode(XStream.NO_REFERENCES);
+		return (LinkedList<LinkedList<String>>) xStream.fromXML(new File(EMOTES));
+	}
+
+	private static LinkedList<LinkedList<String>> syntheticEmotes(int count) {
+		LinkedList<LinkedList<String>> emotes = new LinkedList<LinkedList<String>>();
+		for (int i = 0; i < count; ++i) {
+			LinkedList<String> emot = new LinkedList<String>();
+			emot.add("emot" + i + ".png");
+			emot.add(":" + Integer.toString(i, 36) + ")");
+			if (i % 3 == 0) {
+				emot.add("(" + Integer.toString(i, 36) + "_" + Integer.toString(i, 36) + ")");
+			}
+			emot.add("    ");
+			emot.add("y");
+			emotes.add(emot);
+		}
+		return emotes;
+	}
+
+	private static void setEmotes(LinkedList<LinkedList<String>> emotes) {
+		EmoticonsManager.setEmotfilesList(emotes);
+		ChatString.getInstance().replaceAllRegExp();
+	}
+
+	/**
+	 * Random messages of words, emoticon texts and fragments of them
+	 */
+	private static String[] messages(List<LinkedList<String>> emotes, int count, Random rnd) {
+		String[] messages = new String[count];
+		String chars = ":;()_^>D8PoO -";
+		for (int i = 0; i < count; ++i) {
+			StringBuilder sb = new StringBuilder();
+			int parts = rnd.nextInt(20);
+			for (int p = 0; p < parts; ++p) {
+				switch (rnd.nextInt(4)) {
+				case 0:
+					LinkedList<String> emot = emotes.get(rnd.nextInt(emotes.size()));
+					sb.append(emot.get(1 + rnd.nextInt(emot.size() - 3)).replace("\\", ""));
+					break;
+				case 1:
+					sb.append(chars.charAt(rnd.nextInt(chars.length())));
+					break;
+				default:
+					sb.append("word").append(p).append(' ');
+				}
+			}
+			// the ChatService appends a space as well
+			messages[i] = sb.toString() + (rnd.nextBoolean() ? " " : "");
+		}
+		return messages;
+	}
+
+	private static void assertSameResult(String message, LinkedList<String[]> expected, LinkedList<String[]> actual) {
+		assertEquals(message, expected.size(), actual.size());
+		Iterator<String[]> a = actual.iterator();
+		for (String[] e : expected) {
+			String[] next = a.next();
+			assertEquals(message, e.length, next.length);
+			for (int i = 0; i < e.length; ++i) {
+				assertEquals(message, e[i], next[i]);
+			}
+		}
+	}
+
+	private void compare(LinkedList<LinkedList<String>> emotes, int count) {
+		setEmotes(emotes);
+		String[] messages = messages(EmoticonsManager.getEmotfilesList(), count, new Random(count));
+		for (String message : messages) {
+			assertSameResult(message, parseBySplit(message), ChatString.getInstance().parseChatString(message));
+		}
+	}
+
+	@Test
+	public void sameResult() {
+		compare(loadEmotes(), 20000);
+		compare(syntheticEmotes(100), 5000);
+	}
+
+	@Test
+	public void edgeCases() {
+		setEmotes(loadEmotes());
+		String[] messages = {"", " ", ":)", ":) ", ":):)", "a:):)", ":( :) >:(", ">:(:)>:( ", ">:(:)>:(",
+				"(^_^)(^_^) x", "(\\_/)", ":D8D:P", ":::)))"};
+		for (String message : messages) {
+			assertSameResult(message, parseBySplit(message), ChatString.getInstance().parseChatString(message));
+		}
+	}
+
+	@Test
+	public void benchmark() {
+		benchmark("emotes.xml", loadEmotes(), 20000);
+		benchmark("100 emoticons", syntheticEmotes(100), 20000);
+	}
+
+	private void benchmark(String name, LinkedList<LinkedList<String>> emotes, int count) {
+		setEmotes(emotes);
+		String[] messages = messages(EmoticonsManager.getEmotfilesList(), count, new Random(1));
+		for (int warmup = 0; warmup < 3; ++warmup) {
+			for (String message : messages) {
+				parseBySplit(message);
+				ChatString.getInstance().parseChatString(message);
+			}
+		}
+		long start = System.nanoTime();
+		for (String message : messages) {
+			parseBySplit(message);
+		}
+		long split = System.nanoTime() - start;
+		start = System.nanoTime();
+		for (String message : messages) {
+			ChatString.getInstance().parseChatString(message);
+		}
+		long tokenizer = System.nanoTime() - start;
+		System.out.println("parseChatString " + name + ", " + count + " messages: split "
+				+ split / 1000000 + " ms, tokenizer " + tokenizer / 1000000 + " ms");
+	}
+
+	/**
+	 * The former ChatString.parseChatString
+	 */
+	private static LinkedList<String[]> parseBySplit(String message) {
+		LinkedList<String[]> list = new LinkedList<String[]>();
+		String[] messageStr = {"text", message};
+		list.add(messageStr);
+		for (LinkedList<String> emot : EmoticonsManager.getEmotfilesList()) {
+			list = splitStr(list, emot.get(0), emot.get(1), emot.get(emot.size() - 2));
+			if (emot.size() > 4) {
+				list = splitStr(list, emot.get(0), emot.get(2), emot.get(emot.size() - 2));
+			}
+		}
+		return list;
+	}
+
+	private static LinkedList<String[]> splitStr(LinkedList<String[]> list, String image, String regexp, String spaces) {
+		LinkedList<String[]> newList = new LinkedList<String[]>();
+		for (String[] messageObj : list) {
+			if (messageObj[0].equals("text")) {
+				String[] newStr = messageObj[1].split(regexp);
+				for (int k = 0; k < newStr.length; k++) {
+					String[] textA = {"text", newStr[k]};
+					newList.add(textA);
+					if (k + 1 != newStr.length) {
+						String[] imageA = {"image", image, spaces, regexp.replace("\\", "")};
+						newList.add(imageA);
+					}
+				}
+			} else {
+				newList.add(messageObj);
+			}
+		}
+		return newList;
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.test.flvrecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmeetings.app.data.flvrecord.FlvRecordingMetaDeltaBuffer;
+import org.openmeetings.app.data.flvrecord.FlvRecordingMetaDeltaDaoImpl;
+import org.openmeetings.app.persistence.beans.flvrecord.FlvRecordingMetaDelta;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class TestFlvRecordingMetaDeltaBuffer {
+	private FlvRecordingMetaDeltaBuffer buffer;
+	// sizes of the stored batches
+	private final List<Integer> batches = new ArrayList<Integer>();
+	private final List<FlvRecordingMetaDelta> stored = new ArrayList<FlvRecordingMetaDelta>();
+	// batch which fails, 0 for none
+	private int failingBatch = 0;
+
+	@Before
+	public void setUp() {
+		buffer = new FlvRecordingMetaDeltaBuffer();
+		buffer.setBatchSize(3);
+		ReflectionTestUtils.setField(buffer, "flvRecordingMetaDeltaDao",
+				new FlvRecordingMetaDeltaDaoImpl() {
+					@Override
+					public void addFlvRecordingMetaDeltas(
+							List<FlvRecordingMetaDelta> flvRecordingMetaDeltas) {
+						batches.add(flvRecordingMetaDeltas.size());
+						if (batches.size() == failingBatch) {
+							throw new RuntimeException("failed batch");
+						}
+						stored.addAll(flvRecordingMetaDeltas);
+					}
+				});
+	}
+
+	private List<FlvRecordingMetaDelta> add(int count) {
+		List<FlvRecordingMetaDelta> added = new ArrayList<FlvRecordingMetaDelta>();
+		for (int i = 0; i < count; ++i) {
+			FlvRecordingMetaDelta delta = new FlvRecordingMetaDelta();
+			buffer.add(delta);
+			added.add(delta);
+		}
+		return added;
+	}
+
+	@Test
+	public void batches() {
+		List<FlvRecordingMetaDelta> added = add(7);
+		buffer.flush();
+		assertEquals("[3, 3, 1]", batches.toString());
+		assertEquals(added, stored);
+
+		batches.clear();
+		add(3);
+		buffer.flush();
+		assertEquals("[3]", batches.toString());
+
+		batches.clear();
+		buffer.flush();
+		assertTrue(batches.isEmpty());
+	}
+
+	@Test
+	public void failedBatch() {
+		failingBatch = 1;
+		List<FlvRecordingMetaDelta> added = add(5);
+		buffer.flush();
+		// the failed batch is lost, the following ones are stored
+		assertEquals("[3, 2]", batches.toString());
+		assertEquals(added.subList(3, 5), stored);
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.test.flvrecord;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmeetings.app.data.flvrecord.converter.InterviewFrameCompositor;
+
+public class TestInterviewFrameCompositor {
+	private static final int WIDTH = 4;
+	private static final int HEIGHT = 2;
+
+	private File dir;
+
+	private String createImage(String name, Color color) throws Exception {
+		BufferedImage image = new BufferedImage(WIDTH, HEIGHT,
+				BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		g.setColor(color);
+		g.fillRect(0, 0, WIDTH, HEIGHT);
+		g.dispose();
+		File file = new File(dir, name + ".png");
+		ImageIO.write(image, "png", file);
+		return file.getPath();
+	}
+
+	@Before
+	public void setUp() {
+		dir = new File(System.getProperty("java.io.tmpdir"), "compositor"
+				+ System.nanoTime());
+		dir.mkdirs();
+	}
+
+	@After
+	public void tearDown() {
+		for (File f : dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+	}
+
+	/**
+	 * @return the bgr24 pixel of the frame
+	 */
+	private static int[] pixel(byte[] video, int frame, int x, int y) {
+		int offset = ((frame * HEIGHT + y) * 2 * WIDTH + x) * 3;
+		return new int[] { video[offset] & 0xff, video[offset + 1] & 0xff,
+				video[offset + 2] & 0xff };
+	}
+
+	private static void assertColor(Color expected, int[] bgr) {
+		assertEquals(expected.getBlue(), bgr[0]);
+		assertEquals(expected.getGreen(), bgr[1]);
+		assertEquals(expected.getRed(), bgr[2]);
+	}
+
+	@Test
+	public void frames() throws Exception {
+		String red = createImage("red", Color.RED);
+		String blue = createImage("blue", Color.BLUE);
+		String black = createImage("default", Color.BLACK);
+		String missing = new File(dir, "missing.png").getPath();
+
+		// more frames than frame buffers, so the order of the workers matters
+		final int count = 8 * Runtime.getRuntime().availableProcessors() + 3;
+		List<String[]> frames = new ArrayList<String[]>();
+		for (int i = 0; i < count; ++i) {
+			frames.add(i % 2 == 0 ? new String[] { red, blue }
+					: new String[] { blue, i % 3 == 0 ? missing : red });
+		}
+		final List<Integer> progress = new ArrayList<Integer>();
+		InterviewFrameCompositor compositor = new InterviewFrameCompositor(
+				frames, black, WIDTH, HEIGHT) {
+			@Override
+			protected void onProgress(int frame) {
+				progress.add(frame);
+			}
+		};
+		assertEquals(2 * WIDTH, compositor.getWidth());
+		assertEquals(HEIGHT, compositor.getHeight());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		compositor.write(out);
+		byte[] video = out.toByteArray();
+
+		assertEquals(count * 2 * WIDTH * HEIGHT * 3, video.length);
+		assertEquals(count, progress.size());
+		assertEquals(Integer.valueOf(count), progress.get(count - 1));
+		for (int i = 0; i < count; ++i) {
+			if (i % 2 == 0) {
+				assertColor(Color.RED, pixel(video, i, 0, 0));
+				assertColor(Color.BLUE, pixel(video, i, WIDTH, HEIGHT - 1));
+			} else {
+				assertColor(Color.BLUE, pixel(video, i, WIDTH - 1, 0));
+				// an image which can not be read is replaced by the default
+				assertColor(i % 3 == 0 ? Color.BLACK : Color.RED, pixel(video,
+						i, 2 * WIDTH - 1, 1));
+			}
+		}
+	}
+}
@@ -18,6 +18,12 @@
  */
 package org.openmeetings.test.labels;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.List;
+import java.util.Map;
+
 import org.junit.Test;
 import org.openmeetings.app.data.basic.Fieldmanagment;
 import org.openmeetings.test.AbstractOpenmeetingsSpringTest;
@@ -35,4 +41,20 @@ public class TestLabels extends AbstractOpenmeetingsSpringTest {
 		
 	}
 
+	@Test
+	public void testLabelBundle() {
+		String version = fieldmanagment.getLabelsVersion(1L);
+		List<Map<String, Object>> labels = fieldmanagment.getLabelsByLanguage(1L, 0, 10);
+		assertFalse(labels.isEmpty());
+		assertEquals(labels.size(), fieldmanagment.getLabelsByLanguage(1L, 0, 10).size());
+
+		Long id = fieldmanagment.addFieldAndLabel("test.label", "test $APP_NAME", 1L);
+		assertFalse("The version has to change with the labels",
+				version.equals(fieldmanagment.getLabelsVersion(1L)));
+		List<Map<String, Object>> all = fieldmanagment.getLabelsByLanguage(1L, 0, Integer.MAX_VALUE);
+		Map<String, Object> label = all.get(all.size() - 1);
+		assertEquals(id, label.get("id"));
+		assertFalse(label.get("value").toString().contains("$APP_NAME"));
+	}
+
 }
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.test.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmeetings.app.documents.ConversionService;
+import org.openmeetings.app.documents.ConversionService.Conversion;
+import org.openmeetings.app.documents.ConversionService.ConversionCallback;
+import org.openmeetings.app.documents.ConversionService.ConversionJob;
+import org.openmeetings.app.documents.ConversionService.Status;
+import org.openmeetings.app.documents.ConversionService.Tool;
+
+public class TestConversionService {
+	private ConversionService service;
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	private final Conversion blocking = new Conversion() {
+		public HashMap<String, HashMap<String, String>> convert()
+				throws Exception {
+			release.await();
+			return new HashMap<String, HashMap<String, String>>();
+		}
+	};
+
+	@Before
+	public void setUp() {
+		service = new ConversionService();
+		service.setOfficeWorkers(1);
+		service.setMaxQueued(1);
+		service.init();
+	}
+
+	@After
+	public void tearDown() {
+		release.countDown();
+		service.destroy();
+	}
+
+	@Test
+	public void convert() throws Exception {
+		final AtomicReference<ConversionJob> notified = new AtomicReference<ConversionJob>();
+		ConversionJob job = service.submit(Tool.PDF, 1L, new Conversion() {
+			public HashMap<String, HashMap<String, String>> convert() {
+				HashMap<String, HashMap<String, String>> result = new HashMap<String, HashMap<String, String>>();
+				result.put("processSWF", new HashMap<String, String>());
+				return result;
+			}
+		}, new ConversionCallback() {
+			public void converted(ConversionJob job) {
+				notified.set(job);
+			}
+		});
+		assertTrue(job.await().containsKey("processSWF"));
+		assertEquals(Status.DONE, job.getStatus());
+		assertEquals(job, service.getJob(job.getId()));
+		assertEquals(Long.valueOf(1), job.getUserId());
+		// the callback runs right after the status is set
+		Thread.sleep(50);
+		assertEquals(job, notified.get());
+	}
+
+	@Test
+	public void failed() throws Exception {
+		ConversionJob job = service.submit(Tool.IMAGE, 1L, new Conversion() {
+			public HashMap<String, HashMap<String, String>> convert()
+					throws Exception {
+				throw new Exception("broken");
+			}
+		}, null);
+		assertNull(job.await());
+		assertEquals(Status.FAILED, job.getStatus());
+		assertEquals("broken", job.getError());
+	}
+
+	@Test
+	public void cancelQueued() throws Exception {
+		ConversionJob running = service.submit(Tool.OFFICE, 1L, blocking, null);
+		ConversionJob queued = service.submit(Tool.OFFICE, 1L, blocking, null);
+		assertEquals(0, queued.getPosition());
+
+		assertTrue(service.cancel(queued.getId()));
+		assertEquals(Status.CANCELLED, queued.getStatus());
+		assertNull(queued.await());
+		assertFalse("Finished jobs are not cancelled",
+				service.cancel(queued.getId()));
+
+		release.countDown();
+		assertNotNull(running.await());
+		assertEquals(Status.DONE, running.getStatus());
+	}
+
+	@Test
+	public void cancelRunning() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		ConversionJob job = service.submit(Tool.OFFICE, 1L, new Conversion() {
+			public HashMap<String, HashMap<String, String>> convert()
+					throws Exception {
+				started.countDown();
+				release.await();
+				return new HashMap<String, HashMap<String, String>>();
+			}
+		}, null);
+		started.await();
+		assertTrue(service.cancel(job.getId()));
+		assertNull(job.await());
+		assertEquals(Status.CANCELLED, job.getStatus());
+	}
+
+	@Test
+	public void rejectWhenFull() throws Exception {
+		service.submit(Tool.OFFICE, 1L, blocking, null);
+		// wait until the first job leaves the queue
+		Thread.sleep(50);
+		service.submit(Tool.OFFICE, 1L, blocking, null);
+		try {
+			service.submit(Tool.OFFICE, 1L, blocking, null);
+			fail("The queue holds a single job");
+		} catch (RejectedExecutionException err) {
+			// expected
+		}
+		// other tools have their own queue
+		assertNotNull(service.submit(Tool.PDF, 1L, blocking, null));
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.test.library;
+
+import static junit.framework.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.openmeetings.app.data.file.dao.FileExplorerItemDaoImpl;
+import org.openmeetings.test.AbstractOpenmeetingsSpringTest;
+import org.springframework.beans.factory.annotation.Autowired;
+
+public class TestFileExplorerItemSizes extends AbstractOpenmeetingsSpringTest {
+	@Autowired
+	private FileExplorerItemDaoImpl fileExplorerItemDao;
+
+	private Long addFolder(String name, Long parentId) {
+		return fileExplorerItemDao.add(name, "", parentId, 1L, null, 1L,
+				true, false, false, "", false, false, null, null);
+	}
+
+	private Long addFile(String name, Long parentId) {
+		return fileExplorerItemDao.add(name, name, parentId, null, 1L, 1L,
+				false, false, false, "", false, false, null, null);
+	}
+
+	private long getTotalSize(Long id) {
+		return fileExplorerItemDao.getFileExplorerItemsById(id).getTotalSize();
+	}
+
+	@Test
+	public void folderSizes() {
+		Long root = addFolder("root", 0L);
+		Long sub = addFolder("sub", root);
+		Long other = addFolder("other", 0L);
+		Long file = addFile("file", sub);
+
+		fileExplorerItemDao.updateFileSize(file, 100);
+		assertEquals(100, getTotalSize(sub));
+		assertEquals(100, getTotalSize(root));
+
+		fileExplorerItemDao.updateFileSize(file, 150);
+		assertEquals(150, getTotalSize(root));
+
+		fileExplorerItemDao.moveFile(file, other, 1L, false, 1L);
+		assertEquals(0, getTotalSize(sub));
+		assertEquals(0, getTotalSize(root));
+		assertEquals(150, getTotalSize(other));
+
+		fileExplorerItemDao.deleteFileExplorerItem(file);
+		assertEquals(0, getTotalSize(other));
+	}
+
+	@Test
+	public void concurrentFileSizes() throws Exception {
+		Long root = addFolder("root", 0L);
+		Long sub = addFolder("sub", root);
+		final int files = 20;
+		List<Callable<Void>> updates = new ArrayList<Callable<Void>>();
+		for (int i = 0; i < files; ++i) {
+			final Long file = addFile("file" + i, sub);
+			updates.add(new Callable<Void>() {
+				public Void call() {
+					fileExplorerItemDao.updateFileSize(file, 10);
+					return null;
+				}
+			});
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			for (Future<Void> update : executor.invokeAll(updates)) {
+				update.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(files * 10, getTotalSize(sub));
+		assertEquals(files * 10, getTotalSize(root));
+	}
+}
@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.test.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmeetings.app.OpenmeetingsVariables;
+import org.openmeetings.app.documents.ConversionService;
+import org.openmeetings.app.documents.GeneratePDF;
+import org.openmeetings.app.documents.GenerateSWF;
+import org.openmeetings.app.documents.GenerateThumbs;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Converts a document by ranges of pages with stubbed tools
+ */
+public class TestGeneratePDF {
+	private static final String ROOM = "files";
+	private static final String NAME = "doc";
+
+	private File dir;
+	private ConversionService conversionService;
+	private GeneratePDF generatePDF;
+	private int pages = 45;
+	// first page of the range whose SWF fails, 0 for none
+	private int failingRange = 0;
+	private final List<String> swfRanges = Collections
+			.synchronizedList(new ArrayList<String>());
+	private final List<String> thumbRanges = Collections
+			.synchronizedList(new ArrayList<String>());
+	private List<String> combined = null;
+
+	private static HashMap<String, String> process(String name,
+			String exitValue) {
+		HashMap<String, String> process = new HashMap<String, String>();
+		process.put("process", name);
+		process.put("exitValue", exitValue);
+		return process;
+	}
+
+	private static void touch(String file) throws IOException {
+		new FileOutputStream(file).close();
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		dir = File.createTempFile("generatepdf", "");
+		dir.delete();
+		new File(dir, OpenmeetingsVariables.UPLOAD_DIR + File.separatorChar
+				+ ROOM).mkdirs();
+		File tempDir = new File(dir, OpenmeetingsVariables.UPLOAD_TEMP_DIR
+				+ File.separatorChar + ROOM);
+		tempDir.mkdirs();
+		touch(new File(tempDir, NAME + ".pdf").getPath());
+
+		conversionService = new ConversionService();
+		conversionService.init();
+		generatePDF = new GeneratePDF();
+		generatePDF.setPagesPerRange(20);
+		ReflectionTestUtils.setField(generatePDF, "conversionService",
+				conversionService);
+		ReflectionTestUtils.setField(generatePDF, "generateSWF",
+				new GenerateSWF() {
+					@Override
+					public int getPageCount(String pdf) {
+						return pages;
+					}
+
+					@Override
+					public HashMap<String, String> generateSwf(
+							String current_dir, String originalFolder,
+							String destinationFolder, String fileNamePure) {
+						swfRanges.add("all");
+						return process("generateSwf", "0");
+					}
+
+					@Override
+					public HashMap<String, String> generateSwf(String pdf,
+							String swf, int firstPage, int lastPage) {
+						swfRanges.add(firstPage + "-" + lastPage);
+						try {
+							touch(swf);
+						} catch (IOException err) {
+							return process("generateSwf", "-1");
+						}
+						return process("generateSwf",
+								firstPage == failingRange ? "-1" : "0");
+					}
+
+					@Override
+					public HashMap<String, String> generateSWFByCombine(
+							List<String> swfs, String outputswf, int fps) {
+						combined = new ArrayList<String>(swfs);
+						return process("generateSWFByCombine", "0");
+					}
+				});
+		ReflectionTestUtils.setField(generatePDF, "generateThumbs",
+				new GenerateThumbs() {
+					@Override
+					public HashMap<String, String> generateBatchThumb(
+							String current_dir, String inputfile,
+							String outputpath, Integer thumbSize, String pre) {
+						thumbRanges.add("all");
+						return process("generateBatchThumb", "0");
+					}
+
+					@Override
+					public HashMap<String, String> generateBatchThumb(
+							String current_dir, String inputfile,
+							String outputpath, Integer thumbSize, String pre,
+							int firstPage, int lastPage) {
+						thumbRanges.add(firstPage + "-" + lastPage);
+						return process("generateBatchThumb", "0");
+					}
+				});
+	}
+
+	@After
+	public void tearDown() {
+		conversionService.destroy();
+		delete(dir);
+	}
+
+	private static void delete(File f) {
+		File[] children = f.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		f.delete();
+	}
+
+	private HashMap<String, HashMap<String, String>> convert()
+			throws Exception {
+		String tempDir = dir.getPath() + File.separatorChar
+				+ OpenmeetingsVariables.UPLOAD_TEMP_DIR + File.separatorChar
+				+ ROOM + File.separatorChar;
+		return generatePDF.convertPDF(dir.getPath() + File.separatorChar,
+				NAME, ".pdf", ROOM, false, tempDir + NAME);
+	}
+
+	private void assertNoRangeSwfs() {
+		File converted = new File(dir, OpenmeetingsVariables.UPLOAD_DIR
+				+ File.separatorChar + ROOM + File.separatorChar + NAME);
+		assertTrue(converted.isDirectory());
+		for (String name : converted.list()) {
+			assertFalse(name, name.contains("_pages-"));
+		}
+	}
+
+	@Test
+	public void ranges() throws Exception {
+		HashMap<String, HashMap<String, String>> result = convert();
+
+		Collections.sort(swfRanges);
+		assertEquals("[1-20, 21-40, 41-45]", swfRanges.toString());
+		// the thumbs are numbered from 0
+		Collections.sort(thumbRanges);
+		assertEquals("[0-19, 20-39, 40-44]", thumbRanges.toString());
+		assertEquals(3, combined.size());
+		assertTrue(combined.get(0).endsWith(NAME + "_pages-1.swf"));
+		assertTrue(combined.get(1).endsWith(NAME + "_pages-21.swf"));
+		assertTrue(combined.get(2).endsWith(NAME + "_pages-41.swf"));
+		assertEquals("0", result.get("processSWF").get("exitValue"));
+		assertNoRangeSwfs();
+	}
+
+	@Test
+	public void failedRange() throws Exception {
+		failingRange = 21;
+		HashMap<String, HashMap<String, String>> result = convert();
+
+		assertNull(combined);
+		assertEquals("-1", result.get("processSWF 21").get("exitValue"));
+		assertNoRangeSwfs();
+	}
+
+	@Test
+	public void singleRange() throws Exception {
+		pages = 20;
+		convert();
+
+		assertEquals("[all]", swfRanges.toString());
+		assertEquals("[all]", thumbRanges.toString());
+		assertNull(combined);
+	}
+}
@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.test.mail;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.mail.Message;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmeetings.utils.mail.MailDispatcher;
+
+public class TestMailDispatcher {
+
+	private FakeSmtpServer server;
+	private MailDispatcher dispatcher;
+
+	/**
+	 * Accepts every mail, the first connections can be refused
+	 */
+	private static class FakeSmtpServer extends Thread {
+		private final ServerSocket socket;
+		private final AtomicInteger connections = new AtomicInteger();
+		private final AtomicInteger mails = new AtomicInteger();
+		private final AtomicInteger refuse = new AtomicInteger();
+
+		FakeSmtpServer() throws IOException {
+			socket = new ServerSocket(0);
+			setDaemon(true);
+		}
+
+		int getPort() {
+			return socket.getLocalPort();
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					final Socket s = socket.accept();
+					connections.incrementAndGet();
+					if (refuse.getAndDecrement() > 0) {
+						s.close();
+						continue;
+					}
+					Thread t = new Thread() {
+						@Override
+						public void run() {
+							try {
+								session(s);
+							} catch (IOException e) {
+								// connection closed
+							}
+						}
+					};
+					t.setDaemon(true);
+					t.start();
+				}
+			} catch (IOException e) {
+				// server stopped
+			}
+		}
+
+		private void session(Socket s) throws IOException {
+			BufferedReader in = new BufferedReader(new InputStreamReader(
+					s.getInputStream(), "US-ASCII"));
+			OutputStream out = s.getOutputStream();
+			reply(out, "220 localhost");
+			String line;
+			while ((line = in.readLine()) != null) {
+				String cmd = line.toUpperCase();
+				if (cmd.startsWith("DATA")) {
+					reply(out, "354 go ahead");
+					while ((line = in.readLine()) != null && !".".equals(line)) {
+					}
+					mails.incrementAndGet();
+					reply(out, "250 ok");
+				} else if (cmd.startsWith("QUIT")) {
+					reply(out, "221 bye");
+					break;
+				} else {
+					reply(out, "250 ok");
+				}
+			}
+			s.close();
+		}
+
+		private static void reply(OutputStream out, String line)
+				throws IOException {
+			out.write((line + "\r\n").getBytes("US-ASCII"));
+			out.flush();
+		}
+
+		void shutdown() throws IOException {
+			socket.close();
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		server = new FakeSmtpServer();
+		server.start();
+		dispatcher = new MailDispatcher() {
+			@Override
+			protected SmtpSettings createSettings() {
+				return createSettings("localhost", server.getPort(), null,
+						null, false);
+			}
+		};
+		dispatcher.setMaxMailsPerSecond(0);
+		dispatcher.setRetryDelay(50);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		dispatcher.destroy();
+		server.shutdown();
+	}
+
+	private void send(int count) throws Exception {
+		for (int i = 0; i < count; ++i) {
+			MimeMessage msg = new MimeMessage(dispatcher.getSession());
+			msg.setFrom(new InternetAddress("om@localhost"));
+			msg.addRecipient(Message.RecipientType.TO, new InternetAddress(
+					"user" + i + "@localhost"));
+			msg.setSubject("Test " + i);
+			msg.setText("Test");
+			dispatcher.send(msg);
+		}
+	}
+
+	private void awaitSent(long count) throws InterruptedException {
+		long end = System.currentTimeMillis() + 10000;
+		while (dispatcher.getSentCount() + dispatcher.getFailedCount() < count
+				&& System.currentTimeMillis() < end) {
+			Thread.sleep(10);
+		}
+	}
+
+	@Test
+	public void sendsOverPooledConnections() throws Exception {
+		dispatcher.setPoolSize(2);
+		send(50);
+		awaitSent(50);
+
+		assertEquals(50, dispatcher.getSentCount());
+		assertEquals(50, server.mails.get());
+		assertEquals(0, dispatcher.getQueueSize());
+		assertTrue(server.connections.get() <= 2);
+		assertTrue(dispatcher.getMaxLatency() >= dispatcher.getAverageLatency());
+	}
+
+	@Test
+	public void retriesRefusedConnections() throws Exception {
+		dispatcher.setPoolSize(1);
+		server.refuse.set(2);
+		send(3);
+		awaitSent(3);
+
+		assertEquals(3, dispatcher.getSentCount());
+		assertEquals(0, dispatcher.getFailedCount());
+		assertEquals(2, dispatcher.getRetryCount());
+		assertEquals(3, server.mails.get());
+	}
+
+	@Test
+	public void limitsTheRate() throws Exception {
+		dispatcher.setMaxMailsPerSecond(20);
+		long start = System.currentTimeMillis();
+		send(10);
+		awaitSent(10);
+
+		assertEquals(10, dispatcher.getSentCount());
+		// the first mail is sent at once, the others every 50 ms
+		assertTrue(System.currentTimeMillis() - start >= 400);
+	}
+}
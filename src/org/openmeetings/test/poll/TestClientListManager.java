@@ -18,11 +18,16 @@
  */
 package org.openmeetings.test.poll;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Random;
 
 import org.junit.Test;
+import org.openmeetings.app.conference.session.RoomClient;
 import org.openmeetings.app.remote.red5.ClientListManager;
 import org.openmeetings.test.AbstractOpenmeetingsSpringTest;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -40,4 +45,104 @@ public class TestClientListManager extends AbstractOpenmeetingsSpringTest {
 						"swfUrl", false));
 	}
 
+	@Test
+	public void roomIndex() {
+		Random rnd = new Random();
+		String streamId = rnd.nextLong() + "ABCDE" + rnd.nextLong();
+		Long room_id = rnd.nextLong();
+		Long user_id = rnd.nextLong();
+		RoomClient rcl = clientListManager.addClientListItem(streamId,
+				"scopeName", 66666, "remoteAddress", "swfUrl", false);
+		assertNotNull("RoomClientId created is null", rcl);
+		assertTrue("Client should not be in the room yet", clientListManager
+				.getClientListByRoom(room_id).isEmpty());
+
+		rcl.setRoom_id(room_id);
+		rcl.setUser_id(user_id);
+		clientListManager.updateClientByStreamId(streamId, rcl);
+		assertEquals("Client should be found by room", rcl, clientListManager
+				.getClientListByRoom(room_id).get(streamId));
+		assertEquals("Client should be found by publicSID", rcl,
+				clientListManager.getClientByPublicSID(rcl.getPublicSID(), false));
+		assertNull("AV Client should not be found", clientListManager
+				.getClientByPublicSID(rcl.getPublicSID(), true));
+		assertEquals("Client should be found by user", rcl,
+				clientListManager.getClientByUserId(user_id));
+
+		rcl.setRoom_id(room_id + 1);
+		clientListManager.updateClientByStreamId(streamId, rcl);
+		assertTrue("Client should have left the room", clientListManager
+				.getClientListByRoomAll(room_id).isEmpty());
+
+		assertTrue("Client should be removed",
+				clientListManager.removeClient(streamId));
+		assertTrue("Removed Client should not be found", clientListManager
+				.getClientListByRoomAll(room_id + 1).isEmpty());
+		assertNull("Removed Client should not be found",
+				clientListManager.getClientByPublicSID(rcl.getPublicSID(), false));
+	}
+
+	@Test
+	public void participantCount() {
+		Random rnd = new Random();
+		Long room_id = rnd.nextLong();
+		String streamId = rnd.nextLong() + "ABCDE" + rnd.nextLong();
+		String avStreamId = rnd.nextLong() + "ABCDE" + rnd.nextLong();
+		RoomClient rcl = clientListManager.addClientListItem(streamId,
+				"scopeName", 66666, "remoteAddress", "swfUrl", false);
+		RoomClient avClient = clientListManager.addClientListItem(avStreamId,
+				"scopeName", 66666, "remoteAddress", "swfUrl", true);
+
+		rcl.setRoom_id(room_id);
+		rcl.setIsScreenClient(false);
+		clientListManager.updateClientByStreamId(streamId, rcl);
+		avClient.setRoom_id(room_id);
+		avClient.setIsScreenClient(false);
+		clientListManager.updateClientByStreamId(avStreamId, avClient);
+		assertEquals("Only the participant should be counted", 1,
+				clientListManager.getParticipantCount(room_id));
+		assertEquals("Count should match the participant list",
+				clientListManager.getClientListByRoom(room_id).size(),
+				clientListManager.getParticipantCount(room_id));
+
+		rcl.setIsScreenClient(true);
+		clientListManager.updateClientByStreamId(streamId, rcl);
+		assertEquals("Screen sharing clients should not be counted", 0,
+				clientListManager.getParticipantCount(room_id));
+
+		rcl.setIsScreenClient(false);
+		clientListManager.updateClientByStreamId(streamId, rcl);
+		clientListManager.removeClient(streamId);
+		clientListManager.removeClient(avStreamId);
+		assertEquals("Count should drop on leave", 0,
+				clientListManager.getParticipantCount(room_id));
+	}
+
+	@Test
+	public void scopeVersion() {
+		Random rnd = new Random();
+		String streamId = rnd.nextLong() + "ABCDE" + rnd.nextLong();
+		String scopeName = "scope" + rnd.nextLong();
+		long version = clientListManager.getScopeVersion(scopeName);
+		RoomClient rcl = clientListManager.addClientListItem(streamId,
+				scopeName, 66666, "remoteAddress", "swfUrl", false);
+		assertFalse("Version should change on enter",
+				version == clientListManager.getScopeVersion(scopeName));
+
+		version = clientListManager.getScopeVersion(scopeName);
+		rcl.setRoom_id(rnd.nextLong());
+		clientListManager.updateClientByStreamId(streamId, rcl);
+		assertEquals("Version should not change for other values", version,
+				clientListManager.getScopeVersion(scopeName));
+
+		rcl.setIsScreenClient(true);
+		clientListManager.updateClientByStreamId(streamId, rcl);
+		assertFalse("Version should change for screen sharing clients",
+				version == clientListManager.getScopeVersion(scopeName));
+
+		version = clientListManager.getScopeVersion(scopeName);
+		clientListManager.removeClient(streamId);
+		assertFalse("Version should change on leave",
+				version == clientListManager.getScopeVersion(scopeName));
+	}
 }
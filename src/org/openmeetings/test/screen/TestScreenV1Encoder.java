@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.test.screen;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.zip.Inflater;
+
+import org.junit.Test;
+import org.openmeetings.screen.webstart.ScreenV1Encoder;
+
+public class TestScreenV1Encoder {
+	private static final int BLOCK_SIZE = 32;
+	// not a multiple of the block size
+	private static final int WIDTH = 650;
+	private static final int HEIGHT = 490;
+
+	/**
+	 * Decodes the frame into the pixels of the previous frame
+	 * 
+	 * @return number of blocks sent
+	 */
+	private static int decode(byte[] frame, int[] pixels) throws Exception {
+		assertEquals("Wrong width", WIDTH, ((frame[1] & 0x0F) << 8) | (frame[2] & 0xFF));
+		assertEquals("Wrong height", HEIGHT, ((frame[3] & 0x0F) << 8) | (frame[4] & 0xFF));
+		int pos = 5;
+		int sent = 0;
+		byte[] block = new byte[3 * BLOCK_SIZE * BLOCK_SIZE];
+		// blocks from the bottom left to the top right, top row and right
+		// column are smaller
+		for (int bottom = HEIGHT; bottom > 0; bottom -= BLOCK_SIZE) {
+			int h = Math.min(BLOCK_SIZE, bottom);
+			for (int x = 0; x < WIDTH; x += BLOCK_SIZE) {
+				int w = Math.min(BLOCK_SIZE, WIDTH - x);
+				int length = ((frame[pos] & 0xFF) << 8) | (frame[pos + 1] & 0xFF);
+				pos += 2;
+				if (length == 0) {
+					continue;
+				}
+				++sent;
+				Inflater inflater = new Inflater();
+				inflater.setInput(frame, pos, length);
+				assertEquals("Wrong block size", 3 * w * h, inflater.inflate(block));
+				inflater.end();
+				pos += length;
+				int i = 0;
+				for (int y = bottom - 1; y >= bottom - h; --y) {
+					for (int px = x; px < x + w; ++px) {
+						pixels[y * WIDTH + px] = (block[i] & 0xFF)
+								| ((block[i + 1] & 0xFF) << 8)
+								| ((block[i + 2] & 0xFF) << 16);
+						i += 3;
+					}
+				}
+			}
+		}
+		assertEquals("Trailing data", frame.length, pos);
+		return sent;
+	}
+
+	private static void assertPixels(BufferedImage img, int[] pixels) {
+		for (int y = 0; y < HEIGHT; ++y) {
+			for (int x = 0; x < WIDTH; ++x) {
+				assertEquals("Wrong pixel " + x + "," + y,
+						img.getRGB(x, y) & 0xFFFFFF, pixels[y * WIDTH + x]);
+			}
+		}
+	}
+
+	@Test
+	public void encode() throws Exception {
+		Random rnd = new Random();
+		Rectangle screen = new Rectangle(WIDTH, HEIGHT);
+		BufferedImage img = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < HEIGHT; ++y) {
+			for (int x = 0; x < WIDTH; ++x) {
+				// partly compressible content
+				img.setRGB(x, y, rnd.nextInt(4) == 0 ? rnd.nextInt() : x * y);
+			}
+		}
+		ScreenV1Encoder encoder = new ScreenV1Encoder(100, BLOCK_SIZE);
+		int[] decoded = new int[WIDTH * HEIGHT];
+		int blocks = ((WIDTH + BLOCK_SIZE - 1) / BLOCK_SIZE) * ((HEIGHT + BLOCK_SIZE - 1) / BLOCK_SIZE);
+
+		byte[] frame = encoder.encode(screen, img, screen);
+		assertEquals("Key frame expected", 0x13, frame[0]);
+		assertEquals("All blocks are sent in a key frame", blocks, decode(frame, decoded));
+		assertPixels(img, decoded);
+
+		frame = encoder.encode(screen, img, screen);
+		assertEquals("Inter frame expected", 0x23, frame[0]);
+		assertEquals("Unchanged blocks are sent", 0, decode(frame, decoded));
+
+		img.setRGB(WIDTH - 1, 0, 0x123456);
+		img.setRGB(0, HEIGHT - 1, 0x654321);
+		img.setRGB(40, 40, 0xABCDEF);
+		frame = encoder.encode(screen, img, screen);
+		assertEquals("Only changed blocks are sent", 3, decode(frame, decoded));
+		assertPixels(img, decoded);
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.test.servlet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.openmeetings.servlet.outputhandler.FileSender;
+
+public class TestFileSender {
+
+	@Test
+	public void parseRange() {
+		assertArrayEquals(new long[] { 0, 499 },
+				FileSender.parseRange("bytes=0-499", 1000));
+		assertArrayEquals(new long[] { 500, 999 },
+				FileSender.parseRange("bytes=500-", 1000));
+		assertArrayEquals(new long[] { 900, 999 },
+				FileSender.parseRange("bytes=-100", 1000));
+		assertArrayEquals("Range is limited to the file",
+				new long[] { 900, 999 },
+				FileSender.parseRange("bytes=900-5000", 1000));
+		assertArrayEquals("Suffix is limited to the file",
+				new long[] { 0, 999 },
+				FileSender.parseRange("bytes=-5000", 1000));
+
+		assertSame(FileSender.UNSATISFIABLE,
+				FileSender.parseRange("bytes=1000-", 1000));
+		assertSame(FileSender.UNSATISFIABLE,
+				FileSender.parseRange("bytes=-0", 1000));
+
+		assertNull(FileSender.parseRange("bytes=0-1,5-6", 1000));
+		assertNull(FileSender.parseRange("bytes=10-5", 1000));
+		assertNull(FileSender.parseRange("bytes=a-5", 1000));
+		assertNull(FileSender.parseRange("items=0-5", 1000));
+	}
+}
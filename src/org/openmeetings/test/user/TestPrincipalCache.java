@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.test.user;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+import org.openmeetings.app.data.user.PrincipalCache;
+import org.openmeetings.app.data.user.PrincipalCache.Principal;
+
+public class TestPrincipalCache {
+
+	@Test
+	public void getAndRemove() {
+		PrincipalCache cache = new PrincipalCache();
+		assertNull(cache.get(1L));
+
+		Set<Long> orgs = new HashSet<Long>();
+		orgs.add(7L);
+		cache.put(cache.getGeneration(), 1L, 3L, orgs, Collections.<Long> emptySet());
+		Principal principal = cache.get(1L);
+		assertEquals(Long.valueOf(3), principal.getLevel_id());
+		assertTrue(principal.getOrganisation_ids().contains(7L));
+		assertTrue(principal.getModeratedOrganisation_ids().isEmpty());
+
+		cache.remove(1L);
+		assertNull("Changed users are not cached", cache.get(1L));
+	}
+
+	@Test
+	public void removedWhileRead() {
+		PrincipalCache cache = new PrincipalCache();
+		long generation = cache.getGeneration();
+		// the user is changed while it is read
+		cache.remove(1L);
+		Principal principal = cache.put(generation, 1L, 1L,
+				new HashSet<Long>(), new HashSet<Long>());
+		assertEquals(Long.valueOf(1), principal.getUser_id());
+		assertNull("Users read before a change are not cached", cache.get(1L));
+
+		generation = cache.getGeneration();
+		cache.clear();
+		cache.put(generation, 2L, 1L, new HashSet<Long>(), new HashSet<Long>());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void expire() throws Exception {
+		PrincipalCache cache = new PrincipalCache();
+		cache.setTtl(10);
+		cache.put(cache.getGeneration(), 1L, 1L, new HashSet<Long>(), new HashSet<Long>());
+		Thread.sleep(50);
+		assertNull(cache.get(1L));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void maxSize() {
+		PrincipalCache cache = new PrincipalCache();
+		cache.setMaxSize(10);
+		for (long i = 0; i < 20; ++i) {
+			cache.put(cache.getGeneration(), i, 1L, new HashSet<Long>(), new HashSet<Long>());
+		}
+		assertEquals(10, cache.size());
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.test.user;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.junit.Test;
+import org.openmeetings.app.data.basic.SessionCache;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class TestSessionCache {
+
+	@Test
+	public void touch() {
+		SessionCache cache = new SessionCache();
+		assertNull(cache.touch("sid"));
+		cache.put("sid", 5L);
+		cache.put("anonymous", null);
+		assertEquals(Long.valueOf(5), cache.touch("sid"));
+		assertEquals(Long.valueOf(0), cache.touch("anonymous"));
+
+		Map<String, Long> touches = cache.drainTouches();
+		assertEquals(2, touches.size());
+		assertTrue(cache.drainTouches().isEmpty());
+
+		cache.touch("sid");
+		assertEquals(1, cache.drainTouches().size());
+
+		cache.touch("sid");
+		cache.remove("sid");
+		assertNull(cache.touch("sid"));
+		assertTrue("Changed sessions are not written", cache.drainTouches().isEmpty());
+	}
+
+	@Test
+	public void removeAfterCommit() {
+		SessionCache cache = new SessionCache();
+		cache.put("sid", null);
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			cache.remove("sid");
+			// a concurrent check reads the uncommitted session
+			cache.put("sid", null);
+			for (TransactionSynchronization sync : TransactionSynchronizationManager
+					.getSynchronizations()) {
+				sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+			}
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		assertNull("The old user id is not kept", cache.touch("sid"));
+	}
+
+	@Test
+	public void evict() {
+		SessionCache cache = new SessionCache();
+		cache.setMaxSize(100);
+		for (int i = 0; i < 150; ++i) {
+			cache.put("sid" + i, Long.valueOf(i));
+		}
+		assertTrue(cache.size() <= 100);
+		assertEquals("Touches of evicted sessions are kept", 150,
+				cache.drainTouches().size());
+
+		cache.removeOlderThan(System.currentTimeMillis() + 1);
+		assertEquals(0, cache.size());
+	}
+}
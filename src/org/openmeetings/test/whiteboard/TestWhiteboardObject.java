@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.test.whiteboard;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+import org.openmeetings.app.conference.whiteboard.WhiteboardObject;
+
+public class TestWhiteboardObject {
+
+	private static List<Object> createItem(String type, int zIndex,
+			Map<String, Object> swfObj, String oid) {
+		List<Object> actionObject = new ArrayList<Object>();
+		actionObject.add(type);
+		actionObject.add(zIndex); // -8
+		actionObject.add(swfObj); // -7
+		for (int i = 0; i < 5; ++i) {
+			actionObject.add(null);
+		}
+		actionObject.add(oid); // -1
+		return actionObject;
+	}
+
+	@Test
+	public void zIndex() {
+		Random rnd = new Random();
+		WhiteboardObject wb = new WhiteboardObject();
+		List<Integer> expected = new ArrayList<Integer>();
+		for (int i = 1; i <= 500; ++i) {
+			wb.putItem(createItem("line", i, null, "line" + i));
+			expected.add(i);
+		}
+		// delete like the client does: the z-index of the items above is decreased
+		for (int i = 0; i < 200; ++i) {
+			int idx = rnd.nextInt(expected.size());
+			int oid = expected.remove(idx);
+			wb.deleteItem("line" + oid, idx + 1);
+		}
+		for (int i = 0; i < expected.size(); ++i) {
+			assertEquals("Wrong z-index", Integer.valueOf(i + 1),
+					wb.getZIndex("line" + expected.get(i)));
+		}
+
+		@SuppressWarnings("rawtypes")
+		Iterator<List> items = wb.getRoomItems().values().iterator();
+		for (int i = 0; i < expected.size(); ++i) {
+			@SuppressWarnings("rawtypes")
+			List actionObject = items.next();
+			assertEquals("Wrong order", "line" + expected.get(i),
+					actionObject.get(actionObject.size() - 1));
+			assertEquals("Z-index is not serialized", i + 1,
+					actionObject.get(actionObject.size() - 8));
+		}
+	}
+
+	@Test
+	public void replaceAndSlides() {
+		WhiteboardObject wb = new WhiteboardObject();
+		Map<String, Object> swfObj = new HashMap<String, Object>();
+		swfObj.put("name", "swf1");
+		swfObj.put("slide", 2);
+		wb.putItem(createItem("rectangle", 1, swfObj, "rect"));
+		wb.putItem(createItem("pointerWhiteBoard", 0, null, "pointer"));
+
+		wb.putItem(createItem("rectangle", 5, swfObj, "rect"));
+		assertEquals("Replaced item has wrong z-index", Integer.valueOf(5),
+				wb.getZIndex("rect"));
+		assertNull("Pointer has no z-index", wb.getZIndex("pointer"));
+		assertEquals("Items are lost", 2, wb.getRoomItems().size());
+
+		wb.showSlide("swf1", 1);
+		assertEquals(false, swfObj.get("isVisible"));
+		wb.showSlide("swf1", 2);
+		assertEquals(true, swfObj.get("isVisible"));
+
+		wb.removeItem("rect");
+		wb.showSlide("swf1", 1);
+		assertEquals("Removed item is still on the slide", true,
+				swfObj.get("isVisible"));
+	}
+}
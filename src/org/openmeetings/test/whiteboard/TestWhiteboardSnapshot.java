@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.test.whiteboard;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openmeetings.app.conference.whiteboard.WhiteboardObject;
+import org.openmeetings.app.remote.red5.ScopeApplicationAdapter;
+import org.openmeetings.app.remote.red5.WhiteBoardObjectListManagerById;
+
+public class TestWhiteboardSnapshot {
+	private static File webAppPath;
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		webAppPath = File.createTempFile("whiteboards", "");
+		webAppPath.delete();
+		webAppPath.mkdirs();
+		ScopeApplicationAdapter.webAppPath = webAppPath.getPath();
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		delete(webAppPath);
+	}
+
+	private static void delete(File f) {
+		File[] children = f.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		f.delete();
+	}
+
+	private static List<Object> createItem(String type, int zIndex, String oid) {
+		List<Object> actionObject = new ArrayList<Object>();
+		actionObject.add(type);
+		actionObject.add(zIndex); // -8
+		for (int i = 0; i < 6; ++i) {
+			actionObject.add(null);
+		}
+		actionObject.add(oid); // -1
+		return actionObject;
+	}
+
+	@Test
+	public void roundTrip() throws Exception {
+		WhiteBoardObjectListManagerById manager = WhiteBoardObjectListManagerById.getInstance();
+		Long room_id = 1001L;
+		Long whiteBoardId = manager.getNewWhiteboardId(room_id);
+		WhiteboardObject wb = manager.getWhiteBoardObjectListByRoomIdAndWhiteboard(room_id, whiteBoardId);
+		wb.setX(12);
+		wb.setZoom(150);
+		for (int i = 1; i <= 3; ++i) {
+			wb.putItem(createItem("line", i, "line" + i));
+		}
+
+		assertTrue(manager.evictRoom(room_id));
+		assertFalse(manager.getRoomIds().contains(room_id));
+
+		WhiteboardObject loaded = manager.getWhiteBoardObjectListByRoomIdAndWhiteboard(room_id, whiteBoardId);
+		assertTrue(manager.getRoomIds().contains(room_id));
+		assertEquals(whiteBoardId, loaded.getWhiteBoardId());
+		assertEquals(Integer.valueOf(12), loaded.getX());
+		assertEquals(Integer.valueOf(150), loaded.getZoom());
+		assertEquals(3, loaded.size());
+		assertEquals(Integer.valueOf(2), loaded.getZIndex("line2"));
+		assertEquals(1, manager.getWhiteBoardObjectListByRoomId(room_id).getWhiteboardObjects().size());
+	}
+
+	@Test
+	public void failedLoad() throws Exception {
+		WhiteBoardObjectListManagerById manager = WhiteBoardObjectListManagerById.getInstance();
+		Long room_id = 1003L;
+		Long whiteBoardId = manager.getNewWhiteboardId(room_id);
+		manager.getWhiteBoardObjectListByRoomIdAndWhiteboard(room_id, whiteBoardId).setX(7);
+		assertTrue(manager.evictRoom(room_id));
+
+		File snapshot = findSnapshot(webAppPath, room_id, whiteBoardId);
+		assertNotNull(snapshot);
+		File moved = new File(snapshot.getPath() + ".moved");
+		assertTrue(snapshot.renameTo(moved));
+
+		// the whiteboard can not be read, it stays evicted
+		assertEquals(Integer.valueOf(0), manager.getWhiteBoardObjectListByRoomIdAndWhiteboard(room_id, whiteBoardId).getX());
+		assertTrue(manager.getWhiteBoardObjectListByRoomId(room_id).getWhiteboardObjects().isEmpty());
+
+		assertTrue(moved.renameTo(snapshot));
+		assertEquals(Integer.valueOf(7), manager.getWhiteBoardObjectListByRoomIdAndWhiteboard(room_id, whiteBoardId).getX());
+		assertFalse(snapshot.exists());
+	}
+
+	private static File findSnapshot(File dir, Long room_id, Long whiteBoardId) {
+		File[] children = dir.listFiles();
+		if (children == null) {
+			return null;
+		}
+		for (File child : children) {
+			if (child.getName().equals(whiteBoardId + ".ser.gz")
+					&& child.getParentFile().getName().equals("" + room_id)) {
+				return child;
+			}
+			File found = findSnapshot(child, room_id, whiteBoardId);
+			if (found != null) {
+				return found;
+			}
+		}
+		return null;
+	}
+
+	@Test
+	public void unknownRoom() {
+		WhiteBoardObjectListManagerById manager = WhiteBoardObjectListManagerById.getInstance();
+		Long room_id = 1002L;
+		assertTrue(manager.getWhiteBoardObjectListByRoomId(room_id).getWhiteboardObjects().isEmpty());
+		// a miss of a room without snapshots does not create it
+		assertFalse(manager.getRoomIds().contains(room_id));
+	}
+}
@@ -22,6 +22,7 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -32,6 +33,17 @@ import org.openmeetings.app.documents.GenerateSWF;
 
 public class ProcessHelper {
 
+	/**
+	 * Writes the standard input of a process
+	 */
+	public interface InputWriter {
+		/**
+		 * @param os
+		 *            the standard input of the process, closed by the caller
+		 */
+		void write(OutputStream os) throws Exception;
+	}
+
 	private static class Worker extends Thread {
 		private final Process process;
 		private Integer exitCode;
@@ -82,6 +94,22 @@ public class ProcessHelper {
 	
 	public static HashMap<String, String> executeScript(String process,
 			String[] argv, Map<? extends String, ? extends String> env) {
+		return executeScript(process, argv, env, null);
+	}
+
+	/**
+	 * Executes the process and writes its standard input with the writer,
+	 * the timeout starts after the input has been written
+	 */
+	public static HashMap<String, String> executeScript(String process,
+			String[] argv, InputWriter writer) {
+		Map<String, String> env = new HashMap<String, String>();
+		return executeScript(process, argv, env, writer);
+	}
+
+	private static HashMap<String, String> executeScript(String process,
+			String[] argv, Map<? extends String, ? extends String> env,
+			InputWriter writer) {
 		HashMap<String, String> returnMap = new HashMap<String, String>();
 		returnMap.put("process", process);
 		GenerateSWF.log.debug("process: " + process);
@@ -113,11 +141,23 @@ public class ProcessHelper {
 			
 			
 			try {
+				if (writer != null) {
+					OutputStream os = proc.getOutputStream();
+					try {
+						writer.write(os);
+					} finally {
+						os.close();
+					}
+				}
 				worker.join(timeout);
 				if (worker.exitCode != null) {
 					returnMap.put("exitValue", "" + worker.exitCode);
 					GenerateSWF.log.debug("exitVal: " + worker.exitCode);
+					// the streams are closed once the process exited
+					errorWatcher.join(5000);
+					inputWatcher.join(5000);
 					returnMap.put("error", errorWatcher.output.toString());
+					returnMap.put("out", inputWatcher.output.toString());
 				} else {
 					returnMap.put("exception", "timeOut");
 					returnMap.put("error", errorWatcher.output.toString());
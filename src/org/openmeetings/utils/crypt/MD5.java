@@ -18,6 +18,10 @@
  */
 package org.openmeetings.utils.crypt;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
@@ -45,4 +49,30 @@ public class MD5 {
 
 		return strbuf.toString();
 	}
+
+	/**
+	 * @return the checksum of the content of the file
+	 */
+	public static String checksum(File file) throws NoSuchAlgorithmException, IOException {
+		MessageDigest md5 = MessageDigest.getInstance("MD5");
+		StringBuffer strbuf = new StringBuffer();
+
+		InputStream is = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[65536];
+			int len;
+			while ((len = is.read(buffer)) != -1) {
+				md5.update(buffer, 0, len);
+			}
+		} finally {
+			is.close();
+		}
+		byte[] digest = md5.digest();
+
+		for (int i = 0; i < digest.length; i++) {
+			strbuf.append(toHexString(digest[i]));
+		}
+
+		return strbuf.toString();
+	}
 }
@@ -0,0 +1,414 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.utils.mail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.mail.Address;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+
+import org.openmeetings.app.OpenmeetingsVariables;
+import org.openmeetings.app.data.basic.ConfigurationListener;
+import org.openmeetings.app.data.basic.Configurationmanagement;
+import org.red5.logging.Red5LoggerFactory;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Sends the mails of {@link MailThread} over a small pool of SMTP
+ * connections. Every sender thread keeps its connection open while there are
+ * mails in the queue and sends up to batchSize mails before it looks at the
+ * connection again. Failed mails are retried with a growing delay.
+ * 
+ */
+public class MailDispatcher {
+	private static final Logger log = Red5LoggerFactory.getLogger(
+			MailDispatcher.class, OpenmeetingsVariables.webAppRootKey);
+
+	private static final String[] SMTP_KEYS = { "smtp_server", "smtp_port",
+			"email_username", "email_userpass", "mail.smtp.starttls.enable" };
+
+	@Autowired
+	private Configurationmanagement cfgManagement;
+
+	// number of SMTP connections
+	private int poolSize = 2;
+	// mails sent over a connection before it is checked again
+	private int batchSize = 20;
+	// connections are closed after this time without mails
+	private long idleTimeout = 30000;
+	// 0 means no limit
+	private int maxMailsPerSecond = 10;
+	private int maxAttempts = 5;
+	// the delay doubles with every attempt
+	private long retryDelay = 5000;
+
+	private final DelayQueue<QueuedMail> queue = new DelayQueue<QueuedMail>();
+	private final List<Thread> senders = new ArrayList<Thread>();
+	private volatile boolean running = false;
+
+	private volatile SmtpSettings settings = null;
+	private long nextSendTime = 0;
+
+	private final AtomicLong sentCount = new AtomicLong();
+	private final AtomicLong failedCount = new AtomicLong();
+	private final AtomicLong retryCount = new AtomicLong();
+	private final AtomicLong totalLatency = new AtomicLong();
+	private final AtomicLong maxLatency = new AtomicLong();
+
+	protected static class SmtpSettings {
+		private final Session session;
+		private final String host;
+		private final int port;
+		private final String user;
+		private final String pass;
+
+		SmtpSettings(Session session, String host, int port, String user,
+				String pass) {
+			this.session = session;
+			this.host = host;
+			this.port = port;
+			this.user = user;
+			this.pass = pass;
+		}
+	}
+
+	private static class QueuedMail implements Delayed {
+		private final MimeMessage msg;
+		private final long queued = System.currentTimeMillis();
+		private int attempts = 0;
+		private long due = System.nanoTime();
+
+		QueuedMail(MimeMessage msg) {
+			this.msg = msg;
+		}
+
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(due - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+
+		public int compareTo(Delayed o) {
+			long d = due - ((QueuedMail) o).due;
+			return d < 0 ? -1 : (d > 0 ? 1 : 0);
+		}
+	}
+
+	@PostConstruct
+	public void init() {
+		ConfigurationListener listener = new ConfigurationListener() {
+			public void configurationChanged(String CONF_KEY, String value) {
+				// the senders reconnect with the new settings
+				settings = null;
+			}
+		};
+		for (String key : SMTP_KEYS) {
+			cfgManagement.addConfigurationListener(key, listener);
+		}
+	}
+
+	@PreDestroy
+	public synchronized void destroy() {
+		running = false;
+		for (Thread t : senders) {
+			t.interrupt();
+		}
+		senders.clear();
+		if (!queue.isEmpty()) {
+			log.warn(queue.size() + " mails are not sent");
+		}
+	}
+
+	/**
+	 * The session of the current SMTP settings, messages to send should be
+	 * created with it
+	 */
+	public Session getSession() {
+		return getSettings().session;
+	}
+
+	private SmtpSettings getSettings() {
+		SmtpSettings s = settings;
+		if (s == null) {
+			s = createSettings();
+			settings = s;
+		}
+		return s;
+	}
+
+	protected SmtpSettings createSettings() {
+		String smtpServer = cfgManagement.getConfValue("smtp_server", String.class, null);
+		Integer smtpPort = cfgManagement.getConfValue("smtp_port", Integer.class, "25");
+		String mailAuthUser = cfgManagement.getConfValue("email_username", String.class, null);
+		String mailAuthPass = cfgManagement.getConfValue("email_userpass", String.class, null);
+		boolean starttls = "1".equals(cfgManagement.getConfValue("mail.smtp.starttls.enable", String.class, "0"));
+		return createSettings(smtpServer, smtpPort, mailAuthUser, mailAuthPass, starttls);
+	}
+
+	protected SmtpSettings createSettings(String smtpServer, int smtpPort,
+			String mailAuthUser, String mailAuthPass, boolean starttls) {
+		Properties props = new Properties();
+		props.put("mail.smtp.host", smtpServer);
+		props.put("mail.smtp.port", String.valueOf(smtpPort));
+		if (starttls) {
+			props.put("mail.smtp.starttls.enable", "true");
+		}
+
+		// Check for Authentication
+		Session session;
+		if (mailAuthUser != null && mailAuthUser.length() > 0
+				&& mailAuthPass != null && mailAuthPass.length() > 0) {
+			// use SMTP Authentication
+			props.put("mail.smtp.auth", "true");
+			session = Session.getInstance(props, new SmtpAuthenticator(
+					mailAuthUser, mailAuthPass));
+		} else {
+			// not use SMTP Authentication
+			session = Session.getInstance(props, null);
+			mailAuthUser = null;
+			mailAuthPass = null;
+		}
+		return new SmtpSettings(session, smtpServer, smtpPort, mailAuthUser,
+				mailAuthPass);
+	}
+
+	/**
+	 * Queues the message, it is sent by one of the sender threads
+	 */
+	public void send(MimeMessage msg) {
+		start();
+		queue.add(new QueuedMail(msg));
+	}
+
+	private synchronized void start() {
+		if (running) {
+			return;
+		}
+		running = true;
+		for (int i = 0; i < poolSize; ++i) {
+			Thread t = new Thread(new Sender(), "MailDispatcher-" + i);
+			t.setDaemon(true);
+			t.start();
+			senders.add(t);
+		}
+	}
+
+	private class Sender implements Runnable {
+		private Transport transport = null;
+		private SmtpSettings connected = null;
+
+		public void run() {
+			while (running) {
+				try {
+					QueuedMail mail = queue.poll(idleTimeout,
+							TimeUnit.MILLISECONDS);
+					if (mail == null) {
+						disconnect();
+						continue;
+					}
+					int count = 0;
+					while (mail != null) {
+						send(mail);
+						if (++count >= batchSize) {
+							break;
+						}
+						mail = queue.poll();
+					}
+				} catch (InterruptedException e) {
+					break;
+				}
+			}
+			disconnect();
+		}
+
+		private void send(QueuedMail mail) throws InterruptedException {
+			awaitRateLimit();
+			try {
+				connect();
+				MimeMessage msg = mail.msg;
+				msg.saveChanges();
+				Address[] recipients = msg.getAllRecipients();
+				transport.sendMessage(msg, recipients);
+
+				long latency = System.currentTimeMillis() - mail.queued;
+				sentCount.incrementAndGet();
+				totalLatency.addAndGet(latency);
+				long max = maxLatency.get();
+				while (latency > max && !maxLatency.compareAndSet(max, latency)) {
+					max = maxLatency.get();
+				}
+			} catch (SendFailedException e) {
+				Address[] invalid = e.getInvalidAddresses();
+				if (invalid != null && invalid.length > 0) {
+					// another attempt would fail too
+					failedCount.incrementAndGet();
+					log.error("[mail send] ", e);
+				} else {
+					retry(mail, e);
+				}
+			} catch (Exception e) {
+				disconnect();
+				retry(mail, e);
+			}
+		}
+
+		private void connect() throws MessagingException {
+			SmtpSettings s = getSettings();
+			if (transport != null && (connected != s || !transport.isConnected())) {
+				disconnect();
+			}
+			if (transport == null) {
+				Transport t = s.session.getTransport("smtp");
+				t.connect(s.host, s.port, s.user, s.pass);
+				transport = t;
+				connected = s;
+			}
+		}
+
+		private void disconnect() {
+			if (transport != null) {
+				try {
+					transport.close();
+				} catch (MessagingException e) {
+					log.debug("[disconnect] ", e);
+				}
+				transport = null;
+				connected = null;
+			}
+		}
+	}
+
+	private void retry(QueuedMail mail, Exception e) {
+		if (++mail.attempts >= maxAttempts) {
+			failedCount.incrementAndGet();
+			log.error("[mail send] giving up after " + mail.attempts
+					+ " attempts", e);
+			return;
+		}
+		long delay = retryDelay << (mail.attempts - 1);
+		log.warn("[mail send] attempt " + mail.attempts + " failed, retrying in "
+				+ delay + " ms: " + e.getMessage());
+		mail.due = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+		retryCount.incrementAndGet();
+		queue.add(mail);
+	}
+
+	private void awaitRateLimit() throws InterruptedException {
+		if (maxMailsPerSecond <= 0) {
+			return;
+		}
+		long wait;
+		synchronized (this) {
+			long now = System.nanoTime();
+			long slot = Math.max(now, nextSendTime);
+			nextSendTime = slot + TimeUnit.SECONDS.toNanos(1) / maxMailsPerSecond;
+			wait = slot - now;
+		}
+		if (wait > 0) {
+			TimeUnit.NANOSECONDS.sleep(wait);
+		}
+	}
+
+	public int getQueueSize() {
+		return queue.size();
+	}
+
+	public long getSentCount() {
+		return sentCount.get();
+	}
+
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+
+	public long getRetryCount() {
+		return retryCount.get();
+	}
+
+	/**
+	 * @return average time in ms from queueing to sending of the sent mails
+	 */
+	public long getAverageLatency() {
+		long sent = sentCount.get();
+		return sent == 0 ? 0 : totalLatency.get() / sent;
+	}
+
+	public long getMaxLatency() {
+		return maxLatency.get();
+	}
+
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	public void setPoolSize(int poolSize) {
+		this.poolSize = poolSize;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public long getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	public void setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	public int getMaxMailsPerSecond() {
+		return maxMailsPerSecond;
+	}
+
+	public void setMaxMailsPerSecond(int maxMailsPerSecond) {
+		this.maxMailsPerSecond = maxMailsPerSecond;
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	public void setMaxAttempts(int maxAttempts) {
+		this.maxAttempts = maxAttempts;
+	}
+
+	public long getRetryDelay() {
+		return retryDelay;
+	}
+
+	public void setRetryDelay(long retryDelay) {
+		this.retryDelay = retryDelay;
+	}
+}
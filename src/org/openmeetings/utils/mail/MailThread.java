@@ -19,12 +19,9 @@
 package org.openmeetings.utils.mail;
 
 import java.util.Date;
-import java.util.Properties;
 
 import javax.activation.DataHandler;
 import javax.mail.Message;
-import javax.mail.Session;
-import javax.mail.Transport;
 import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeMessage;
 
@@ -33,7 +30,6 @@ import org.openmeetings.app.data.basic.Configurationmanagement;
 import org.red5.logging.Red5LoggerFactory;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.task.TaskExecutor;
 
 public class MailThread {
 
@@ -43,14 +39,14 @@ public class MailThread {
 	@Autowired
 	protected Configurationmanagement cfgManagement;
 	@Autowired
-	protected TaskExecutor taskExecutor;
+	protected MailDispatcher mailDispatcher;
 
 	public void doSend(String to, String subject, String body) {
 		doSend(to, null, subject, body);
 	}
 
 	public void doSend(String to, String replyTo, String subject, String body) {
-		taskExecutor.execute(new MailSenderTask(to, replyTo, subject, body));
+		new MailSenderTask(to, replyTo, subject, body).run();
 	}
 
 	protected class MailSenderTask implements Runnable {
@@ -75,36 +71,10 @@ public class MailThread {
 			log.debug("getMessage");
 
 			// Evaluating Configuration Data
-			String smtpServer = cfgManagement.getConfValue("smtp_server", String.class, null);
-			String smtpPort = cfgManagement.getConfValue("smtp_port", String.class, "25");
 			String from = cfgManagement.getConfValue("system_email_addr", String.class, null);
-			String mailAuthUser = cfgManagement.getConfValue("email_username", String.class, null);
-			String mailAuthPass = cfgManagement.getConfValue("email_userpass", String.class, null);
 
-			Properties props = System.getProperties();
-
-			props.put("mail.smtp.host", smtpServer);
-			props.put("mail.smtp.port", smtpPort);
-
-			if ("1".equals(cfgManagement.getConfValue("mail.smtp.starttls.enable", String.class, "0"))) {
-				props.put("mail.smtp.starttls.enable", "true");
-			}
-
-			// Check for Authentication
-			Session session = null;
-			if (mailAuthUser != null && mailAuthUser.length() > 0
-					&& mailAuthPass != null && mailAuthPass.length() > 0) {
-				// use SMTP Authentication
-				props.put("mail.smtp.auth", "true");
-				session = Session.getDefaultInstance(props,
-						new SmtpAuthenticator(mailAuthUser, mailAuthPass));
-			} else {
-				// not use SMTP Authentication
-				session = Session.getDefaultInstance(props, null);
-			}
-
-			// Building MimeMessage
-			MimeMessage msg = new MimeMessage(session);
+			// Building MimeMessage, the SMTP settings are kept by the dispatcher
+			MimeMessage msg = new MimeMessage(mailDispatcher.getSession());
 			msg.setSubject(subject);
 			msg.setFrom(new InternetAddress(from));
 			if (replyTo != null && "1".equals(cfgManagement.getConfValue("inviter.email.as.replyto", String.class, "1"))) {
@@ -131,7 +101,7 @@ public class MailThread {
 			return msg;
 		}
 		/**
-		 * Sending a mail with given values.<br>
+		 * Queueing a mail with given values to the {@link MailDispatcher}.<br>
 		 * If the parameter "emailUsername" and "emailUserpass" is exist, use
 		 * SMTP Authentication.
 		 * 
@@ -151,7 +121,7 @@ public class MailThread {
 				log.debug("  Subject: " + subject);
 
 				// -- Send the message --
-				Transport.send(setMessageBody(getMessage()));
+				mailDispatcher.send(setMessageBody(getMessage()));
 
 				return "success";
 			} catch (Exception ex) {
@@ -39,8 +39,8 @@ public class MailiCalThread extends MailThread {
 
 	public void doSend(String recipients, String replyTo, String subject, byte[] iCalMimeBody,
 			String htmlBody) {
-		taskExecutor.execute(new MailSenderTask(recipients, replyTo, subject,
-				iCalMimeBody, htmlBody));
+		new MailSenderTask(recipients, replyTo, subject, iCalMimeBody,
+				htmlBody).run();
 
 	}
 
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.utils.mappings;
+
+import java.util.Arrays;
+
+/**
+ * Hash map of long keys to long values without boxing, used for the id
+ * mappings of large imports
+ * 
+ * The entries are stored in two arrays with linear probing, the arrays are
+ * doubled if they are more than half full. Removing entries is not supported.
+ */
+public class LongLongMap {
+	private static final int MIN_CAPACITY = 16;
+
+	private long[] keys;
+	private long[] values;
+	private boolean[] used;
+	private int size = 0;
+
+	public LongLongMap() {
+		this(MIN_CAPACITY);
+	}
+
+	public LongLongMap(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while (capacity < 2 * expectedSize) {
+			capacity <<= 1;
+		}
+		allocate(capacity);
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new long[capacity];
+		used = new boolean[capacity];
+	}
+
+	private int index(long key) {
+		int mask = keys.length - 1;
+		long h = key * 0x9E3779B97F4A7C15L;
+		int i = (int) (h ^ (h >>> 32)) & mask;
+		while (used[i] && keys[i] != key) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	public void put(long key, long value) {
+		int i = index(key);
+		if (!used[i]) {
+			if (2 * (size + 1) > keys.length) {
+				grow();
+				i = index(key);
+			}
+			used[i] = true;
+			keys[i] = key;
+			++size;
+		}
+		values[i] = value;
+	}
+
+	/**
+	 * @return the value of the key or the default value if the key is not
+	 *         in the map
+	 */
+	public long get(long key, long defaultValue) {
+		int i = index(key);
+		return used[i] ? values[i] : defaultValue;
+	}
+
+	/**
+	 * Puts all entries of the other map, existing keys are overwritten
+	 */
+	public void putAll(LongLongMap other) {
+		for (int i = 0; i < other.keys.length; ++i) {
+			if (other.used[i]) {
+				put(other.keys[i], other.values[i]);
+			}
+		}
+	}
+
+	public boolean containsKey(long key) {
+		return used[index(key)];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		Arrays.fill(used, false);
+		size = 0;
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		long[] oldValues = values;
+		boolean[] oldUsed = used;
+		allocate(2 * oldKeys.length);
+		for (int i = 0; i < oldKeys.length; ++i) {
+			if (oldUsed[i]) {
+				int j = index(oldKeys[i]);
+				used[j] = true;
+				keys[j] = oldKeys[i];
+				values[j] = oldValues[i];
+			}
+		}
+	}
+}
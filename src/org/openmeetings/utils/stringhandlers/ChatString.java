@@ -36,6 +36,19 @@ public class ChatString {
 	
 	private static ChatString instance = null;
 	
+	// the tokenizer with the emoticon list it has been built from
+	private static class Tokenizer {
+		private final LinkedList<LinkedList<String>> emotes;
+		private final EmoticonTokenizer tokenizer;
+		
+		Tokenizer(LinkedList<LinkedList<String>> emotes) {
+			this.emotes = emotes;
+			this.tokenizer = new EmoticonTokenizer(emotes);
+		}
+	}
+	
+	private volatile Tokenizer tokenizer = null;
+	
 	private ChatString() {}
 	
 	public static synchronized ChatString getInstance(){
@@ -47,72 +60,22 @@ public class ChatString {
 	
 	public LinkedList<String[]> parseChatString(String message) {
 		try {
-			LinkedList<String[]> list = new LinkedList<String[]>();
-			
-			//log.debug("this.link(message) "+this.link(message));
-			
-			String[] messageStr = {"text",message};
-			list.add(messageStr);
-			
-			for (Iterator<LinkedList<String>> iter = EmoticonsManager.getEmotfilesList().iterator();iter.hasNext();){
-				LinkedList<String> emot = iter.next();
-				
-				//log.error("CHECK EMOT: "+ emot.get(0) + emot.get(1) + emot.size());
-				list = this.splitStr(list,emot.get(0), emot.get(1), emot.get(emot.size()-2));
-				
-				if (emot.size()>4) {
-					//log.error("CHECK EMOT ASIAN: "+ emot.get(0) + emot.get(2) + emot.size());
-					list = this.splitStr(list,emot.get(0), emot.get(2), emot.get(emot.size()-2));
-				}
-			}			
-			
-//			log.debug("#########  ");
-//			for (Iterator<String[]> iter = list.iterator();iter.hasNext();){
-//				String[] stringArray = iter.next();
-//				//stringArray[1] = this.link(stringArray[1]);
-//				log.debug(stringArray[0]+"||"+stringArray[1]);
-//			}			
-			
-			return list;
-			
+			return getTokenizer().parse(message);
 		} catch (Exception err) {
 			log.error("[parseChatString]",err);
 		}
 		return null;
 	}
 	
-
-	
-	private LinkedList<String[]> splitStr (LinkedList<String[]> list, String image, String regexp, String spaces){
-		
-		LinkedList<String[]> newList = new LinkedList<String[]>();
-		
-		for (Iterator<String[]> iter = list.iterator();iter.hasNext();){
-			
-			String[] messageObj = iter.next();
-			String messageTye = messageObj[0];
-			
-			if (messageTye.equals("text")){
-				String messageStr = messageObj[1];
-				
-				String[] newStr = messageStr.split(regexp);
-				
-				for (int k=0;k<newStr.length;k++) {
-					String[] textA = {"text",newStr[k]};
-					newList.add(textA);
-					if (k+1!=newStr.length){
-						String[] imageA = {"image",image, spaces, regexp.replace("\\", "") };
-						newList.add(imageA);
-					}
-				}
-			} else {
-
-				newList.add(messageObj);
-			}
-
+	private EmoticonTokenizer getTokenizer() {
+		LinkedList<LinkedList<String>> emotfilesList = EmoticonsManager.getEmotfilesList();
+		Tokenizer t = tokenizer;
+		if (t == null || t.emotes != emotfilesList) {
+			// concurrent callers may build it twice, the tokenizers are equal
+			t = new Tokenizer(emotfilesList);
+			tokenizer = t;
 		}
-			
-		return newList;
+		return t.tokenizer;
 	}
 	
 	public void replaceAllRegExp(){
@@ -134,6 +97,7 @@ public class ChatString {
 				emotfilesListNew.add(emot);
 			}
 			EmoticonsManager.setEmotfilesList(emotfilesListNew);
+			getTokenizer();
 		} catch (Exception err) {
 			log.error("[replaceAllRegExp]",err);
 		}
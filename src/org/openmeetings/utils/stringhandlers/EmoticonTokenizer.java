@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openmeetings.utils.stringhandlers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits a chat message into text and emoticons in one pass
+ *
+ * The emoticons are found by an Aho-Corasick automaton built from the
+ * emoticon list. The result is the same as splitting the text by the
+ * emoticons one after the other with String.split: an emoticon is only
+ * found in the text left between the emoticons found before it, and the
+ * empty text and the emoticons at the end of a split part are dropped like
+ * String.split drops trailing empty strings.
+ */
+public class EmoticonTokenizer {
+
+	private static final int[] NO_OUTPUT = new int[0];
+
+	// emoticons in the order they are searched
+	private final String[] images;
+	private final String[] spaces;
+	private final String[] texts;
+	private final int[] lengths;
+
+	// automaton: transitions, failure links and found emoticons of the states
+	private final List<Map<Character, Integer>> next = new ArrayList<Map<Character, Integer>>();
+	private final int[] fail;
+	private final int[][] output;
+
+	/**
+	 * @param emotfilesList
+	 *            the emoticons as loaded by the EmoticonsManager: file name,
+	 *            western text, optional asian text, spaces and public flag,
+	 *            the texts escaped as regular expression
+	 */
+	public EmoticonTokenizer(List<? extends List<String>> emotfilesList) {
+		List<String[]> emots = new ArrayList<String[]>();
+		for (List<String> emot : emotfilesList) {
+			String space = emot.get(emot.size() - 2);
+			emots.add(new String[] { emot.get(0), emot.get(1), space });
+			if (emot.size() > 4) {
+				emots.add(new String[] { emot.get(0), emot.get(2), space });
+			}
+		}
+		images = new String[emots.size()];
+		spaces = new String[emots.size()];
+		texts = new String[emots.size()];
+		lengths = new int[emots.size()];
+
+		List<int[]> outputs = new ArrayList<int[]>();
+		next.add(new HashMap<Character, Integer>());
+		outputs.add(NO_OUTPUT);
+		for (int i = 0; i < emots.size(); ++i) {
+			String[] emot = emots.get(i);
+			String literal = unescape(emot[1]);
+			images[i] = emot[0];
+			spaces[i] = emot[2];
+			texts[i] = emot[1].replace("\\", "");
+			lengths[i] = literal.length();
+			if (literal.length() == 0) {
+				continue;
+			}
+			int state = 0;
+			for (int c = 0; c < literal.length(); ++c) {
+				Integer s = next.get(state).get(literal.charAt(c));
+				if (s == null) {
+					s = next.size();
+					next.add(new HashMap<Character, Integer>());
+					outputs.add(NO_OUTPUT);
+					next.get(state).put(literal.charAt(c), s);
+				}
+				state = s;
+			}
+			outputs.set(state, append(outputs.get(state), i));
+		}
+
+		// failure links, breadth first
+		fail = new int[next.size()];
+		output = outputs.toArray(new int[outputs.size()][]);
+		LinkedList<Integer> queue = new LinkedList<Integer>();
+		for (Integer s : next.get(0).values()) {
+			queue.add(s);
+		}
+		while (!queue.isEmpty()) {
+			int state = queue.removeFirst();
+			for (Map.Entry<Character, Integer> entry : next.get(state).entrySet()) {
+				int child = entry.getValue();
+				int f = fail[state];
+				while (f != 0 && !next.get(f).containsKey(entry.getKey())) {
+					f = fail[f];
+				}
+				Integer target = next.get(f).get(entry.getKey());
+				fail[child] = (target == null || target == child) ? 0 : target;
+				for (int o : output[fail[child]]) {
+					output[child] = append(output[child], o);
+				}
+				queue.add(child);
+			}
+		}
+	}
+
+	private static int[] append(int[] a, int i) {
+		int[] r = Arrays.copyOf(a, a.length + 1);
+		r[a.length] = i;
+		return r;
+	}
+
+	/**
+	 * @return the text matched by a regular expression escaped by
+	 *         {@link ChatString}
+	 */
+	private static String unescape(String regexp) {
+		StringBuilder sb = new StringBuilder(regexp.length());
+		for (int i = 0; i < regexp.length(); ++i) {
+			char c = regexp.charAt(i);
+			if (c == '\\' && i + 1 < regexp.length()) {
+				c = regexp.charAt(++i);
+			}
+			sb.append(c);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return parts of the message: {"text", text} or {"image", file name,
+	 *         spaces, emoticon text}
+	 */
+	public LinkedList<String[]> parse(String message) {
+		int n = message.length();
+		// all occurrences of the emoticons by emoticon
+		List<List<Integer>> found = new ArrayList<List<Integer>>();
+		for (int i = 0; i < images.length; ++i) {
+			found.add(null);
+		}
+		int state = 0;
+		boolean any = false;
+		for (int p = 0; p < n; ++p) {
+			char c = message.charAt(p);
+			Integer s = next.get(state).get(c);
+			while (s == null && state != 0) {
+				state = fail[state];
+				s = next.get(state).get(c);
+			}
+			state = s == null ? 0 : s;
+			for (int emot : output[state]) {
+				if (found.get(emot) == null) {
+					found.set(emot, new ArrayList<Integer>());
+				}
+				found.get(emot).add(p + 1 - lengths[emot]);
+				any = true;
+			}
+		}
+		LinkedList<String[]> list = new LinkedList<String[]>();
+		if (!any) {
+			list.add(new String[] { "text", message });
+			return list;
+		}
+
+		// the emoticons searched first take the text, the occurrences of
+		// an emoticon are taken from left to right
+		boolean[] taken = new boolean[n];
+		List<int[]> matches = new ArrayList<int[]>();
+		for (int emot = 0; emot < images.length; ++emot) {
+			if (found.get(emot) == null) {
+				continue;
+			}
+			int end = 0;
+			for (int start : found.get(emot)) {
+				if (start < end || isTaken(taken, start, start + lengths[emot])) {
+					continue;
+				}
+				end = start + lengths[emot];
+				Arrays.fill(taken, start, end, true);
+				matches.add(new int[] { start, emot });
+			}
+		}
+		int[][] sorted = matches.toArray(new int[matches.size()][]);
+		Arrays.sort(sorted, new Comparator<int[]>() {
+			public int compare(int[] o1, int[] o2) {
+				return o1[0] < o2[0] ? -1 : (o1[0] == o2[0] ? 0 : 1);
+			}
+		});
+		split(message, 0, n, sorted, 0, sorted.length, list);
+		return list;
+	}
+
+	private static boolean isTaken(boolean[] taken, int start, int end) {
+		for (int i = start; i < end; ++i) {
+			if (taken[i]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Splits the text between start and end by the first emoticon found in
+	 * it, like String.split, and the parts by the following emoticons
+	 * 
+	 * @param from
+	 *            first match in the text
+	 * @param to
+	 *            index after the last match in the text
+	 */
+	private void split(String message, int start, int end, int[][] matches,
+			int from, int to, LinkedList<String[]> list) {
+		int emot = Integer.MAX_VALUE;
+		for (int m = from; m < to; ++m) {
+			emot = Math.min(emot, matches[m][1]);
+		}
+		if (emot == Integer.MAX_VALUE) {
+			list.add(new String[] { "text", message.substring(start, end) });
+			return;
+		}
+		// parts between the occurrences of the emoticon: start, end and
+		// matches of the part
+		List<int[]> parts = new ArrayList<int[]>();
+		int partStart = start;
+		int partFrom = from;
+		for (int m = from; m < to; ++m) {
+			if (matches[m][1] == emot) {
+				parts.add(new int[] { partStart, matches[m][0], partFrom, m });
+				partStart = matches[m][0] + lengths[emot];
+				partFrom = m + 1;
+			}
+		}
+		parts.add(new int[] { partStart, end, partFrom, to });
+
+		// trailing empty parts are dropped
+		int count = parts.size();
+		while (count > 0 && parts.get(count - 1)[0] == parts.get(count - 1)[1]) {
+			--count;
+		}
+		for (int k = 0; k < count; ++k) {
+			int[] part = parts.get(k);
+			split(message, part[0], part[1], matches, part[2], part[3], list);
+			if (k + 1 != count) {
+				list.add(new String[] { "image", images[emot], spaces[emot], texts[emot] });
+			}
+		}
+	}
+}